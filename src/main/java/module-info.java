@@ -21,6 +21,7 @@ module test.truinconv {
     requires java.desktop;             // AWT/Swing interop (used by ImageIO, etc.)
     requires java.logging;             // Java util logging for debug/info/error messages
     requires java.prefs;               // Preferences API to persist theme settings
+    requires static jdk.incubator.vector; // Optional SIMD pixel loops, used when resolved via --add-modules
 
     // JSON serialization libraries
     requires com.fasterxml.jackson.databind;  // Jackson for more advanced JSON mapping
@@ -33,8 +34,13 @@ module test.truinconv {
     opens test.truinconv to javafx.fxml;           // Controllers & application classes
     opens test.truinconv.model to javafx.base;      // Model classes for JavaFX properties
     opens test.truinconv.converters to javafx.fxml; // Converter classes invoked via FXML
+    opens test.truinconv.batch to com.google.gson;  // Output manifest records serialized by Gson
 
     // Public API packages
     exports test.truinconv;           // Main application entry and controllers
     exports test.truinconv.converters; // Converter utilities for other modules
+    exports test.truinconv.batch;      // Parallel batch conversion engine
+    exports test.truinconv.cli;        // Headless command-line entry point
+    exports test.truinconv.watch;      // Watch-folder conversion service
+    exports test.truinconv.cache;      // Content-addressed conversion result cache
 }
\ No newline at end of file
@@ -116,7 +116,8 @@ public class ConversionApplication extends Application {
     }
 
     /**
-     * Launches the JavaFX application.
+     * Launches the JavaFX application. The launcher starts the FX toolkit before this runs;
+     * {@link Launcher} is the main class that can also run without a display.
      */
     public static void main(String[] args) {
         launch(args);
@@ -26,7 +26,14 @@ import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.geometry.Pos;
 import org.kordamp.ikonli.javafx.FontIcon;
-import test.truinconv.converters.ConverterRouter;
+import test.truinconv.batch.BatchConversionEngine;
+import test.truinconv.batch.BatchProgressListener;
+import test.truinconv.batch.BatchProgressTotals;
+import test.truinconv.batch.CategoryConcurrencyLimits;
+import test.truinconv.batch.ConversionJob;
+import test.truinconv.batch.ConversionOutcome;
+import test.truinconv.batch.EncodeProgress;
+import test.truinconv.cache.ConversionCache;
 import test.truinconv.constants.LayoutConstants;
 import test.truinconv.constants.ConversionMappings;
 import test.truinconv.model.ConversionCategory;
@@ -34,6 +41,7 @@ import test.truinconv.model.FileItem;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,6 +54,14 @@ public class ConversionController {
 
     private static final Logger LOGGER = Logger.getLogger(ConversionController.class.getName());
 
+    // The conversion cache is off unless a directory is given, e.g. -Dapp.cache.dir=/var/cache/truinconv
+    private static final String CACHE_DIRECTORY_PROPERTY = "app.cache.dir";
+    private static final String CACHE_SIZE_PROPERTY = "app.cache.sizeMb";
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024;
+
+    // Opened on the first batch and shared by later ones, so one index tracks the cache size
+    private static ConversionCache sharedCache;
+
     // FXML-injected UI components
     @FXML private VBox mainVBox;
     @FXML private Label titleLabel;
@@ -1204,37 +1220,70 @@ public class ConversionController {
             return;
         }
 
+        // Snapshot the selection so the batch is unaffected by later UI edits
+        List<ConversionJob> conversionJobs = new ArrayList<>(selectedFiles.size());
+        for (File inputFile : selectedFiles) {
+            File outputFile = BatchConversionEngine.resolveOutputFile(inputFile, outputDirectory, targetFormat);
+            conversionJobs.add(new ConversionJob(inputFile, outputFile, targetFormat, conversionCategory));
+        }
+
         // Perform conversion in background thread (with progress dialog)
         Task<Void> conversionTask = new Task<>() {
+            // Guarded by the task's monitor
+            private final BatchProgressTotals batchProgress = new BatchProgressTotals(conversionJobs.size());
+
             @Override
             protected Void call() throws Exception {
-                int totalFiles = selectedFiles.size();
-                int processedFiles = 0;
-
-                for (File inputFile : selectedFiles) {
-                    String baseName = inputFile.getName();
-                    int dotIndex = baseName.lastIndexOf('.');
-                    if (dotIndex > 0) {
-                        baseName = baseName.substring(0, dotIndex);
-                    }
+                List<ConversionOutcome> outcomes;
+                try (BatchConversionEngine engine =
+                             new BatchConversionEngine(CategoryConcurrencyLimits.defaults(), openCache(), true)) {
+                    outcomes = engine.convertAll(conversionJobs, new BatchProgressListener() {
+                        @Override
+                        public void onJobCompleted(int completedCount, int totalJobs, ConversionOutcome outcome) {
+                            reportCompleted(outcome.job());
+                        }
+
+                        @Override
+                        public void onJobProgress(EncodeProgress progress) {
+                            reportEncode(progress);
+                        }
+                    });
+                }
 
-                    File outputFile = new File(outputDirectory, baseName + "." + targetFormat.toLowerCase());
+                throwIfAnyFailed(outcomes);
+                return null;
+            }
 
-                    // Make sure we don't overwrite the input file
-                    if (outputFile.equals(inputFile)) {
-                        outputFile = new File(outputDirectory, baseName + "_converted." + targetFormat.toLowerCase());
-                    }
+            /**
+             * Records a finished job, which now counts as a whole file.
+             */
+            private synchronized void reportCompleted(ConversionJob job) {
+                batchProgress.jobFinished(job);
+                publishProgress();
+            }
 
-                    ConverterRouter.convert(inputFile, outputFile, targetFormat, conversionCategory);
+            /**
+             * Records the progress of a running encode.
+             */
+            private synchronized void reportEncode(EncodeProgress progress) {
+                batchProgress.encodeProgressed(progress);
+                publishProgress();
+            }
 
-                    processedFiles++;
-                    // update the message so the dialog shows "Converting file X of Y"
-                    updateMessage("Converting file " + processedFiles + " of " + totalFiles);
-                    final int completed = processedFiles;
-                    Platform.runLater(() -> updateProgress(completed, totalFiles));
+            /**
+             * Shows finished files plus the furthest share of running encodes, which never
+             * decreases, and the encode expected to take longest. Task coalesces updates into
+             * one pending FX-thread update, so calling this from every worker does not flood the UI.
+             */
+            private void publishProgress() {
+                EncodeProgress longestEncode = batchProgress.longestEncode();
+                // update the message so the dialog shows "Converting file X of Y"
+                String message = "Converting file " + batchProgress.finishedJobs() + " of " + conversionJobs.size();
+                if (longestEncode != null) {
+                    message += "\n" + describeEncode(longestEncode);
                 }
-
-                return null;
+                updateMessage(message);
+                updateProgress(batchProgress.finishedWork(), conversionJobs.size());
             }
 
             @Override
@@ -1270,6 +1319,77 @@ public class ConversionController {
 
     }
 
+    /**
+     * Opens the conversion cache configured by the {@value #CACHE_DIRECTORY_PROPERTY} and
+     * {@value #CACHE_SIZE_PROPERTY} system properties, continuing without one if it is
+     * unconfigured or unavailable.
+     *
+     * @return the shared cache, or null if conversions should not be cached
+     */
+    private static synchronized ConversionCache openCache() {
+        String directory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+        if (sharedCache != null || directory == null || directory.isBlank()) {
+            return sharedCache;
+        }
+        try {
+            long maxBytes = ConversionCache.DEFAULT_MAX_BYTES;
+            String sizeMegabytes = System.getProperty(CACHE_SIZE_PROPERTY);
+            if (sizeMegabytes != null) {
+                maxBytes = Long.parseLong(sizeMegabytes.trim()) * BYTES_PER_MEGABYTE;
+            }
+            sharedCache = ConversionCache.open(Path.of(directory), maxBytes);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Conversion cache unavailable; converting without it", e);
+        }
+        return sharedCache;
+    }
+
+    /**
+     * Describes a running encode, e.g. "clip.mp4: 42% at 3.1x realtime, 4:05 left".
+     *
+     * @param progress latest progress report of the encode
+     * @return one-line summary for the progress dialog
+     */
+    private static String describeEncode(EncodeProgress progress) {
+        StringBuilder description = new StringBuilder()
+                .append(progress.job().inputFile().getName()).append(": ")
+                .append(progress.permille() / 10).append('%');
+        if (progress.speed() > 0) {
+            description.append(String.format(Locale.ROOT, " at %.1fx realtime", progress.speed()));
+        }
+        if (progress.remainingMillis() >= 0) {
+            long seconds = (progress.remainingMillis() + 999) / 1000;
+            String remaining = seconds >= 3600
+                    ? String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                    : String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+            description.append(", ").append(remaining).append(" left");
+        }
+        return description.toString();
+    }
+
+    /**
+     * Surfaces failed batch jobs as a single exception for the conversion Task.
+     *
+     * @param outcomes results of every job in the batch
+     * @throws Exception the first failure, annotated with the total failure count
+     */
+    private static void throwIfAnyFailed(List<ConversionOutcome> outcomes) throws Exception {
+        List<ConversionOutcome> failures = new ArrayList<>();
+        for (ConversionOutcome outcome : outcomes) {
+            if (outcome.isFailed()) {
+                failures.add(outcome);
+            }
+        }
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        ConversionOutcome firstFailure = failures.get(0);
+        String fileName = firstFailure.job().inputFile().getName();
+        throw new Exception(failures.size() + " of " + outcomes.size() + " files failed. "
+                + fileName + ": " + firstFailure.error().getMessage(), firstFailure.error());
+    }
+
     /**
      * Goes back to the start view.
      */
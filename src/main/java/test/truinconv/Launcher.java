@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv;
+
+import javafx.application.Application;
+import test.truinconv.cli.HeadlessConverter;
+
+import java.util.Arrays;
+
+/**
+ * Main class of TruInConv, choosing between the JavaFX application and the headless converter.
+ * <p>
+ * When the main class extends {@link Application}, the Java launcher starts the FX toolkit
+ * before {@code main} runs, which needs a display. This class is not an Application, so
+ * {@value #HEADLESS_FLAG} runs {@link HeadlessConverter} without ever touching the toolkit.
+ */
+public final class Launcher {
+
+    private static final String HEADLESS_FLAG = "--headless";
+
+    // Prevent instantiation
+    private Launcher() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Runs the headless converter when the first argument is {@value #HEADLESS_FLAG},
+     * passing it the remaining arguments, and launches the JavaFX application otherwise.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && HEADLESS_FLAG.equals(args[0])) {
+            HeadlessConverter.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        Application.launch(ConversionApplication.class, args);
+    }
+}
@@ -10,6 +10,7 @@ import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.VBox;
@@ -21,6 +22,7 @@ import javafx.stage.StageStyle;
  * Modal dialog displaying the progress of a file conversion task.
  * Binds a progress bar and status label to the task, and closes
  * automatically when the task completes, fails, or is canceled.
+ * The Cancel button and the window's close button cancel the task.
  */
 public final class ProgressDialog {
     // Width of the bound ProgressBar
@@ -33,6 +35,8 @@ public final class ProgressDialog {
     private static final String DIALOG_TITLE      = "Converting Files...";
     // Initial message displayed until the task updates it
     private static final String INITIAL_MESSAGE   = "Preparing conversion...";
+    // Text of the button cancelling the task
+    private static final String CANCEL_LABEL      = "Cancel";
 
     private final Stage dialogStage;
 
@@ -71,7 +75,8 @@ public final class ProgressDialog {
     private Scene createDialogScene(Task<?> conversionTask) {
         ProgressBar progressBar = createProgressBar(conversionTask);
         Label statusLabel       = createStatusLabel(conversionTask);
-        VBox contentContainer   = createContentContainer(statusLabel, progressBar);
+        Button cancelButton     = createCancelButton(conversionTask);
+        VBox contentContainer   = createContentContainer(statusLabel, progressBar, cancelButton);
         return new Scene(contentContainer);
     }
 
@@ -91,17 +96,43 @@ public final class ProgressDialog {
     private Label createStatusLabel(Task<?> conversionTask) {
         Label statusLabel = new Label(INITIAL_MESSAGE);
         statusLabel.textProperty().bind(conversionTask.messageProperty());
+        // The message gains a line while a file encodes; refit the window when that changes
+        statusLabel.textProperty().addListener((observable, previousText, currentText) -> {
+            if (lineCount(previousText) != lineCount(currentText)) {
+                dialogStage.sizeToScene();
+            }
+        });
         return statusLabel;
     }
 
     /**
-     * Arranges the status label and progress bar in a vertically spaced VBox.
+     * Creates a Button cancelling the task, disabled once pressed.
      */
-    private VBox createContentContainer(Label statusLabel, ProgressBar progressBar) {
+    private Button createCancelButton(Task<?> conversionTask) {
+        Button cancelButton = new Button(CANCEL_LABEL);
+        cancelButton.setCancelButton(true);
+        cancelButton.setOnAction(event -> {
+            cancelButton.setDisable(true);
+            conversionTask.cancel();
+        });
+        return cancelButton;
+    }
+
+    /**
+     * Counts the lines of a message.
+     */
+    private static int lineCount(String text) {
+        return text == null ? 0 : (int) text.lines().count();
+    }
+
+    /**
+     * Arranges the status label, progress bar and cancel button in a vertically spaced VBox.
+     */
+    private VBox createContentContainer(Label statusLabel, ProgressBar progressBar, Button cancelButton) {
         VBox container = new VBox(CONTENT_SPACING);
         container.setAlignment(Pos.CENTER);
         container.setPadding(new Insets(CONTENT_PADDING));
-        container.getChildren().setAll(statusLabel, progressBar);
+        container.getChildren().setAll(statusLabel, progressBar, cancelButton);
         return container;
     }
 
@@ -114,9 +145,11 @@ public final class ProgressDialog {
     }
 
     /**
-     * Attaches listeners to close the dialog when the task ends.
+     * Attaches listeners to close the dialog when the task ends, and cancels the task
+     * when the dialog is closed first.
      */
     private void bindTaskEvents(Task<?> conversionTask) {
+        dialogStage.setOnCloseRequest(event -> conversionTask.cancel());
         conversionTask.setOnSucceeded(event -> closeDialog());
         conversionTask.setOnFailed(event -> closeDialog());
         conversionTask.setOnCancelled(event -> closeDialog());
@@ -0,0 +1,715 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import test.truinconv.cache.ConversionCache;
+import test.truinconv.converters.CancellationToken;
+import test.truinconv.converters.ConverterRouter;
+import test.truinconv.converters.ImageCompressionPreset;
+import test.truinconv.converters.ImageConverter;
+import test.truinconv.converters.MediaProbeCache;
+import test.truinconv.converters.VideoEncodingOptions;
+import test.truinconv.model.ConversionCategory;
+import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.progress.EncoderProgressListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs batches of conversions concurrently under per-category concurrency limits.
+ * <p>
+ * Each job is dispatched to {@link ConverterRouter#convert}; a failing job is
+ * recorded in its {@link ConversionOutcome} and does not stop the rest of the batch.
+ * Jobs may mix categories: a {@link MixedWorkloadScheduler} keeps JVM-bound image
+ * work and multi-threaded ffmpeg encodes from oversubscribing the CPU.
+ * When a {@link ConversionCache} is supplied, identical inputs converted with identical
+ * settings are served from the cache instead of being converted again.
+ * Every output directory keeps an {@link OutputManifest}; with skipping enabled, outputs
+ * that are newer than their unchanged source are left alone.
+ * Sources are inspected up front, in parallel: audio and video are probed into the
+ * shared {@link MediaProbeCache}, and image headers give each image job a peak memory
+ * estimate that the scheduler admits against the heap budget.
+ * Image outputs are encoded with the engine's {@link ImageCompressionPreset}, transcoded
+ * videos with its {@link VideoEncodingOptions}.
+ * Jobs converting the same source to different formats run as one scheduled task that
+ * decodes the source once and writes every output (see
+ * {@link ConverterRouter#convert(File, Map, ConversionCategory)}).
+ * A batch can be cancelled through a {@link CancellationToken} or by interrupting the
+ * calling thread; cancelling drops queued jobs and stops running ones, ffmpeg included.
+ * The engine owns its worker threads and must be closed when no longer needed.
+ */
+public final class BatchConversionEngine implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchConversionEngine.class.getName());
+
+    static final String INSPECTOR_THREAD_PREFIX = "source-inspector-";
+
+    // Life cycle of a job in convertAll
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DROPPED = 2;
+
+    private final CategoryConcurrencyLimits limits;
+    private final MixedWorkloadScheduler scheduler;
+    private final ConversionCache cache;
+    private final boolean skipUpToDate;
+    private final ImageCompressionPreset imagePreset;
+    private final VideoEncodingOptions videoOptions;
+
+    /**
+     * Creates an engine whose budget is sized to the number of available processors.
+     */
+    public BatchConversionEngine() {
+        this(CategoryConcurrencyLimits.defaults());
+    }
+
+    /**
+     * Creates an engine with a budget of {@code parallelism} CPU tokens.
+     *
+     * @param parallelism maximum number of concurrent single-core conversions (at least 1)
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public BatchConversionEngine(int parallelism) {
+        this(CategoryConcurrencyLimits.forParallelism(parallelism));
+    }
+
+    /**
+     * Creates an engine enforcing the given per-category limits.
+     *
+     * @param limits per-category job limits and CPU budget
+     * @throws IllegalArgumentException if limits is null
+     */
+    public BatchConversionEngine(CategoryConcurrencyLimits limits) {
+        this(limits, null, false);
+    }
+
+    /**
+     * Creates an engine enforcing the given limits and reusing earlier results.
+     *
+     * @param limits       per-category job limits and CPU budget
+     * @param cache        cache of earlier conversion results (may be null to disable caching)
+     * @param skipUpToDate whether to skip jobs whose output is already up to date
+     * @throws IllegalArgumentException if limits is null
+     */
+    public BatchConversionEngine(CategoryConcurrencyLimits limits, ConversionCache cache, boolean skipUpToDate) {
+        this(limits, cache, skipUpToDate, ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * Creates an engine enforcing the given limits, reusing earlier results and writing
+     * images with the given compression preset.
+     *
+     * @param limits       per-category job limits and CPU budget
+     * @param cache        cache of earlier conversion results (may be null to disable caching)
+     * @param skipUpToDate whether to skip jobs whose output is already up to date
+     * @param imagePreset  trade-off between encode time and size for image outputs
+     * @throws IllegalArgumentException if limits or imagePreset is null
+     */
+    public BatchConversionEngine(CategoryConcurrencyLimits limits, ConversionCache cache, boolean skipUpToDate,
+                                 ImageCompressionPreset imagePreset) {
+        this(limits, cache, skipUpToDate, imagePreset, VideoEncodingOptions.DEFAULT);
+    }
+
+    /**
+     * Creates an engine enforcing the given limits, reusing earlier results, writing
+     * images with the given compression preset and transcoding videos with the given
+     * encoder options.
+     *
+     * @param limits       per-category job limits and CPU budget
+     * @param cache        cache of earlier conversion results (may be null to disable caching)
+     * @param skipUpToDate whether to skip jobs whose output is already up to date
+     * @param imagePreset  trade-off between encode time and size for image outputs
+     * @param videoOptions encoder preset, CRF and threads for transcoded videos
+     * @throws IllegalArgumentException if limits, imagePreset or videoOptions is null
+     */
+    public BatchConversionEngine(CategoryConcurrencyLimits limits, ConversionCache cache, boolean skipUpToDate,
+                                 ImageCompressionPreset imagePreset, VideoEncodingOptions videoOptions) {
+        if (limits == null) {
+            throw new IllegalArgumentException("Concurrency limits cannot be null");
+        }
+        if (imagePreset == null) {
+            throw new IllegalArgumentException("Image compression preset cannot be null");
+        }
+        if (videoOptions == null) {
+            throw new IllegalArgumentException("Video encoding options cannot be null");
+        }
+        this.limits = limits;
+        this.cache = cache;
+        this.skipUpToDate = skipUpToDate;
+        this.imagePreset = imagePreset;
+        this.videoOptions = videoOptions;
+        this.scheduler = new MixedWorkloadScheduler(limits);
+    }
+
+    /**
+     * Returns the default worker count for this machine.
+     *
+     * @return number of processors available to the JVM
+     */
+    public static int defaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the concurrency limits this engine enforces.
+     *
+     * @return per-category limits
+     */
+    public CategoryConcurrencyLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Resolves the output file for an input using the application's naming rules:
+     * the input's base name with the target extension, or a {@code _converted}
+     * suffix if that would overwrite the input itself.
+     *
+     * @param inputFile       source file
+     * @param outputDirectory directory receiving converted files
+     * @param targetFormat    desired output format
+     * @return destination file for the converted content
+     */
+    public static File resolveOutputFile(File inputFile, File outputDirectory, String targetFormat) {
+        String baseName = inputFile.getName();
+        int dotIndex = baseName.lastIndexOf('.');
+        if (dotIndex > 0) {
+            baseName = baseName.substring(0, dotIndex);
+        }
+
+        String extension = targetFormat.toLowerCase();
+        File outputFile = new File(outputDirectory, baseName + "." + extension);
+
+        // Make sure we don't overwrite the input file
+        if (outputFile.equals(inputFile)) {
+            outputFile = new File(outputDirectory, baseName + "_converted." + extension);
+        }
+        return outputFile;
+    }
+
+    /**
+     * Converts every job concurrently and waits for all of them to finish.
+     * <p>
+     * If the calling thread is interrupted, the batch is cancelled as by
+     * {@link #convertAll(List, BatchProgressListener, CancellationToken)} before the interrupt
+     * is rethrown.
+     *
+     * @param jobs     jobs to execute
+     * @param listener receives a callback as each job finishes, and the progress of audio and
+     *                 video encodes while they run (may be null)
+     * @return outcomes in the same order as {@code jobs}
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<ConversionOutcome> convertAll(List<ConversionJob> jobs, BatchProgressListener listener)
+            throws InterruptedException {
+        return convertAll(jobs, listener, new CancellationToken());
+    }
+
+    /**
+     * Converts every job concurrently and waits for all of them to finish, stopping early
+     * when the token is cancelled or the calling thread is interrupted.
+     * <p>
+     * On cancel, queued jobs are dropped at once, running ffmpeg processes are destroyed and
+     * image workers interrupted. Jobs stopped part-way delete their partial output. Every job
+     * still reports an outcome, {@link ConversionOutcome.Status#CANCELLED} for those that
+     * did not finish, so the listener and the returned list always cover the whole batch.
+     *
+     * @param jobs         jobs to execute
+     * @param listener     receives a callback as each job finishes, and the progress of audio and
+     *                     video encodes while they run (may be null)
+     * @param cancellation token cancelling the batch
+     * @return outcomes in the same order as {@code jobs}
+     * @throws InterruptedException if the calling thread is interrupted while waiting; the batch
+     *                              is cancelled and wound down first
+     * @throws IllegalArgumentException if cancellation is null
+     */
+    public List<ConversionOutcome> convertAll(List<ConversionJob> jobs, BatchProgressListener listener,
+                                              CancellationToken cancellation) throws InterruptedException {
+        if (cancellation == null) {
+            throw new IllegalArgumentException("Cancellation token cannot be null");
+        }
+        int totalJobs = jobs.size();
+        ConversionOutcome[] outcomes = new ConversionOutcome[totalJobs];
+        // Indices of finished jobs; publishing through the queue makes outcomes[i] visible
+        BlockingQueue<Integer> completedIndices = new LinkedBlockingQueue<>();
+        // QUEUED until a worker claims the job, or until a cancel drops it
+        AtomicIntegerArray jobStates = new AtomicIntegerArray(totalJobs);
+        Map<File, OutputManifest> manifests = new ConcurrentHashMap<>();
+        // Grows while the cancel action may be iterating it
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+
+        boolean interrupted = false;
+        // Registered before the sources are inspected, so a cancel during inspection drops every job
+        CancellationToken.Registration stopJobsOnCancel = cancellation.onCancel(() -> {
+            // Queued jobs finish as cancelled right away, running ones once they have cleaned up
+            for (int i = 0; i < totalJobs; i++) {
+                if (jobStates.compareAndSet(i, QUEUED, DROPPED)) {
+                    outcomes[i] = new ConversionOutcome(jobs.get(i), ConversionOutcome.Status.CANCELLED, 0, null);
+                    completedIndices.add(i);
+                }
+            }
+            futures.forEach(future -> future.cancel(true));
+        });
+        try {
+            long[] memoryEstimates = null;
+            try {
+                memoryEstimates = inspectSources(jobs, manifests, cancellation);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                cancellation.cancel();
+            }
+            // Once cancelled every job has been dropped, and estimates may still be being written
+            if (!cancellation.isCancelled()) {
+                submitGroups(jobs, memoryEstimates, jobStates, outcomes, completedIndices, futures, manifests,
+                        listener, cancellation);
+            }
+
+            for (int completedJobs = 1; completedJobs <= totalJobs; completedJobs++) {
+                Integer completedIndex;
+                try {
+                    completedIndex = completedIndices.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    cancellation.cancel();
+                    completedJobs--;
+                    continue;
+                }
+                if (listener != null) {
+                    listener.onJobCompleted(completedJobs, totalJobs, outcomes[completedIndex]);
+                }
+            }
+        } finally {
+            stopJobsOnCancel.close();
+            saveManifests(manifests);
+        }
+        if (interrupted) {
+            throw new InterruptedException("Batch conversion was interrupted");
+        }
+        return List.of(outcomes);
+    }
+
+    /**
+     * Submits one scheduler task per group of jobs sharing a source. A task converts the jobs
+     * of its group it can still claim, and publishes their outcomes.
+     */
+    private void submitGroups(List<ConversionJob> jobs, long[] memoryEstimates, AtomicIntegerArray jobStates,
+                              ConversionOutcome[] outcomes, BlockingQueue<Integer> completedIndices,
+                              List<Future<?>> futures, Map<File, OutputManifest> manifests,
+                              BatchProgressListener listener, CancellationToken cancellation) {
+        for (List<Integer> group : groupBySource(jobs)) {
+            long memoryEstimate = 0;
+            for (int jobIndex : group) {
+                // The source is decoded once for the whole group
+                memoryEstimate = Math.max(memoryEstimate, memoryEstimates[jobIndex]);
+            }
+            ConversionCategory category = jobs.get(group.get(0)).conversionCategory();
+            Future<?> future = scheduler.submit(category, memoryEstimate, () -> {
+                List<Integer> claimed = new ArrayList<>(group.size());
+                for (int jobIndex : group) {
+                    if (jobStates.compareAndSet(jobIndex, QUEUED, RUNNING)) {
+                        claimed.add(jobIndex);
+                    }
+                }
+                if (claimed.isEmpty()) {
+                    return null;
+                }
+                List<ConversionJob> claimedJobs = claimed.stream().map(jobs::get).toList();
+                List<ConversionOutcome> groupOutcomes = claimedJobs.size() == 1
+                        ? List.of(runJob(claimedJobs.get(0), manifests, listener, cancellation))
+                        : runJobs(claimedJobs, manifests, listener, cancellation);
+                for (int i = 0; i < claimed.size(); i++) {
+                    outcomes[claimed.get(i)] = groupOutcomes.get(i);
+                    completedIndices.add(claimed.get(i));
+                }
+                return null;
+            });
+            futures.add(future);
+            if (cancellation.isCancelled()) {
+                // The cancel action may have run before the future was added
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Executes one job and captures its timing and failure, if any. A job stopped by a
+     * cancel removes what it wrote, since a partial output is worse than none.
+     */
+    private ConversionOutcome runJob(ConversionJob job, Map<File, OutputManifest> manifests,
+                                     BatchProgressListener listener, CancellationToken cancellation) {
+        long startTime = System.nanoTime();
+        if (cancellation.isCancelled()) {
+            return new ConversionOutcome(job, ConversionOutcome.Status.CANCELLED, 0, null);
+        }
+        try {
+            // Stamp the source before converting so a concurrent rewrite is caught next run
+            long sourceSize = job.inputFile().length();
+            long sourceModified = job.inputFile().lastModified();
+            String requestedSettings = describeRequestedSettings(job);
+            OutputManifest manifest = manifestFor(job, manifests);
+
+            if (skipUpToDate && manifest.isUpToDate(job.inputFile(), job.outputFile(), requestedSettings)) {
+                return new ConversionOutcome(job, ConversionOutcome.Status.SKIPPED,
+                        System.nanoTime() - startTime, null);
+            }
+
+            ConversionOutcome.Status status = produceOutput(job, listener, cancellation);
+            manifest.record(job.outputFile(), job.inputFile(), sourceSize, sourceModified, requestedSettings);
+            return new ConversionOutcome(job, status, System.nanoTime() - startTime, null);
+        } catch (Exception | Error e) {
+            if (cancellation.isCancelled()) {
+                deletePartialOutput(job);
+                return new ConversionOutcome(job, ConversionOutcome.Status.CANCELLED,
+                        System.nanoTime() - startTime, null);
+            }
+            // Errors (e.g. OutOfMemoryError on a huge image) fail the file, not the batch
+            return new ConversionOutcome(job, ConversionOutcome.Status.FAILED,
+                    System.nanoTime() - startTime, e);
+        }
+    }
+
+    /**
+     * Executes jobs converting one source to different formats with a single conversion
+     * that decodes the source once. Outputs that are up to date or cached are handled per job
+     * first; if the shared conversion fails, every job taking part in it fails. Jobs converted
+     * together each report the time of the whole group.
+     *
+     * @return outcomes in the same order as {@code group}
+     */
+    private List<ConversionOutcome> runJobs(List<ConversionJob> group, Map<File, OutputManifest> manifests,
+                                            BatchProgressListener listener, CancellationToken cancellation) {
+        long startTime = System.nanoTime();
+        ConversionOutcome[] groupOutcomes = new ConversionOutcome[group.size()];
+        try {
+            cancellation.throwIfCancelled();
+            ConversionJob first = group.get(0);
+            long sourceSize = first.inputFile().length();
+            long sourceModified = first.inputFile().lastModified();
+            Map<String, File> targets = new LinkedHashMap<>();
+            List<EncodeProgressTracker> trackers = new ArrayList<>();
+            String[] requestedSettings = new String[group.size()];
+            String[] cacheKeys = new String[group.size()];
+            for (int i = 0; i < group.size(); i++) {
+                ConversionJob job = group.get(i);
+                requestedSettings[i] = describeRequestedSettings(job);
+                if (skipUpToDate && manifestFor(job, manifests)
+                        .isUpToDate(job.inputFile(), job.outputFile(), requestedSettings[i])) {
+                    groupOutcomes[i] = new ConversionOutcome(job, ConversionOutcome.Status.SKIPPED,
+                            System.nanoTime() - startTime, null);
+                    continue;
+                }
+                cacheKeys[i] = cacheKeyFor(job);
+                if (cacheKeys[i] != null && cache.materialize(cacheKeys[i], job.outputFile())) {
+                    manifestFor(job, manifests).record(job.outputFile(), job.inputFile(), sourceSize,
+                            sourceModified, requestedSettings[i]);
+                    groupOutcomes[i] = new ConversionOutcome(job, ConversionOutcome.Status.CACHED,
+                            System.nanoTime() - startTime, null);
+                    continue;
+                }
+                targets.put(job.targetFormat(), job.outputFile());
+                if (listener != null) {
+                    trackers.add(new EncodeProgressTracker(job, listener));
+                }
+            }
+            if (targets.isEmpty()) {
+                return List.of(groupOutcomes);
+            }
+
+            ConverterRouter.convert(first.inputFile(), targets, first.conversionCategory(), imagePreset,
+                    videoOptions, trackers.isEmpty() ? null : fanOut(trackers), cancellation);
+
+            for (int i = 0; i < group.size(); i++) {
+                if (groupOutcomes[i] != null) {
+                    continue;
+                }
+                ConversionJob job = group.get(i);
+                manifestFor(job, manifests).record(job.outputFile(), job.inputFile(), sourceSize, sourceModified,
+                        requestedSettings[i]);
+                if (cacheKeys[i] != null) {
+                    storeInCache(cacheKeys[i], job);
+                }
+                groupOutcomes[i] = new ConversionOutcome(job, ConversionOutcome.Status.CONVERTED,
+                        System.nanoTime() - startTime, null);
+            }
+        } catch (Exception | Error e) {
+            boolean cancelled = cancellation.isCancelled();
+            for (int i = 0; i < group.size(); i++) {
+                if (groupOutcomes[i] != null) {
+                    continue;
+                }
+                if (cancelled) {
+                    deletePartialOutput(group.get(i));
+                }
+                groupOutcomes[i] = new ConversionOutcome(group.get(i),
+                        cancelled ? ConversionOutcome.Status.CANCELLED : ConversionOutcome.Status.FAILED,
+                        System.nanoTime() - startTime, cancelled ? null : e);
+            }
+        }
+        return List.of(groupOutcomes);
+    }
+
+    /**
+     * Splits the jobs into groups converting one source in one category, each to a different
+     * format. Groups keep the order of their first job.
+     *
+     * @return job indices per group
+     */
+    private static List<List<Integer>> groupBySource(List<ConversionJob> jobs) {
+        List<List<Integer>> groups = new ArrayList<>();
+        Map<List<Object>, List<List<Integer>>> groupsBySource = new HashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            ConversionJob job = jobs.get(i);
+            List<List<Integer>> sourceGroups = groupsBySource.computeIfAbsent(
+                    List.of(job.inputFile().getAbsoluteFile(), job.conversionCategory()), source -> new ArrayList<>());
+            // A repeated format goes to another group, as one conversion writes each format once
+            List<Integer> group = sourceGroups.stream()
+                    .filter(candidate -> candidate.stream().noneMatch(other -> sameFormat(jobs.get(other), job)))
+                    .findFirst()
+                    .orElse(null);
+            if (group == null) {
+                group = new ArrayList<>();
+                sourceGroups.add(group);
+                groups.add(group);
+            }
+            group.add(i);
+        }
+        return groups;
+    }
+
+    /**
+     * Checks whether two jobs request the same target format.
+     */
+    private static boolean sameFormat(ConversionJob first, ConversionJob second) {
+        return first.targetFormat().trim().equalsIgnoreCase(second.targetFormat().trim());
+    }
+
+    /**
+     * Returns a listener passing the progress of one encode to the trackers of every job it
+     * writes an output for.
+     */
+    private static EncoderProgressListener fanOut(List<EncodeProgressTracker> trackers) {
+        return new EncoderProgressListener() {
+            @Override
+            public void sourceInfo(MultimediaInfo info) {
+                trackers.forEach(tracker -> tracker.sourceInfo(info));
+            }
+
+            @Override
+            public void progress(int permille) {
+                trackers.forEach(tracker -> tracker.progress(permille));
+            }
+
+            @Override
+            public void message(String message) {
+                trackers.forEach(tracker -> tracker.message(message));
+            }
+        };
+    }
+
+    /**
+     * Deletes the output of a job stopped part-way; a failure to delete is only logged.
+     */
+    private static void deletePartialOutput(ConversionJob job) {
+        try {
+            Files.deleteIfExists(job.outputFile().toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot delete partial output " + job.outputFile(), e);
+        }
+    }
+
+    /**
+     * Inspects the sources of all jobs that will actually run, so each encode finds its
+     * media info cached and each image job carries an estimate of its peak heap use. A cancel
+     * stops the inspections still running and skips the others.
+     *
+     * @return estimated peak heap use per job, in job order; 0 where unknown
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private long[] inspectSources(List<ConversionJob> jobs, Map<File, OutputManifest> manifests,
+                                  CancellationToken cancellation) throws InterruptedException {
+        long[] memoryEstimates = new long[jobs.size()];
+        if (cancellation.isCancelled()) {
+            return memoryEstimates;
+        }
+        List<Callable<Void>> inspections = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            int jobIndex = i;
+            ConversionJob job = jobs.get(jobIndex);
+            if (skipUpToDate && manifestFor(job, manifests)
+                    .isUpToDate(job.inputFile(), job.outputFile(), describeRequestedSettings(job))) {
+                continue;
+            }
+            if (ConverterRouter.isPassthrough(job.inputFile(), job.targetFormat())) {
+                // A plain copy neither probes the source nor holds it in memory
+                continue;
+            }
+            inspections.add(() -> {
+                if (cancellation.isCancelled()) {
+                    return null;
+                }
+                if (job.conversionCategory() != ConversionCategory.IMAGE) {
+                    MediaProbeCache.prefetch(job.inputFile());
+                    return null;
+                }
+                try {
+                    memoryEstimates[jobIndex] = ImageConverter.estimatePeakBytes(job.inputFile(), job.targetFormat());
+                } catch (IOException e) {
+                    // The conversion itself reports unreadable images
+                    LOGGER.log(Level.FINE, "Cannot estimate memory for " + job.inputFile(), e);
+                }
+                return null;
+            });
+        }
+        if (inspections.isEmpty()) {
+            return memoryEstimates;
+        }
+
+        // Inspections mostly wait on I/O and ffmpeg start-up, so they are bounded by the budget, not category limits
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        ExecutorService inspectorPool = Executors.newFixedThreadPool(
+                Math.min(limits.getCpuBudget(), inspections.size()), runnable -> {
+                    Thread inspector = new Thread(runnable, INSPECTOR_THREAD_PREFIX + threadCounter.getAndIncrement());
+                    inspector.setDaemon(true);
+                    return inspector;
+                });
+        List<Future<Void>> pending = new ArrayList<>(inspections.size());
+        CancellationToken.Registration stopOnCancel = null;
+        try {
+            for (Callable<Void> inspection : inspections) {
+                pending.add(inspectorPool.submit(inspection));
+            }
+            stopOnCancel = cancellation.onCancel(() -> pending.forEach(inspection -> inspection.cancel(true)));
+            // Waiting for every inspection publishes the estimates
+            for (Future<Void> inspection : pending) {
+                try {
+                    inspection.get();
+                } catch (CancellationException | ExecutionException e) {
+                    // Cancelled with the batch, or failed; the conversion itself reports unreadable sources
+                    LOGGER.log(Level.FINE, "Source inspection did not complete", e);
+                }
+            }
+        } finally {
+            if (stopOnCancel != null) {
+                stopOnCancel.close();
+            }
+            inspectorPool.shutdownNow();
+        }
+        return memoryEstimates;
+    }
+
+    /**
+     * Returns the manifest of a job's output directory, loading it on first use.
+     */
+    private static OutputManifest manifestFor(ConversionJob job, Map<File, OutputManifest> manifests) {
+        return manifests.computeIfAbsent(job.outputFile().getAbsoluteFile().getParentFile(),
+                directory -> OutputManifest.load(directory.toPath()));
+    }
+
+    /**
+     * Produces a job's output from the cache or by converting, reporting encode progress
+     * to the listener, if any, and stopping encodes when the token is cancelled.
+     *
+     * @return {@link ConversionOutcome.Status#CACHED} or {@link ConversionOutcome.Status#CONVERTED}
+     */
+    private ConversionOutcome.Status produceOutput(ConversionJob job, BatchProgressListener listener,
+                                                   CancellationToken cancellation) throws Exception {
+        String cacheKey = cacheKeyFor(job);
+        if (cacheKey != null && cache.materialize(cacheKey, job.outputFile())) {
+            return ConversionOutcome.Status.CACHED;
+        }
+
+        ConverterRouter.convert(job.inputFile(), job.outputFile(), job.targetFormat(), job.conversionCategory(),
+                imagePreset, videoOptions, listener == null ? null : new EncodeProgressTracker(job, listener),
+                cancellation);
+
+        if (cacheKey != null) {
+            storeInCache(cacheKey, job);
+        }
+        return ConversionOutcome.Status.CONVERTED;
+    }
+
+    /**
+     * Computes the cache key of a job's output.
+     *
+     * @return the key, or null without a cache or for a plain copy of the source, which
+     *         caching would only duplicate
+     */
+    private String cacheKeyFor(ConversionJob job) throws Exception {
+        if (cache == null || ConverterRouter.isPassthrough(job.inputFile(), job.targetFormat())) {
+            return null;
+        }
+        String settings = ConverterRouter.describeSettings(
+                job.inputFile(), job.targetFormat(), job.conversionCategory(), imagePreset, videoOptions);
+        return cache.computeKey(job.inputFile(), job.targetFormat(), settings);
+    }
+
+    /**
+     * Describes the settings a job was requested with. The effective encoder settings
+     * are derived from these and the source content, so an unchanged source converted
+     * with the same request reproduces the same output.
+     */
+    private String describeRequestedSettings(ConversionJob job) {
+        String settings = job.conversionCategory() + ":" + job.targetFormat().toUpperCase().trim();
+        return switch (job.conversionCategory()) {
+            case IMAGE -> settings + ":" + imagePreset;
+            case VIDEO -> settings + ":" + videoOptions.describe();
+            case AUDIO -> settings;
+        };
+    }
+
+    /**
+     * Persists every manifest touched by a batch; a failure to save never fails the batch.
+     */
+    private static void saveManifests(Map<File, OutputManifest> manifests) {
+        for (OutputManifest manifest : manifests.values()) {
+            try {
+                manifest.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to save output manifest", e);
+            }
+        }
+    }
+
+    /**
+     * Adds a converted output to the cache; a cache failure never fails the job.
+     */
+    private void storeInCache(String cacheKey, ConversionJob job) {
+        try {
+            cache.store(cacheKey, job.outputFile());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to cache " + job.outputFile(), e);
+        }
+    }
+
+    /**
+     * Drops queued jobs and stops the workers; running conversions are interrupted.
+     */
+    @Override
+    public void close() {
+        scheduler.close();
+    }
+}
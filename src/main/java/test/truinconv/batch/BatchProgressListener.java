@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+/**
+ * Receives aggregate progress from {@link BatchConversionEngine}.
+ * <p>
+ * Callbacks arrive on worker threads; implementations must be thread-safe
+ * and must marshal to the JavaFX thread themselves if they touch the UI.
+ */
+@FunctionalInterface
+public interface BatchProgressListener {
+
+    /**
+     * Called each time a job finishes, successfully or not.
+     *
+     * @param completedJobs number of jobs finished so far
+     * @param totalJobs     total number of jobs in the batch
+     * @param outcome       outcome of the job that just finished
+     */
+    void onJobCompleted(int completedJobs, int totalJobs, ConversionOutcome outcome);
+
+    /**
+     * Called while an audio or video job encodes, at most a few times a second per job.
+     * Image jobs, cached outputs and plain copies finish without progress reports.
+     *
+     * @param progress progress, speed and time remaining of the job's encode
+     */
+    default void onJobProgress(EncodeProgress progress) {
+        // Listeners that only count finished jobs ignore encode progress
+    }
+}
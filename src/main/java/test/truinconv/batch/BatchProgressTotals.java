@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Combines the reports of a {@link BatchProgressListener} into the finished share of a batch:
+ * each finished job counts as one, each running encode as its encoded fraction.
+ * <p>
+ * The total never decreases. An encode that starts over, as a transcode after a failed remux
+ * does, keeps counting its furthest fraction until it passes it again, and reports arriving
+ * for a job after it finished are ignored. Jobs are told apart by identity, so a batch
+ * converting the same file to the same format twice counts both. Instances are not
+ * thread-safe; listeners called from several workers synchronize around them.
+ */
+public final class BatchProgressTotals {
+
+    private final int totalJobs;
+    private final Map<ConversionJob, EncodeProgress> runningEncodes = new IdentityHashMap<>();
+    private final Map<ConversionJob, Double> encodedFractions = new IdentityHashMap<>();
+    private final Set<ConversionJob> finishedJobs = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Creates totals for a batch.
+     *
+     * @param totalJobs number of jobs in the batch
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public BatchProgressTotals(int totalJobs) {
+        if (totalJobs < 0) {
+            throw new IllegalArgumentException("Total jobs must not be negative: " + totalJobs);
+        }
+        this.totalJobs = totalJobs;
+    }
+
+    /**
+     * Records a finished job, which now counts as a whole one.
+     *
+     * @param job job that finished, successfully or not
+     */
+    public void jobFinished(ConversionJob job) {
+        if (finishedJobs.add(job)) {
+            runningEncodes.remove(job);
+            encodedFractions.remove(job);
+        }
+    }
+
+    /**
+     * Records the progress of a running encode.
+     *
+     * @param progress latest report of the encode
+     */
+    public void encodeProgressed(EncodeProgress progress) {
+        ConversionJob job = progress.job();
+        if (finishedJobs.contains(job)) {
+            return;
+        }
+        runningEncodes.put(job, progress);
+        encodedFractions.merge(job, progress.fraction(), Math::max);
+    }
+
+    /**
+     * Returns the number of finished jobs.
+     *
+     * @return jobs finished so far
+     */
+    public int finishedJobs() {
+        return finishedJobs.size();
+    }
+
+    /**
+     * Returns the number of jobs in the batch.
+     *
+     * @return total jobs
+     */
+    public int totalJobs() {
+        return totalJobs;
+    }
+
+    /**
+     * Returns the finished jobs plus the encoded fractions of running encodes.
+     *
+     * @return work done, from 0 to {@link #totalJobs()}
+     */
+    public double finishedWork() {
+        double finishedWork = finishedJobs.size();
+        for (double fraction : encodedFractions.values()) {
+            finishedWork += fraction;
+        }
+        return Math.min(totalJobs, finishedWork);
+    }
+
+    /**
+     * Returns the latest report of the running encode expected to take longest.
+     *
+     * @return report with the most time remaining, or {@code null} if no encode is running
+     */
+    public EncodeProgress longestEncode() {
+        EncodeProgress longestEncode = null;
+        for (EncodeProgress progress : runningEncodes.values()) {
+            if (longestEncode == null || progress.remainingMillis() > longestEncode.remainingMillis()) {
+                longestEncode = progress;
+            }
+        }
+        return longestEncode;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import test.truinconv.model.ConversionCategory;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Concurrency budget for a mixed conversion workload.
+ * <p>
+ * The scheduler hands out {@link #getCpuBudget()} CPU tokens. Every running job
+ * holds {@link #getWeight(ConversionCategory)} tokens, and no category may run more
+ * than {@link #getLimit(ConversionCategory)} jobs at once. Image conversions run on
+ * the JVM and use about one core each, so they weigh 1. A video encode runs ffmpeg,
+ * which spreads over many cores, so it weighs enough that two encodes fill the machine.
+ * <p>
+ * Jobs may also declare an estimated peak heap use; running jobs never hold more than
+ * {@link #getMemoryBudget()} bytes of estimates together.
+ */
+public final class CategoryConcurrencyLimits {
+
+    // Default number of simultaneous video encodes
+    private static final int DEFAULT_VIDEO_LIMIT = 2;
+    // Share of the maximum heap available to concurrent decodes; the rest is headroom
+    private static final double DEFAULT_MEMORY_FRACTION = 0.6;
+
+    private final int cpuBudget;
+    private final Map<ConversionCategory, Integer> limits;
+    private final Map<ConversionCategory, Integer> weights;
+    private final long memoryBudget;
+
+    private CategoryConcurrencyLimits(int cpuBudget,
+                                      Map<ConversionCategory, Integer> limits,
+                                      Map<ConversionCategory, Integer> weights,
+                                      long memoryBudget) {
+        this.cpuBudget = cpuBudget;
+        this.limits = limits;
+        this.weights = weights;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns limits sized to the number of processors available to the JVM.
+     *
+     * @return default limits for this machine
+     */
+    public static CategoryConcurrencyLimits defaults() {
+        return forParallelism(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns limits for a machine budget of {@code parallelism} CPU tokens.
+     *
+     * @param parallelism total CPU tokens (at least 1)
+     * @return limits scaled to the given parallelism
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public static CategoryConcurrencyLimits forParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        int videoLimit = Math.min(DEFAULT_VIDEO_LIMIT, parallelism);
+
+        Map<ConversionCategory, Integer> limits = new EnumMap<>(ConversionCategory.class);
+        limits.put(ConversionCategory.IMAGE, parallelism);
+        limits.put(ConversionCategory.AUDIO, parallelism);
+        limits.put(ConversionCategory.VIDEO, videoLimit);
+
+        Map<ConversionCategory, Integer> weights = new EnumMap<>(ConversionCategory.class);
+        weights.put(ConversionCategory.IMAGE, 1);
+        weights.put(ConversionCategory.AUDIO, 1);
+        weights.put(ConversionCategory.VIDEO, Math.max(1, parallelism / videoLimit));
+
+        long memoryBudget = (long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_FRACTION);
+        return new CategoryConcurrencyLimits(parallelism, limits, weights, memoryBudget);
+    }
+
+    /**
+     * Returns a copy with a different job limit for one category.
+     *
+     * @param category category to change
+     * @param limit    maximum simultaneous jobs for the category (at least 1)
+     * @return new limits instance
+     * @throws IllegalArgumentException if limit is less than 1
+     */
+    public CategoryConcurrencyLimits withLimit(ConversionCategory category, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1: " + limit);
+        }
+        Map<ConversionCategory, Integer> newLimits = new EnumMap<>(limits);
+        newLimits.put(category, limit);
+        return new CategoryConcurrencyLimits(cpuBudget, newLimits, weights, memoryBudget);
+    }
+
+    /**
+     * Returns a copy with a different CPU weight for one category.
+     *
+     * @param category category to change
+     * @param weight   CPU tokens held by each running job of the category (at least 1)
+     * @return new limits instance
+     * @throws IllegalArgumentException if weight is less than 1
+     */
+    public CategoryConcurrencyLimits withWeight(ConversionCategory category, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+        }
+        Map<ConversionCategory, Integer> newWeights = new EnumMap<>(weights);
+        newWeights.put(category, weight);
+        return new CategoryConcurrencyLimits(cpuBudget, limits, newWeights, memoryBudget);
+    }
+
+    /**
+     * Returns a copy with a different heap budget for concurrently running jobs.
+     *
+     * @param memoryBudget maximum bytes of estimated peak heap use across running jobs (at least 1)
+     * @return new limits instance
+     * @throws IllegalArgumentException if memoryBudget is less than 1
+     */
+    public CategoryConcurrencyLimits withMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("Memory budget must be at least 1 byte: " + memoryBudget);
+        }
+        return new CategoryConcurrencyLimits(cpuBudget, limits, weights, memoryBudget);
+    }
+
+    /**
+     * Returns the total number of CPU tokens shared by all categories.
+     *
+     * @return CPU token budget
+     */
+    public int getCpuBudget() {
+        return cpuBudget;
+    }
+
+    /**
+     * Returns the heap budget shared by running jobs' memory estimates.
+     *
+     * @return memory budget in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Returns the maximum number of simultaneous jobs for a category.
+     *
+     * @param category conversion category
+     * @return job limit
+     */
+    public int getLimit(ConversionCategory category) {
+        return limits.get(category);
+    }
+
+    /**
+     * Returns the CPU tokens held by each running job of a category,
+     * capped at the overall budget so a single job can always run.
+     *
+     * @param category conversion category
+     * @return CPU weight per job
+     */
+    public int getWeight(ConversionCategory category) {
+        return Math.min(weights.get(category), cpuBudget);
+    }
+
+    @Override
+    public String toString() {
+        return "CategoryConcurrencyLimits{cpuBudget=" + cpuBudget
+                + ", limits=" + limits + ", weights=" + weights + ", memoryBudget=" + memoryBudget + "}";
+    }
+}
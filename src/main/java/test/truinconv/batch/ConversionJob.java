@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import test.truinconv.model.ConversionCategory;
+
+import java.io.File;
+
+/**
+ * A single unit of work for the batch engine: one input converted to one output.
+ *
+ * @param inputFile          source file to convert
+ * @param outputFile         destination file for the converted content
+ * @param targetFormat       desired output format
+ * @param conversionCategory category determining which converter handles the job
+ */
+public record ConversionJob(File inputFile,
+                            File outputFile,
+                            String targetFormat,
+                            ConversionCategory conversionCategory) {
+
+    /**
+     * Validates that every component is present.
+     *
+     * @throws IllegalArgumentException if any component is null
+     */
+    public ConversionJob {
+        if (inputFile == null || outputFile == null || targetFormat == null || conversionCategory == null) {
+            throw new IllegalArgumentException("Input file, output file, target format, and category cannot be null");
+        }
+    }
+}
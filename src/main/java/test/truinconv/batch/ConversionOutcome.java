@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+/**
+ * Result of running a single {@link ConversionJob}.
+ *
+ * @param job          the job that was executed
+ * @param status       how the job finished
+ * @param elapsedNanos wall-clock time spent on the job
+ * @param error        failure cause, or {@code null} if the job did not fail
+ */
+public record ConversionOutcome(ConversionJob job, Status status, long elapsedNanos, Throwable error) {
+
+    /**
+     * Final state of a job.
+     */
+    public enum Status {
+        /** The converter produced the output file. */
+        CONVERTED,
+        /** The output was produced from the conversion cache without converting. */
+        CACHED,
+        /** The existing output was already up to date with its source. */
+        SKIPPED,
+        /** The converter threw; see {@link #error()}. */
+        FAILED,
+        /** The batch was cancelled before the job finished; a partial output was deleted. */
+        CANCELLED
+    }
+
+    /**
+     * Indicates whether the job failed.
+     *
+     * @return true if the status is {@link Status#FAILED}
+     */
+    public boolean isFailed() {
+        return status == Status.FAILED;
+    }
+
+    /**
+     * Returns the elapsed time in milliseconds.
+     *
+     * @return elapsed wall-clock milliseconds
+     */
+    public double elapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+/**
+ * Progress of the ffmpeg encode behind a running audio or video {@link ConversionJob}.
+ *
+ * @param job             the job being encoded
+ * @param permille        share of the source encoded so far, from 0 to 1000
+ * @param speed           media time encoded per wall-clock time, e.g. 2.5 for 2.5x realtime;
+ *                        0 while unknown
+ * @param remainingMillis estimated wall-clock time until the encode finishes; -1 while unknown
+ */
+public record EncodeProgress(ConversionJob job, int permille, double speed, long remainingMillis) {
+
+    /**
+     * Returns the encoded share of the source as a fraction.
+     *
+     * @return progress from 0.0 to 1.0
+     */
+    public double fraction() {
+        return permille / 1000.0;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.progress.EncoderProgressListener;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Turns the per-mille callbacks of one JAVE encode into {@link EncodeProgress} reports with
+ * encode speed and time remaining.
+ * <p>
+ * JAVE calls back for every status line ffmpeg prints, several times a second per encode.
+ * Reports are coalesced to at most one per {@link #REPORT_INTERVAL_NANOS}, plus the final one,
+ * so a batch of parallel encodes cannot flood the listener or the UI thread behind it.
+ * Instances serve a single encode and are called on the thread running it.
+ */
+final class EncodeProgressTracker implements EncoderProgressListener {
+
+    private static final long REPORT_INTERVAL_NANOS = 250_000_000L;
+
+    private static final int COMPLETE_PERMILLE = 1000;
+
+    private final ConversionJob job;
+    private final BatchProgressListener listener;
+    private final LongSupplier nanoClock;
+
+    private long startNanos;
+    private long lastReportNanos;
+    private int lastPermille = -1;
+    // Source duration in milliseconds, or 0 if the probe did not report one
+    private long durationMillis;
+
+    /**
+     * Creates a tracker for the encode of a job.
+     *
+     * @param job      job being encoded
+     * @param listener receives the coalesced progress reports
+     */
+    EncodeProgressTracker(ConversionJob job, BatchProgressListener listener) {
+        this(job, listener, System::nanoTime);
+    }
+
+    /**
+     * Creates a tracker timing the encode with the given clock.
+     *
+     * @param job       job being encoded
+     * @param listener  receives the coalesced progress reports
+     * @param nanoClock returns the current time in nanoseconds, as {@link System#nanoTime()} does
+     */
+    EncodeProgressTracker(ConversionJob job, BatchProgressListener listener, LongSupplier nanoClock) {
+        this.job = job;
+        this.listener = listener;
+        this.nanoClock = nanoClock;
+        restart(nanoClock.getAsLong());
+    }
+
+    @Override
+    public void sourceInfo(MultimediaInfo info) {
+        durationMillis = info == null ? 0 : Math.max(0, info.getDuration());
+    }
+
+    @Override
+    public void progress(int permille) {
+        int clamped = Math.max(0, Math.min(COMPLETE_PERMILLE, permille));
+        long now = nanoClock.getAsLong();
+        if (clamped < lastPermille) {
+            // A fallback encode (e.g. transcoding after a failed remux) starts over
+            restart(now);
+        }
+        boolean due = now - lastReportNanos >= REPORT_INTERVAL_NANOS;
+        if (clamped == lastPermille || (!due && clamped < COMPLETE_PERMILLE)) {
+            lastPermille = clamped;
+            return;
+        }
+        lastPermille = clamped;
+        lastReportNanos = now;
+        listener.onJobProgress(new EncodeProgress(job, clamped, speed(clamped, now), remainingMillis(clamped, now)));
+    }
+
+    @Override
+    public void message(String message) {
+        // ffmpeg's other log lines carry nothing the batch reports
+    }
+
+    /**
+     * Starts timing an encode, making its first callback due for a report.
+     */
+    private void restart(long now) {
+        startNanos = now;
+        lastReportNanos = now - REPORT_INTERVAL_NANOS;
+    }
+
+    /**
+     * Returns media time encoded per wall-clock time, or 0 if unknown.
+     */
+    private double speed(int permille, long now) {
+        long elapsedNanos = now - startNanos;
+        if (durationMillis == 0 || elapsedNanos <= 0) {
+            return 0;
+        }
+        double encodedMillis = durationMillis * (permille / (double) COMPLETE_PERMILLE);
+        return encodedMillis / (elapsedNanos / 1_000_000.0);
+    }
+
+    /**
+     * Extrapolates the time left from the rate so far, or returns -1 before any progress.
+     */
+    private long remainingMillis(int permille, long now) {
+        if (permille == 0) {
+            return -1;
+        }
+        long elapsedMillis = (now - startNanos) / 1_000_000L;
+        return elapsedMillis * (COMPLETE_PERMILLE - permille) / permille;
+    }
+}
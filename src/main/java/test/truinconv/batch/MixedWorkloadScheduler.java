@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import test.truinconv.model.ConversionCategory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches work from per-category queues under a shared CPU token budget.
+ * <p>
+ * A queued job starts only when its category is below its job limit and enough
+ * CPU tokens are free for its weight (see {@link CategoryConcurrencyLimits}).
+ * Categories are served round-robin. When the category whose turn it is cannot fit,
+ * dispatch pauses until tokens are released, so heavy jobs are not starved by a
+ * steady stream of light ones.
+ * <p>
+ * Jobs may declare an estimated peak heap use, and running jobs never exceed the memory
+ * budget together. A job that does not fit may be overtaken by smaller jobs queued behind
+ * it, but only {@value #MAX_BYPASSES} times; after that its category waits until enough
+ * memory is released for it.
+ */
+final class MixedWorkloadScheduler implements AutoCloseable {
+
+    private static final String WORKER_THREAD_PREFIX = "conversion-worker-";
+    private static final ConversionCategory[] CATEGORIES = ConversionCategory.values();
+    private static final int MAX_BYPASSES = 16;
+
+    /**
+     * Queued work with its memory estimate.
+     */
+    private static final class QueuedTask {
+        private final FutureTask<?> task;
+        private final long memoryBytes;
+        private int bypasses;
+
+        private QueuedTask(FutureTask<?> task, long memoryBytes) {
+            this.task = task;
+            this.memoryBytes = memoryBytes;
+        }
+    }
+
+    private final CategoryConcurrencyLimits limits;
+    private final ExecutorService workerPool;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private final Map<ConversionCategory, Deque<QueuedTask>> queues = new EnumMap<>(ConversionCategory.class);
+    private final Map<ConversionCategory, Integer> runningJobs = new EnumMap<>(ConversionCategory.class);
+    private int availableTokens;
+    private long availableMemory;
+    private int nextCategoryIndex;
+    private boolean shutdown;
+
+    /**
+     * Creates a scheduler enforcing the given limits.
+     *
+     * @param limits per-category limits and CPU budget
+     */
+    MixedWorkloadScheduler(CategoryConcurrencyLimits limits) {
+        this.limits = limits;
+        this.availableTokens = limits.getCpuBudget();
+        this.availableMemory = limits.getMemoryBudget();
+        // Threads are only created for admitted jobs, so the pool itself can be unbounded
+        this.workerPool = Executors.newCachedThreadPool(createWorkerThreadFactory());
+        for (ConversionCategory category : CATEGORIES) {
+            queues.put(category, new ArrayDeque<>());
+            runningJobs.put(category, 0);
+        }
+    }
+
+    /**
+     * Queues work for a category and starts it as soon as the budget allows.
+     *
+     * @param category category whose limits apply
+     * @param work     work to run
+     * @param <T>      result type
+     * @return future for the work; cancelling it drops the job if it has not started
+     * @throws RejectedExecutionException if the scheduler has been closed
+     */
+    <T> Future<T> submit(ConversionCategory category, Callable<T> work) {
+        return submit(category, 0, work);
+    }
+
+    /**
+     * Queues work with an estimated peak heap use and starts it as soon as the budget allows.
+     * Estimates above the memory budget are capped so the job can still run on its own.
+     *
+     * @param category    category whose limits apply
+     * @param memoryBytes estimated peak heap use of the work
+     * @param work        work to run
+     * @param <T>         result type
+     * @return future for the work; cancelling it drops the job if it has not started
+     * @throws RejectedExecutionException if the scheduler has been closed
+     */
+    <T> Future<T> submit(ConversionCategory category, long memoryBytes, Callable<T> work) {
+        FutureTask<T> task = new FutureTask<>(work);
+        long cappedMemory = Math.max(0, Math.min(memoryBytes, limits.getMemoryBudget()));
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Scheduler has been closed");
+            }
+            queues.get(category).addLast(new QueuedTask(task, cappedMemory));
+            dispatchLocked();
+        }
+        return task;
+    }
+
+    /**
+     * Starts as many queued jobs as the limits allow. Caller must hold the lock.
+     */
+    private void dispatchLocked() {
+        boolean started = true;
+        while (started && !shutdown) {
+            started = false;
+            for (int offset = 0; offset < CATEGORIES.length; offset++) {
+                int categoryIndex = (nextCategoryIndex + offset) % CATEGORIES.length;
+                ConversionCategory category = CATEGORIES[categoryIndex];
+                Deque<QueuedTask> queue = queues.get(category);
+
+                // Cancelled jobs are dropped without consuming budget
+                queue.removeIf(queued -> queued.task.isDone());
+                if (queue.isEmpty() || runningJobs.get(category) >= limits.getLimit(category)) {
+                    continue;
+                }
+
+                int weight = limits.getWeight(category);
+                if (weight > availableTokens) {
+                    // Reserve the freed tokens for this category until it fits
+                    nextCategoryIndex = categoryIndex;
+                    return;
+                }
+
+                QueuedTask next = takeFittingLocked(queue);
+                if (next == null) {
+                    // Out of memory for this category; the others may still run
+                    continue;
+                }
+                startLocked(category, weight, next);
+                nextCategoryIndex = (categoryIndex + 1) % CATEGORIES.length;
+                started = true;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the first queued job whose memory estimate fits, or null if none
+     * may start. Caller must hold the lock.
+     */
+    private QueuedTask takeFittingLocked(Deque<QueuedTask> queue) {
+        QueuedTask head = queue.peekFirst();
+        if (head.memoryBytes <= availableMemory) {
+            return queue.pollFirst();
+        }
+        if (head.bypasses >= MAX_BYPASSES) {
+            // Let released memory accumulate for the head job
+            return null;
+        }
+        for (QueuedTask queued : queue) {
+            if (queued.memoryBytes <= availableMemory) {
+                head.bypasses++;
+                queue.remove(queued);
+                return queued;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims budget for a job and hands it to a worker thread. Caller must hold the lock.
+     */
+    private void startLocked(ConversionCategory category, int weight, QueuedTask queued) {
+        runningJobs.merge(category, 1, Integer::sum);
+        availableTokens -= weight;
+        availableMemory -= queued.memoryBytes;
+        workerPool.execute(() -> {
+            try {
+                queued.task.run();
+            } finally {
+                synchronized (lock) {
+                    runningJobs.merge(category, -1, Integer::sum);
+                    availableTokens += weight;
+                    availableMemory += queued.memoryBytes;
+                    dispatchLocked();
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates daemon worker threads so an abandoned batch never blocks JVM exit.
+     */
+    private static ThreadFactory createWorkerThreadFactory() {
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        return runnable -> {
+            Thread worker = new Thread(runnable, WORKER_THREAD_PREFIX + threadCounter.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        };
+    }
+
+    /**
+     * Drops all queued jobs and interrupts running ones.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            shutdown = true;
+            for (Deque<QueuedTask> queue : queues.values()) {
+                queue.forEach(queued -> queued.task.cancel(false));
+                queue.clear();
+            }
+        }
+        workerPool.shutdownNow();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sidecar file in an output directory recording which source produced each output.
+ * <p>
+ * An output is up to date when it exists, is not older than its source, and the
+ * manifest shows it was produced from a source with the same path, size and
+ * modification time using the same requested settings. Checking this needs only
+ * two stats and a map lookup, so re-runs over large trees skip unchanged files
+ * without hashing or probing them.
+ */
+final class OutputManifest {
+
+    private static final Logger LOGGER = Logger.getLogger(OutputManifest.class.getName());
+
+    /** Name of the manifest file inside each output directory. */
+    static final String FILE_NAME = ".truinconv-manifest.json";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * Provenance of one output file.
+     *
+     * @param source         absolute path of the source file
+     * @param sourceSize     source size in bytes when it was converted
+     * @param sourceModified source modification time (epoch millis) when it was converted
+     * @param settings       description of the requested conversion settings
+     */
+    record Entry(String source, long sourceSize, long sourceModified, String settings) {
+    }
+
+    /**
+     * On-disk JSON layout.
+     */
+    private record ManifestFile(int version, Map<String, Entry> entries) {
+    }
+
+    private final Path manifestPath;
+    private final Map<String, Entry> entries;
+    private boolean dirty;
+
+    private OutputManifest(Path manifestPath, Map<String, Entry> entries) {
+        this.manifestPath = manifestPath;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the manifest of an output directory; a missing or unreadable manifest yields an empty one.
+     *
+     * @param outputDirectory directory holding converted files
+     * @return the directory's manifest
+     */
+    static OutputManifest load(Path outputDirectory) {
+        Path manifestPath = outputDirectory.resolve(FILE_NAME);
+        try (Reader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            ManifestFile manifestFile = GSON.fromJson(reader, ManifestFile.class);
+            if (manifestFile != null && manifestFile.version() == FORMAT_VERSION && manifestFile.entries() != null) {
+                return new OutputManifest(manifestPath, new HashMap<>(manifestFile.entries()));
+            }
+        } catch (NoSuchFileException e) {
+            // First run in this directory
+        } catch (IOException | JsonParseException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable manifest " + manifestPath, e);
+        }
+        return new OutputManifest(manifestPath, new HashMap<>());
+    }
+
+    /**
+     * Checks whether an output was already produced from the current source with the same settings.
+     *
+     * @param inputFile  source file
+     * @param outputFile output file
+     * @param settings   description of the requested conversion settings
+     * @return true if converting again would reproduce the existing output
+     */
+    synchronized boolean isUpToDate(File inputFile, File outputFile, String settings) {
+        Entry entry = entries.get(outputFile.getName());
+        if (entry == null) {
+            return false;
+        }
+        long outputModified = outputFile.lastModified();
+        long sourceModified = inputFile.lastModified();
+        // lastModified() returns 0 for missing files
+        return outputModified != 0
+                && outputModified >= sourceModified
+                && entry.sourceModified() == sourceModified
+                && entry.sourceSize() == inputFile.length()
+                && entry.source().equals(inputFile.getAbsolutePath())
+                && entry.settings().equals(settings);
+    }
+
+    /**
+     * Records that an output was produced from a source.
+     *
+     * @param outputFile     output file
+     * @param inputFile      source file
+     * @param sourceSize     source size observed before converting
+     * @param sourceModified source modification time observed before converting
+     * @param settings       description of the requested conversion settings
+     */
+    synchronized void record(File outputFile, File inputFile, long sourceSize, long sourceModified, String settings) {
+        entries.put(outputFile.getName(),
+                new Entry(inputFile.getAbsolutePath(), sourceSize, sourceModified, settings));
+        dirty = true;
+    }
+
+    /**
+     * Writes the manifest if it changed, replacing the previous file atomically.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Path tempPath = Files.createTempFile(manifestPath.getParent(), FILE_NAME, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                GSON.toJson(new ManifestFile(FORMAT_VERSION, entries), writer);
+            }
+            try {
+                Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+}
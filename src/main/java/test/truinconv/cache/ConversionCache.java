@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed store of conversion results.
+ * <p>
+ * Entries are keyed by a SHA-256 over the input's bytes, the target format and a
+ * description of the effective encoding settings, so renamed or copied inputs still
+ * hit. A hit materializes the output as a private copy of the cached file, never a link,
+ * so later writes to the output, including re-encodes over it, cannot reach the cache.
+ * <p>
+ * The total size is bounded: least recently used entries are evicted first. Recency
+ * survives restarts because each hit refreshes the entry's modification time, which
+ * orders the index when the cache is reopened.
+ */
+public final class ConversionCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ConversionCache.class.getName());
+
+    /** Default size bound for cached results (2 GiB). */
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int HASH_BUFFER_BYTES = 256 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Location and size of one cached result.
+     */
+    private record Entry(Path path, long size) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private ConversionCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens (or creates) a cache in the given directory.
+     *
+     * @param directory cache root
+     * @param maxBytes  upper bound on the total size of cached results
+     * @return the opened cache
+     * @throws IOException              if the directory cannot be created or scanned
+     * @throws IllegalArgumentException if directory is null or maxBytes is not positive
+     */
+    public static ConversionCache open(Path directory, long maxBytes) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Cache directory cannot be null");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        Files.createDirectories(directory);
+        ConversionCache cache = new ConversionCache(directory, maxBytes);
+        cache.loadIndex();
+        return cache;
+    }
+
+    /**
+     * Rebuilds the in-memory index from the files on disk, oldest first.
+     */
+    private void loadIndex() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            paths.filter(Files::isRegularFile).forEach(files::add);
+        }
+
+        List<Map.Entry<Path, BasicFileAttributes>> entries = new ArrayList<>();
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                // Leftover from an interrupted store
+                Files.deleteIfExists(file);
+                continue;
+            }
+            entries.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+        }
+        entries.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+
+        synchronized (this) {
+            for (Map.Entry<Path, BasicFileAttributes> entry : entries) {
+                String key = keyOf(entry.getKey());
+                long size = entry.getValue().size();
+                index.put(key, new Entry(entry.getKey(), size));
+                totalBytes += size;
+            }
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Computes the cache key for converting a file with the given settings.
+     *
+     * @param inputFile            source file whose content is hashed
+     * @param targetFormat         desired output format
+     * @param settingsFingerprint  description of the effective encoding settings
+     * @return hex-encoded key
+     * @throws IOException if the input cannot be read
+     */
+    public String computeKey(File inputFile, String targetFormat, String settingsFingerprint) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        digest.update((byte) 0);
+        digest.update(targetFormat.toUpperCase(Locale.ROOT).trim().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(settingsFingerprint.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Produces {@code outputFile} from a cached result, if one exists.
+     *
+     * @param key        cache key from {@link #computeKey}
+     * @param outputFile destination to create (replaced if it exists)
+     * @return true on a cache hit, false if the caller must convert
+     * @throws IOException if the output cannot be written
+     */
+    public boolean materialize(String key, File outputFile) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = index.get(key);
+        }
+        if (entry == null) {
+            return false;
+        }
+
+        Path target = outputFile.toPath();
+        try {
+            deleteExisting(target);
+            // Without COPY_ATTRIBUTES the output is newer than its source; entries written by
+            // earlier versions are read-only, and that permission bit would carry over
+            Files.copy(entry.path(), target);
+            target.toFile().setWritable(true);
+            Files.setLastModifiedTime(entry.path(), FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            // Evicted (or removed externally) since the lookup
+            forget(key, entry);
+            return false;
+        }
+    }
+
+    /**
+     * Deletes an existing output, including a read-only link left by earlier versions.
+     */
+    private static void deleteExisting(Path target) throws IOException {
+        try {
+            Files.deleteIfExists(target);
+        } catch (AccessDeniedException e) {
+            // Windows refuses to delete read-only files
+            target.toFile().setWritable(true);
+            Files.deleteIfExists(target);
+        }
+    }
+
+    /**
+     * Stores a freshly converted output under the given key.
+     *
+     * @param key        cache key from {@link #computeKey}
+     * @param outputFile converted file to store
+     * @throws IOException if the file cannot be copied into the cache
+     */
+    public void store(String key, File outputFile) throws IOException {
+        long size = Files.size(outputFile.toPath());
+        if (size > maxBytes) {
+            return;
+        }
+
+        Path entryPath = entryPath(key, outputFile);
+        Files.createDirectories(entryPath.getParent());
+        Path tempPath = Files.createTempFile(entryPath.getParent(), key, TEMP_SUFFIX);
+        try {
+            Files.copy(outputFile.toPath(), tempPath, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(tempPath, entryPath);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+
+        synchronized (this) {
+            Entry previous = index.put(key, new Entry(entryPath, size));
+            totalBytes += size - (previous == null ? 0 : previous.size());
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Atomically publishes a stored entry; a concurrent store of the same key wins harmlessly.
+     */
+    private static void moveIntoPlace(Path tempPath, Path entryPath) throws IOException {
+        try {
+            Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Same key means same content
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Removes least recently used entries until the cache fits its size bound.
+     */
+    private void evictIfNeeded() {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> iterator = index.values().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Entry entry = iterator.next();
+                iterator.remove();
+                totalBytes -= entry.size();
+                evicted.add(entry);
+            }
+        }
+
+        for (Entry entry : evicted) {
+            try {
+                Files.deleteIfExists(entry.path());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to evict cache entry " + entry.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Drops an index entry whose file has disappeared.
+     */
+    private synchronized void forget(String key, Entry entry) {
+        if (index.remove(key, entry)) {
+            totalBytes -= entry.size();
+        }
+    }
+
+    /**
+     * Returns the on-disk location for a key, fanned out by its first two hex digits.
+     */
+    private Path entryPath(String key, File outputFile) {
+        String fileName = outputFile.getName();
+        int dotIndex = fileName.lastIndexOf('.');
+        String extension = dotIndex > 0 ? fileName.substring(dotIndex) : "";
+        return directory.resolve(key.substring(0, 2)).resolve(key + extension);
+    }
+
+    /**
+     * Recovers the key from a cached file's name.
+     */
+    private static String keyOf(Path entryPath) {
+        String fileName = entryPath.getFileName().toString();
+        int dotIndex = fileName.indexOf('.');
+        return dotIndex > 0 ? fileName.substring(0, dotIndex) : fileName;
+    }
+
+    /**
+     * Creates a digest for cache keys; SHA-256 is guaranteed on every Java platform.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " not available", e);
+        }
+    }
+
+    /**
+     * Returns the total size of all cached results.
+     *
+     * @return cached bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,721 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.cli;
+
+import test.truinconv.batch.BatchConversionEngine;
+import test.truinconv.batch.CategoryConcurrencyLimits;
+import test.truinconv.batch.ConversionJob;
+import test.truinconv.batch.ConversionOutcome;
+import test.truinconv.cache.ConversionCache;
+import test.truinconv.constants.ConversionMappings;
+import test.truinconv.converters.CancellationToken;
+import test.truinconv.converters.ImageCompressionPreset;
+import test.truinconv.converters.VideoCodec;
+import test.truinconv.converters.VideoCodecCalibration;
+import test.truinconv.converters.VideoCodecMeasurement;
+import test.truinconv.converters.VideoEncoderPreset;
+import test.truinconv.converters.VideoEncodingOptions;
+import test.truinconv.model.ConversionCategory;
+import test.truinconv.watch.WatchFolderService;
+import ws.schild.jave.EncoderException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Command-line entry point that converts files without initializing JavaFX.
+ * <p>
+ * Drives {@link BatchConversionEngine} (and through it {@code ConverterRouter})
+ * directly, so it can run on display-less build servers. Usage:
+ * <pre>
+ *   --input &lt;glob&gt;   input files, e.g. "photos/**&#47;*.png" (repeatable)
+ *   --to &lt;format&gt;    target format, e.g. JPG (repeatable: each source is decoded once for all)
+ *   --out &lt;dir&gt;      output directory
+ *   --jobs &lt;n&gt;       CPU budget for concurrent conversions (default: processor count)
+ *   --memory &lt;mb&gt;    heap budget for concurrently decoded images (default: 60% of max heap)
+ *   --compression &lt;preset&gt; image encoder trade-off: fastest, balanced or smallest
+ *   --video-preset &lt;preset&gt; video encoder trade-off: ultrafast through veryslow
+ *   --crf &lt;n&gt;        constant-quality video encoding at the given rate factor
+ *   --video-threads &lt;n&gt; threads of each video encoder
+ *   --segments &lt;n&gt;   encode long videos as this many time segments in parallel
+ *   --video-codec &lt;codec&gt; video codec: h264, hevc, vp8, vp9, av1-svt, av1-aom, or auto
+ *   --min-ssim &lt;q&gt;   with auto, the lowest acceptable SSIM of the selected encoder
+ *   --max-kbps &lt;n&gt;   with auto, the highest acceptable bitrate of the selected encoder
+ *   --calibration-clip &lt;file&gt; with auto, the clip encoders are measured on
+ *   --watch          treat inputs as directories and convert new files until stopped
+ *   --settle &lt;ms&gt;    quiet time before a watched file counts as fully written
+ *   --cache-dir &lt;dir&gt; reuse earlier results stored in a content-addressed cache
+ *   --cache-size &lt;mb&gt; size bound for the cache
+ *   --force          convert even if an output is already up to date
+ * </pre>
+ * The category of each file is inferred from its extension and the target format. Outputs
+ * mirror the inputs' directories below the start of their pattern.
+ * Exit code is 0 on success, 1 if any file failed, 2 on invalid usage, and 130 if the
+ * batch was cancelled.
+ */
+public final class HeadlessConverter {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+    // Conventional status of a process stopped by SIGINT
+    private static final int EXIT_CANCELLED = 130;
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024;
+    private static final long BITS_PER_KILOBIT = 1000L;
+    private static final Path EMPTY_PATH = Path.of("");
+
+    private static final String USAGE = """
+            Usage: truinconv --headless --input <glob> [--input <glob> ...] --to <format> --out <dir> [--jobs <n>]
+                   truinconv --headless --watch --input <dir> [--input <dir> ...] --to <format> --out <dir>
+
+              --input <glob>   input files, e.g. "photos/**/*.png" (repeatable)
+              --to <format>    target format, e.g. JPG, MP3, MKV (repeatable: each source is decoded
+                               once and written in every format it can reach)
+              --out <dir>      output directory (created if missing)
+              --jobs <n>       CPU budget for concurrent conversions (default: processor count)
+              --memory <mb>    heap budget for concurrently decoded images (default: 60% of max heap)
+              --compression <preset> image encode speed vs size: fastest, balanced or smallest
+                               (default: balanced)
+              --video-preset <preset> video encode speed vs size: ultrafast, superfast, veryfast,
+                               faster, fast, medium, slow, slower or veryslow (default: medium)
+              --crf <n>        encode video at constant quality, lower is better: 0-51 for
+                               H.264 and HEVC, 0-63 otherwise (default: bitrate derived from the source)
+              --video-threads <n> threads of each video encoder (default: chosen by ffmpeg)
+              --segments <n>   encode each transcoded video of at least a minute as up to n time
+                               segments in parallel processes sharing the threads (default: 1)
+              --video-codec <codec> h264, hevc, vp8, vp9, av1-svt or av1-aom, or auto to measure the
+                               encoders ffmpeg provides and pick the fastest meeting the targets
+                               below (default: h264, vp8 for WEBM)
+              --min-ssim <q>   auto: lowest acceptable SSIM, e.g. 0.95
+              --max-kbps <n>   auto: highest acceptable video bitrate
+              --calibration-clip <file> auto: clip to measure on (default: the first video input;
+                               required with --watch)
+              --watch          treat inputs as directories and convert new files until stopped
+              --settle <ms>    quiet time before a watched file counts as fully written (default: 1000)
+              --cache-dir <dir> reuse earlier results stored in a content-addressed cache
+              --cache-size <mb> size bound for the cache (default: 2048)
+              --force          convert even if an output is already up to date
+              --help           print this message
+            """;
+
+    // Prevent instantiation
+    private HeadlessConverter() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Parsed command-line options.
+     */
+    private record Options(List<String> inputGlobs, List<String> targetFormats, File outputDirectory,
+                           int parallelism, long memoryBudget, ImageCompressionPreset imagePreset,
+                           VideoEncodingOptions videoOptions, CodecSelection codecSelection, boolean watch,
+                           Duration settleDelay, Path cacheDirectory, long cacheMaxBytes, boolean force) {
+
+        /**
+         * Returns these options with other video encoding options.
+         */
+        Options withVideoOptions(VideoEncodingOptions newVideoOptions) {
+            return new Options(inputGlobs, targetFormats, outputDirectory, parallelism, memoryBudget, imagePreset,
+                    newVideoOptions, codecSelection, watch, settleDelay, cacheDirectory, cacheMaxBytes, force);
+        }
+    }
+
+    /**
+     * Targets of {@code --video-codec auto}.
+     *
+     * @param minSsim          lowest acceptable SSIM, or 0 for no quality target
+     * @param maxBitsPerSecond highest acceptable bitrate, or 0 for no size target
+     * @param sampleClip       clip to calibrate on, or null for the first video input
+     */
+    private record CodecSelection(double minSsim, long maxBitsPerSecond, File sampleClip) {
+    }
+
+    /**
+     * Runs the headless converter and exits with its status code.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the headless converter without exiting the JVM.
+     *
+     * @param args command-line arguments
+     * @param out  stream receiving the timing summary
+     * @param err  stream receiving usage and error messages
+     * @return process exit code
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        if (options == null) {
+            out.print(USAGE);
+            return EXIT_SUCCESS;
+        }
+
+        try {
+            if (options.watch()) {
+                Files.createDirectories(options.outputDirectory().toPath());
+                if (options.codecSelection() != null) {
+                    options = selectVideoCodec(options, List.of(), out);
+                }
+                return watch(options, out);
+            }
+
+            Map<File, Path> inputFiles = expandGlobs(options.inputGlobs());
+            if (inputFiles.isEmpty()) {
+                err.println("Error: no input files matched " + options.inputGlobs());
+                return EXIT_USAGE;
+            }
+            List<ConversionJob> jobs = createJobs(inputFiles, options, err);
+            for (ConversionJob job : jobs) {
+                Files.createDirectories(job.outputFile().toPath().getParent());
+            }
+            if (options.codecSelection() != null) {
+                options = selectVideoCodec(options, inputFiles.keySet(), out);
+            }
+            return convert(jobs, options, out);
+        } catch (IllegalArgumentException e) {
+            // Inputs that would share an output, or an unusable calibration clip
+            err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_FAILURES;
+        } catch (EncoderException e) {
+            err.println("Error: video encoder calibration failed: " + e.getMessage());
+            return EXIT_FAILURES;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return EXIT_FAILURES;
+        }
+    }
+
+    /**
+     * Parses command-line arguments.
+     *
+     * @param args raw arguments
+     * @return parsed options, or null if help was requested
+     * @throws IllegalArgumentException if arguments are missing or malformed
+     */
+    private static Options parseArguments(String[] args) {
+        List<String> inputGlobs = new ArrayList<>();
+        List<String> targetFormats = new ArrayList<>();
+        String outputDirectory = null;
+        int parallelism = BatchConversionEngine.defaultParallelism();
+        // 0 keeps the default budget derived from the maximum heap
+        long memoryBudget = 0;
+        ImageCompressionPreset imagePreset = ImageCompressionPreset.BALANCED;
+        VideoEncoderPreset videoPreset = VideoEncodingOptions.DEFAULT.preset();
+        Integer crf = VideoEncodingOptions.DEFAULT.crf();
+        int videoThreads = VideoEncodingOptions.DEFAULT.threads();
+        int segments = VideoEncodingOptions.DEFAULT.segments();
+        VideoCodec videoCodec = null;
+        boolean autoVideoCodec = false;
+        double minSsim = 0;
+        long maxVideoBitsPerSecond = 0;
+        File calibrationClip = null;
+        boolean watch = false;
+        Duration settleDelay = WatchFolderService.DEFAULT_SETTLE_DELAY;
+        Path cacheDirectory = null;
+        long cacheMaxBytes = ConversionCache.DEFAULT_MAX_BYTES;
+        boolean force = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String argument = args[i];
+            switch (argument) {
+                case "--help", "-h" -> {
+                    return null;
+                }
+                case "--input", "-i" -> inputGlobs.add(requireValue(args, ++i, argument));
+                case "--to", "-t" -> {
+                    String targetFormat = requireValue(args, ++i, argument).toUpperCase(Locale.ROOT);
+                    if (!targetFormats.contains(targetFormat)) {
+                        targetFormats.add(targetFormat);
+                    }
+                }
+                case "--out", "-o" -> outputDirectory = requireValue(args, ++i, argument);
+                case "--jobs", "-j" -> parallelism = parsePositiveInt(requireValue(args, ++i, argument), argument);
+                case "--memory", "-m" -> memoryBudget =
+                        parsePositiveInt(requireValue(args, ++i, argument), argument) * BYTES_PER_MEGABYTE;
+                case "--compression", "-c" ->
+                        imagePreset = ImageCompressionPreset.fromString(requireValue(args, ++i, argument));
+                case "--video-preset" ->
+                        videoPreset = VideoEncoderPreset.fromString(requireValue(args, ++i, argument));
+                case "--crf" -> crf = parseNonNegativeInt(requireValue(args, ++i, argument), argument);
+                case "--video-threads" ->
+                        videoThreads = parsePositiveInt(requireValue(args, ++i, argument), argument);
+                case "--segments" -> segments = parsePositiveInt(requireValue(args, ++i, argument), argument);
+                case "--video-codec" -> {
+                    String codecName = requireValue(args, ++i, argument);
+                    autoVideoCodec = "auto".equalsIgnoreCase(codecName);
+                    videoCodec = autoVideoCodec ? null : VideoCodec.fromString(codecName);
+                }
+                case "--min-ssim" -> minSsim = parseSsim(requireValue(args, ++i, argument), argument);
+                case "--max-kbps" -> maxVideoBitsPerSecond =
+                        parsePositiveInt(requireValue(args, ++i, argument), argument) * BITS_PER_KILOBIT;
+                case "--calibration-clip" -> calibrationClip = new File(requireValue(args, ++i, argument));
+                case "--watch", "-w" -> watch = true;
+                case "--settle" -> settleDelay =
+                        Duration.ofMillis(parsePositiveInt(requireValue(args, ++i, argument), argument));
+                case "--cache-dir" -> cacheDirectory = Paths.get(requireValue(args, ++i, argument));
+                case "--cache-size" -> cacheMaxBytes =
+                        parsePositiveInt(requireValue(args, ++i, argument), argument) * BYTES_PER_MEGABYTE;
+                case "--force", "-f" -> force = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + argument);
+            }
+        }
+
+        if (inputGlobs.isEmpty()) {
+            throw new IllegalArgumentException("At least one --input is required");
+        }
+        if (targetFormats.isEmpty()) {
+            throw new IllegalArgumentException("--to is required");
+        }
+        if (watch && targetFormats.size() > 1) {
+            throw new IllegalArgumentException("--watch takes a single --to");
+        }
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("--out is required");
+        }
+        if (videoCodec != null) {
+            // Targets that are not video containers take no video codec
+            for (String targetFormat : targetFormats) {
+                if (isVideoTarget(targetFormat) && !videoCodec.supports(targetFormat)) {
+                    throw new IllegalArgumentException(videoCodec + " video cannot be written to " + targetFormat);
+                }
+            }
+            if (targetFormats.stream().noneMatch(videoCodec::supports)) {
+                throw new IllegalArgumentException(
+                        videoCodec + " video cannot be written to " + String.join(", ", targetFormats));
+            }
+        }
+        CodecSelection codecSelection = null;
+        if (autoVideoCodec) {
+            if (targetFormats.size() > 1) {
+                throw new IllegalArgumentException("--video-codec auto takes a single --to");
+            }
+            if (!isVideoTarget(targetFormats.get(0))) {
+                throw new IllegalArgumentException("--video-codec auto needs a video target format");
+            }
+            if (watch && calibrationClip == null) {
+                throw new IllegalArgumentException("--video-codec auto with --watch needs --calibration-clip");
+            }
+            codecSelection = new CodecSelection(minSsim, maxVideoBitsPerSecond, calibrationClip);
+        } else if (minSsim > 0 || maxVideoBitsPerSecond > 0 || calibrationClip != null) {
+            throw new IllegalArgumentException(
+                    "--min-ssim, --max-kbps and --calibration-clip need --video-codec auto");
+        }
+        return new Options(inputGlobs, List.copyOf(targetFormats), new File(outputDirectory), parallelism,
+                memoryBudget, imagePreset,
+                new VideoEncodingOptions(videoPreset, crf, videoThreads, videoCodec, segments), codecSelection,
+                watch, settleDelay, cacheDirectory, cacheMaxBytes, force);
+    }
+
+    /**
+     * Checks whether a target format is a container some video codec can be written to.
+     */
+    private static boolean isVideoTarget(String targetFormat) {
+        return Arrays.stream(VideoCodec.values()).anyMatch(codec -> codec.supports(targetFormat));
+    }
+
+    /**
+     * Returns the value following an option, failing if it is missing.
+     */
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length || args[index].startsWith("--")) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * Parses a positive integer option value.
+     */
+    private static int parsePositiveInt(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) {
+                throw new IllegalArgumentException(option + " must be at least 1: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Parses a non-negative integer option value.
+     */
+    private static int parseNonNegativeInt(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException(option + " cannot be negative: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Parses an SSIM target, which must lie between 0 and 1.
+     */
+    private static double parseSsim(String value, String option) {
+        try {
+            double parsed = Double.parseDouble(value);
+            if (!(parsed > 0 && parsed <= 1)) {
+                throw new IllegalArgumentException(option + " must be above 0 and at most 1: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Expands glob patterns into de-duplicated regular files, each with its directory relative
+     * to the pattern's root, so that a recursive pattern's outputs can mirror the input tree.
+     * <p>
+     * Each pattern is split at its first wildcard segment; only the directory
+     * before that segment is walked, and only as deep as the pattern requires.
+     * Plain file paths match themselves with an empty relative directory.
+     *
+     * @param inputGlobs glob patterns or plain file paths
+     * @return matching files in discovery order, mapped to their directory relative to the
+     *         pattern's root (an empty path for files directly in the root)
+     * @throws IOException if a directory cannot be walked
+     */
+    static Map<File, Path> expandGlobs(List<String> inputGlobs) throws IOException {
+        Map<File, Path> matchedFiles = new LinkedHashMap<>();
+        for (String glob : inputGlobs) {
+            if (!containsWildcard(glob)) {
+                File file = new File(glob);
+                if (file.isFile()) {
+                    matchedFiles.putIfAbsent(file.getAbsoluteFile(), EMPTY_PATH);
+                }
+                continue;
+            }
+
+            Path baseDirectory = globBaseDirectory(glob);
+            if (!Files.isDirectory(baseDirectory)) {
+                continue;
+            }
+            String relativePattern = baseDirectory.relativize(Paths.get(glob).toAbsolutePath().normalize())
+                    .toString();
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + relativePattern);
+            // "**/" should also match zero directories, which PathMatcher globs do not
+            PathMatcher shallowMatcher = FileSystems.getDefault()
+                    .getPathMatcher("glob:" + relativePattern.replace("**/", "").replace("**\\", ""));
+            int maxDepth = relativePattern.contains("**")
+                    ? Integer.MAX_VALUE
+                    : Paths.get(relativePattern).getNameCount();
+
+            try (Stream<Path> paths = Files.walk(baseDirectory, maxDepth)) {
+                paths.filter(Files::isRegularFile)
+                        .map(baseDirectory::relativize)
+                        .filter(relativePath -> matcher.matches(relativePath) || shallowMatcher.matches(relativePath))
+                        .sorted()
+                        .forEach(relativePath -> {
+                            Path relativeDirectory = relativePath.getParent();
+                            matchedFiles.putIfAbsent(baseDirectory.resolve(relativePath).toFile(),
+                                    relativeDirectory == null ? EMPTY_PATH : relativeDirectory);
+                        });
+            }
+        }
+        return matchedFiles;
+    }
+
+    /**
+     * Returns the deepest directory in the pattern that contains no wildcards.
+     */
+    private static Path globBaseDirectory(String glob) {
+        Path absolutePattern = Paths.get(glob).toAbsolutePath().normalize();
+        Path baseDirectory = absolutePattern.getRoot();
+        for (Path segment : absolutePattern) {
+            if (containsWildcard(segment.toString())) {
+                break;
+            }
+            baseDirectory = baseDirectory.resolve(segment);
+        }
+        return baseDirectory;
+    }
+
+    /**
+     * Checks whether a path string uses glob syntax.
+     */
+    private static boolean containsWildcard(String pattern) {
+        return pattern.chars().anyMatch(ch -> ch == '*' || ch == '?' || ch == '[' || ch == '{');
+    }
+
+    /**
+     * Builds a job per input file and target format, skipping targets a file's format cannot
+     * reach. Each output goes to the input's directory relative to its pattern's root, under
+     * the output directory. The engine converts the jobs of one source together.
+     *
+     * @throws IllegalArgumentException if two inputs would be written to the same output
+     */
+    private static List<ConversionJob> createJobs(Map<File, Path> inputFiles, Options options, PrintStream err) {
+        List<ConversionJob> jobs = new ArrayList<>(inputFiles.size() * options.targetFormats().size());
+        Map<File, File> inputsByOutput = new HashMap<>();
+        for (Map.Entry<File, Path> input : inputFiles.entrySet()) {
+            File inputFile = input.getKey();
+            String sourceFormat = getFileExtension(inputFile.getName());
+            for (String targetFormat : options.targetFormats()) {
+                Optional<ConversionCategory> category = ConversionMappings.findCategory(sourceFormat, targetFormat);
+                if (category.isEmpty()) {
+                    err.println("Skipping " + inputFile + ": cannot convert "
+                            + (sourceFormat.isEmpty() ? "files without extension" : sourceFormat)
+                            + " to " + targetFormat);
+                    continue;
+                }
+                File outputDirectory = options.outputDirectory().toPath().resolve(input.getValue()).toFile();
+                File outputFile = BatchConversionEngine.resolveOutputFile(inputFile, outputDirectory, targetFormat);
+                File previousInput = inputsByOutput.putIfAbsent(outputFile.getAbsoluteFile(), inputFile);
+                if (previousInput != null) {
+                    throw new IllegalArgumentException(previousInput + " and " + inputFile
+                            + " would both be converted to " + outputFile + "; convert them separately");
+                }
+                jobs.add(new ConversionJob(inputFile, outputFile, targetFormat, category.get()));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Measures the video encoders of the target format on a sample clip, prints the results and
+     * returns the options with the fastest encoder meeting the targets. The container's default
+     * codec is kept if no encoder meets them or there is no video to measure on.
+     *
+     * @param options    options with a codec selection
+     * @param inputFiles matched inputs, the first video of which is the default sample
+     * @param out        stream receiving the measurements
+     * @return options naming the selected codec, or the given options
+     * @throws EncoderException if the sample cannot be probed or ffmpeg cannot list its encoders
+     */
+    private static Options selectVideoCodec(Options options, Collection<File> inputFiles, PrintStream out)
+            throws EncoderException {
+        CodecSelection selection = options.codecSelection();
+        // Codec selection takes a single target format
+        String targetFormat = options.targetFormats().get(0);
+        File sampleClip = selection.sampleClip();
+        if (sampleClip == null) {
+            sampleClip = inputFiles.stream()
+                    .filter(file -> ConversionMappings.findCategory(getFileExtension(file.getName()),
+                            targetFormat).orElse(null) == ConversionCategory.VIDEO)
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (sampleClip == null) {
+            out.println("No video input to calibrate on, keeping the default codec");
+            return options;
+        }
+
+        out.println("Calibrating " + targetFormat + " video encoders on " + sampleClip);
+        List<VideoCodecMeasurement> measurements = VideoCodecCalibration.calibrate(
+                sampleClip, targetFormat, options.videoOptions(), null);
+        for (VideoCodecMeasurement measurement : measurements) {
+            out.printf("  %-8s %8.1f fps %8d kbit/s  SSIM %.4f%n", measurement.codec(),
+                    measurement.framesPerSecond(), measurement.bitsPerSecond() / BITS_PER_KILOBIT,
+                    measurement.ssim());
+        }
+        Optional<VideoCodecMeasurement> fastest = VideoCodecCalibration.selectFastest(
+                measurements, selection.minSsim(), selection.maxBitsPerSecond());
+        if (fastest.isEmpty()) {
+            out.println("No encoder met the targets, keeping the default codec");
+            return options;
+        }
+        out.println("Selected " + fastest.get().codec() + System.lineSeparator());
+        return options.withVideoOptions(options.videoOptions().withCodec(fastest.get().codec()));
+    }
+
+    /**
+     * Runs the jobs and prints a per-file timing summary. Ctrl-C or SIGTERM cancels the batch:
+     * the JVM waits for running encodes to be stopped, their partial outputs deleted and the
+     * summary printed.
+     *
+     * @return exit code reflecting whether any job failed or the batch was cancelled
+     */
+    private static int convert(List<ConversionJob> jobs, Options options, PrintStream out)
+            throws IOException, InterruptedException {
+        CancellationToken cancellation = new CancellationToken();
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            cancellation.cancel();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "batch-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        try {
+            return convertAndSummarize(jobs, options, out, cancellation);
+        } finally {
+            // Lets a shutdown in progress finish only once the summary is printed
+            finished.countDown();
+            removeShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Runs the jobs, printing each outcome as it finishes and then a summary counting every status.
+     *
+     * @return exit code reflecting whether any job failed or the batch was cancelled
+     */
+    private static int convertAndSummarize(List<ConversionJob> jobs, Options options, PrintStream out,
+                                           CancellationToken cancellation)
+            throws IOException, InterruptedException {
+        long batchStart = System.nanoTime();
+        List<ConversionOutcome> outcomes;
+        try (BatchConversionEngine engine = createEngine(options)) {
+            outcomes = engine.convertAll(jobs, (completedJobs, totalJobs, outcome) ->
+                    out.printf("[%d/%d] %-9s %10.1f ms  %s%n", completedJobs, totalJobs,
+                            outcome.status(), outcome.elapsedMillis(), describe(outcome)), cancellation);
+        }
+        double batchMillis = (System.nanoTime() - batchStart) / 1_000_000.0;
+
+        Map<ConversionOutcome.Status, Long> counts = new EnumMap<>(ConversionOutcome.Status.class);
+        for (ConversionOutcome outcome : outcomes) {
+            counts.merge(outcome.status(), 1L, Long::sum);
+        }
+        double cumulativeMillis = outcomes.stream().mapToDouble(ConversionOutcome::elapsedMillis).sum();
+        out.printf("%n%d files in %.1f ms wall time (%.1f ms cumulative): %d converted, %d cached, "
+                        + "%d up to date, %d cancelled, %d failed%n",
+                outcomes.size(), batchMillis, cumulativeMillis,
+                counts.getOrDefault(ConversionOutcome.Status.CONVERTED, 0L),
+                counts.getOrDefault(ConversionOutcome.Status.CACHED, 0L),
+                counts.getOrDefault(ConversionOutcome.Status.SKIPPED, 0L),
+                counts.getOrDefault(ConversionOutcome.Status.CANCELLED, 0L),
+                counts.getOrDefault(ConversionOutcome.Status.FAILED, 0L));
+        if (counts.containsKey(ConversionOutcome.Status.CANCELLED)) {
+            return EXIT_CANCELLED;
+        }
+        return counts.containsKey(ConversionOutcome.Status.FAILED) ? EXIT_FAILURES : EXIT_SUCCESS;
+    }
+
+    /**
+     * Removes a shutdown hook unless the JVM is already shutting down, in which case the hook
+     * is running and must stay registered.
+     */
+    private static void removeShutdownHook(Thread shutdownHook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Shutdown in progress
+        }
+    }
+
+    /**
+     * Creates the engine for the requested parallelism, memory budget and compression preset,
+     * with a cache if one was requested.
+     * Up-to-date outputs are skipped unless {@code --force} was given.
+     */
+    private static BatchConversionEngine createEngine(Options options) throws IOException {
+        ConversionCache cache = options.cacheDirectory() == null
+                ? null
+                : ConversionCache.open(options.cacheDirectory(), options.cacheMaxBytes());
+        CategoryConcurrencyLimits limits = CategoryConcurrencyLimits.forParallelism(options.parallelism());
+        if (options.memoryBudget() > 0) {
+            limits = limits.withMemoryBudget(options.memoryBudget());
+        }
+        return new BatchConversionEngine(limits, cache, !options.force(), options.imagePreset(),
+                options.videoOptions());
+    }
+
+    /**
+     * Converts files arriving in the input directories until the JVM is asked to stop.
+     *
+     * @return exit code once the watch ends
+     */
+    private static int watch(Options options, PrintStream out) throws IOException {
+        List<Path> inputDirectories = new ArrayList<>();
+        for (String input : options.inputGlobs()) {
+            inputDirectories.add(Paths.get(input));
+        }
+
+        // Watching takes a single target format
+        String targetFormat = options.targetFormats().get(0);
+        BatchConversionEngine engine = createEngine(options);
+        WatchFolderService service;
+        try {
+            service = new WatchFolderService(inputDirectories, targetFormat,
+                    options.outputDirectory(), engine,
+                    (completedJobs, totalJobs, outcome) -> out.printf("%-9s %10.1f ms  %s%n",
+                            outcome.status(), outcome.elapsedMillis(), describe(outcome)),
+                    options.settleDelay());
+        } catch (IOException | RuntimeException e) {
+            engine.close();
+            throw e;
+        }
+
+        // Ctrl-C / SIGTERM stops watching and lets in-flight batches finish
+        Thread watchThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.close();
+            engine.close();
+            watchThread.interrupt();
+        }, "watch-shutdown"));
+
+        out.println("Watching " + inputDirectories + " for files to convert to " + targetFormat
+                + " (Ctrl-C to stop)");
+        service.run();
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Formats an outcome line: the input and output paths, plus the error for failures.
+     */
+    private static String describe(ConversionOutcome outcome) {
+        String files = outcome.job().inputFile() + " -> " + outcome.job().outputFile().getName();
+        if (outcome.isFailed()) {
+            return files + "  (" + outcome.error().getMessage() + ")";
+        }
+        return files;
+    }
+
+    /**
+     * Gets the upper-case file extension, or an empty string if there is none.
+     */
+    private static String getFileExtension(String fileName) {
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex > 0 && lastDotIndex < fileName.length() - 1) {
+            return fileName.substring(lastDotIndex + 1).toUpperCase(Locale.ROOT);
+        }
+        return "";
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.cli;
+
+import test.truinconv.converters.MediaProbeCache;
+import test.truinconv.converters.VideoConverter;
+import test.truinconv.converters.VideoEncoderPreset;
+import test.truinconv.converters.VideoEncodingOptions;
+import ws.schild.jave.EncoderException;
+import ws.schild.jave.info.MultimediaInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Measures encode speed and output size of every {@link VideoEncoderPreset} on one clip.
+ * <p>
+ * Each preset encodes the whole clip once through {@link VideoConverter}, so the numbers
+ * include probing and muxing just as a real conversion does. Usage:
+ * <pre>
+ *   &lt;clip&gt;           source video; must need re-encoding for the target format
+ *   --to &lt;format&gt;    target format (default: MP4)
+ *   --crf &lt;n&gt;        rate factor applied to every preset (default: the bitrate-capped mode)
+ * </pre>
+ * Exit code is 0 on success, 1 if an encode failed, and 2 on invalid usage.
+ */
+public final class VideoPresetBenchmark {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final String DEFAULT_FORMAT = "MP4";
+
+    private static final String USAGE = """
+            Usage: VideoPresetBenchmark <clip> [--to <format>] [--crf <n>]
+
+              <clip>           source video; must need re-encoding for the target format
+              --to <format>    target format: MP4, AVI, MKV, MOV or WEBM (default: MP4)
+              --crf <n>        constant rate factor used by every preset
+            """;
+
+    /**
+     * Private constructor to prevent instantiation of utility class.
+     */
+    private VideoPresetBenchmark() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Runs the benchmark and exits with its status code.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the benchmark without exiting the JVM.
+     *
+     * @param args command-line arguments
+     * @param out  stream receiving the result table
+     * @param err  stream receiving usage and error messages
+     * @return process exit code
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        File clip = null;
+        String targetFormat = DEFAULT_FORMAT;
+        Integer crf = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--to" -> targetFormat = requireValue(args, ++i, "--to").toUpperCase(Locale.ROOT);
+                    case "--crf" -> crf = parseCrf(requireValue(args, ++i, "--crf"));
+                    default -> {
+                        if (args[i].startsWith("--") || clip != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                        }
+                        clip = new File(args[i]);
+                    }
+                }
+            }
+            if (clip == null) {
+                throw new IllegalArgumentException("Missing clip");
+            }
+            if (!clip.isFile()) {
+                throw new IllegalArgumentException("Clip not found: " + clip);
+            }
+            if (MediaProbeCache.getInfo(clip).getVideo() == null) {
+                throw new IllegalArgumentException("Clip has no video stream: " + clip);
+            }
+            if (VideoConverter.canRemux(clip, targetFormat)) {
+                throw new IllegalArgumentException("Clip would be remuxed into " + targetFormat
+                        + " without re-encoding; pick a clip or format that needs an encode");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        } catch (EncoderException e) {
+            err.println("Error: cannot probe clip: " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+
+        try {
+            return benchmark(clip, targetFormat, crf, out);
+        } catch (IOException | EncoderException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+    }
+
+    /**
+     * Encodes the clip with every preset and prints one table row per preset.
+     *
+     * @param clip         source video with a video stream
+     * @param targetFormat normalized target format
+     * @param crf          rate factor for every preset, or null for the bitrate-capped mode
+     * @param out          stream receiving the table
+     * @return process exit code
+     * @throws IOException      if the scratch directory cannot be created or cleaned up
+     * @throws EncoderException if the clip cannot be probed or an encode fails
+     */
+    private static int benchmark(File clip, String targetFormat, Integer crf, PrintStream out)
+            throws IOException, EncoderException {
+        MultimediaInfo info = MediaProbeCache.getInfo(clip);
+        double frameCount = info.getDuration() / 1000.0 * info.getVideo().getFrameRate();
+
+        File scratchDirectory = Files.createTempDirectory("truinconv-bench").toFile();
+        try {
+            out.printf("%s -> %s, %.0f frames, crf=%s%n%n", clip.getName(), targetFormat, frameCount,
+                    crf == null ? "auto" : crf);
+            out.printf("%-10s %10s %10s %12s%n", "preset", "seconds", "fps", "size (KB)");
+            for (VideoEncoderPreset preset : VideoEncoderPreset.values()) {
+                File output = new File(scratchDirectory, preset.name() + "." + targetFormat.toLowerCase(Locale.ROOT));
+                long startTime = System.nanoTime();
+                VideoEncodingOptions options = new VideoEncodingOptions(preset, crf, 0);
+                VideoConverter.convert(clip, output, targetFormat, options, null, null);
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+                out.printf("%-10s %10.2f %10.1f %12d%n", preset.name().toLowerCase(Locale.ROOT), seconds,
+                        frameCount / seconds, output.length() / 1024);
+                Files.deleteIfExists(output.toPath());
+            }
+        } finally {
+            Files.deleteIfExists(scratchDirectory.toPath());
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Returns the value following an option.
+     *
+     * @throws IllegalArgumentException if the option is the last argument
+     */
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * Parses a non-negative rate factor.
+     *
+     * @throws IllegalArgumentException if the value is not a non-negative integer
+     */
+    private static int parseCrf(String value) {
+        try {
+            int crf = Integer.parseInt(value);
+            if (crf >= 0) {
+                return crf;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("--crf must be a non-negative integer: " + value);
+    }
+}
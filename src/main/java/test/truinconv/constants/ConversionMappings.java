@@ -8,6 +8,7 @@ package test.truinconv.constants;
 
 import test.truinconv.model.ConversionCategory;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -23,12 +24,14 @@ public class ConversionMappings {
      *   <li>Key: ConversionCategory (IMAGE, AUDIO, VIDEO)</li>
      *   <li>Value: Map of source extension to a Set of permitted target extensions</li>
      * </ul>
+     * Video extensions are also AUDIO sources: converting a video to an audio format extracts
+     * its soundtrack without touching the video stream.
      */
     public static final Map<ConversionCategory, Map<String, Set<String>>> MAPPINGS =
             Map.of(
                     ConversionCategory.IMAGE, Map.of(
-                            "JPG",  Set.of("PNG", "BMP", "GIF", "TIFF"),
-                            "JPEG", Set.of("PNG", "BMP", "GIF", "TIFF"),
+                            "JPG",  Set.of("JPEG", "PNG", "BMP", "GIF", "TIFF"),
+                            "JPEG", Set.of("JPG", "PNG", "BMP", "GIF", "TIFF"),
                             "PNG",  Set.of("JPG", "JPEG", "BMP", "GIF", "TIFF"),
                             "BMP",  Set.of("JPG", "JPEG", "PNG", "GIF", "TIFF"),
                             "GIF",  Set.of("JPG", "JPEG", "PNG", "BMP", "TIFF"),
@@ -39,7 +42,13 @@ public class ConversionMappings {
                             "WAV", Set.of("MP3", "AAC", "FLAC", "OGG"),
                             "AAC", Set.of("MP3", "WAV", "FLAC", "OGG"),
                             "FLAC",Set.of("MP3", "WAV", "AAC", "OGG"),
-                            "OGG", Set.of("MP3", "WAV", "AAC", "FLAC")
+                            "OGG", Set.of("MP3", "WAV", "AAC", "FLAC"),
+                            // Extracting the soundtrack of a video
+                            "MP4", Set.of("MP3", "WAV", "AAC", "FLAC", "OGG"),
+                            "AVI", Set.of("MP3", "WAV", "AAC", "FLAC", "OGG"),
+                            "MKV", Set.of("MP3", "WAV", "AAC", "FLAC", "OGG"),
+                            "MOV", Set.of("MP3", "WAV", "AAC", "FLAC", "OGG"),
+                            "WEBM",Set.of("MP3", "WAV", "AAC", "FLAC", "OGG")
                     ),
                     ConversionCategory.VIDEO, Map.of(
                             "MP4", Set.of("AVI", "MKV", "MOV", "WEBM"),
@@ -49,4 +58,49 @@ public class ConversionMappings {
                             "WEBM",Set.of("MP4", "AVI", "MKV", "MOV")
                     )
             );
-}
\ No newline at end of file
+
+    /**
+     * Extensions that name the same file format as another extension, mapped to that extension.
+     * Converting between them only renames the file.
+     */
+    private static final Map<String, String> FORMAT_ALIASES = Map.of("JPEG", "JPG");
+
+    /**
+     * Finds the category that supports converting {@code sourceFormat} to {@code targetFormat}.
+     *
+     * @param sourceFormat source extension (case-insensitive)
+     * @param targetFormat target extension (case-insensitive)
+     * @return the matching category, or empty if the pair is not a supported conversion
+     */
+    public static Optional<ConversionCategory> findCategory(String sourceFormat, String targetFormat) {
+        String source = sourceFormat.toUpperCase().trim();
+        String target = targetFormat.toUpperCase().trim();
+        for (Map.Entry<ConversionCategory, Map<String, Set<String>>> entry : MAPPINGS.entrySet()) {
+            Set<String> targets = entry.getValue().get(source);
+            if (targets != null && targets.contains(target)) {
+                return Optional.of(entry.getKey());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checks whether two extensions name the same file format, so a file of one is already
+     * a valid file of the other and converting it needs no decoding.
+     *
+     * @param sourceFormat source extension (case-insensitive)
+     * @param targetFormat target extension (case-insensitive)
+     * @return true if both extensions denote the same format
+     */
+    public static boolean isSameFormat(String sourceFormat, String targetFormat) {
+        return canonicalFormat(sourceFormat).equals(canonicalFormat(targetFormat));
+    }
+
+    /**
+     * Maps an extension to the extension its format is canonically known by.
+     */
+    private static String canonicalFormat(String format) {
+        String normalized = format.toUpperCase().trim();
+        return FORMAT_ALIASES.getOrDefault(normalized, normalized);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link AlphaFlattener#flatten} with drawing the same image onto a white canvas
+ * through Java2D, the path every image took before, for the layouts decoders produce.
+ * <p>
+ * Each layout gets a synthetic image with random colors and a fixed seed: a quarter of the
+ * pixels are opaque, a quarter fully transparent and the rest have random alpha, similar to
+ * the edges and shadows of a cut-out PNG. Every run starts from a fresh copy of the pixels,
+ * since flattening works in place; the copy is not timed. Run it twice to compare the scalar
+ * loops with the SIMD ones:
+ * <pre>
+ *   java -p &lt;module-path&gt; -m test.truinconv/test.truinconv.converters.AlphaFlattenBenchmark
+ *   java --add-modules jdk.incubator.vector -p &lt;module-path&gt; -m test.truinconv/...AlphaFlattenBenchmark
+ * </pre>
+ * Options:
+ * <pre>
+ *   --size &lt;w&gt;x&lt;h&gt;    image size (default: 4000x3000)
+ *   --runs &lt;n&gt;        timed runs per path and layout, after as many warm-up runs (default: 10)
+ * </pre>
+ * Exit code is 0 on success and 2 on invalid usage.
+ */
+public final class AlphaFlattenBenchmark {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_USAGE = 2;
+    private static final int DEFAULT_WIDTH = 4000;
+    private static final int DEFAULT_HEIGHT = 3000;
+    private static final int DEFAULT_RUNS = 10;
+    private static final long SEED = 42;
+    private static final int[] IMAGE_TYPES = {
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_INT_ARGB_PRE,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_4BYTE_ABGR_PRE
+    };
+
+    private static final String USAGE = """
+            Usage: AlphaFlattenBenchmark [--size <w>x<h>] [--runs <n>]
+
+              --size <w>x<h>   image size (default: 4000x3000)
+              --runs <n>       timed runs per path and layout (default: 10)
+            """;
+
+    /**
+     * Private constructor to prevent instantiation of utility class.
+     */
+    private AlphaFlattenBenchmark() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Runs the benchmark and exits with its status code.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the benchmark without exiting the JVM.
+     *
+     * @param args command-line arguments
+     * @param out  stream receiving the result table
+     * @param err  stream receiving usage and error messages
+     * @return process exit code
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        int runs = DEFAULT_RUNS;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--size" -> {
+                        String[] size = requireValue(args, ++i, "--size").split("x");
+                        if (size.length != 2) {
+                            throw new IllegalArgumentException("--size must look like 4000x3000: " + args[i]);
+                        }
+                        width = parsePositive(size[0], "--size");
+                        height = parsePositive(size[1], "--size");
+                    }
+                    case "--runs" -> runs = parsePositive(requireValue(args, ++i, "--runs"), "--runs");
+                    default -> throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+
+        out.printf("%dx%d pixels, %d runs, jdk.incubator.vector %s%n%n", width, height, runs,
+                ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ? "resolved" : "not resolved");
+        out.printf("%-16s %14s %14s %9s%n", "type", "drawImage (ms)", "flatten (ms)", "speedup");
+        long checksum = 0;
+        for (int imageType : IMAGE_TYPES) {
+            BufferedImage source = createSample(width, height, imageType);
+            BufferedImage work = new BufferedImage(width, height, imageType);
+
+            Timing drawImage = new Timing();
+            Timing flatten = new Timing();
+            for (int run = -runs; run < runs; run++) {
+                // Negative runs warm up both paths and are not recorded
+                copyPixels(source, work);
+                long startTime = System.nanoTime();
+                checksum += AlphaFlattener.drawOntoWhite(work).getRGB(width - 1, height - 1);
+                drawImage.record(run, System.nanoTime() - startTime);
+
+                copyPixels(source, work);
+                startTime = System.nanoTime();
+                checksum += AlphaFlattener.flatten(work).getRGB(width - 1, height - 1);
+                flatten.record(run, System.nanoTime() - startTime);
+            }
+            out.printf("%-16s %14.1f %14.1f %8.1fx%n", typeName(imageType), drawImage.medianMillis(),
+                    flatten.medianMillis(), drawImage.medianMillis() / flatten.medianMillis());
+        }
+        // Printed so the JIT cannot drop the flattened images
+        out.printf("%nchecksum %08x%n", checksum);
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Durations of the timed runs of one path.
+     */
+    private static final class Timing {
+        private final List<Long> nanos = new ArrayList<>();
+
+        /**
+         * Records a run's duration unless it was a warm-up run.
+         */
+        void record(int run, long elapsedNanos) {
+            if (run >= 0) {
+                nanos.add(elapsedNanos);
+            }
+        }
+
+        /**
+         * Returns the median duration, which ignores the odd run disturbed by garbage collection.
+         */
+        double medianMillis() {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            return sorted[sorted.length / 2] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Creates an image of the given type with reproducible colors and a mix of alpha values.
+     */
+    private static BufferedImage createSample(int width, int height, int imageType) {
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        Random random = new Random(SEED);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = switch (random.nextInt(4)) {
+                    case 0 -> 0xFF;
+                    case 1 -> 0;
+                    default -> random.nextInt(256);
+                };
+                row[x] = (alpha << 24) | (random.nextInt() & 0xFFFFFF);
+            }
+            // setRGB premultiplies for the _PRE types
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * Overwrites the pixels of an image with those of another of the same type and size.
+     */
+    private static void copyPixels(BufferedImage source, BufferedImage target) {
+        if (source.getRaster().getDataBuffer() instanceof DataBufferInt sourceInts) {
+            int[] targetInts = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+            System.arraycopy(sourceInts.getData(), 0, targetInts, 0, targetInts.length);
+        } else {
+            byte[] sourceBytes = ((DataBufferByte) source.getRaster().getDataBuffer()).getData();
+            byte[] targetBytes = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+            System.arraycopy(sourceBytes, 0, targetBytes, 0, targetBytes.length);
+        }
+    }
+
+    /**
+     * Returns the name of a {@link BufferedImage} type constant.
+     */
+    private static String typeName(int imageType) {
+        return switch (imageType) {
+            case BufferedImage.TYPE_INT_ARGB -> "INT_ARGB";
+            case BufferedImage.TYPE_INT_ARGB_PRE -> "INT_ARGB_PRE";
+            case BufferedImage.TYPE_4BYTE_ABGR -> "4BYTE_ABGR";
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE -> "4BYTE_ABGR_PRE";
+            default -> Integer.toString(imageType);
+        };
+    }
+
+    /**
+     * Returns the value following an option.
+     *
+     * @throws IllegalArgumentException if the option is the last argument
+     */
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * Parses a positive integer option value.
+     *
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    private static int parsePositive(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive integer: " + value);
+    }
+}
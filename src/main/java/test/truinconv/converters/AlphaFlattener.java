@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Composites images with alpha onto white by working on their pixel arrays directly.
+ * <p>
+ * The layouts ImageIO decoders produce for images with alpha are handled without a second image:
+ * packed ARGB ints and interleaved 8-bit RGBA bytes are blended in place and reinterpreted as
+ * {@code TYPE_INT_RGB} or {@code TYPE_3BYTE_BGR} over the same buffer, and palette images get an
+ * opaque palette over the same raster. Other layouts are drawn onto a white {@code TYPE_INT_RGB}
+ * canvas through Java2D. The blend rounds exactly like Java2D's SrcOver loops, so every path
+ * produces the same pixels as drawing the image onto white.
+ * <p>
+ * When the JVM resolves {@code jdk.incubator.vector} (start it with
+ * {@code --add-modules jdk.incubator.vector}), the in-place blends run through
+ * {@link VectorAlphaBlender}; otherwise they fall back to scalar loops with identical results.
+ */
+final class AlphaFlattener {
+
+    private static final Logger LOGGER = Logger.getLogger(AlphaFlattener.class.getName());
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final int OPAQUE_ALPHA = 0xFF;
+    private static final int[] RGB_MASKS = {0xFF0000, 0xFF00, 0xFF};
+    private static final int[] BGR_BAND_OFFSETS = {2, 1, 0};
+    private static final int BGR_PIXEL_STRIDE = 3;
+    private static final int RGBA_PIXEL_STRIDE = 4;
+
+    private static final ColorModel RGB_COLOR_MODEL =
+            new DirectColorModel(24, RGB_MASKS[0], RGB_MASKS[1], RGB_MASKS[2]);
+    private static final ColorModel BGR_COLOR_MODEL = new ComponentColorModel(
+            ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+    private static final boolean VECTOR_BLEND = isVectorBlendAvailable();
+
+    /**
+     * Pixel layouts with a dedicated flattening path.
+     */
+    private enum Layout {
+        /** Opaque layout that image writers accept as is. */
+        OPAQUE,
+        /** {@code TYPE_INT_ARGB} or {@code TYPE_INT_ARGB_PRE}. */
+        PACKED_ARGB,
+        /** One byte per sample, four interleaved sRGB samples with alpha per pixel. */
+        INTERLEAVED_RGBA,
+        /** Palette with alpha. */
+        INDEXED,
+        /** Anything else; flattened through Java2D. */
+        OTHER
+    }
+
+    // Prevent instantiation
+    private AlphaFlattener() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Returns an opaque version of the image composited onto white. Images in a supported layout
+     * are flattened in place, so the source must not be used afterwards.
+     *
+     * @param image image potentially containing alpha; consumed by this call
+     * @return image without alpha, possibly sharing the source's pixel buffer
+     */
+    static BufferedImage flatten(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        Layout layout = isStandalone(raster)
+                ? layoutOf(image.getColorModel(), image.getSampleModel(), image.getType())
+                : Layout.OTHER;
+        return switch (layout) {
+            case OPAQUE -> image;
+            case PACKED_ARGB -> flattenPackedArgb(raster, image.isAlphaPremultiplied());
+            case INTERLEAVED_RGBA -> flattenInterleavedRgba(raster, image.isAlphaPremultiplied());
+            case INDEXED -> new BufferedImage(opaquePalette((IndexColorModel) image.getColorModel()),
+                    raster, false, null);
+            case OTHER -> drawOntoWhite(image);
+        };
+    }
+
+    /**
+     * Returns the type {@link #flatten} produces for images of the given type.
+     *
+     * @param type type of the image to flatten
+     * @return type of the flattened image
+     */
+    static ImageTypeSpecifier flattenedType(ImageTypeSpecifier type) {
+        return switch (layoutOf(type.getColorModel(), type.getSampleModel(), type.getBufferedImageType())) {
+            case OPAQUE -> type;
+            case INTERLEAVED_RGBA -> ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_3BYTE_BGR);
+            case INDEXED -> new ImageTypeSpecifier(opaquePalette((IndexColorModel) type.getColorModel()),
+                    type.getSampleModel());
+            case PACKED_ARGB, OTHER -> ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB);
+        };
+    }
+
+    /**
+     * Checks whether flattening images of the given type allocates a second image.
+     *
+     * @param type type of the image to flatten
+     * @return true if {@link #flatten} copies the pixels
+     */
+    static boolean copiesPixels(ImageTypeSpecifier type) {
+        return layoutOf(type.getColorModel(), type.getSampleModel(), type.getBufferedImageType()) == Layout.OTHER;
+    }
+
+    /**
+     * Checks whether the Vector API module is resolved and readable, so {@link VectorAlphaBlender}
+     * can be linked, and whether SIMD pays off on this hardware.
+     */
+    private static boolean isVectorBlendAvailable() {
+        Optional<Module> vectorModule = ModuleLayer.boot().findModule(VECTOR_MODULE);
+        if (vectorModule.isEmpty() || !AlphaFlattener.class.getModule().canRead(vectorModule.get())) {
+            LOGGER.fine(VECTOR_MODULE + " is not available; flattening with scalar loops");
+            return false;
+        }
+        try {
+            return VectorAlphaBlender.isWorthwhile();
+        } catch (LinkageError e) {
+            LOGGER.log(Level.WARNING, "Vector API failed to initialize; flattening with scalar loops", e);
+            return false;
+        }
+    }
+
+    /**
+     * Classifies a pixel layout.
+     */
+    private static Layout layoutOf(ColorModel colorModel, SampleModel sampleModel, int bufferedImageType) {
+        if (!colorModel.hasAlpha()) {
+            boolean writable = bufferedImageType == BufferedImage.TYPE_INT_RGB
+                    || bufferedImageType == BufferedImage.TYPE_INT_BGR
+                    || bufferedImageType == BufferedImage.TYPE_3BYTE_BGR;
+            return writable ? Layout.OPAQUE : Layout.OTHER;
+        }
+        if (bufferedImageType == BufferedImage.TYPE_INT_ARGB || bufferedImageType == BufferedImage.TYPE_INT_ARGB_PRE) {
+            return Layout.PACKED_ARGB;
+        }
+        if (colorModel instanceof IndexColorModel) {
+            return Layout.INDEXED;
+        }
+        if (colorModel instanceof ComponentColorModel
+                && colorModel.getColorSpace().isCS_sRGB()
+                && colorModel.getNumComponents() == 4
+                && colorModel.getTransferType() == DataBuffer.TYPE_BYTE
+                && sampleModel instanceof PixelInterleavedSampleModel interleaved
+                && interleaved.getNumDataElements() == RGBA_PIXEL_STRIDE
+                && interleaved.getPixelStride() == RGBA_PIXEL_STRIDE
+                && interleaved.getScanlineStride() == RGBA_PIXEL_STRIDE * interleaved.getWidth()) {
+            return Layout.INTERLEAVED_RGBA;
+        }
+        return Layout.OTHER;
+    }
+
+    /**
+     * Checks that a raster owns its whole buffer from the start, so pixel {@code i} of row
+     * {@code y} is at array index {@code y * width + i} times the pixel stride.
+     */
+    private static boolean isStandalone(Raster raster) {
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        return raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && dataBuffer.getNumBanks() == 1
+                && dataBuffer.getOffset() == 0;
+    }
+
+    /**
+     * Blends packed ARGB pixels over white in place and returns an RGB view of the same ints.
+     */
+    private static BufferedImage flattenPackedArgb(WritableRaster raster, boolean premultiplied) {
+        DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+        int[] pixels = dataBuffer.getData();
+        int pixelCount = raster.getWidth() * raster.getHeight();
+        int vectorPixels = VECTOR_BLEND ? VectorAlphaBlender.blendPackedArgb(pixels, pixelCount, premultiplied) : 0;
+        for (int i = vectorPixels; i < pixelCount; i++) {
+            int argb = pixels[i];
+            int alpha = argb >>> 24;
+            // The RGB view ignores the alpha byte, so opaque pixels need no write
+            if (alpha != OPAQUE_ALPHA) {
+                int red = blend((argb >> 16) & 0xFF, alpha, premultiplied);
+                int green = blend((argb >> 8) & 0xFF, alpha, premultiplied);
+                int blue = blend(argb & 0xFF, alpha, premultiplied);
+                pixels[i] = (red << 16) | (green << 8) | blue;
+            }
+        }
+        WritableRaster rgbRaster = Raster.createPackedRaster(dataBuffer, raster.getWidth(), raster.getHeight(),
+                raster.getWidth(), RGB_MASKS, null);
+        return new BufferedImage(RGB_COLOR_MODEL, rgbRaster, false, null);
+    }
+
+    /**
+     * Blends interleaved RGBA bytes over white, packing the result as BGR triples at the start of
+     * the same array, and returns a {@code TYPE_3BYTE_BGR} view of it. Each pixel is written at or
+     * before where it was read, so no unread byte is overwritten.
+     */
+    private static BufferedImage flattenInterleavedRgba(WritableRaster raster, boolean premultiplied) {
+        PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int alphaOffset = bandOffsets[3];
+
+        byte[] samples = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int pixelCount = raster.getWidth() * raster.getHeight();
+        int vectorPixels = VECTOR_BLEND
+                ? VectorAlphaBlender.blendInterleavedRgba(samples, pixelCount, bandOffsets, premultiplied)
+                : 0;
+        for (int pixel = vectorPixels, source = pixel * RGBA_PIXEL_STRIDE, target = pixel * BGR_PIXEL_STRIDE;
+             pixel < pixelCount;
+             pixel++, source += RGBA_PIXEL_STRIDE, target += BGR_PIXEL_STRIDE) {
+            int alpha = samples[source + alphaOffset] & 0xFF;
+            int red = samples[source + redOffset] & 0xFF;
+            int green = samples[source + greenOffset] & 0xFF;
+            int blue = samples[source + blueOffset] & 0xFF;
+            if (alpha != OPAQUE_ALPHA) {
+                red = blend(red, alpha, premultiplied);
+                green = blend(green, alpha, premultiplied);
+                blue = blend(blue, alpha, premultiplied);
+            }
+            samples[target] = (byte) blue;
+            samples[target + 1] = (byte) green;
+            samples[target + 2] = (byte) red;
+        }
+        DataBufferByte bgrBuffer = new DataBufferByte(samples, pixelCount * BGR_PIXEL_STRIDE);
+        WritableRaster bgrRaster = Raster.createInterleavedRaster(bgrBuffer, raster.getWidth(), raster.getHeight(),
+                raster.getWidth() * BGR_PIXEL_STRIDE, BGR_PIXEL_STRIDE, BGR_BAND_OFFSETS, null);
+        return new BufferedImage(BGR_COLOR_MODEL, bgrRaster, false, null);
+    }
+
+    /**
+     * Returns a palette whose entries are the original entries composited onto white.
+     */
+    private static IndexColorModel opaquePalette(IndexColorModel palette) {
+        int size = palette.getMapSize();
+        byte[] reds = new byte[size];
+        byte[] greens = new byte[size];
+        byte[] blues = new byte[size];
+        for (int i = 0; i < size; i++) {
+            int alpha = palette.getAlpha(i);
+            reds[i] = (byte) blend(palette.getRed(i), alpha, false);
+            greens[i] = (byte) blend(palette.getGreen(i), alpha, false);
+            blues[i] = (byte) blend(palette.getBlue(i), alpha, false);
+        }
+        return new IndexColorModel(palette.getPixelSize(), size, reds, greens, blues);
+    }
+
+    /**
+     * Composites one 8-bit color sample over white, rounding like Java2D's {@code mul8table}.
+     */
+    private static int blend(int sample, int alpha, boolean premultiplied) {
+        int background = OPAQUE_ALPHA - alpha;
+        if (premultiplied) {
+            return sample + background;
+        }
+        int product = alpha * sample + 0x80;
+        return ((product + (product >> 8)) >> 8) + background;
+    }
+
+    /**
+     * Draws the image onto a new white {@code TYPE_INT_RGB} canvas.
+     *
+     * @param image image to flatten; left unchanged
+     * @return new opaque image
+     */
+    static BufferedImage drawOntoWhite(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgbImage.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgbImage;
+    }
+}
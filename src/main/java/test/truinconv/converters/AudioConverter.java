@@ -13,22 +13,46 @@ import ws.schild.jave.encode.AudioAttributes;
 import ws.schild.jave.encode.EncodingAttributes;
 import ws.schild.jave.info.AudioInfo;
 import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.progress.EncoderProgressListener;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * High-quality audio converter that preserves original quality.
  * <p>
+ * Sources may also be video files, in which case only the audio stream is read and written
+ * out: ffmpeg neither decodes nor encodes the video. When the source's audio codec is what the
+ * target format holds, e.g. AAC from an MP4 into an AAC file, the stream is copied without
+ * re-encoding; otherwise it is transcoded.
+ * <p>
  * Supported audio formats: MP3, WAV, AAC, FLAC, OGG
  */
 public final class AudioConverter {
+    private static final Logger LOGGER = Logger.getLogger(AudioConverter.class.getName());
+
     private static final int FALLBACK_AUDIO_BITRATE     = 192000; // 192 kbps
     private static final int FALLBACK_AUDIO_SAMPLE_RATE = 48000;  // 48 kHz
     private static final int FALLBACK_AUDIO_CHANNELS    = 2;
     private static final int MIN_AUDIO_BITRATE          = 128000; // 128 kbps minimum
     private static final Set<String> AUDIO_FORMATS      = Set.of("MP3", "WAV", "AAC", "FLAC", "OGG");
 
+    // ffmpeg decoder names each target format can carry as-is
+    private static final Map<String, Set<String>> COPYABLE_AUDIO_CODECS = Map.of(
+            "MP3", Set.of("mp3"),
+            "AAC", Set.of("aac"),
+            "FLAC", Set.of("flac"),
+            "OGG", Set.of("vorbis", "opus"),
+            "WAV", Set.of("pcm_s16le", "pcm_s24le")
+    );
+
     // Prevent instantiation
     private AudioConverter() {
         throw new UnsupportedOperationException("Utility class cannot be instantiated");
@@ -44,6 +68,26 @@ public final class AudioConverter {
      * @throws IllegalArgumentException if any argument is null or format unsupported
      */
     public static void convert(File inputFile, File outputFile, String targetFormat) throws EncoderException {
+        convert(inputFile, outputFile, targetFormat, null, null);
+    }
+
+    /**
+     * Converts an audio file to the specified format while preserving its original quality,
+     * reporting the progress of the encode as it runs and stopping it if the token is cancelled.
+     *
+     * @param inputFile        source audio file
+     * @param outputFile       destination file for converted audio
+     * @param targetFormat     desired output format (case-insensitive)
+     * @param progressListener receives the source info and per-mille progress of the encode (may be null)
+     * @param cancellation     token stopping the encode (may be null); the output is partial once cancelled
+     * @throws EncoderException if conversion fails
+     * @throws CancellationException if the token was cancelled
+     * @throws IllegalArgumentException if any argument is null, format unsupported or the source
+     *                                  is a video without audio
+     */
+    public static void convert(File inputFile, File outputFile, String targetFormat,
+                               EncoderProgressListener progressListener, CancellationToken cancellation)
+            throws EncoderException {
         if (inputFile == null || outputFile == null || targetFormat == null) {
             throw new IllegalArgumentException("Input file, output file, and target format cannot be null");
         }
@@ -52,29 +96,191 @@ public final class AudioConverter {
             throw new IllegalArgumentException("Unsupported audio format: " + targetFormat);
         }
 
-        MultimediaObject sourceMedia = new MultimediaObject(inputFile);
+        MultimediaObject sourceMedia = MediaProbeCache.mediaObject(inputFile);
         EncodingAttributes encodingSettings = createQualityPreservingSettings(sourceMedia, normalizedFormat);
 
         Encoder encoder = new Encoder();
-        encoder.encode(sourceMedia, outputFile, encodingSettings);
+        try {
+            CancellableEncode.encode(encoder, sourceMedia, outputFile, encodingSettings,
+                    progressListener, cancellation);
+        } catch (EncoderException e) {
+            if (!isStreamCopy(encodingSettings)) {
+                throw e;
+            }
+            // Matching codecs can still fail to copy, e.g. on broken timestamps
+            LOGGER.log(Level.INFO, "Audio stream copy failed, transcoding " + inputFile, e);
+            CancellableEncode.encode(new Encoder(), sourceMedia, outputFile,
+                    createTranscodeSettings(sourceMedia.getInfo(), normalizedFormat),
+                    progressListener, cancellation);
+        }
+    }
+
+    /**
+     * Converts an audio file to several formats with a single ffmpeg invocation that decodes
+     * the source once and writes every output. If that invocation fails, each target is
+     * converted separately.
+     *
+     * @param inputFile           source audio file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @throws EncoderException if conversion fails
+     * @throws IllegalArgumentException if any argument is null or a format unsupported
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat) throws EncoderException {
+        convert(inputFile, outputFilesByFormat, null, null);
+    }
+
+    /**
+     * Converts an audio file to several formats with a single ffmpeg invocation that decodes
+     * the source once and writes every output, reporting its progress and stopping it if the
+     * token is cancelled. If that invocation fails, each target is converted separately.
+     *
+     * @param inputFile           source audio file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param progressListener    receives the source info and per-mille progress of the encode (may be null)
+     * @param cancellation        token stopping the encode (may be null); the outputs are partial once cancelled
+     * @throws EncoderException if conversion fails
+     * @throws CancellationException if the token was cancelled
+     * @throws IllegalArgumentException if any argument is null or a format unsupported
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat,
+                               EncoderProgressListener progressListener, CancellationToken cancellation)
+            throws EncoderException {
+        if (inputFile == null || outputFilesByFormat == null || outputFilesByFormat.isEmpty()) {
+            throw new IllegalArgumentException("Input file and at least one target format are required");
+        }
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            if (target.getKey() == null || target.getValue() == null) {
+                throw new IllegalArgumentException("Output file and target format cannot be null");
+            }
+            if (!AUDIO_FORMATS.contains(target.getKey().toUpperCase().trim())) {
+                throw new IllegalArgumentException("Unsupported audio format: " + target.getKey());
+            }
+        }
+        if (outputFilesByFormat.size() == 1) {
+            Map.Entry<String, File> target = outputFilesByFormat.entrySet().iterator().next();
+            convert(inputFile, target.getValue(), target.getKey(), progressListener, cancellation);
+            return;
+        }
+
+        MultimediaObject sourceMedia = MediaProbeCache.mediaObject(inputFile);
+        List<String> arguments = new ArrayList<>(List.of("-i", inputFile.getAbsolutePath()));
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            EncodingAttributes encodingSettings = createQualityPreservingSettings(
+                    sourceMedia, target.getKey().toUpperCase().trim());
+            FfmpegCommand.appendOutput(arguments, encodingSettings, target.getValue());
+        }
+
+        try {
+            CancellableEncode.run(arguments, sourceMedia.getInfo(), progressListener, cancellation);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Multi-output encoding failed, converting each target separately: "
+                    + inputFile, e);
+            for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+                convert(inputFile, target.getValue(), target.getKey(), progressListener, cancellation);
+            }
+        }
     }
 
     /**
-     * Builds encoding settings that preserve the original audio quality.
+     * Describes the effective encoding settings {@link #convert} would use for a file.
+     *
+     * @param inputFile    source audio file
+     * @param targetFormat desired output format (case-insensitive)
+     * @return deterministic description of the encoding settings
+     * @throws EncoderException if retrieving media info fails
+     * @throws IllegalArgumentException if any argument is null or format unsupported
+     */
+    public static String describeSettings(File inputFile, String targetFormat) throws EncoderException {
+        if (inputFile == null || targetFormat == null) {
+            throw new IllegalArgumentException("Input file and target format cannot be null");
+        }
+        String normalizedFormat = targetFormat.toUpperCase().trim();
+        if (!AUDIO_FORMATS.contains(normalizedFormat)) {
+            throw new IllegalArgumentException("Unsupported audio format: " + targetFormat);
+        }
+
+        MultimediaObject sourceMedia = MediaProbeCache.mediaObject(inputFile);
+        return EncodingFingerprint.describe(createQualityPreservingSettings(sourceMedia, normalizedFormat));
+    }
+
+    /**
+     * Builds encoding settings that preserve the original audio quality, copying the audio
+     * stream when the target format can hold it as-is.
      *
      * @param sourceMedia  multimedia object of the source file
      * @param targetFormat normalized target format string
      * @return configured encoding attributes
      * @throws EncoderException if retrieving media info fails
+     * @throws IllegalArgumentException if the source is a video without audio
      */
     private static EncodingAttributes createQualityPreservingSettings(
             MultimediaObject sourceMedia, String targetFormat) throws EncoderException {
+        return createQualityPreservingSettings(sourceMedia.getInfo(), targetFormat);
+    }
+
+    /**
+     * Builds encoding settings that preserve the audio quality of a probed source, copying
+     * the audio stream when the target format can hold it as-is.
+     *
+     * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized target format string
+     * @return configured encoding attributes
+     * @throws IllegalArgumentException if the source is a video without audio
+     */
+    static EncodingAttributes createQualityPreservingSettings(MultimediaInfo originalInfo, String targetFormat) {
+        if (originalInfo.getAudio() == null && originalInfo.getVideo() != null) {
+            throw new IllegalArgumentException("Video has no audio stream to extract");
+        }
+        AudioInfo originalAudio = originalInfo.getAudio();
+        if (originalAudio != null && COPYABLE_AUDIO_CODECS.get(targetFormat)
+                .contains(VideoConverter.codecName(originalAudio.getDecoder()))) {
+            return createStreamCopySettings(targetFormat);
+        }
+        return createTranscodeSettings(originalInfo, targetFormat);
+    }
+
+    /**
+     * Builds settings that copy the audio stream into the target format unchanged.
+     *
+     * @param targetFormat normalized target format string
+     * @return stream-copy encoding attributes
+     */
+    private static EncodingAttributes createStreamCopySettings(String targetFormat) {
+        AudioAttributes audioSettings = new AudioAttributes();
+        audioSettings.setCodec(AudioAttributes.DIRECT_STREAM_COPY);
+
+        EncodingAttributes encodingSettings = new EncodingAttributes();
+        encodingSettings.setAudioAttributes(audioSettings);
+        encodingSettings.setOutputFormat(FfmpegCommand.getMuxerName(targetFormat));
+        return encodingSettings;
+    }
+
+    /**
+     * Checks whether settings copy the audio stream rather than encode it.
+     *
+     * @param encodingSettings settings to inspect
+     * @return true for stream-copy settings
+     */
+    private static boolean isStreamCopy(EncodingAttributes encodingSettings) {
+        return encodingSettings.getAudioAttributes()
+                .flatMap(AudioAttributes::getCodec)
+                .filter(AudioAttributes.DIRECT_STREAM_COPY::equals)
+                .isPresent();
+    }
+
+    /**
+     * Builds settings that re-encode the audio with quality-preserving parameters.
+     *
+     * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized target format string
+     * @return configured encoding attributes
+     */
+    private static EncodingAttributes createTranscodeSettings(MultimediaInfo originalInfo, String targetFormat) {
         EncodingAttributes encodingSettings = new EncodingAttributes();
-        MultimediaInfo originalInfo = sourceMedia.getInfo();
 
         AudioAttributes audioSettings = createQualityPreservingAudioSettings(originalInfo, targetFormat);
         encodingSettings.setAudioAttributes(audioSettings);
-        encodingSettings.setOutputFormat(targetFormat.toLowerCase());
+        encodingSettings.setOutputFormat(FfmpegCommand.getMuxerName(targetFormat));
         return encodingSettings;
     }
 
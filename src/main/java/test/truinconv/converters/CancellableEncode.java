@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.Encoder;
+import ws.schild.jave.EncoderException;
+import ws.schild.jave.MultimediaObject;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.progress.EncoderProgressListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs a JAVE encode that a {@link CancellationToken} can stop, passing the encoder options
+ * JAVE has no attribute for (see {@link FfmpegCommand#EXTRA_OUTPUT_ARGUMENTS}).
+ * <p>
+ * Cancelling calls {@link Encoder#abortEncoding()}, which destroys the ffmpeg process at once.
+ * That does nothing if ffmpeg has not been started yet, so the encode's own callbacks also
+ * check the token and abort from the encoding thread; ffmpeg reports progress several times
+ * a second, so a cancel that races the start still stops it almost immediately.
+ * <p>
+ * Command lines JAVE cannot express are run through {@link #run}, which destroys its ffmpeg
+ * process on cancel and follows progress through ffmpeg's status lines.
+ */
+final class CancellableEncode {
+
+    private static final int PERMILLE_DONE = 1000;
+
+    // Prevent instantiation
+    private CancellableEncode() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Encodes a source file, stopping the encode if the token is cancelled.
+     *
+     * @param encoder          encoder to run; used for this encode only
+     * @param sourceMedia      source file
+     * @param outputFile       destination file
+     * @param settings         encoding settings
+     * @param progressListener receives progress of the encode (may be null)
+     * @param cancellation     token stopping the encode (may be null)
+     * @throws EncoderException      if the encode fails
+     * @throws CancellationException if the token was cancelled; the output may be partial
+     */
+    static void encode(Encoder encoder, MultimediaObject sourceMedia, File outputFile, EncodingAttributes settings,
+                       EncoderProgressListener progressListener, CancellationToken cancellation)
+            throws EncoderException {
+        if (cancellation == null) {
+            encoder.encode(List.of(sourceMedia), outputFile, settings, progressListener,
+                    FfmpegCommand.EXTRA_OUTPUT_ARGUMENTS);
+            return;
+        }
+
+        cancellation.throwIfCancelled();
+        CancellationToken.Registration abortOnCancel = cancellation.onCancel(encoder::abortEncoding);
+        try {
+            encoder.encode(List.of(sourceMedia), outputFile, settings, new EncoderProgressListener() {
+                @Override
+                public void sourceInfo(MultimediaInfo info) {
+                    abortIfCancelled(encoder, cancellation);
+                    if (progressListener != null) {
+                        progressListener.sourceInfo(info);
+                    }
+                }
+
+                @Override
+                public void progress(int permille) {
+                    abortIfCancelled(encoder, cancellation);
+                    if (progressListener != null) {
+                        progressListener.progress(permille);
+                    }
+                }
+
+                @Override
+                public void message(String message) {
+                    abortIfCancelled(encoder, cancellation);
+                    if (progressListener != null) {
+                        progressListener.message(message);
+                    }
+                }
+            }, FfmpegCommand.EXTRA_OUTPUT_ARGUMENTS);
+        } catch (EncoderException | RuntimeException e) {
+            // A destroyed ffmpeg surfaces as a failed encode
+            cancellation.throwIfCancelled();
+            throw e;
+        } finally {
+            abortOnCancel.close();
+        }
+        // An aborted encode may also end as if ffmpeg had finished
+        cancellation.throwIfCancelled();
+    }
+
+    /**
+     * Runs an ffmpeg command line built by {@link FfmpegCommand}, reporting its progress and
+     * stopping it if the token is cancelled.
+     *
+     * @param arguments        arguments after the executable
+     * @param sourceInfo       probed source, whose duration progress is measured against
+     * @param progressListener receives the source info and per-mille progress of the run (may be null)
+     * @param cancellation     token stopping the run (may be null)
+     * @throws IOException           if ffmpeg fails
+     * @throws CancellationException if the token was cancelled; the outputs may be partial
+     */
+    static void run(List<String> arguments, MultimediaInfo sourceInfo, EncoderProgressListener progressListener,
+                    CancellationToken cancellation) throws IOException {
+        if (cancellation != null) {
+            cancellation.throwIfCancelled();
+        }
+        if (progressListener != null) {
+            progressListener.sourceInfo(sourceInfo);
+        }
+        long durationMillis = sourceInfo.getDuration();
+        FfmpegProcessGroup process = new FfmpegProcessGroup();
+        CancellationToken.Registration stopOnCancel =
+                cancellation == null ? null : cancellation.onCancel(process::destroyAll);
+        try {
+            FfmpegCommand.run(arguments, process, line -> {
+                long encodedMillis = FfmpegCommand.encodedMillis(line);
+                if (progressListener != null && encodedMillis >= 0 && durationMillis > 0) {
+                    // Completion is only reported once ffmpeg has exited
+                    progressListener.progress((int) Math.min(PERMILLE_DONE - 1,
+                            encodedMillis * PERMILLE_DONE / durationMillis));
+                }
+            });
+        } catch (IOException e) {
+            // A destroyed ffmpeg surfaces as a failed run
+            if (cancellation != null) {
+                cancellation.throwIfCancelled();
+            }
+            throw e;
+        } finally {
+            if (stopOnCancel != null) {
+                stopOnCancel.close();
+            }
+        }
+        if (cancellation != null) {
+            cancellation.throwIfCancelled();
+        }
+        if (progressListener != null) {
+            progressListener.progress(PERMILLE_DONE);
+        }
+    }
+
+    /**
+     * Destroys the ffmpeg process of an encode whose token has been cancelled.
+     */
+    private static void abortIfCancelled(Encoder encoder, CancellationToken cancellation) {
+        if (cancellation.isCancelled()) {
+            encoder.abortEncoding();
+        }
+    }
+}
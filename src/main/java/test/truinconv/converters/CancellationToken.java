@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cooperative cancellation signal shared by a batch and the conversions it runs.
+ * <p>
+ * Thread interrupts cannot stop an ffmpeg child process: the encoding thread is blocked
+ * reading the process's log, not waiting on anything interruptible. Work that cannot notice
+ * an interrupt therefore registers an action here, such as destroying its process, and
+ * {@link #cancel()} runs every registered action on the cancelling thread.
+ * Instances are thread-safe.
+ */
+public final class CancellationToken {
+    private static final Logger LOGGER = Logger.getLogger(CancellationToken.class.getName());
+
+    /**
+     * Handle for removing a registered cancel action once the work it stops has finished.
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        /**
+         * Removes the action; it will not run on a later cancel.
+         */
+        @Override
+        void close();
+    }
+
+    // Guarded by this; cleared once cancelled
+    private final List<Runnable> cancelActions = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * Cancels the work observing this token, running the registered actions once.
+     * Later calls do nothing.
+     */
+    public void cancel() {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            actions = new ArrayList<>(cancelActions);
+            cancelActions.clear();
+        }
+        for (Runnable action : actions) {
+            runAction(action);
+        }
+    }
+
+    /**
+     * Checks whether {@link #cancel()} has been called.
+     *
+     * @return true once cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Fails fast if the work has been cancelled.
+     *
+     * @throws CancellationException if {@link #cancel()} has been called
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Conversion was cancelled");
+        }
+    }
+
+    /**
+     * Registers an action to run on cancel. If the token is already cancelled, the action
+     * runs at once on the calling thread.
+     *
+     * @param action action stopping some work, e.g. destroying a process
+     * @return registration to close once the work has finished
+     * @throws IllegalArgumentException if action is null
+     */
+    public Registration onCancel(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Cancel action cannot be null");
+        }
+        synchronized (this) {
+            if (!cancelled) {
+                cancelActions.add(action);
+                return () -> {
+                    synchronized (this) {
+                        cancelActions.remove(action);
+                    }
+                };
+            }
+        }
+        runAction(action);
+        return () -> { };
+    }
+
+    /**
+     * Runs a cancel action; a failing action must not keep the others from running.
+     */
+    private static void runAction(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cancel action failed", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Seekable image input stream reading a file through a {@link FileChannel} with a read buffer.
+ * <p>
+ * {@code FileImageInputStream} issues one system call per read, and image readers read headers
+ * a few bytes at a time, which is slow on network filesystems. This stream serves small reads
+ * from a buffer refilled by positional channel reads, and passes large reads straight to the
+ * channel. It seeks within the file itself, so nothing is cached in memory or in temp files.
+ */
+final class ChannelImageInputStream extends ImageInputStreamImpl {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    // Holds the file bytes [bufferStart, bufferStart + buffer.limit())
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+    private long bufferStart;
+
+    /**
+     * Opens a file for reading.
+     *
+     * @param path file to read
+     * @throws IOException if the file cannot be opened
+     */
+    ChannelImageInputStream(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (!fillBuffer()) {
+            return -1;
+        }
+        int value = buffer.get((int) (streamPos - bufferStart)) & 0xFF;
+        streamPos++;
+        return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        checkClosed();
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        bitOffset = 0;
+        if (length == 0) {
+            return 0;
+        }
+
+        if (length >= BUFFER_SIZE && !isBuffered(streamPos)) {
+            // Copying through the buffer would only add work
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, length), streamPos);
+            if (count > 0) {
+                streamPos += count;
+            }
+            return count;
+        }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        int bufferOffset = (int) (streamPos - bufferStart);
+        int count = Math.min(length, buffer.limit() - bufferOffset);
+        buffer.get(bufferOffset, bytes, offset, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Makes the buffer hold the byte at the stream position, reading from the channel if needed.
+     *
+     * @return false if the stream is at the end of the file
+     */
+    private boolean fillBuffer() throws IOException {
+        if (isBuffered(streamPos)) {
+            return true;
+        }
+        buffer.clear();
+        bufferStart = streamPos;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, bufferStart + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.hasRemaining();
+    }
+
+    /**
+     * Checks whether the buffer holds the byte at a file position.
+     */
+    private boolean isBuffered(long position) {
+        return position >= bufferStart && position < bufferStart + buffer.limit();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Seekable image output stream writing a file through a {@link FileChannel} with a write buffer.
+ * <p>
+ * Writers emit headers and chunk lengths a few bytes at a time and seek back to patch them,
+ * which {@code FileImageOutputStream} turns into one system call each. Here writes collect in a
+ * buffer covering a window of the file, including ones that patch bytes already in the window or
+ * skip ahead past the end of the file, and the window is written out by one positional channel
+ * write when a write falls outside it.
+ * Large writes go straight to the channel. The file itself is the seekable store, so nothing is
+ * cached in memory or in temp files however large the image.
+ */
+final class ChannelImageOutputStream extends ImageOutputStreamImpl {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    // Pending bytes [0, bufferedLength) of the window, to be written at bufferStart
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferedLength;
+    private long bufferStart;
+    // Number of bytes written to the channel so far; the file is truncated when opened
+    private long channelLength;
+
+    /**
+     * Creates or truncates a file for writing.
+     *
+     * @param path file to write
+     * @throws IOException if the file cannot be opened
+     */
+    ChannelImageOutputStream(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        checkClosed();
+        flushBits();
+        buffer[bufferIndex(1)] = (byte) value;
+        streamPos++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkClosed();
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        flushBits();
+        if (length >= BUFFER_SIZE) {
+            flushBuffer();
+            writeFully(ByteBuffer.wrap(bytes, offset, length), streamPos);
+        } else {
+            System.arraycopy(bytes, offset, buffer, bufferIndex(length), length);
+        }
+        streamPos += length;
+    }
+
+    /**
+     * Reads back written bytes; writers rarely do this, so reads are not buffered.
+     */
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        flushBuffer();
+        ByteBuffer single = ByteBuffer.allocate(1);
+        if (channel.read(single, streamPos) <= 0) {
+            return -1;
+        }
+        streamPos++;
+        return single.get(0) & 0xFF;
+    }
+
+    /**
+     * Reads back written bytes; writers rarely do this, so reads are not buffered.
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        checkClosed();
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        bitOffset = 0;
+        if (length == 0) {
+            return 0;
+        }
+        flushBuffer();
+        int count = channel.read(ByteBuffer.wrap(bytes, offset, length), streamPos);
+        if (count > 0) {
+            streamPos += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long length() {
+        try {
+            return Math.max(channel.size(), bufferStart + bufferedLength);
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+            super.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns where bytes written at the stream position go in the buffer. Pending bytes are
+     * written out first, and the window moved to the stream position, if the new bytes would
+     * not fit in the window or would leave a gap over bytes already in the file. A gap past the
+     * end of the file holds nothing yet and is filled with zeros.
+     *
+     * @param length number of bytes about to be written, at most the buffer size
+     * @return buffer index of the stream position
+     */
+    private int bufferIndex(int length) throws IOException {
+        long index = streamPos - bufferStart;
+        boolean gapOverFile = index > bufferedLength && bufferStart + bufferedLength < channelLength;
+        if (index < 0 || index + length > BUFFER_SIZE || gapOverFile) {
+            flushBuffer();
+            bufferStart = streamPos;
+            index = 0;
+        }
+        if (index > bufferedLength) {
+            Arrays.fill(buffer, bufferedLength, (int) index, (byte) 0);
+        }
+        bufferedLength = Math.max(bufferedLength, (int) index + length);
+        return (int) index;
+    }
+
+    /**
+     * Writes out pending bytes.
+     */
+    private void flushBuffer() throws IOException {
+        if (bufferedLength > 0) {
+            writeFully(ByteBuffer.wrap(buffer, 0, bufferedLength), bufferStart);
+            bufferedLength = 0;
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer at a file position.
+     */
+    private void writeFully(ByteBuffer source, long position) throws IOException {
+        long target = position;
+        while (source.hasRemaining()) {
+            target += channel.write(source, target);
+        }
+        channelLength = Math.max(channelLength, target);
+    }
+}
@@ -6,15 +6,43 @@
 
 package test.truinconv.converters;
 
+import test.truinconv.constants.ConversionMappings;
 import test.truinconv.model.ConversionCategory;
+import ws.schild.jave.progress.EncoderProgressListener;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Routes file conversions to the appropriate converter based on category.
  * Supports IMAGE, AUDIO, and VIDEO conversions.
+ * <p>
+ * A target format that merely renames the source format, such as JPG to JPEG, is a
+ * passthrough: the source bytes are copied as they are, with no decoding and no quality loss.
+ * The source's content must decode as the target format too, so a PNG misnamed {@code .jpg}
+ * is still converted to a real JPEG.
+ * <p>
+ * An existing output is unlinked before any converter writes it. ffmpeg's {@code -y} and the
+ * image writers would otherwise truncate it in place, writing through to every other name of
+ * the same file, such as a hard link left by an earlier conversion-cache hit.
  */
 public final class ConverterRouter {
 
+    private static final Logger LOGGER = Logger.getLogger(ConverterRouter.class.getName());
+
     // Prevent instantiation of utility class
     private ConverterRouter() {
         throw new UnsupportedOperationException("Utility class cannot be instantiated");
@@ -33,17 +61,299 @@ public final class ConverterRouter {
     public static void convert(File inputFile, File outputFile,
                                String targetFormat,
                                ConversionCategory conversionCategory) throws Exception {
+        convert(inputFile, outputFile, targetFormat, conversionCategory, ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * Dispatches conversion to the specific converter, compressing images with the given preset.
+     *
+     * @param inputFile          source file to convert
+     * @param outputFile         destination file for converted content
+     * @param targetFormat       desired output file format
+     * @param conversionCategory category determining which converter to use
+     * @param imagePreset        compression preset for image outputs; ignored for audio and video
+     * @throws Exception if the underlying conversion fails
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static void convert(File inputFile, File outputFile,
+                               String targetFormat,
+                               ConversionCategory conversionCategory,
+                               ImageCompressionPreset imagePreset) throws Exception {
+        convert(inputFile, outputFile, targetFormat, conversionCategory, imagePreset, VideoEncodingOptions.DEFAULT,
+                null, null);
+    }
+
+    /**
+     * Dispatches conversion to the specific converter, compressing images with the given preset,
+     * encoding videos with the given options, reporting the progress of audio and video encodes
+     * and stopping them on cancel.
+     *
+     * @param inputFile          source file to convert
+     * @param outputFile         destination file for converted content
+     * @param targetFormat       desired output file format
+     * @param conversionCategory category determining which converter to use
+     * @param imagePreset        compression preset for image outputs; ignored for audio and video
+     * @param videoOptions       encoder preset, CRF and threads for transcoded videos; ignored otherwise
+     * @param progressListener   receives per-mille progress of audio and video encodes (may be null);
+     *                           image conversions and passthrough copies report nothing
+     * @param cancellation       token stopping audio and video encodes (may be null); image
+     *                           conversions stop when their thread is interrupted
+     * @throws Exception if the underlying conversion fails
+     * @throws CancellationException if the token was cancelled
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static void convert(File inputFile, File outputFile,
+                               String targetFormat,
+                               ConversionCategory conversionCategory,
+                               ImageCompressionPreset imagePreset,
+                               VideoEncodingOptions videoOptions,
+                               EncoderProgressListener progressListener,
+                               CancellationToken cancellation) throws Exception {
         validateParameters(inputFile, outputFile, targetFormat, conversionCategory);
+        removeExistingOutput(outputFile);
+        if (isPassthrough(inputFile, targetFormat)) {
+            copySource(inputFile, outputFile);
+            return;
+        }
+
+        switch (conversionCategory) {
+            case IMAGE -> ImageConverter.convert(inputFile, outputFile, targetFormat, imagePreset);
+            case AUDIO -> AudioConverter.convert(inputFile, outputFile, targetFormat, progressListener, cancellation);
+            case VIDEO -> VideoConverter.convert(inputFile, outputFile, targetFormat, videoOptions,
+                    progressListener, cancellation);
+            default -> throw new IllegalArgumentException(
+                    "Unsupported conversion category: " + conversionCategory);
+        }
+    }
+
+    /**
+     * Converts one source into several target formats from a single decode of the source.
+     *
+     * @param inputFile           source file to convert
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param conversionCategory  category determining which converter to use
+     * @throws Exception if the underlying conversion fails
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat,
+                               ConversionCategory conversionCategory) throws Exception {
+        convert(inputFile, outputFilesByFormat, conversionCategory, ImageCompressionPreset.BALANCED,
+                VideoEncodingOptions.DEFAULT, null, null);
+    }
+
+    /**
+     * Converts one source into several target formats from a single decode of the source,
+     * compressing images with the given preset, encoding videos with the given options,
+     * reporting the progress of the shared audio or video encode and stopping it on cancel.
+     * Each output is the same as a conversion to its format alone would write.
+     *
+     * @param inputFile           source file to convert
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param conversionCategory  category determining which converter to use
+     * @param imagePreset         compression preset for image outputs; ignored for audio and video
+     * @param videoOptions        encoder preset, CRF and threads for transcoded videos; ignored otherwise
+     * @param progressListener    receives per-mille progress of the shared audio or video encode
+     *                            (may be null); image conversions and passthrough copies report nothing
+     * @param cancellation        token stopping audio and video encodes (may be null); image
+     *                            conversions stop when their thread is interrupted
+     * @throws Exception if the underlying conversion fails
+     * @throws CancellationException if the token was cancelled
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat,
+                               ConversionCategory conversionCategory,
+                               ImageCompressionPreset imagePreset,
+                               VideoEncodingOptions videoOptions,
+                               EncoderProgressListener progressListener,
+                               CancellationToken cancellation) throws Exception {
+        if (outputFilesByFormat == null || outputFilesByFormat.isEmpty()) {
+            throw new IllegalArgumentException("At least one target format is required");
+        }
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            validateParameters(inputFile, target.getValue(), target.getKey(), conversionCategory);
+        }
+        for (File outputFile : outputFilesByFormat.values()) {
+            removeExistingOutput(outputFile);
+        }
+
+        Map<String, File> convertedOutputs = new LinkedHashMap<>();
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            if (isPassthrough(inputFile, target.getKey())) {
+                copySource(inputFile, target.getValue());
+            } else {
+                convertedOutputs.put(target.getKey(), target.getValue());
+            }
+        }
+        if (convertedOutputs.isEmpty()) {
+            return;
+        }
 
         switch (conversionCategory) {
-            case IMAGE -> ImageConverter.convert(inputFile, outputFile, targetFormat);
-            case AUDIO -> AudioConverter.convert(inputFile, outputFile, targetFormat);
-            case VIDEO -> VideoConverter.convert(inputFile, outputFile, targetFormat);
+            case IMAGE -> ImageConverter.convert(inputFile, convertedOutputs, imagePreset);
+            case AUDIO -> AudioConverter.convert(inputFile, convertedOutputs, progressListener, cancellation);
+            case VIDEO -> VideoConverter.convert(inputFile, convertedOutputs, videoOptions,
+                    progressListener, cancellation);
             default -> throw new IllegalArgumentException(
                     "Unsupported conversion category: " + conversionCategory);
         }
     }
 
+    /**
+     * Describes the effective encoding settings the specific converter would use,
+     * for keying caches of conversion results.
+     *
+     * @param inputFile          source file
+     * @param targetFormat       desired output file format
+     * @param conversionCategory category determining which converter to use
+     * @return deterministic description of the encoding settings
+     * @throws Exception if the source cannot be inspected
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static String describeSettings(File inputFile, String targetFormat,
+                                          ConversionCategory conversionCategory) throws Exception {
+        return describeSettings(inputFile, targetFormat, conversionCategory, ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * Describes the effective encoding settings the specific converter would use with
+     * the given image compression preset, for keying caches of conversion results.
+     *
+     * @param inputFile          source file
+     * @param targetFormat       desired output file format
+     * @param conversionCategory category determining which converter to use
+     * @param imagePreset        compression preset for image outputs; ignored for audio and video
+     * @return deterministic description of the encoding settings
+     * @throws Exception if the source cannot be inspected
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static String describeSettings(File inputFile, String targetFormat,
+                                          ConversionCategory conversionCategory,
+                                          ImageCompressionPreset imagePreset) throws Exception {
+        return describeSettings(inputFile, targetFormat, conversionCategory, imagePreset, VideoEncodingOptions.DEFAULT);
+    }
+
+    /**
+     * Describes the effective encoding settings the specific converter would use with
+     * the given image compression preset and video encoder options, for keying caches
+     * of conversion results.
+     *
+     * @param inputFile          source file
+     * @param targetFormat       desired output file format
+     * @param conversionCategory category determining which converter to use
+     * @param imagePreset        compression preset for image outputs; ignored for audio and video
+     * @param videoOptions       encoder preset, CRF and threads for transcoded videos; ignored otherwise
+     * @return deterministic description of the encoding settings
+     * @throws Exception if the source cannot be inspected
+     * @throws IllegalArgumentException if any parameter is invalid or category unsupported
+     */
+    public static String describeSettings(File inputFile, String targetFormat,
+                                          ConversionCategory conversionCategory,
+                                          ImageCompressionPreset imagePreset,
+                                          VideoEncodingOptions videoOptions) throws Exception {
+        if (conversionCategory == null) {
+            throw new IllegalArgumentException("Conversion category cannot be null");
+        }
+        if (isPassthrough(inputFile, targetFormat)) {
+            return "passthrough";
+        }
+        return switch (conversionCategory) {
+            case IMAGE -> ImageConverter.describeSettings(targetFormat, imagePreset);
+            case AUDIO -> AudioConverter.describeSettings(inputFile, targetFormat);
+            case VIDEO -> VideoConverter.describeSettings(inputFile, targetFormat, videoOptions);
+        };
+    }
+
+    /**
+     * Checks whether converting a file to a target format is a plain copy, because its
+     * extension names the same format as the target and, for image formats, a reader of that
+     * format recognizes its content.
+     *
+     * @param inputFile    source file
+     * @param targetFormat desired output file format
+     * @return true if the source bytes are already a valid file of the target format
+     */
+    public static boolean isPassthrough(File inputFile, String targetFormat) {
+        if (inputFile == null || targetFormat == null) {
+            return false;
+        }
+        String fileName = inputFile.getName();
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex <= 0 || lastDotIndex == fileName.length() - 1) {
+            return false;
+        }
+        String sourceFormat = fileName.substring(lastDotIndex + 1).toUpperCase(Locale.ROOT);
+        return ConversionMappings.isSameFormat(sourceFormat, targetFormat) && decodesAs(inputFile, targetFormat);
+    }
+
+    /**
+     * Checks whether a reader of the target format recognizes the file's content. Readers
+     * only inspect the header, so this does not decode the image. Audio and video formats,
+     * which ImageIO has no reader for, are taken by extension: probing them would start ffmpeg.
+     *
+     * @param inputFile    source file
+     * @param targetFormat desired output file format
+     * @return true if the content is in the target format; false if not or unreadable
+     */
+    private static boolean decodesAs(File inputFile, String targetFormat) {
+        if (!ImageIO.getImageReadersByFormatName(targetFormat.trim().toLowerCase(Locale.ROOT)).hasNext()) {
+            return true;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(inputFile)) {
+            if (input == null) {
+                return false;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            while (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    for (String formatName : reader.getOriginatingProvider().getFormatNames()) {
+                        if (ConversionMappings.isSameFormat(formatName, targetFormat)) {
+                            return true;
+                        }
+                    }
+                } finally {
+                    reader.dispose();
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            // The conversion reports the unreadable source
+            LOGGER.log(Level.FINE, "Could not inspect " + inputFile + " for a plain copy", e);
+            return false;
+        }
+    }
+
+    /**
+     * Copies a source whose format already matches the target.
+     * <p>
+     * Attributes are not copied: the output must be newer than its source to
+     * count as up to date. Java has no portable reflink call, so the bytes are copied.
+     *
+     * @param inputFile  source file
+     * @param outputFile destination file
+     * @throws IOException if the copy fails
+     */
+    private static void copySource(File inputFile, File outputFile) throws IOException {
+        Files.copy(inputFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Unlinks an existing output so the converter writes a new file instead of truncating a
+     * shared one.
+     *
+     * @param outputFile destination file
+     * @throws IOException if the existing output cannot be deleted
+     */
+    private static void removeExistingOutput(File outputFile) throws IOException {
+        try {
+            Files.deleteIfExists(outputFile.toPath());
+        } catch (AccessDeniedException e) {
+            // Windows refuses to delete read-only files
+            outputFile.setWritable(true);
+            Files.deleteIfExists(outputFile.toPath());
+        }
+    }
+
     /**
      * Ensures all inputs are non-null and targetFormat is not empty.
      *
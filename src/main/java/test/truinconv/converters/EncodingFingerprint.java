@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.encode.AudioAttributes;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.encode.VideoAttributes;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds a stable textual description of JAVE encoding settings.
+ * <p>
+ * {@link EncodingAttributes#toString()} omits several fields that change the
+ * encoded output (CRF, preset, pixel format, extra ffmpeg options), so caches
+ * keyed on settings use this description instead.
+ */
+final class EncodingFingerprint {
+
+    // Prevent instantiation
+    private EncodingFingerprint() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Describes every output-affecting field of the encoding settings.
+     *
+     * @param settings encoding attributes to describe
+     * @return deterministic description suitable for use in a cache key
+     */
+    static String describe(EncodingAttributes settings) {
+        StringBuilder description = new StringBuilder();
+        description.append("format=").append(settings.getOutputFormat().orElse(""))
+                .append(";offset=").append(settings.getOffset().orElse(null))
+                .append(";duration=").append(settings.getDuration().orElse(null))
+                .append(";threads=").append(settings.getEncodingThreads().orElse(null))
+                .append(";extra=").append(new TreeMap<>(orEmpty(settings.getExtraContext())));
+
+        settings.getAudioAttributes().ifPresent(audio -> appendAudio(description, audio));
+        settings.getVideoAttributes().ifPresent(video -> appendVideo(description, video));
+        return description.toString();
+    }
+
+    /**
+     * Appends the audio stream settings.
+     */
+    private static void appendAudio(StringBuilder description, AudioAttributes audio) {
+        description.append(";audio[codec=").append(audio.getCodec().orElse(null))
+                .append(",bitRate=").append(audio.getBitRate().orElse(null))
+                .append(",samplingRate=").append(audio.getSamplingRate().orElse(null))
+                .append(",channels=").append(audio.getChannels().orElse(null))
+                .append(",volume=").append(audio.getVolume().orElse(null))
+                .append(",quality=").append(audio.getQuality().orElse(null))
+                .append(']');
+    }
+
+    /**
+     * Appends the video stream settings.
+     */
+    private static void appendVideo(StringBuilder description, VideoAttributes video) {
+        description.append(";video[codec=").append(video.getCodec().orElse(null))
+                .append(",bitRate=").append(video.getBitRate().orElse(null))
+                .append(",frameRate=").append(video.getFrameRate().orElse(null))
+                .append(",size=").append(video.getSize()
+                        .map(size -> size.getWidth() + "x" + size.getHeight()).orElse(null))
+                .append(",quality=").append(video.getQuality().orElse(null))
+                .append(",crf=").append(video.getCrf().orElse(null))
+                .append(",preset=").append(video.getPreset().orElse(null))
+                .append(",pixelFormat=").append(video.getPixelFormat().orElse(null))
+                .append(",profile=").append(video.getX264Profile().orElse(null))
+                .append(",tune=").append(video.getTune().orElse(null))
+                .append(",faststart=").append(video.isFaststart())
+                .append(']');
+    }
+
+    /**
+     * Treats a missing extra-context map as empty.
+     */
+    private static Map<String, String> orEmpty(Map<String, String> extraContext) {
+        return extraContext == null ? Map.of() : extraContext;
+    }
+}
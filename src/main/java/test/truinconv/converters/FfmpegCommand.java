@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.encode.ArgType;
+import ws.schild.jave.encode.AudioAttributes;
+import ws.schild.jave.encode.EncodingArgument;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.encode.ValueArgument;
+import ws.schild.jave.encode.VideoAttributes;
+import ws.schild.jave.process.ProcessWrapper;
+import ws.schild.jave.process.ffmpeg.DefaultFFMPEGLocator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds and runs ffmpeg command lines that JAVE's {@code Encoder} cannot express,
+ * such as several outputs from one input or segment-wise encodes.
+ * <p>
+ * Options are derived from the same {@link EncodingAttributes} the converters pass
+ * to JAVE, so a file produced here matches one produced by {@code Encoder.encode}.
+ */
+final class FfmpegCommand {
+
+    private static final int ERROR_TAIL_LINES = 20;
+    // Position ffmpeg has encoded up to, as logged in its status line
+    private static final Pattern ENCODED_TIME = Pattern.compile("time=(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+
+    // Format names whose ffmpeg muxer is named differently
+    private static final Map<String, String> MUXER_NAMES = Map.of(
+            "MKV", "matroska",
+            "AAC", "adts"
+    );
+
+    // Encoder options JAVE has no attribute for, carried in the extra context under their ffmpeg names
+    static final String DEADLINE_OPTION = "deadline";
+    static final String CPU_USED_OPTION = "cpu-used";
+    static final String USAGE_OPTION = "usage";
+    static final String ROW_MT_OPTION = "row-mt";
+    private static final List<String> EXTRA_OUTPUT_OPTIONS =
+            List.of(DEADLINE_OPTION, CPU_USED_OPTION, USAGE_OPTION, ROW_MT_OPTION);
+
+    // The same options as arguments for JAVE's Encoder
+    static final List<EncodingArgument> EXTRA_OUTPUT_ARGUMENTS = EXTRA_OUTPUT_OPTIONS.stream()
+            .<EncodingArgument>map(option -> new ValueArgument(ArgType.OUTFILE, "-" + option,
+                    settings -> extraOption(settings, option)))
+            .toList();
+
+    // Prevent instantiation
+    private FfmpegCommand() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Appends the options and path of one output file.
+     *
+     * @param arguments  command line being built
+     * @param settings   encoding settings of the output
+     * @param outputFile destination file
+     */
+    static void appendOutput(List<String> arguments, EncodingAttributes settings, File outputFile) {
+        settings.getVideoAttributes().ifPresentOrElse(
+                video -> appendVideoOptions(arguments, video), () -> arguments.add("-vn"));
+        settings.getAudioAttributes().ifPresentOrElse(
+                audio -> appendAudioOptions(arguments, audio), () -> arguments.add("-an"));
+        appendExtraOptions(arguments, settings);
+        settings.getEncodingThreads().ifPresent(threads -> addOption(arguments, "-threads", threads.toString()));
+        settings.getOutputFormat().ifPresent(format -> addOption(arguments, "-f", getMuxerName(format)));
+        arguments.add(outputFile.getAbsolutePath());
+    }
+
+    /**
+     * Appends the video stream options.
+     *
+     * @param arguments command line being built
+     * @param video     video stream settings
+     */
+    static void appendVideoOptions(List<String> arguments, VideoAttributes video) {
+        video.getCodec().ifPresent(codec -> addOption(arguments, "-c:v", codec));
+        video.getTag().ifPresent(tag -> addOption(arguments, "-tag:v", tag));
+        video.getBitRate().ifPresent(bitRate -> addOption(arguments, "-b:v", bitRate.toString()));
+        video.getFrameRate().ifPresent(frameRate -> addOption(arguments, "-r", frameRate.toString()));
+        video.getSize().ifPresent(size -> addOption(arguments, "-s", size.getWidth() + "x" + size.getHeight()));
+        video.getPixelFormat().ifPresent(pixelFormat -> addOption(arguments, "-pix_fmt", pixelFormat));
+        video.getCrf().ifPresent(crf -> addOption(arguments, "-crf", crf.toString()));
+        video.getPreset().ifPresent(preset -> addOption(arguments, "-preset", preset));
+    }
+
+    /**
+     * Appends the encoder options carried in the extra context of the settings.
+     *
+     * @param arguments command line being built
+     * @param settings  encoding settings of the output
+     */
+    static void appendExtraOptions(List<String> arguments, EncodingAttributes settings) {
+        for (String option : EXTRA_OUTPUT_OPTIONS) {
+            extraOption(settings, option).ifPresent(value -> addOption(arguments, "-" + option, value));
+        }
+    }
+
+    /**
+     * Returns an option value from the extra context of the settings.
+     *
+     * @param settings encoding settings
+     * @param option   ffmpeg option name without the leading dash
+     * @return the value, if the settings set one
+     */
+    private static Optional<String> extraOption(EncodingAttributes settings, String option) {
+        Map<String, String> extraContext = settings.getExtraContext();
+        return extraContext == null ? Optional.empty() : Optional.ofNullable(extraContext.get(option));
+    }
+
+    /**
+     * Appends the audio stream options.
+     *
+     * @param arguments command line being built
+     * @param audio     audio stream settings
+     */
+    static void appendAudioOptions(List<String> arguments, AudioAttributes audio) {
+        audio.getCodec().ifPresent(codec -> addOption(arguments, "-c:a", codec));
+        audio.getBitRate().ifPresent(bitRate -> addOption(arguments, "-b:a", bitRate.toString()));
+        audio.getSamplingRate().ifPresent(samplingRate -> addOption(arguments, "-ar", samplingRate.toString()));
+        audio.getChannels().ifPresent(channels -> addOption(arguments, "-ac", channels.toString()));
+    }
+
+    /**
+     * Returns the ffmpeg muxer name for a container format.
+     *
+     * @param format container format (case-insensitive)
+     * @return muxer name accepted by {@code -f}
+     */
+    static String getMuxerName(String format) {
+        String normalized = format.toUpperCase().trim();
+        return MUXER_NAMES.getOrDefault(normalized, normalized.toLowerCase());
+    }
+
+    /**
+     * Appends an option and its value.
+     *
+     * @param arguments command line being built
+     * @param option    option name
+     * @param value     option value
+     */
+    static void addOption(List<String> arguments, String option, String value) {
+        arguments.add(option);
+        arguments.add(value);
+    }
+
+    /**
+     * Reads the position ffmpeg has encoded up to from one of its status lines.
+     *
+     * @param logLine line ffmpeg logged
+     * @return output time in milliseconds, or -1 if the line reports none
+     */
+    static long encodedMillis(String logLine) {
+        Matcher time = ENCODED_TIME.matcher(logLine);
+        if (!time.find()) {
+            return -1;
+        }
+        return Long.parseLong(time.group(1)) * 3_600_000
+                + Long.parseLong(time.group(2)) * 60_000
+                + Math.round(Double.parseDouble(time.group(3)) * 1000);
+    }
+
+    /**
+     * Runs ffmpeg to completion, failing with the tail of its log on a non-zero exit.
+     * Existing outputs are overwritten.
+     *
+     * @param arguments arguments after the executable
+     * @param group     group the process joins, so it can be destroyed from another thread (may be null)
+     * @return the last lines ffmpeg logged, where filters print their summaries
+     * @throws IOException if ffmpeg cannot be started, the group was stopped, or ffmpeg fails
+     */
+    static List<String> run(List<String> arguments, FfmpegProcessGroup group) throws IOException {
+        return run(arguments, group, null);
+    }
+
+    /**
+     * Runs ffmpeg to completion, passing every line it logs to a listener, and failing with
+     * the tail of its log on a non-zero exit. Existing outputs are overwritten.
+     *
+     * @param arguments   arguments after the executable
+     * @param group       group the process joins, so it can be destroyed from another thread (may be null)
+     * @param logListener receives each log line as it is read, e.g. to follow progress (may be null)
+     * @return the last lines ffmpeg logged, where filters print their summaries
+     * @throws IOException if ffmpeg cannot be started, the group was stopped, or ffmpeg fails
+     */
+    static List<String> run(List<String> arguments, FfmpegProcessGroup group, Consumer<String> logListener)
+            throws IOException {
+        ProcessWrapper ffmpeg = new DefaultFFMPEGLocator().createExecutor();
+        ffmpeg.addArgument("-nostdin");
+        ffmpeg.addArgument("-y");
+        arguments.forEach(ffmpeg::addArgument);
+
+        try {
+            if (group != null) {
+                group.start(ffmpeg);
+            } else {
+                ffmpeg.execute();
+            }
+            // ffmpeg logs to stderr; it must be drained or the process blocks on a full pipe
+            Deque<String> errorTail = new ArrayDeque<>(ERROR_TAIL_LINES);
+            try (BufferedReader errorReader = new BufferedReader(
+                    new InputStreamReader(ffmpeg.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = errorReader.readLine()) != null) {
+                    if (logListener != null) {
+                        logListener.accept(line);
+                    }
+                    if (errorTail.size() == ERROR_TAIL_LINES) {
+                        errorTail.removeFirst();
+                    }
+                    errorTail.addLast(line);
+                }
+            }
+            // A destroyed wrapper has dropped its process, and with it the exit code
+            if (group != null && !group.remove(ffmpeg)) {
+                throw new IOException("ffmpeg was stopped: " + String.join("\n", errorTail));
+            }
+            int exitCode = ffmpeg.getProcessExitCode();
+            if (exitCode != 0) {
+                throw new IOException("ffmpeg exited with code " + exitCode + ": " + String.join("\n", errorTail));
+            }
+            return List.copyOf(errorTail);
+        } finally {
+            if (group != null) {
+                group.remove(ffmpeg);
+            }
+            ffmpeg.destroy();
+        }
+    }
+}
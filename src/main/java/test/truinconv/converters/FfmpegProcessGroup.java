@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.process.ProcessWrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ffmpeg processes that are stopped together, such as the workers of one segmented encode
+ * once one of them fails or the conversion is cancelled.
+ * <p>
+ * Processes are started and destroyed under the group's lock, and a stopped group refuses to
+ * start any more. A worker that reaches {@link #start} just after {@link #destroyAll()} therefore
+ * fails instead of launching a process nobody would destroy. Instances are thread-safe.
+ */
+final class FfmpegProcessGroup {
+
+    // Guarded by this
+    private final List<ProcessWrapper> processes = new ArrayList<>();
+    private boolean stopped;
+
+    /**
+     * Starts a process as a member of the group.
+     *
+     * @param process process to start
+     * @throws IOException if the group has been stopped or the process cannot be started
+     */
+    synchronized void start(ProcessWrapper process) throws IOException {
+        if (stopped) {
+            throw new IOException("ffmpeg processes of this encode were stopped");
+        }
+        process.execute();
+        processes.add(process);
+    }
+
+    /**
+     * Removes a process that has finished, so it is not destroyed again.
+     *
+     * @param process process started through {@link #start}
+     * @return false if the process was no longer a member, having been destroyed by
+     *         {@link #destroyAll()}
+     */
+    synchronized boolean remove(ProcessWrapper process) {
+        return processes.remove(process);
+    }
+
+    /**
+     * Destroys every running process and stops the group, which also unblocks the threads
+     * reading their logs.
+     */
+    synchronized void destroyAll() {
+        stopped = true;
+        processes.forEach(ProcessWrapper::destroy);
+        processes.clear();
+    }
+}
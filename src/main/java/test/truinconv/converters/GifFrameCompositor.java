@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import org.w3c.dom.Node;
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+
+/**
+ * Turns the frames of an animated GIF into the full pictures a viewer shows.
+ * <p>
+ * GIF frames are patches: each covers part of the logical screen, is drawn over what the
+ * previous frames left, and says how its area is disposed of before the next frame. This class
+ * keeps one canvas of the logical screen size, replays that, and hands out a copy of the canvas
+ * per frame, so memory stays at a few canvases however long the animation is. Instances are
+ * not thread-safe and must see the frames in order.
+ */
+final class GifFrameCompositor {
+
+    private static final String IMAGE_METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final String STREAM_METADATA_FORMAT = "javax_imageio_gif_stream_1.0";
+    private static final String DISPOSE_TO_BACKGROUND = "restoreToBackgroundColor";
+    private static final String DISPOSE_TO_PREVIOUS = "restoreToPrevious";
+
+    private final ImageReader reader;
+    private final BufferedImage canvas;
+
+    // How the area of the last frame is disposed of before the next one is drawn
+    private String pendingDisposal;
+    private Rectangle pendingArea;
+    // Canvas pixels under the last frame, kept when it restores to previous
+    private Raster savedArea;
+
+    /**
+     * Creates a compositor for the GIF a reader is positioned on.
+     *
+     * @param reader reader with a GIF stream as input
+     * @throws IOException if the GIF header cannot be read
+     */
+    GifFrameCompositor(ImageReader reader) throws IOException {
+        this.reader = reader;
+        Dimension size = canvasSize(reader);
+        this.canvas = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Checks whether a reader decodes GIF frames, which need compositing.
+     *
+     * @param reader reader with its input set
+     * @return true if the reader reads GIFs
+     * @throws IOException if the format cannot be determined
+     */
+    static boolean appliesTo(ImageReader reader) throws IOException {
+        return "gif".equalsIgnoreCase(reader.getFormatName());
+    }
+
+    /**
+     * Returns the size of the canvas frames are composited on: the logical screen, grown to
+     * hold the first frame if the header understates it.
+     *
+     * @param reader reader with a GIF stream as input
+     * @return canvas size
+     * @throws IOException if the GIF header cannot be read
+     */
+    static Dimension canvasSize(ImageReader reader) throws IOException {
+        int width = 0;
+        int height = 0;
+        IIOMetadata streamMetadata = reader.getStreamMetadata();
+        if (streamMetadata != null) {
+            IIOMetadataNode screen =
+                    child(streamMetadata.getAsTree(STREAM_METADATA_FORMAT), "LogicalScreenDescriptor");
+            width = intAttribute(screen, "logicalScreenWidth");
+            height = intAttribute(screen, "logicalScreenHeight");
+        }
+        Rectangle firstArea = frameArea(frameMetadata(reader, 0), reader.getWidth(0), reader.getHeight(0));
+        return new Dimension(Math.max(width, firstArea.x + firstArea.width),
+                Math.max(height, firstArea.y + firstArea.height));
+    }
+
+    /**
+     * Draws a frame over what the previous frames left and returns the resulting picture.
+     *
+     * @param imageIndex index of the frame, one more than the previous call's
+     * @param frame      decoded frame
+     * @return copy of the canvas after drawing the frame
+     * @throws IOException if the frame's metadata cannot be read
+     */
+    BufferedImage compose(int imageIndex, BufferedImage frame) throws IOException {
+        IIOMetadataNode metadata = frameMetadata(reader, imageIndex);
+        Rectangle area = frameArea(metadata, frame.getWidth(), frame.getHeight())
+                .intersection(new Rectangle(canvas.getWidth(), canvas.getHeight()));
+        String disposal = child(metadata, "GraphicControlExtension").getAttribute("disposalMethod");
+
+        disposePreviousFrame();
+        if (DISPOSE_TO_PREVIOUS.equals(disposal) && !area.isEmpty()) {
+            savedArea = canvas.getData(area);
+        }
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.drawImage(frame, area.x, area.y, null);
+        } finally {
+            graphics.dispose();
+        }
+        pendingDisposal = disposal;
+        pendingArea = area;
+
+        return new BufferedImage(canvas.getColorModel(), canvas.copyData(null), false, null);
+    }
+
+    /**
+     * Returns the metadata that keeps a frame's timing when its composited picture is written
+     * to a GIF: the writer's defaults for the picture, with the source frame's delay, disposal
+     * method and user input flag, and its application extensions, such as the NETSCAPE loop
+     * count, and comments. Pictures cover the whole canvas, so replaying the source's disposal
+     * on them shows the same pictures. Transparency is left to the writer, which takes it from
+     * the palette it builds.
+     *
+     * @param sourceMetadata metadata the GIF reader returned for the frame
+     * @param writer         writer the picture is written with
+     * @param picture        composited picture
+     * @param writeParam     parameters the picture is written with
+     * @return metadata to write the picture with, or null if the writer does not write GIFs
+     * @throws IOException if the writer rejects the merged metadata
+     */
+    static IIOMetadata writeMetadata(IIOMetadata sourceMetadata, ImageWriter writer, RenderedImage picture,
+                                     ImageWriteParam writeParam) throws IOException {
+        IIOMetadata metadata =
+                writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(picture), writeParam);
+        if (metadata == null || !IMAGE_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return null;
+        }
+        IIOMetadataNode source = (IIOMetadataNode) sourceMetadata.getAsTree(IMAGE_METADATA_FORMAT);
+        IIOMetadataNode timing = new IIOMetadataNode(IMAGE_METADATA_FORMAT);
+
+        IIOMetadataNode sourceControl = child(source, "GraphicControlExtension");
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        String disposal = sourceControl.getAttribute("disposalMethod");
+        control.setAttribute("disposalMethod", disposal.isEmpty() ? "none" : disposal);
+        control.setAttribute("userInputFlag",
+                "TRUE".equals(sourceControl.getAttribute("userInputFlag")) ? "TRUE" : "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", String.valueOf(intAttribute(sourceControl, "delayTime")));
+        control.setAttribute("transparentColorIndex", "0");
+        timing.appendChild(control);
+
+        // The writer takes one extension per ApplicationExtensions element. Nodes are copied
+        // by hand since cloneNode drops their attributes.
+        for (Node node = child(source, "ApplicationExtensions").getFirstChild(); node != null;
+             node = node.getNextSibling()) {
+            IIOMetadataNode sourceExtension = (IIOMetadataNode) node;
+            IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+            extension.setAttribute("applicationID", sourceExtension.getAttribute("applicationID"));
+            extension.setAttribute("authenticationCode", sourceExtension.getAttribute("authenticationCode"));
+            extension.setUserObject(sourceExtension.getUserObject());
+            IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+            extensions.appendChild(extension);
+            timing.appendChild(extensions);
+        }
+        IIOMetadataNode comments = new IIOMetadataNode("CommentExtensions");
+        for (Node node = child(source, "CommentExtensions").getFirstChild(); node != null;
+             node = node.getNextSibling()) {
+            IIOMetadataNode comment = new IIOMetadataNode("CommentExtension");
+            comment.setAttribute("value", ((IIOMetadataNode) node).getAttribute("value"));
+            comments.appendChild(comment);
+        }
+        if (comments.hasChildNodes()) {
+            timing.appendChild(comments);
+        }
+
+        metadata.mergeTree(IMAGE_METADATA_FORMAT, timing);
+        return metadata;
+    }
+
+    /**
+     * Applies the disposal method of the previously drawn frame.
+     */
+    private void disposePreviousFrame() {
+        if (DISPOSE_TO_BACKGROUND.equals(pendingDisposal)) {
+            // Viewers clear to transparent rather than to the background color
+            Graphics2D graphics = canvas.createGraphics();
+            try {
+                graphics.setComposite(AlphaComposite.Clear);
+                graphics.fillRect(pendingArea.x, pendingArea.y, pendingArea.width, pendingArea.height);
+            } finally {
+                graphics.dispose();
+            }
+        } else if (DISPOSE_TO_PREVIOUS.equals(pendingDisposal) && savedArea != null) {
+            canvas.getRaster().setRect(savedArea);
+        }
+        savedArea = null;
+        pendingDisposal = null;
+    }
+
+    /**
+     * Returns the native metadata tree of a frame.
+     */
+    private static IIOMetadataNode frameMetadata(ImageReader reader, int imageIndex) throws IOException {
+        return (IIOMetadataNode) reader.getImageMetadata(imageIndex).getAsTree(IMAGE_METADATA_FORMAT);
+    }
+
+    /**
+     * Returns where on the logical screen a frame of the given size is drawn.
+     */
+    private static Rectangle frameArea(IIOMetadataNode metadata, int width, int height) {
+        IIOMetadataNode descriptor = child(metadata, "ImageDescriptor");
+        return new Rectangle(intAttribute(descriptor, "imageLeftPosition"),
+                intAttribute(descriptor, "imageTopPosition"), width, height);
+    }
+
+    /**
+     * Returns the first child element with the given name, or an empty element if there is none.
+     */
+    private static IIOMetadataNode child(Node parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (name.equals(node.getNodeName())) {
+                return (IIOMetadataNode) node;
+            }
+        }
+        return new IIOMetadataNode(name);
+    }
+
+    /**
+     * Returns an integer attribute, or 0 if it is missing or malformed.
+     */
+    private static int intAttribute(IIOMetadataNode node, String name) {
+        try {
+            return Integer.parseInt(node.getAttribute(name));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
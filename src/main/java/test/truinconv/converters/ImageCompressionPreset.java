@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.ImageWriteParam;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Named trade-offs between image encode time and output size.
+ * <p>
+ * Presets only change lossless encoder choices: PNG deflate level, TIFF compression scheme and
+ * level, and JPEG Huffman table optimization. JPEG quality stays at the writer's default, so
+ * no preset changes how an image looks. GIF and BMP have nothing to tune.
+ * <p>
+ * Measured on a corpus of 10 screenshots, charts, icons and photos (11.4 MP in total),
+ * encode time and total size per format:
+ * <pre>
+ *   FASTEST   PNG  326 ms / 1.07 MB   TIFF  243 ms / 2.87 MB   JPEG ~350 ms / 766 KB
+ *   BALANCED  PNG  425 ms / 871 KB    TIFF  410 ms / 965 KB    JPEG ~350 ms / 766 KB
+ *   SMALLEST  PNG 1504 ms / 802 KB    TIFF 1286 ms / 914 KB    JPEG ~350 ms / 657 KB
+ * </pre>
+ * Uncompressed TIFF, the writer's default, was 231 ms / 34.1 MB on the same corpus.
+ * Optimized JPEG tables cost an extra pass over the coefficients, lost in run-to-run noise here.
+ */
+public enum ImageCompressionPreset {
+    /** Deflate level 1 for PNG, PackBits for TIFF, default JPEG tables. */
+    FASTEST(1, "PackBits", -1f, false),
+    /** Default deflate level (4) for PNG, Deflate level 5 for TIFF, default JPEG tables. */
+    BALANCED(-1, "Deflate", 0.5f, false),
+    /** Deflate level 9 for PNG and TIFF, optimized JPEG Huffman tables. */
+    SMALLEST(9, "Deflate", 1f, true);
+
+    private static final int MAX_DEFLATE_LEVEL = 9;
+
+    // Deflate level for PNG, or -1 for the writer's default
+    private final int pngDeflateLevel;
+    private final String tiffCompressionType;
+    // Compression quality for TIFF, or -1 for the scheme's default
+    private final float tiffCompressionQuality;
+    private final boolean optimizeJpegHuffmanTables;
+
+    /**
+     * Defines the encoder settings of a preset.
+     *
+     * @param pngDeflateLevel           deflate level for PNG, or -1 for the writer's default
+     * @param tiffCompressionType       TIFF compression scheme name
+     * @param tiffCompressionQuality    TIFF compression quality, or -1 for the scheme's default
+     * @param optimizeJpegHuffmanTables whether to compute image-specific JPEG Huffman tables
+     */
+    ImageCompressionPreset(int pngDeflateLevel, String tiffCompressionType, float tiffCompressionQuality,
+                           boolean optimizeJpegHuffmanTables) {
+        this.pngDeflateLevel = pngDeflateLevel;
+        this.tiffCompressionType = tiffCompressionType;
+        this.tiffCompressionQuality = tiffCompressionQuality;
+        this.optimizeJpegHuffmanTables = optimizeJpegHuffmanTables;
+    }
+
+    /**
+     * Parses a preset name, ignoring case.
+     *
+     * @param name preset name, e.g. "fastest"
+     * @return matching preset
+     * @throws IllegalArgumentException if no preset has that name
+     */
+    public static ImageCompressionPreset fromString(String name) {
+        for (ImageCompressionPreset preset : values()) {
+            if (preset.name().equalsIgnoreCase(name == null ? "" : name.trim())) {
+                return preset;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression preset: " + name);
+    }
+
+    /**
+     * Returns the TIFF compression scheme, named as in the TIFF writer's compression types.
+     *
+     * @return "PackBits" or "Deflate"
+     */
+    String tiffCompressionType() {
+        return tiffCompressionType;
+    }
+
+    /**
+     * Returns the zlib level of TIFF Deflate compression, derived from the quality the same
+     * way the TIFF writer derives it.
+     *
+     * @return deflate level from 1 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    int tiffDeflateLevel() {
+        return tiffCompressionQuality < 0 ? Deflater.DEFAULT_COMPRESSION : (int) (1 + 8 * tiffCompressionQuality);
+    }
+
+    /**
+     * Applies this preset to a writer's parameters.
+     *
+     * @param writeParam default parameters of the writer
+     * @param formatName ImageIO format name of the writer
+     */
+    void configure(ImageWriteParam writeParam, String formatName) {
+        switch (formatName.toLowerCase(Locale.ROOT)) {
+            case "png" -> {
+                if (pngDeflateLevel >= 0 && writeParam.canWriteCompressed()) {
+                    // The PNG writer uses deflate level 9 - round(9 * quality)
+                    writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setCompressionQuality((MAX_DEFLATE_LEVEL - pngDeflateLevel) / (float) MAX_DEFLATE_LEVEL);
+                }
+            }
+            case "tiff" -> {
+                if (writeParam.canWriteCompressed()) {
+                    writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setCompressionType(tiffCompressionType);
+                    if (tiffCompressionQuality >= 0 && writeParam.isCompressionLossless()) {
+                        writeParam.setCompressionQuality(tiffCompressionQuality);
+                    }
+                }
+            }
+            case "jpeg" -> {
+                if (writeParam instanceof JPEGImageWriteParam jpegParam) {
+                    jpegParam.setOptimizeHuffmanTables(optimizeJpegHuffmanTables);
+                }
+            }
+            default -> {
+                // GIF and BMP writers have no useful speed/size settings
+            }
+        }
+    }
+}
@@ -6,12 +6,26 @@
 
 package test.truinconv.converters;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
-import java.awt.Color;
-import java.awt.Graphics2D;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -19,12 +33,32 @@ import java.util.Set;
  * <p>
  * Supported formats: JPEG, PNG, BMP, GIF, TIFF
  * Transparently handles formats without alpha by compositing onto white.
+ * Images too large to decode at once are decoded and written in strips, and large TIFF targets
+ * are compressed tile by tile on all cores. All pages of a multi-page TIFF and all frames of an
+ * animated GIF are kept when the target format can store several images, streaming one frame
+ * at a time.
+ * Files are read and written through buffered {@link java.nio.channels.FileChannel}s.
  */
 public final class ImageConverter {
 
     // Formats that do not support transparency
     private static final Set<String> FORMATS_WITHOUT_TRANSPARENCY = Set.of("JPG", "JPEG");
 
+    // Formats that can store several images in one file
+    private static final Set<String> FORMATS_WITH_FRAMES = Set.of("GIF", "TIFF");
+
+    // Images with more pixels are decoded region by region (64 MP is 256 MB as ARGB)
+    private static final long REGION_DECODE_MIN_PIXELS = 64L * 1024 * 1024;
+    private static final long REGION_DECODE_STRIP_BYTES = 32L * 1024 * 1024;
+
+    // Images with more pixels are written to TIFF as tiles compressed in parallel
+    private static final long TILED_TIFF_MIN_PIXELS = 16L * 1024 * 1024;
+
+    static {
+        // Plugins that wrap plain streams themselves buffer in memory rather than in temp files
+        ImageIO.setUseCache(false);
+    }
+
     // Prevent instantiation
     private ImageConverter() {
         throw new UnsupportedOperationException("Utility class cannot be instantiated");
@@ -40,11 +74,286 @@ public final class ImageConverter {
      * @throws IllegalArgumentException if any parameter is invalid
      */
     public static void convert(File inputFile, File outputFile, String targetFormat) throws IOException {
+        convert(inputFile, outputFile, targetFormat, ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * Converts an image file to the specified format with the given compression preset.
+     *
+     * @param inputFile    source image file
+     * @param outputFile   destination file for converted image
+     * @param targetFormat desired output format (case-insensitive)
+     * @param preset       trade-off between encode time and output size
+     * @throws IOException              if reading or writing fails
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    public static void convert(File inputFile, File outputFile, String targetFormat,
+                               ImageCompressionPreset preset) throws IOException {
         validateParameters(inputFile, outputFile, targetFormat);
+        validatePreset(preset);
+        convertDecodedOnce(inputFile, Map.of(targetFormat, outputFile), preset);
+    }
+
+    /**
+     * Converts an image file to several formats, decoding it only once. Formats without
+     * transparency share a single flattened version of the image.
+     *
+     * @param inputFile           source image file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @throws IOException              if reading or writing fails
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat) throws IOException {
+        convert(inputFile, outputFilesByFormat, ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * Converts an image file to several formats with the given compression preset, decoding it only once.
+     *
+     * @param inputFile           source image file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param preset              trade-off between encode time and output size
+     * @throws IOException              if reading or writing fails
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat,
+                               ImageCompressionPreset preset) throws IOException {
+        if (outputFilesByFormat == null || outputFilesByFormat.isEmpty()) {
+            throw new IllegalArgumentException("At least one target format is required");
+        }
+        outputFilesByFormat.forEach((targetFormat, outputFile) ->
+                validateParameters(inputFile, outputFile, targetFormat));
+        validatePreset(preset);
+        convertDecodedOnce(inputFile, outputFilesByFormat, preset);
+    }
+
+    /**
+     * Decodes the source once and writes every target. Huge images are instead written
+     * from a {@link RegionDecodedImage}, which keeps only one strip in memory, and sources with
+     * several frames are streamed frame by frame when a target can store them.
+     *
+     * @param inputFile           source image file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param preset              compression preset for every target
+     * @throws IOException if reading or writing fails
+     */
+    private static void convertDecodedOnce(File inputFile, Map<String, File> outputFilesByFormat,
+                                           ImageCompressionPreset preset) throws IOException {
+        try (ImageInputStream imageInput = openImageInput(inputFile)) {
+            ImageReader reader = createReader(imageInput, inputFile);
+            try {
+                if ((long) reader.getWidth(0) * reader.getHeight(0) >= REGION_DECODE_MIN_PIXELS) {
+                    for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+                        RenderedImage regionImage = new RegionDecodedImage(
+                                reader, needsTransparencyRemoval(target.getKey()), REGION_DECODE_STRIP_BYTES);
+                        writeImage(regionImage, target.getValue(), target.getKey(), preset);
+                    }
+                    return;
+                }
+                if (outputFilesByFormat.keySet().stream().anyMatch(ImageConverter::keepsFrames)
+                        && hasImage(reader, 1)) {
+                    convertFrames(reader, outputFilesByFormat, preset);
+                    return;
+                }
+
+                writeDecoded(reader.read(0), outputFilesByFormat, preset);
+            } finally {
+                ImageIOPlugins.releaseReader(reader);
+            }
+        }
+    }
 
-        BufferedImage sourceImage = readImage(inputFile);
-        BufferedImage processedImage = prepareImageForFormat(sourceImage, targetFormat);
-        writeImage(processedImage, outputFile, targetFormat);
+    /**
+     * Writes a decoded image to every target, flattening it for formats without transparency.
+     *
+     * @param sourceImage         decoded image; consumed if a target needs it flattened
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param preset              compression preset for every target
+     * @throws IOException if writing fails
+     */
+    private static void writeDecoded(BufferedImage sourceImage, Map<String, File> outputFilesByFormat,
+                                     ImageCompressionPreset preset) throws IOException {
+        // Flattening may reuse the source's pixels, so targets keeping alpha are written first
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            if (!needsTransparencyRemoval(target.getKey())) {
+                writeImage(sourceImage, target.getValue(), target.getKey(), preset);
+            }
+        }
+        BufferedImage flattenedImage = null;
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            if (needsTransparencyRemoval(target.getKey())) {
+                if (flattenedImage == null) {
+                    flattenedImage = AlphaFlattener.flatten(sourceImage);
+                }
+                writeImage(flattenedImage, target.getValue(), target.getKey(), preset);
+            }
+        }
+    }
+
+    /**
+     * Streams every frame of a multi-frame source to the targets, holding one decoded frame at
+     * a time. Targets that can store frames receive them as an image sequence; the others get
+     * the first frame. GIF frames are composited into the pictures a viewer would show, and GIF
+     * targets keep their delays and loop count.
+     *
+     * @param reader              reader positioned on the source
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param preset              compression preset for every target
+     * @throws IOException if reading or writing fails
+     */
+    private static void convertFrames(ImageReader reader, Map<String, File> outputFilesByFormat,
+                                      ImageCompressionPreset preset) throws IOException {
+        GifFrameCompositor compositor = GifFrameCompositor.appliesTo(reader) ? new GifFrameCompositor(reader) : null;
+        List<FrameSequenceTarget> sequenceTargets = new ArrayList<>();
+        Map<String, File> firstFrameTargets = new LinkedHashMap<>();
+        try {
+            for (int imageIndex = 0; imageIndex == 0 || hasImage(reader, imageIndex); imageIndex++) {
+                BufferedImage frame = reader.read(imageIndex);
+                IIOMetadata frameMetadata = null;
+                if (compositor != null) {
+                    frame = compositor.compose(imageIndex, frame);
+                    frameMetadata = reader.getImageMetadata(imageIndex);
+                }
+                if (imageIndex == 0) {
+                    for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+                        FrameSequenceTarget sequenceTarget = keepsFrames(target.getKey())
+                                ? FrameSequenceTarget.open(frame, target.getValue(), target.getKey(), preset)
+                                : null;
+                        if (sequenceTarget != null) {
+                            sequenceTargets.add(sequenceTarget);
+                        } else {
+                            firstFrameTargets.put(target.getKey(), target.getValue());
+                        }
+                    }
+                }
+                for (FrameSequenceTarget sequenceTarget : sequenceTargets) {
+                    sequenceTarget.write(frame, frameMetadata);
+                }
+                if (imageIndex == 0) {
+                    writeDecoded(frame, firstFrameTargets, preset);
+                }
+            }
+            for (FrameSequenceTarget sequenceTarget : sequenceTargets) {
+                sequenceTarget.finish();
+            }
+        } finally {
+            for (FrameSequenceTarget sequenceTarget : sequenceTargets) {
+                sequenceTarget.release();
+            }
+        }
+    }
+
+    /**
+     * Reads an image scaled down by subsampling so neither side exceeds the given size,
+     * without decoding the full-resolution image.
+     *
+     * @param imageFile    file containing the source image
+     * @param maxDimension maximum width and height of the result
+     * @return subsampled image
+     * @throws IOException              if reading fails or file unsupported
+     * @throws IllegalArgumentException if imageFile is null or maxDimension not positive
+     */
+    public static BufferedImage readSubsampled(File imageFile, int maxDimension) throws IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        if (maxDimension <= 0) {
+            throw new IllegalArgumentException("Maximum dimension must be positive: " + maxDimension);
+        }
+
+        try (ImageInputStream imageInput = openImageInput(imageFile)) {
+            ImageReader reader = createReader(imageInput, imageFile);
+            try {
+                int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int period = Math.max(1, (largestSide + maxDimension - 1) / maxDimension);
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(period, period, 0, 0);
+                return reader.read(0, readParam);
+            } finally {
+                ImageIOPlugins.releaseReader(reader);
+            }
+        }
+    }
+
+    /**
+     * Estimates the peak heap a conversion of the image will use, from its header alone.
+     * Counts the decoded image, plus an opaque copy for formats without transparency when the
+     * decoded layout cannot be flattened in place, plus the canvases animated GIFs are composited
+     * on; huge images are decoded in strips, so only a few strips count.
+     *
+     * @param inputFile    source image file
+     * @param targetFormat desired output format (case-insensitive)
+     * @return estimated peak heap use in bytes
+     * @throws IOException              if the image header cannot be read
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    public static long estimatePeakBytes(File inputFile, String targetFormat) throws IOException {
+        if (inputFile == null) {
+            throw new IllegalArgumentException("Input file cannot be null");
+        }
+        if (targetFormat == null || targetFormat.trim().isEmpty()) {
+            throw new IllegalArgumentException("Target format cannot be null or empty");
+        }
+
+        try (ImageInputStream imageInput = openImageInput(inputFile)) {
+            ImageReader reader = createReader(imageInput, inputFile);
+            try {
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels >= REGION_DECODE_MIN_PIXELS) {
+                    // Decoded strip, its flattened copy and the writer's copy of a region
+                    return 3 * REGION_DECODE_STRIP_BYTES;
+                }
+
+                // The type read(0) decodes into
+                ImageTypeSpecifier imageType = reader.getImageTypes(0).next();
+                int bitsPerPixel = 0;
+                for (int sampleSize : imageType.getSampleModel(1, 1).getSampleSize()) {
+                    bitsPerPixel += sampleSize;
+                }
+                long peakBytes = pixels * Math.max(1, bitsPerPixel) / Byte.SIZE;
+                if (needsTransparencyRemoval(targetFormat) && AlphaFlattener.copiesPixels(imageType)) {
+                    peakBytes += pixels * Integer.BYTES;
+                }
+                if (keepsFrames(targetFormat) && GifFrameCompositor.appliesTo(reader)) {
+                    // The compositing canvas and the copy handed out per frame
+                    Dimension canvasSize = GifFrameCompositor.canvasSize(reader);
+                    peakBytes += 2L * canvasSize.width * canvasSize.height * Integer.BYTES;
+                }
+                return peakBytes;
+            } finally {
+                ImageIOPlugins.releaseReader(reader);
+            }
+        }
+    }
+
+    /**
+     * Describes the effective encoding settings {@link #convert} would use.
+     *
+     * @param targetFormat desired output format (case-insensitive)
+     * @return deterministic description of the encoding settings
+     * @throws IllegalArgumentException if targetFormat is null or empty
+     */
+    public static String describeSettings(String targetFormat) {
+        return describeSettings(targetFormat, ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * Describes the effective encoding settings {@link #convert} would use with a compression preset.
+     *
+     * @param targetFormat desired output format (case-insensitive)
+     * @param preset       compression preset
+     * @return deterministic description of the encoding settings
+     * @throws IllegalArgumentException if targetFormat is null or empty or preset is null
+     */
+    public static String describeSettings(String targetFormat, ImageCompressionPreset preset) {
+        if (targetFormat == null || targetFormat.trim().isEmpty()) {
+            throw new IllegalArgumentException("Target format cannot be null or empty");
+        }
+        validatePreset(preset);
+        return "format=" + normalizeFormatName(targetFormat)
+                + ";flatten=" + needsTransparencyRemoval(targetFormat)
+                + ";compression=" + preset
+                + ";frames=" + (keepsFrames(targetFormat) ? "all" : "first");
     }
 
     /**
@@ -68,33 +377,49 @@ public final class ImageConverter {
     }
 
     /**
-     * Reads an image from the given file.
+     * Ensures a compression preset was given.
+     *
+     * @param preset preset to check
+     * @throws IllegalArgumentException if preset is null
+     */
+    private static void validatePreset(ImageCompressionPreset preset) {
+        if (preset == null) {
+            throw new IllegalArgumentException("Compression preset cannot be null");
+        }
+    }
+
+    /**
+     * Opens an image input stream over the given file.
      *
      * @param imageFile file containing the source image
-     * @return BufferedImage read from file
-     * @throws IOException if reading fails or file unsupported
+     * @return stream positioned at the start of the file
+     * @throws IOException if the file cannot be opened
      */
-    private static BufferedImage readImage(File imageFile) throws IOException {
-        BufferedImage image = ImageIO.read(imageFile);
-        if (image == null) {
-            throw new IOException("Cannot read image file: " + imageFile.getName() +
-                    ". File may be corrupted or unsupported.");
+    private static ImageInputStream openImageInput(File imageFile) throws IOException {
+        if (!imageFile.canRead()) {
+            throw new IOException("Cannot read image file: " + imageFile.getName() + ". File does not exist.");
         }
-        return image;
+        return new ChannelImageInputStream(imageFile.toPath());
     }
 
     /**
-     * Prepares the image for the target format, removing transparency if needed.
+     * Creates a reader for the image in the given stream.
      *
-     * @param originalImage source BufferedImage
-     * @param targetFormat  desired output format
-     * @return image ready for writing
+     * @param imageInput stream containing the source image
+     * @param imageFile  source file, for error messages
+     * @return pooled reader with its input set; release it with {@link ImageIOPlugins#releaseReader}
+     * @throws IOException if no reader supports the file
      */
-    private static BufferedImage prepareImageForFormat(BufferedImage originalImage, String targetFormat) {
-        if (needsTransparencyRemoval(targetFormat)) {
-            return removeTransparency(originalImage);
+    private static ImageReader createReader(ImageInputStream imageInput, File imageFile) throws IOException {
+        ImageReader reader = ImageIOPlugins.acquireReader(imageInput, imageFile.getName());
+        if (reader == null) {
+            throw new IOException("Cannot read image file: " + imageFile.getName() +
+                    ". File may be corrupted or unsupported.");
         }
-        return originalImage;
+        // Region decoding revisits earlier parts of the stream, so it must stay seekable
+        // GIF metadata is small and holds the frame delays and loop count GIF targets keep
+        reader.setInput(imageInput, false, !GifFrameCompositor.appliesTo(reader));
+        return reader;
     }
 
     /**
@@ -108,25 +433,35 @@ public final class ImageConverter {
     }
 
     /**
-     * Composites the image onto a white background to drop alpha channel.
+     * Determines if the target format stores every frame of a multi-frame source.
      *
-     * @param imageWithTransparency image potentially containing alpha
-     * @return new BufferedImage without alpha
+     * @param format format string to check
+     * @return true if all frames are converted
      */
-    private static BufferedImage removeTransparency(BufferedImage imageWithTransparency) {
-        int width = imageWithTransparency.getWidth();
-        int height = imageWithTransparency.getHeight();
+    private static boolean keepsFrames(String format) {
+        return FORMATS_WITH_FRAMES.contains(format.toUpperCase().trim());
+    }
 
-        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D graphics = rgbImage.createGraphics();
+    /**
+     * Checks whether the source has an image at the given index, reading no more than the
+     * headers up to it.
+     *
+     * @param reader     reader positioned on the source
+     * @param imageIndex index of the image
+     * @return true if the image exists
+     * @throws IOException if the source cannot be read
+     */
+    private static boolean hasImage(ImageReader reader, int imageIndex) throws IOException {
+        int imageCount = reader.getNumImages(false);
+        if (imageCount >= 0) {
+            return imageIndex < imageCount;
+        }
         try {
-            graphics.setColor(Color.WHITE);
-            graphics.fillRect(0, 0, width, height);
-            graphics.drawImage(imageWithTransparency, 0, 0, null);
-        } finally {
-            graphics.dispose();
+            reader.getWidth(imageIndex);
+            return true;
+        } catch (IndexOutOfBoundsException e) {
+            return false;
         }
-        return rgbImage;
     }
 
     /**
@@ -135,15 +470,80 @@ public final class ImageConverter {
      * @param image        image to write
      * @param outputFile   destination file
      * @param targetFormat desired output format
+     * @param preset       compression preset
      * @throws IOException if writing fails or format unsupported
      */
-    private static void writeImage(BufferedImage image, File outputFile, String targetFormat) throws IOException {
+    private static void writeImage(RenderedImage image, File outputFile, String targetFormat,
+                                   ImageCompressionPreset preset) throws IOException {
         String formatName = normalizeFormatName(targetFormat);
-        boolean success = ImageIO.write(image, formatName, outputFile);
-        if (!success) {
+        if (writesTiledTiff(image, formatName, preset)) {
+            try (ImageOutputStream imageOutput = openImageOutput(outputFile)) {
+                TiledTiffWriter.write(image, imageOutput, preset);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+
+        ImageWriter writer = createWriter(image, targetFormat);
+        try {
+            try (ImageOutputStream imageOutput = openImageOutput(outputFile)) {
+                ImageWriteParam writeParam = writer.getDefaultWriteParam();
+                preset.configure(writeParam, formatName);
+                writer.setOutput(imageOutput);
+                writer.write(null, new IIOImage(image, null, null), writeParam);
+            }
+        } catch (UncheckedIOException e) {
+            // Decoding failures surface while a region-decoded image is being written
+            throw e.getCause();
+        } finally {
+            ImageIOPlugins.releaseWriter(writer);
+        }
+    }
+
+
+    /**
+     * Determines if an image is written by {@link TiledTiffWriter} rather than an ImageIO writer:
+     * large enough for parallel compression to pay off, in a layout it supports.
+     *
+     * @param image      image to write
+     * @param formatName ImageIO format name of the target
+     * @param preset     compression preset
+     * @return true if the image is written as tiles
+     */
+    private static boolean writesTiledTiff(RenderedImage image, String formatName, ImageCompressionPreset preset) {
+        return "tiff".equals(formatName)
+                && (long) image.getWidth() * image.getHeight() >= TILED_TIFF_MIN_PIXELS
+                && TiledTiffWriter.canWrite(image, preset);
+    }
+
+    /**
+     * Creates a writer for the target format that can encode the given image.
+     *
+     * @param image        image to write
+     * @param targetFormat desired output format
+     * @return pooled writer; release it with {@link ImageIOPlugins#releaseWriter}
+     * @throws IOException if no writer supports the format and image
+     */
+    private static ImageWriter createWriter(RenderedImage image, String targetFormat) throws IOException {
+        ImageWriter writer = ImageIOPlugins.acquireWriter(image, normalizeFormatName(targetFormat));
+        if (writer == null) {
             throw new IOException("Failed to write image in format: " + targetFormat +
                     ". Format may not be supported.");
         }
+        return writer;
+    }
+
+    /**
+     * Opens an image output stream over the given file, truncating any existing file;
+     * {@link ConverterRouter} unlinks existing outputs first.
+     *
+     * @param outputFile destination file
+     * @return stream positioned at the start of the empty file
+     * @throws IOException if the file cannot be created
+     */
+    private static ImageOutputStream openImageOutput(File outputFile) throws IOException {
+        return new ChannelImageOutputStream(outputFile.toPath());
     }
 
     /**
@@ -156,4 +556,107 @@ public final class ImageConverter {
         String normalized = format.toLowerCase().trim();
         return "jpg".equals(normalized) ? "jpeg" : normalized;
     }
-}
\ No newline at end of file
+
+    /**
+     * Output file receiving the frames of a multi-frame source as an image sequence.
+     */
+    private static final class FrameSequenceTarget {
+
+        private final ImageWriter writer;
+        private final ImageWriteParam writeParam;
+        private final ImageOutputStream imageOutput;
+        private boolean closed;
+
+        /**
+         * Wraps a writer that has started a sequence on the given stream.
+         *
+         * @param writer      pooled writer with the sequence prepared
+         * @param writeParam  parameters for every frame
+         * @param imageOutput stream the writer writes to
+         */
+        private FrameSequenceTarget(ImageWriter writer, ImageWriteParam writeParam, ImageOutputStream imageOutput) {
+            this.writer = writer;
+            this.writeParam = writeParam;
+            this.imageOutput = imageOutput;
+        }
+
+        /**
+         * Starts writing a sequence to an output file.
+         *
+         * @param firstFrame   first frame, used to pick the writer
+         * @param outputFile   destination file
+         * @param targetFormat desired output format
+         * @param preset       compression preset for every frame
+         * @return the started sequence, or null if the format's writer stores a single image
+         * @throws IOException if the file cannot be created or no writer supports the format
+         */
+        static FrameSequenceTarget open(RenderedImage firstFrame, File outputFile, String targetFormat,
+                                        ImageCompressionPreset preset) throws IOException {
+            ImageWriter writer = createWriter(firstFrame, targetFormat);
+            if (!writer.canWriteSequence()) {
+                ImageIOPlugins.releaseWriter(writer);
+                return null;
+            }
+            ImageOutputStream imageOutput = null;
+            try {
+                String formatName = normalizeFormatName(targetFormat);
+                ImageWriteParam writeParam = writer.getDefaultWriteParam();
+                preset.configure(writeParam, formatName);
+                imageOutput = openImageOutput(outputFile);
+                writer.setOutput(imageOutput);
+                writer.prepareWriteSequence(null);
+                return new FrameSequenceTarget(writer, writeParam, imageOutput);
+            } catch (IOException | RuntimeException e) {
+                if (imageOutput != null) {
+                    imageOutput.close();
+                }
+                ImageIOPlugins.releaseWriter(writer);
+                throw e;
+            }
+        }
+
+        /**
+         * Appends a frame to the sequence, keeping the timing of a GIF source frame when the
+         * sequence is a GIF.
+         *
+         * @param frame          frame to write
+         * @param sourceMetadata metadata of the GIF source frame, or null for other sources
+         * @throws IOException if writing fails
+         */
+        void write(RenderedImage frame, IIOMetadata sourceMetadata) throws IOException {
+            IIOMetadata metadata = sourceMetadata == null
+                    ? null
+                    : GifFrameCompositor.writeMetadata(sourceMetadata, writer, frame, writeParam);
+            writer.writeToSequence(new IIOImage(frame, null, metadata), writeParam);
+        }
+
+        /**
+         * Completes the sequence and closes the file.
+         *
+         * @throws IOException if writing fails
+         */
+        void finish() throws IOException {
+            writer.endWriteSequence();
+            closed = true;
+            imageOutput.close();
+        }
+
+        /**
+         * Closes the file if {@link #finish} did not, and hands the writer back to the pool.
+         * Close failures are ignored here: the output is incomplete anyway and the conversion's
+         * own failure is the one to report.
+         */
+        void release() {
+            try {
+                if (!closed) {
+                    closed = true;
+                    imageOutput.close();
+                }
+            } catch (IOException e) {
+                // Already failing; see above
+            } finally {
+                ImageIOPlugins.releaseWriter(writer);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ImageIO readers and writers resolved once and reused per thread.
+ * <p>
+ * {@code ImageIO.read}/{@code write} walk the service registry and construct a new plugin on
+ * every call, which adds up over many small images. Here the registry is scanned once, when
+ * this class initializes, into lookup tables by file suffix and format name. Plugin instances
+ * are kept per worker thread and {@link ImageReader#reset() reset} between uses; a plugin still
+ * in use when the same thread asks again is simply not shared, so nested use is safe.
+ */
+final class ImageIOPlugins {
+
+    private static final Logger LOGGER = Logger.getLogger(ImageIOPlugins.class.getName());
+
+    // All reader providers in registry order, and the ones claiming each file suffix
+    private static final List<ImageReaderSpi> READER_PROVIDERS;
+    private static final Map<String, List<ImageReaderSpi>> READER_PROVIDERS_BY_SUFFIX;
+    // Writer providers by lower-case format name, in registry order
+    private static final Map<String, List<ImageWriterSpi>> WRITER_PROVIDERS_BY_FORMAT;
+
+    static {
+        IIORegistry registry = IIORegistry.getDefaultInstance();
+
+        List<ImageReaderSpi> readerProviders = new ArrayList<>();
+        Map<String, List<ImageReaderSpi>> readersBySuffix = new HashMap<>();
+        Iterator<ImageReaderSpi> readers = registry.getServiceProviders(ImageReaderSpi.class, true);
+        while (readers.hasNext()) {
+            ImageReaderSpi provider = readers.next();
+            readerProviders.add(provider);
+            for (String suffix : namesOf(provider.getFileSuffixes())) {
+                readersBySuffix.computeIfAbsent(suffix, key -> new ArrayList<>()).add(provider);
+            }
+        }
+
+        Map<String, List<ImageWriterSpi>> writersByFormat = new HashMap<>();
+        Iterator<ImageWriterSpi> writers = registry.getServiceProviders(ImageWriterSpi.class, true);
+        while (writers.hasNext()) {
+            ImageWriterSpi provider = writers.next();
+            for (String formatName : namesOf(provider.getFormatNames())) {
+                writersByFormat.computeIfAbsent(formatName, key -> new ArrayList<>()).add(provider);
+            }
+        }
+
+        READER_PROVIDERS = List.copyOf(readerProviders);
+        READER_PROVIDERS_BY_SUFFIX = copyOfLists(readersBySuffix);
+        WRITER_PROVIDERS_BY_FORMAT = copyOfLists(writersByFormat);
+    }
+
+    // Idle plugin instances of the current thread, by provider
+    private static final ThreadLocal<Map<ImageReaderSpi, ImageReader>> IDLE_READERS =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<ImageWriterSpi, ImageWriter>> IDLE_WRITERS =
+            ThreadLocal.withInitial(HashMap::new);
+
+    // Prevent instantiation
+    private ImageIOPlugins() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Returns a reader for the image in a stream, with the stream not yet set as its input.
+     * Providers claiming the file's suffix are asked first; the rest are tried in registry order.
+     * The reader must be handed back through {@link #releaseReader}.
+     *
+     * @param imageInput stream positioned at the start of the image
+     * @param fileName   name of the source file, used to guess the format
+     * @return reader able to decode the stream, or null if no provider recognizes it
+     * @throws IOException if the stream cannot be inspected
+     */
+    static ImageReader acquireReader(ImageInputStream imageInput, String fileName) throws IOException {
+        Set<ImageReaderSpi> candidates = new LinkedHashSet<>(
+                READER_PROVIDERS_BY_SUFFIX.getOrDefault(suffixOf(fileName), List.of()));
+        candidates.addAll(READER_PROVIDERS);
+
+        for (ImageReaderSpi provider : candidates) {
+            imageInput.mark();
+            boolean decodable;
+            try {
+                decodable = provider.canDecodeInput(imageInput);
+            } finally {
+                imageInput.reset();
+            }
+            if (decodable) {
+                ImageReader reader = IDLE_READERS.get().remove(provider);
+                return reader != null ? reader : provider.createReaderInstance();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resets a reader and keeps it for the next image this thread reads.
+     *
+     * @param reader reader obtained from {@link #acquireReader}
+     */
+    static void releaseReader(ImageReader reader) {
+        try {
+            reader.reset();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Discarding reader that failed to reset", e);
+            reader.dispose();
+            return;
+        }
+        if (IDLE_READERS.get().putIfAbsent(reader.getOriginatingProvider(), reader) != null) {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Returns a writer for a format that can encode the given image. The writer must be
+     * handed back through {@link #releaseWriter}.
+     *
+     * @param image      image to encode
+     * @param formatName informal format name, as accepted by {@code ImageIO.write}
+     * @return writer for the image, or null if no writer of the format can encode it
+     */
+    static ImageWriter acquireWriter(RenderedImage image, String formatName) {
+        List<ImageWriterSpi> providers =
+                WRITER_PROVIDERS_BY_FORMAT.getOrDefault(formatName.toLowerCase(Locale.ROOT), List.of());
+        for (ImageWriterSpi provider : providers) {
+            if (provider.canEncodeImage(image)) {
+                ImageWriter writer = IDLE_WRITERS.get().remove(provider);
+                if (writer != null) {
+                    return writer;
+                }
+                try {
+                    return provider.createWriterInstance();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Cannot create " + formatName + " writer", e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resets a writer and keeps it for the next image this thread writes.
+     *
+     * @param writer writer obtained from {@link #acquireWriter}
+     */
+    static void releaseWriter(ImageWriter writer) {
+        try {
+            writer.reset();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Discarding writer that failed to reset", e);
+            writer.dispose();
+            return;
+        }
+        if (IDLE_WRITERS.get().putIfAbsent(writer.getOriginatingProvider(), writer) != null) {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Returns the lower-case suffix of a file name, or an empty string if it has none.
+     */
+    private static String suffixOf(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex < 0 ? "" : fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the distinct lower-case forms of a provider's names; providers may return null.
+     */
+    private static Set<String> namesOf(String[] names) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (names != null) {
+            for (String name : names) {
+                normalized.add(name.toLowerCase(Locale.ROOT));
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Returns an unmodifiable copy of a map of lists.
+     */
+    private static <K, V> Map<K, List<V>> copyOfLists(Map<K, List<V>> map) {
+        Map<K, List<V>> copy = new HashMap<>();
+        map.forEach((key, values) -> copy.put(key, List.copyOf(values)));
+        return Map.copyOf(copy);
+    }
+}
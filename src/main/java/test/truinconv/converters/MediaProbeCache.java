@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.EncoderException;
+import ws.schild.jave.MultimediaObject;
+import ws.schild.jave.info.MultimediaInfo;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared cache of ffmpeg probe results for audio and video sources.
+ * <p>
+ * {@link MultimediaObject#getInfo()} runs an ffmpeg process on every call, and a
+ * single conversion asks for it several times (settings fingerprint, settings
+ * selection, and again inside {@code Encoder.encode}). Results are keyed by the
+ * file's absolute path, size and modification time, so a rewritten file is probed
+ * again. Memory is bounded by evicting the least recently used entries.
+ */
+public final class MediaProbeCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MediaProbeCache.class.getName());
+
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * Identity of a file's content as far as a cheap stat can tell.
+     */
+    private record ProbeKey(String path, long size, long modified) {
+    }
+
+    // Access-ordered: the eldest entry is the least recently used
+    private static final Map<ProbeKey, MultimediaInfo> CACHE = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ProbeKey, MultimediaInfo> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Prevent instantiation
+    private MediaProbeCache() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Returns the probe result for a file, running ffmpeg only if the file is not cached.
+     * The returned info is shared and must not be modified.
+     *
+     * @param file source media file
+     * @return multimedia info of the file
+     * @throws EncoderException if probing fails
+     * @throws IllegalArgumentException if file is null
+     */
+    public static MultimediaInfo getInfo(File file) throws EncoderException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        ProbeKey key = keyOf(file);
+        synchronized (CACHE) {
+            MultimediaInfo cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        MultimediaInfo info = new MultimediaObject(file).getInfo();
+        // lastModified() is 0 for a missing file; such results must not be reused
+        if (key.modified() != 0) {
+            synchronized (CACHE) {
+                CACHE.put(key, info);
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Creates a multimedia object whose {@link MultimediaObject#getInfo()} is served from this cache,
+     * so the probe inside {@code Encoder.encode} is skipped as well.
+     *
+     * @param file source media file
+     * @return multimedia object backed by the cache
+     * @throws IllegalArgumentException if file is null
+     */
+    public static MultimediaObject mediaObject(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        return new CachedMultimediaObject(file);
+    }
+
+    /**
+     * Probes a file so a later conversion finds its info cached.
+     * A file that cannot be probed is left for its conversion to report.
+     *
+     * @param file source media file
+     * @throws IllegalArgumentException if file is null
+     */
+    public static void prefetch(File file) {
+        try {
+            getInfo(file);
+        } catch (EncoderException e) {
+            LOGGER.log(Level.FINE, "Pre-probe failed for " + file, e);
+        }
+    }
+
+    /**
+     * Builds the cache key from the file's current size and modification time.
+     */
+    private static ProbeKey keyOf(File file) {
+        return new ProbeKey(file.getAbsolutePath(), file.length(), file.lastModified());
+    }
+
+    /**
+     * Multimedia object that answers {@link #getInfo()} from the shared cache.
+     */
+    private static final class CachedMultimediaObject extends MultimediaObject {
+
+        private CachedMultimediaObject(File file) {
+            super(file);
+        }
+
+        /**
+         * Returns the cached probe result, probing the file on a miss.
+         */
+        @Override
+        public MultimediaInfo getInfo() throws EncoderException {
+            return isURL() ? super.getInfo() : MediaProbeCache.getInfo(getFile());
+        }
+    }
+}
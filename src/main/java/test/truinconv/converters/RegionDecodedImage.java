@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Vector;
+
+/**
+ * Image whose pixels are decoded on demand, one horizontal strip at a time, through
+ * {@link ImageReadParam#setSourceRegion source regions} of an {@link ImageReader}.
+ * <p>
+ * ImageIO writers either pull rows through {@link #getData(Rectangle)} (PNG, BMP, TIFF),
+ * which are served as views of the decoded strip, or take the whole {@link #getData() raster}
+ * and walk it row by row (JPEG, GIF). That raster's {@link DataBuffer} decodes the strip
+ * holding a requested element on demand. Decoded strips replace each other, so heap use is
+ * bounded by the strip size, not the image size.
+ * <p>
+ * Readers of sequential formats (PNG, JPEG) decode from the start of the file for every
+ * region, so strips are kept large to limit the repeated work. Every strip is decoded into
+ * the same buffer and flattened in place where the layout allows, so converting allocates
+ * no per-strip images. Instances are not thread-safe.
+ */
+final class RegionDecodedImage implements RenderedImage {
+
+    private final ImageReader reader;
+    private final ImageTypeSpecifier sourceType;
+    private final ImageTypeSpecifier imageType;
+    private final boolean flatten;
+    private final int width;
+    private final int height;
+    private final int stripHeight;
+    private final WritableRaster raster;
+
+    // Decode destination reused for every full-height strip
+    private BufferedImage stripBuffer;
+
+    // The one decoded strip kept in memory
+    private Raster strip;
+    private int stripIndex = -1;
+
+    /**
+     * Creates an image reading the first image of a reader in strips.
+     *
+     * @param reader         reader positioned on the source; must stay open while the image is used
+     * @param flatten        whether to composite the image onto white, dropping alpha
+     * @param stripByteLimit approximate size of one decoded strip
+     * @throws IOException if the image header cannot be read or the image has no usable type
+     */
+    RegionDecodedImage(ImageReader reader, boolean flatten, long stripByteLimit) throws IOException {
+        this.reader = reader;
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+
+        ImageTypeSpecifier rawType = reader.getRawImageType(0);
+        this.sourceType = rawType != null ? rawType : reader.getImageTypes(0).next();
+        // Opaque sources look the same on white; skipping the composite saves a strip-sized copy
+        this.flatten = flatten && sourceType.getColorModel().hasAlpha();
+        this.imageType = this.flatten ? AlphaFlattener.flattenedType(sourceType) : sourceType;
+
+        long bytesPerRow = Math.max(1, (long) width * imageType.getColorModel().getPixelSize() / Byte.SIZE);
+        this.stripHeight = (int) Math.max(1, Math.min(height, stripByteLimit / bytesPerRow));
+
+        SampleModel sampleModel = imageType.getSampleModel(width, height);
+        StripDataBuffer dataBuffer = new StripDataBuffer(sampleModel);
+        this.raster = Raster.createWritableRaster(sampleModel, dataBuffer, new Point(0, 0));
+    }
+
+    /**
+     * Returns the decoded raster of a strip, decoding it unless it is the current one.
+     *
+     * @throws UncheckedIOException if decoding fails, since raster accessors cannot throw IOException
+     */
+    private Raster loadStrip(int index) {
+        if (index != stripIndex) {
+            int firstRow = index * stripHeight;
+            int rows = Math.min(stripHeight, height - firstRow);
+            // Release the previous strip before decoding the next one
+            strip = null;
+            stripIndex = -1;
+            try {
+                strip = decodeStrip(firstRow, rows).getRaster();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decode rows " + firstRow + "-" + (firstRow + rows), e);
+            }
+            stripIndex = index;
+        }
+        return strip;
+    }
+
+    /**
+     * Decodes the rows {@code [firstRow, firstRow + rows)} into a strip of the image's type.
+     */
+    private BufferedImage decodeStrip(int firstRow, int rows) throws IOException {
+        ImageReadParam readParam = reader.getDefaultReadParam();
+        readParam.setSourceRegion(new Rectangle(0, firstRow, width, rows));
+        if (stripBuffer == null || stripBuffer.getHeight() != rows) {
+            // Only the shorter last strip needs a buffer of its own
+            stripBuffer = sourceType.createBufferedImage(width, rows);
+        }
+        readParam.setDestination(stripBuffer);
+        BufferedImage decoded = reader.read(0, readParam);
+        return flatten ? AlphaFlattener.flatten(decoded) : decoded;
+    }
+
+    /**
+     * Read-only buffer spanning the whole image, backed by one decoded strip at a time.
+     */
+    private final class StripDataBuffer extends DataBuffer {
+
+        private final int scanlineStride;
+        private final int stripElements;
+        private DataBuffer stripData;
+        private int stripDataIndex = -1;
+        private int stripStart;
+        private int stripEnd;
+
+        private StripDataBuffer(SampleModel sampleModel) {
+            super(sampleModel.getDataType(), elementsPerBank(sampleModel, height), banksOf(sampleModel));
+            this.scanlineStride = scanlineStrideOf(sampleModel);
+            this.stripElements = scanlineStride * stripHeight;
+        }
+
+        /**
+         * Returns an element, decoding the strip that holds it if it is not the current one.
+         * Strips share one buffer, so a strip loaded through another path invalidates this one.
+         */
+        @Override
+        public int getElem(int bank, int elementIndex) {
+            if (stripDataIndex != stripIndex || elementIndex < stripStart || elementIndex >= stripEnd) {
+                int index = elementIndex / stripElements;
+                stripData = loadStrip(index).getDataBuffer();
+                stripDataIndex = index;
+                stripStart = index * stripElements;
+                stripEnd = stripStart + stripData.getSize();
+            }
+            return stripData.getElem(bank, elementIndex - stripStart);
+        }
+
+        /**
+         * Rejects writes; the image is a read-only view of its source.
+         */
+        @Override
+        public void setElem(int bank, int index, int value) {
+            throw new UnsupportedOperationException("Region-decoded images are read-only");
+        }
+    }
+
+    /**
+     * Returns the number of elements between the starts of two rows.
+     */
+    private static int scanlineStrideOf(SampleModel sampleModel) {
+        if (sampleModel instanceof ComponentSampleModel componentSampleModel) {
+            return componentSampleModel.getScanlineStride();
+        }
+        if (sampleModel instanceof SinglePixelPackedSampleModel packedSampleModel) {
+            return packedSampleModel.getScanlineStride();
+        }
+        if (sampleModel instanceof MultiPixelPackedSampleModel multiPixelSampleModel) {
+            return multiPixelSampleModel.getScanlineStride();
+        }
+        throw new IllegalArgumentException("Unsupported sample model: " + sampleModel.getClass().getName());
+    }
+
+    /**
+     * Returns the number of banks a buffer for the sample model needs.
+     */
+    private static int banksOf(SampleModel sampleModel) {
+        if (sampleModel instanceof ComponentSampleModel componentSampleModel) {
+            int maxBank = 0;
+            for (int bank : componentSampleModel.getBankIndices()) {
+                maxBank = Math.max(maxBank, bank);
+            }
+            return maxBank + 1;
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the number of elements in each bank of a full-size buffer.
+     */
+    private static int elementsPerBank(SampleModel sampleModel, int height) {
+        long elements = (long) scanlineStrideOf(sampleModel) * height;
+        if (elements > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image too large for a single raster: " + elements + " elements");
+        }
+        return (int) elements;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return imageType.getColorModel();
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return imageType.getSampleModel(width, stripHeight);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (height + stripHeight - 1) / stripHeight;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return stripHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    /**
+     * Returns one strip as a view of the lazily decoded raster.
+     */
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        int firstRow = tileY * stripHeight;
+        return getData(new Rectangle(0, firstRow, width, Math.min(stripHeight, height - firstRow)));
+    }
+
+    /**
+     * Returns the whole image as a lazily decoded raster. Unlike the usual contract this is
+     * not a copy, which would defeat the purpose; it must not be modified.
+     */
+    @Override
+    public Raster getData() {
+        return raster;
+    }
+
+    /**
+     * Returns a region of the image. A region within one strip is a view of the decoded strip,
+     * which writers may rely on having the sample model's usual buffer type; it must not be modified.
+     */
+    @Override
+    public Raster getData(Rectangle region) {
+        Rectangle bounds = region.intersection(new Rectangle(0, 0, width, height));
+        int firstStrip = bounds.y / stripHeight;
+        if (!bounds.isEmpty() && (bounds.y + bounds.height - 1) / stripHeight == firstStrip) {
+            return loadStrip(firstStrip).createChild(bounds.x, bounds.y - firstStrip * stripHeight,
+                    bounds.width, bounds.height, bounds.x, bounds.y, null);
+        }
+        // Copied strip by strip, each a view, rather than element by element through the lazy raster
+        WritableRaster copy = raster.createCompatibleWritableRaster(bounds);
+        int lastStrip = (bounds.y + bounds.height - 1) / stripHeight;
+        for (int index = firstStrip; index <= lastStrip; index++) {
+            copy.setRect(getTile(0, index));
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the overlapping part of the image into a raster, strip by strip.
+     */
+    @Override
+    public WritableRaster copyData(WritableRaster destination) {
+        WritableRaster target = destination != null
+                ? destination
+                : raster.createCompatibleWritableRaster(width, height);
+        for (int index = 0; index < getNumYTiles(); index++) {
+            target.setRect(getTile(0, index));
+        }
+        return target;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.progress.EncoderProgressListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Encodes one video as several time segments in parallel ffmpeg processes.
+ * <p>
+ * Each segment is cut frame-accurately from the source and encoded without audio,
+ * so every segment starts on a keyframe of its own and the segments can be joined
+ * with the concat demuxer by stream copy. The audio track is encoded once, as a
+ * single continuous stream, and muxed with the joined video; it therefore cannot
+ * drift against the video at segment boundaries.
+ * <p>
+ * Progress is followed through the {@code time=} field of each video worker's log: the
+ * reported fraction is the share of the source's duration encoded so far, summed over
+ * the segments, and reaches completion only once the segments have been joined.
+ */
+final class SegmentedVideoEncoder {
+
+    private static final Logger LOGGER = Logger.getLogger(SegmentedVideoEncoder.class.getName());
+
+    private static final String SEGMENT_THREAD_PREFIX = "video-segment-";
+    private static final String INTERMEDIATE_MUXER = "matroska";
+    private static final long WORKER_STOP_SECONDS = 10;
+    private static final int PERMILLE_DONE = 1000;
+
+    private final File inputFile;
+    private final EncodingAttributes settings;
+    private final int threadsPerProcess;
+    private final EncoderProgressListener progressListener;
+
+    // Processes still running, destroyed together if any of them fails or the encode is stopped
+    private final FfmpegProcessGroup processes = new FfmpegProcessGroup();
+
+    // Guarded by this: milliseconds each video segment has encoded, and the last permille reported
+    private long[] encodedMillis = new long[0];
+    private int reportedPermille;
+
+    /**
+     * Creates an encoder for one source file.
+     *
+     * @param inputFile         source video file
+     * @param settings          transcoding settings for the whole file
+     * @param threadsPerProcess ffmpeg threads for each worker process
+     * @param progressListener  receives the per-mille progress of the whole encode (may be null)
+     */
+    SegmentedVideoEncoder(File inputFile, EncodingAttributes settings, int threadsPerProcess,
+                          EncoderProgressListener progressListener) {
+        this.inputFile = inputFile;
+        this.settings = settings;
+        this.threadsPerProcess = threadsPerProcess;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Destroys every ffmpeg process of the encode and keeps new ones from starting, so that
+     * {@link #encode} fails promptly. May be called from any thread, e.g. on cancel.
+     */
+    void stop() {
+        processes.destroyAll();
+    }
+
+    /**
+     * Encodes the source in segments and joins them into the output file.
+     *
+     * @param outputFile     destination file
+     * @param muxer          ffmpeg muxer name of the target container
+     * @param durationMillis source duration
+     * @param segmentCount   number of segments to encode in parallel
+     * @throws IOException          if any ffmpeg process fails or the encode was stopped
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    void encode(File outputFile, String muxer, long durationMillis, int segmentCount)
+            throws IOException, InterruptedException {
+        Path workDirectory = Files.createTempDirectory(
+                outputFile.getAbsoluteFile().getParentFile().toPath(), ".segments-");
+        synchronized (this) {
+            encodedMillis = new long[segmentCount];
+            reportedPermille = 0;
+        }
+        try {
+            List<Path> segments = new ArrayList<>(segmentCount);
+            List<Callable<Void>> workers = new ArrayList<>(segmentCount + 1);
+            for (int i = 0; i < segmentCount; i++) {
+                long startMillis = durationMillis * i / segmentCount;
+                // The last segment runs to the end of the input, whatever the probed duration said
+                Long lengthMillis = i == segmentCount - 1
+                        ? null
+                        : durationMillis * (i + 1) / segmentCount - startMillis;
+                Path segment = workDirectory.resolve("segment-" + i + ".mkv");
+                segments.add(segment);
+                int index = i;
+                long segmentMillis = lengthMillis == null ? durationMillis - startMillis : lengthMillis;
+                workers.add(() -> {
+                    FfmpegCommand.run(videoSegmentArguments(startMillis, lengthMillis, segment), processes,
+                            line -> segmentProgress(index, segmentMillis, durationMillis, line));
+                    return null;
+                });
+            }
+
+            Path audioTrack = null;
+            if (settings.getAudioAttributes().isPresent()) {
+                audioTrack = workDirectory.resolve("audio.mka");
+                Path audioTarget = audioTrack;
+                workers.add(() -> {
+                    FfmpegCommand.run(audioTrackArguments(audioTarget), processes);
+                    return null;
+                });
+            }
+
+            runAll(workers);
+            Path segmentList = writeSegmentList(workDirectory, segments);
+            FfmpegCommand.run(concatArguments(segmentList, audioTrack, outputFile, muxer), processes);
+            report(PERMILLE_DONE);
+        } finally {
+            deleteRecursively(workDirectory);
+        }
+    }
+
+    /**
+     * Runs the workers concurrently; the first failure stops the others.
+     */
+    private void runAll(List<Callable<Void>> workers) throws IOException, InterruptedException {
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        ExecutorService workerPool = Executors.newFixedThreadPool(workers.size(), runnable -> {
+            Thread worker = new Thread(runnable, SEGMENT_THREAD_PREFIX + threadCounter.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        });
+        boolean completed = false;
+        try {
+            CompletionService<Void> completions = new ExecutorCompletionService<>(workerPool);
+            for (Callable<Void> worker : workers) {
+                completions.submit(worker);
+            }
+            // Completion order, so a failing segment is noticed while others still run
+            for (int i = 0; i < workers.size(); i++) {
+                completions.take().get();
+            }
+            completed = true;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioException
+                    ? ioException
+                    : new IOException("Segment encoding failed", e.getCause());
+        } finally {
+            if (!completed) {
+                // Also makes workers that have not started their process yet fail instead
+                processes.destroyAll();
+            }
+            workerPool.shutdownNow();
+            awaitWorkers(workerPool);
+        }
+    }
+
+    /**
+     * Waits for the workers to return, so that no process still writes into the working
+     * directory when it is deleted.
+     */
+    private static void awaitWorkers(ExecutorService workerPool) {
+        try {
+            if (!workerPool.awaitTermination(WORKER_STOP_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warning("Segment workers still running after " + WORKER_STOP_SECONDS + " s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the position a video segment's worker logged and reports the progress of the
+     * whole encode. Short of the join, progress stays below completion.
+     *
+     * @param segment        index of the segment
+     * @param segmentMillis  length of the segment
+     * @param durationMillis length of the source
+     * @param logLine        line the segment's ffmpeg logged
+     */
+    private void segmentProgress(int segment, long segmentMillis, long durationMillis, String logLine) {
+        if (progressListener == null || durationMillis <= 0) {
+            return;
+        }
+        long millis = FfmpegCommand.encodedMillis(logLine);
+        if (millis < 0) {
+            return;
+        }
+        synchronized (this) {
+            encodedMillis[segment] = Math.min(millis, segmentMillis);
+            long encodedTotal = 0;
+            for (long encoded : encodedMillis) {
+                encodedTotal += encoded;
+            }
+            report((int) Math.min(PERMILLE_DONE - 1, encodedTotal * PERMILLE_DONE / durationMillis));
+        }
+    }
+
+    /**
+     * Reports a permille to the listener unless a higher one has already been reported.
+     * Workers call it concurrently; the lock also serializes the listener's calls.
+     */
+    private synchronized void report(int permille) {
+        if (progressListener != null && permille > reportedPermille) {
+            reportedPermille = permille;
+            progressListener.progress(permille);
+        }
+    }
+
+    /**
+     * Builds the arguments encoding one video-only segment.
+     */
+    private List<String> videoSegmentArguments(long startMillis, Long lengthMillis, Path segment) {
+        List<String> arguments = new ArrayList<>();
+        // Input seeking decodes from the preceding keyframe and drops frames before the cut
+        arguments.add("-ss");
+        arguments.add(formatSeconds(startMillis));
+        if (lengthMillis != null) {
+            arguments.add("-t");
+            arguments.add(formatSeconds(lengthMillis));
+        }
+        arguments.add("-i");
+        arguments.add(inputFile.getAbsolutePath());
+        arguments.add("-an");
+        FfmpegCommand.appendVideoOptions(arguments, settings.getVideoAttributes().orElseThrow());
+        FfmpegCommand.appendExtraOptions(arguments, settings);
+        FfmpegCommand.addOption(arguments, "-threads", Integer.toString(threadsPerProcess));
+        FfmpegCommand.addOption(arguments, "-f", INTERMEDIATE_MUXER);
+        arguments.add(segment.toString());
+        return arguments;
+    }
+
+    /**
+     * Builds the arguments encoding the complete audio track.
+     */
+    private List<String> audioTrackArguments(Path audioTrack) {
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-i");
+        arguments.add(inputFile.getAbsolutePath());
+        arguments.add("-vn");
+        FfmpegCommand.appendAudioOptions(arguments, settings.getAudioAttributes().orElseThrow());
+        FfmpegCommand.addOption(arguments, "-f", INTERMEDIATE_MUXER);
+        arguments.add(audioTrack.toString());
+        return arguments;
+    }
+
+    /**
+     * Builds the arguments joining the segments and muxing the audio track, all by stream copy.
+     */
+    private static List<String> concatArguments(Path segmentList, Path audioTrack, File outputFile, String muxer) {
+        List<String> arguments = new ArrayList<>(List.of("-f", "concat", "-safe", "0", "-i", segmentList.toString()));
+        if (audioTrack != null) {
+            arguments.addAll(List.of("-i", audioTrack.toString(), "-map", "0:v:0", "-map", "1:a:0"));
+        }
+        arguments.addAll(List.of("-c", "copy", "-f", muxer, outputFile.getAbsolutePath()));
+        return arguments;
+    }
+
+    /**
+     * Writes the concat demuxer's list of segment files.
+     */
+    private static Path writeSegmentList(Path workDirectory, List<Path> segments) throws IOException {
+        StringBuilder list = new StringBuilder();
+        for (Path segment : segments) {
+            // Single quotes inside a quoted path are written as '\''
+            list.append("file '")
+                    .append(segment.toAbsolutePath().toString().replace("'", "'\\''"))
+                    .append("'\n");
+        }
+        Path segmentList = workDirectory.resolve("segments.txt");
+        Files.writeString(segmentList, list, StandardCharsets.UTF_8);
+        return segmentList;
+    }
+
+    /**
+     * Formats milliseconds as an ffmpeg time in seconds.
+     */
+    private static String formatSeconds(long millis) {
+        return String.format(Locale.ROOT, "%d.%03d", millis / 1000, millis % 1000);
+    }
+
+    /**
+     * Deletes the temporary working directory and everything in it.
+     */
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to clean up " + directory, e);
+        }
+    }
+}
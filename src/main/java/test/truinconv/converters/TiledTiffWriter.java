@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Deflater;
+
+/**
+ * Writes 8-bit RGB and gray images as tiled TIFF, compressing the tiles in parallel.
+ * <p>
+ * The ImageIO TIFF writer compresses one strip after another on the calling thread, so a huge
+ * image keeps one core busy however many are idle. Here the image is cut into 256x256 tiles,
+ * one row of tiles at a time; the tiles of a row are packed and compressed as fork-join tasks,
+ * then written in order, so the output does not depend on scheduling. Beyond the source, only
+ * one row of tiles and its compressed bytes are in memory, which suits images decoded strip by
+ * strip. Decoding itself stays sequential, since PNG and JPEG can only be read front to back.
+ */
+final class TiledTiffWriter {
+
+    private static final int TILE_SIZE = 256;
+    private static final int BITS_PER_SAMPLE = 8;
+    private static final int MAX_PACKBITS_RUN = 128;
+    private static final long MAX_CLASSIC_TIFF_OFFSET = 0xFFFF_FFFFL;
+    private static final int DIRECTORY_ENTRY_BYTES = 12;
+
+    // Field types
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_RATIONAL = 5;
+
+    // Tags, in the ascending order they must appear in
+    private static final int TAG_IMAGE_WIDTH = 256;
+    private static final int TAG_IMAGE_LENGTH = 257;
+    private static final int TAG_BITS_PER_SAMPLE = 258;
+    private static final int TAG_COMPRESSION = 259;
+    private static final int TAG_PHOTOMETRIC_INTERPRETATION = 262;
+    private static final int TAG_SAMPLES_PER_PIXEL = 277;
+    private static final int TAG_X_RESOLUTION = 282;
+    private static final int TAG_Y_RESOLUTION = 283;
+    private static final int TAG_PLANAR_CONFIGURATION = 284;
+    private static final int TAG_RESOLUTION_UNIT = 296;
+    private static final int TAG_TILE_WIDTH = 322;
+    private static final int TAG_TILE_LENGTH = 323;
+    private static final int TAG_TILE_OFFSETS = 324;
+    private static final int TAG_TILE_BYTE_COUNTS = 325;
+    private static final int TAG_EXTRA_SAMPLES = 338;
+
+    // Field values
+    private static final int COMPRESSION_DEFLATE = 8;
+    private static final int COMPRESSION_PACKBITS = 32773;
+    private static final int PHOTOMETRIC_BLACK_IS_ZERO = 1;
+    private static final int PHOTOMETRIC_RGB = 2;
+    private static final int PLANAR_CHUNKY = 1;
+    private static final int RESOLUTION_UNIT_INCH = 2;
+    private static final int DEFAULT_DPI = 72;
+    private static final int EXTRA_SAMPLE_ASSOCIATED_ALPHA = 1;
+    private static final int EXTRA_SAMPLE_UNASSOCIATED_ALPHA = 2;
+
+    /**
+     * Field of the image file directory.
+     *
+     * @param tag    field tag
+     * @param type   field type
+     * @param values values; two per rational
+     */
+    private record Field(int tag, int type, long... values) {
+
+        /**
+         * Returns the number of values as TIFF counts them.
+         */
+        int count() {
+            return type == TYPE_RATIONAL ? values.length / 2 : values.length;
+        }
+
+        /**
+         * Returns the size of the values in bytes.
+         */
+        int byteSize() {
+            return values.length * (type == TYPE_SHORT ? Short.BYTES : Integer.BYTES);
+        }
+    }
+
+    // Prevent instantiation
+    private TiledTiffWriter() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Checks whether an image can be written with the preset's compression by this writer.
+     *
+     * @param image  image to write
+     * @param preset compression preset
+     * @return true for 8-bit-per-sample RGB or gray images, with or without alpha, and
+     *         PackBits or Deflate compression
+     */
+    static boolean canWrite(RenderedImage image, ImageCompressionPreset preset) {
+        String compressionType = preset.tiffCompressionType();
+        if (!"PackBits".equals(compressionType) && !"Deflate".equals(compressionType)) {
+            return false;
+        }
+        ColorModel colorModel = image.getColorModel();
+        if (colorModel == null || colorModel instanceof IndexColorModel
+                || image.getSampleModel().getNumBands() != colorModel.getNumComponents()) {
+            return false;
+        }
+        for (int componentSize : colorModel.getComponentSize()) {
+            if (componentSize != BITS_PER_SAMPLE) {
+                return false;
+            }
+        }
+        ColorSpace colorSpace = colorModel.getColorSpace();
+        return colorSpace.isCS_sRGB() || colorSpace.getType() == ColorSpace.TYPE_GRAY;
+    }
+
+    /**
+     * Writes an image as a tiled TIFF file.
+     *
+     * @param image       image accepted by {@link #canWrite}
+     * @param imageOutput empty stream to write to
+     * @param preset      compression preset
+     * @throws IOException if writing fails or the file would exceed 4 GB
+     */
+    static void write(RenderedImage image, ImageOutputStream imageOutput, ImageCompressionPreset preset)
+            throws IOException {
+        write(image, imageOutput, preset, MAX_CLASSIC_TIFF_OFFSET);
+    }
+
+    /**
+     * Writes an image as a tiled TIFF file no larger than the given size. The size is checked
+     * before each row of tiles is appended, with room left for the directory, so an image too
+     * large for the file fails at the first row that would not fit rather than after all of
+     * them are written.
+     *
+     * @param image        image accepted by {@link #canWrite}
+     * @param imageOutput  empty stream to write to
+     * @param preset       compression preset
+     * @param maxFileBytes largest file the offsets of the format can address
+     * @throws IOException if writing fails or the file would exceed maxFileBytes
+     */
+    static void write(RenderedImage image, ImageOutputStream imageOutput, ImageCompressionPreset preset,
+                      long maxFileBytes) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ColorModel colorModel = image.getColorModel();
+        int samplesPerPixel = colorModel.getNumComponents();
+        boolean packBits = "PackBits".equals(preset.tiffCompressionType());
+        int deflateLevel = preset.tiffDeflateLevel();
+
+        int tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+        long[] tileOffsets = new long[tilesAcross * tilesDown];
+        long[] tileByteCounts = new long[tileOffsets.length];
+        // Fields without values are left out; the tile arrays are filled in as the tiles are written
+        List<Field> fields = List.of(
+                new Field(TAG_IMAGE_WIDTH, TYPE_LONG, width),
+                new Field(TAG_IMAGE_LENGTH, TYPE_LONG, height),
+                new Field(TAG_BITS_PER_SAMPLE, TYPE_SHORT, repeat(BITS_PER_SAMPLE, samplesPerPixel)),
+                new Field(TAG_COMPRESSION, TYPE_SHORT, packBits ? COMPRESSION_PACKBITS : COMPRESSION_DEFLATE),
+                new Field(TAG_PHOTOMETRIC_INTERPRETATION, TYPE_SHORT,
+                        colorModel.getNumColorComponents() == 1 ? PHOTOMETRIC_BLACK_IS_ZERO : PHOTOMETRIC_RGB),
+                new Field(TAG_SAMPLES_PER_PIXEL, TYPE_SHORT, samplesPerPixel),
+                new Field(TAG_X_RESOLUTION, TYPE_RATIONAL, DEFAULT_DPI, 1),
+                new Field(TAG_Y_RESOLUTION, TYPE_RATIONAL, DEFAULT_DPI, 1),
+                new Field(TAG_PLANAR_CONFIGURATION, TYPE_SHORT, PLANAR_CHUNKY),
+                new Field(TAG_RESOLUTION_UNIT, TYPE_SHORT, RESOLUTION_UNIT_INCH),
+                new Field(TAG_TILE_WIDTH, TYPE_SHORT, TILE_SIZE),
+                new Field(TAG_TILE_LENGTH, TYPE_SHORT, TILE_SIZE),
+                new Field(TAG_TILE_OFFSETS, TYPE_LONG, tileOffsets),
+                new Field(TAG_TILE_BYTE_COUNTS, TYPE_LONG, tileByteCounts),
+                new Field(TAG_EXTRA_SAMPLES, TYPE_SHORT, colorModel.hasAlpha()
+                        ? new long[] {colorModel.isAlphaPremultiplied()
+                                ? EXTRA_SAMPLE_ASSOCIATED_ALPHA : EXTRA_SAMPLE_UNASSOCIATED_ALPHA}
+                        : new long[0])).stream().filter(field -> field.values().length > 0).toList();
+        // The directory after the tiles, with the padding byte that may precede it
+        long directoryBytes = 1 + directoryBytes(fields);
+
+        imageOutput.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        imageOutput.writeByte('I');
+        imageOutput.writeByte('I');
+        imageOutput.writeShort(42);
+        // Offset of the image file directory, patched once the tiles are written
+        imageOutput.writeInt(0);
+
+        for (int tileRow = 0; tileRow < tilesDown; tileRow++) {
+            int top = tileRow * TILE_SIZE;
+            Raster band = image.getData(new Rectangle(image.getMinX(), image.getMinY() + top,
+                    width, Math.min(TILE_SIZE, height - top)));
+            List<ForkJoinTask<byte[]>> tiles = new ArrayList<>(tilesAcross);
+            for (int tileColumn = 0; tileColumn < tilesAcross; tileColumn++) {
+                int left = band.getMinX() + tileColumn * TILE_SIZE;
+                tiles.add(ForkJoinPool.commonPool().submit(() ->
+                        encodeTile(band, left, samplesPerPixel, packBits, deflateLevel)));
+            }
+            long rowEnd = imageOutput.getStreamPosition();
+            for (ForkJoinTask<byte[]> tile : tiles) {
+                rowEnd += tile.join().length;
+            }
+            if (rowEnd + directoryBytes > maxFileBytes) {
+                throw new IOException("Image too large for a TIFF file: more than " + maxFileBytes
+                        + " bytes after " + (tileRow + 1) + " of " + tilesDown + " rows of tiles");
+            }
+            for (int tileColumn = 0; tileColumn < tilesAcross; tileColumn++) {
+                byte[] tile = tiles.get(tileColumn).join();
+                int tileIndex = tileRow * tilesAcross + tileColumn;
+                tileOffsets[tileIndex] = imageOutput.getStreamPosition();
+                tileByteCounts[tileIndex] = tile.length;
+                imageOutput.write(tile);
+            }
+        }
+
+        if (imageOutput.getStreamPosition() % 2 != 0) {
+            // Directories start on a word boundary
+            imageOutput.writeByte(0);
+        }
+        long directoryOffset = imageOutput.getStreamPosition();
+        writeDirectory(imageOutput, directoryOffset, fields);
+        imageOutput.seek(4);
+        imageOutput.writeInt((int) directoryOffset);
+    }
+
+    /**
+     * Packs one tile of a row of tiles into interleaved 8-bit samples and compresses it. Tiles
+     * overhanging the right or bottom edge are padded with zeros, as TIFF tiles are full-sized.
+     */
+    private static byte[] encodeTile(Raster band, int left, int samplesPerPixel, boolean packBits,
+                                     int deflateLevel) {
+        int columns = Math.min(TILE_SIZE, band.getMinX() + band.getWidth() - left);
+        int rowBytes = TILE_SIZE * samplesPerPixel;
+        byte[] tile = new byte[rowBytes * TILE_SIZE];
+        int[] samples = new int[columns * samplesPerPixel];
+        for (int row = 0; row < band.getHeight(); row++) {
+            band.getPixels(left, band.getMinY() + row, columns, 1, samples);
+            int offset = row * rowBytes;
+            for (int i = 0; i < samples.length; i++) {
+                tile[offset + i] = (byte) samples[i];
+            }
+        }
+        return packBits ? packBits(tile, rowBytes) : deflate(tile, deflateLevel);
+    }
+
+    /**
+     * Compresses data as a zlib stream, which TIFF's Deflate compression expects.
+     */
+    private static byte[] deflate(byte[] data, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4);
+            byte[] chunk = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses data with PackBits, each row on its own as TIFF requires.
+     */
+    private static byte[] packBits(byte[] data, int rowBytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length + data.length / MAX_PACKBITS_RUN);
+        for (int rowStart = 0; rowStart < data.length; rowStart += rowBytes) {
+            int rowEnd = rowStart + rowBytes;
+            int position = rowStart;
+            while (position < rowEnd) {
+                int run = 1;
+                while (position + run < rowEnd && run < MAX_PACKBITS_RUN && data[position + run] == data[position]) {
+                    run++;
+                }
+                if (run > 1) {
+                    // Repeat the next byte 1 - n times
+                    compressed.write(1 - run);
+                    compressed.write(data[position]);
+                    position += run;
+                    continue;
+                }
+                // Copy literal bytes up to the next pair of equal bytes
+                int literalEnd = position + 1;
+                while (literalEnd < rowEnd && literalEnd - position < MAX_PACKBITS_RUN
+                        && (literalEnd + 1 >= rowEnd || data[literalEnd] != data[literalEnd + 1])) {
+                    literalEnd++;
+                }
+                compressed.write(literalEnd - position - 1);
+                compressed.write(data, position, literalEnd - position);
+                position = literalEnd;
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Returns the size of the image file directory of the fields, including the values that do
+     * not fit in their fields.
+     */
+    private static long directoryBytes(List<Field> fields) {
+        long bytes = Short.BYTES + (long) fields.size() * DIRECTORY_ENTRY_BYTES + Integer.BYTES;
+        for (Field field : fields) {
+            if (field.byteSize() > Integer.BYTES) {
+                bytes += field.byteSize();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the image file directory at the current position, followed by the values that do
+     * not fit in their fields.
+     */
+    private static void writeDirectory(ImageOutputStream imageOutput, long directoryOffset, List<Field> fields)
+            throws IOException {
+        long valueOffset = directoryOffset + Short.BYTES
+                + (long) fields.size() * DIRECTORY_ENTRY_BYTES + Integer.BYTES;
+        imageOutput.writeShort(fields.size());
+        for (Field field : fields) {
+            imageOutput.writeShort(field.tag());
+            imageOutput.writeShort(field.type());
+            imageOutput.writeInt(field.count());
+            if (field.byteSize() > Integer.BYTES) {
+                imageOutput.writeInt((int) valueOffset);
+                valueOffset += field.byteSize();
+            } else {
+                writeValues(imageOutput, field);
+                for (int padding = field.byteSize(); padding < Integer.BYTES; padding++) {
+                    imageOutput.writeByte(0);
+                }
+            }
+        }
+        // No further directories
+        imageOutput.writeInt(0);
+        for (Field field : fields) {
+            if (field.byteSize() > Integer.BYTES) {
+                writeValues(imageOutput, field);
+            }
+        }
+    }
+
+    /**
+     * Writes the values of a field in its type's size.
+     */
+    private static void writeValues(ImageOutputStream imageOutput, Field field) throws IOException {
+        for (long value : field.values()) {
+            if (field.type() == TYPE_SHORT) {
+                imageOutput.writeShort((int) value);
+            } else {
+                imageOutput.writeInt((int) value);
+            }
+        }
+    }
+
+    /**
+     * Returns an array holding the same value n times.
+     */
+    private static long[] repeat(long value, int count) {
+        long[] values = new long[count];
+        Arrays.fill(values, value);
+        return values;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of {@link AlphaFlattener}'s blend loops, written with the incubating Vector API.
+ * <p>
+ * This class links against {@code jdk.incubator.vector}, which is only resolved when the JVM is
+ * started with {@code --add-modules jdk.incubator.vector}; it must not be touched unless
+ * {@link AlphaFlattener} found the module. Each method processes whole vectors and returns how
+ * many pixels it handled, leaving the tail to the scalar loop. Results are identical to it.
+ */
+final class VectorAlphaBlender {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Same width as INTS, so one byte vector holds the RGBA samples of one int vector's pixels
+    private static final VectorSpecies<Byte> BYTES = INTS.withLanes(byte.class);
+
+    private static final int MIN_LANES = 4;
+    private static final int BGR_PIXEL_STRIDE = 3;
+    private static final int RGBA_PIXEL_STRIDE = 4;
+
+    // Moves the B, G, R bytes of each packed pixel together, dropping the fourth byte
+    private static final VectorShuffle<Byte> PACK_BGR = VectorShuffle.fromOp(BYTES,
+            lane -> lane < INTS.length() * BGR_PIXEL_STRIDE
+                    ? lane / BGR_PIXEL_STRIDE * RGBA_PIXEL_STRIDE + lane % BGR_PIXEL_STRIDE
+                    : 0);
+    private static final VectorMask<Byte> BGR_LANES = BYTES.indexInRange(0, INTS.length() * BGR_PIXEL_STRIDE);
+
+    // Prevent instantiation
+    private VectorAlphaBlender() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Checks whether the hardware vectors are wide enough for SIMD to beat the scalar loop.
+     *
+     * @return true if the preferred vector holds at least four pixels
+     */
+    static boolean isWorthwhile() {
+        return INTS.length() >= MIN_LANES;
+    }
+
+    /**
+     * Blends packed ARGB pixels over white in place, writing RGB with a zero alpha byte.
+     *
+     * @param pixels        packed pixels
+     * @param pixelCount    number of pixels to blend
+     * @param premultiplied whether the colors are premultiplied by alpha
+     * @return number of leading pixels blended
+     */
+    static int blendPackedArgb(int[] pixels, int pixelCount, boolean premultiplied) {
+        int bound = INTS.loopBound(pixelCount);
+        for (int i = 0; i < bound; i += INTS.length()) {
+            IntVector argb = IntVector.fromArray(INTS, pixels, i);
+            IntVector alpha = argb.lanewise(VectorOperators.LSHR, 24);
+            IntVector background = alpha.lanewise(VectorOperators.XOR, 0xFF);
+            IntVector red = blend(sample(argb, 16), alpha, background, premultiplied);
+            IntVector green = blend(sample(argb, 8), alpha, background, premultiplied);
+            IntVector blue = blend(sample(argb, 0), alpha, background, premultiplied);
+            pack(red, green, blue).intoArray(pixels, i);
+        }
+        return bound;
+    }
+
+    /**
+     * Blends interleaved RGBA bytes over white, packing the result as BGR triples at the start
+     * of the same array. Stores trail the loads, so no unread byte is overwritten.
+     *
+     * @param samples       interleaved samples, four per pixel
+     * @param pixelCount    number of pixels to blend
+     * @param bandOffsets   byte offsets of red, green, blue and alpha within a pixel
+     * @param premultiplied whether the colors are premultiplied by alpha
+     * @return number of leading pixels blended
+     */
+    static int blendInterleavedRgba(byte[] samples, int pixelCount, int[] bandOffsets, boolean premultiplied) {
+        int redShift = bandOffsets[0] * Byte.SIZE;
+        int greenShift = bandOffsets[1] * Byte.SIZE;
+        int blueShift = bandOffsets[2] * Byte.SIZE;
+        int alphaShift = bandOffsets[3] * Byte.SIZE;
+
+        int bound = INTS.loopBound(pixelCount);
+        for (int pixel = 0; pixel < bound; pixel += INTS.length()) {
+            // Byte vectors reinterpret as little-endian ints, so the sample at offset k is at bit 8k
+            IntVector rgba = ByteVector.fromArray(BYTES, samples, pixel * RGBA_PIXEL_STRIDE)
+                    .reinterpretAsInts();
+            IntVector alpha = sample(rgba, alphaShift);
+            IntVector background = alpha.lanewise(VectorOperators.XOR, 0xFF);
+            IntVector red = blend(sample(rgba, redShift), alpha, background, premultiplied);
+            IntVector green = blend(sample(rgba, greenShift), alpha, background, premultiplied);
+            IntVector blue = blend(sample(rgba, blueShift), alpha, background, premultiplied);
+            // Packed as 0RGB, each int is the bytes B, G, R, 0 in memory
+            pack(red, green, blue).reinterpretAsBytes()
+                    .rearrange(PACK_BGR)
+                    .intoArray(samples, pixel * BGR_PIXEL_STRIDE, BGR_LANES);
+        }
+        return bound;
+    }
+
+    /**
+     * Extracts the 8-bit sample at the given bit position of every lane.
+     */
+    private static IntVector sample(IntVector pixels, int shift) {
+        return pixels.lanewise(VectorOperators.LSHR, shift).lanewise(VectorOperators.AND, 0xFF);
+    }
+
+    /**
+     * Composites samples over white with the scalar loop's rounding.
+     */
+    private static IntVector blend(IntVector sample, IntVector alpha, IntVector background, boolean premultiplied) {
+        if (premultiplied) {
+            return sample.add(background);
+        }
+        IntVector product = alpha.mul(sample).add(0x80);
+        return product.add(product.lanewise(VectorOperators.LSHR, 8))
+                .lanewise(VectorOperators.LSHR, 8)
+                .add(background);
+    }
+
+    /**
+     * Packs 8-bit color samples into {@code 0x00RRGGBB} lanes.
+     */
+    private static IntVector pack(IntVector red, IntVector green, IntVector blue) {
+        return red.lanewise(VectorOperators.LSHL, 16)
+                .or(green.lanewise(VectorOperators.LSHL, 8))
+                .or(blue);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Video encoders a transcode can use, with the containers that can carry their output.
+ * <p>
+ * Newer codecs reach the same quality at lower bitrates but encode more slowly. When no
+ * codec is requested, each container keeps the encoder it always used: H.264, or VP8 for
+ * WEBM. The bitrate factor scales the bitrate derived from the source, using the savings
+ * commonly reported against H.264 at equal quality; {@link VideoCodecCalibration}
+ * measures the actual speed, size and quality of each encoder on the host.
+ */
+public enum VideoCodec {
+    /** H.264 through libx264. */
+    H264("libx264", "h264", 51, 1.0, Set.of("MP4", "AVI", "MKV", "MOV")),
+    /** H.265/HEVC through libx265. */
+    HEVC("libx265", "hevc", 51, 0.6, Set.of("MP4", "MKV", "MOV")),
+    /** VP8 through libvpx. */
+    VP8("libvpx", "vp8", 63, 1.0, Set.of("WEBM", "MKV")),
+    /** VP9 through libvpx-vp9. */
+    VP9("libvpx-vp9", "vp9", 63, 0.6, Set.of("WEBM", "MKV", "MP4")),
+    /** AV1 through SVT-AV1, the faster AV1 encoder. */
+    AV1_SVT("libsvtav1", "av1", 63, 0.5, Set.of("WEBM", "MKV", "MP4")),
+    /** AV1 through libaom, the reference AV1 encoder. */
+    AV1_AOM("libaom-av1", "av1", 63, 0.5, Set.of("WEBM", "MKV", "MP4"));
+
+    private final String encoderName;
+    private final String decoderName;
+    private final int maxCrf;
+    private final double bitrateFactor;
+    private final Set<String> containers;
+
+    /**
+     * Defines an encoder.
+     *
+     * @param encoderName   ffmpeg encoder name
+     * @param decoderName   ffmpeg decoder name of streams the encoder produces
+     * @param maxCrf        highest constant rate factor the encoder accepts
+     * @param bitrateFactor bitrate relative to H.264 for comparable quality
+     * @param containers    upper-case container formats that can carry the stream
+     */
+    VideoCodec(String encoderName, String decoderName, int maxCrf, double bitrateFactor, Set<String> containers) {
+        this.encoderName = encoderName;
+        this.decoderName = decoderName;
+        this.maxCrf = maxCrf;
+        this.bitrateFactor = bitrateFactor;
+        this.containers = containers;
+    }
+
+    /**
+     * Parses a codec name, ignoring case and treating dashes as underscores.
+     *
+     * @param name codec name, e.g. "hevc" or "av1-svt"
+     * @return matching codec
+     * @throws IllegalArgumentException if no codec has that name
+     */
+    public static VideoCodec fromString(String name) {
+        String normalized = name == null ? "" : name.trim().replace('-', '_');
+        for (VideoCodec codec : values()) {
+            if (codec.name().equalsIgnoreCase(normalized)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown video codec: " + name);
+    }
+
+    /**
+     * Returns the codec a container is encoded with when none is requested.
+     *
+     * @param container upper-case container format
+     * @return VP8 for WEBM, H.264 otherwise
+     */
+    public static VideoCodec defaultFor(String container) {
+        return "WEBM".equals(container) ? VP8 : H264;
+    }
+
+    /**
+     * Checks whether a container can carry this codec's streams.
+     *
+     * @param container container format (case-insensitive)
+     * @return true if the codec can be written to the container
+     */
+    public boolean supports(String container) {
+        return containers.contains(container.toUpperCase(Locale.ROOT).trim());
+    }
+
+    /**
+     * Returns the ffmpeg encoder name.
+     *
+     * @return e.g. "libx265"
+     */
+    public String encoderName() {
+        return encoderName;
+    }
+
+    /**
+     * Returns the ffmpeg decoder name of streams in this codec, as the probe reports it.
+     *
+     * @return e.g. "hevc"
+     */
+    String decoderName() {
+        return decoderName;
+    }
+
+    /**
+     * Returns the highest constant rate factor the encoder accepts.
+     *
+     * @return 51 for the x26x encoders, 63 otherwise
+     */
+    public int maxCrf() {
+        return maxCrf;
+    }
+
+    /**
+     * Returns the bitrate relative to H.264 at which this codec reaches comparable quality.
+     *
+     * @return factor applied to the bitrate derived from the source
+     */
+    double bitrateFactor() {
+        return bitrateFactor;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import ws.schild.jave.Encoder;
+import ws.schild.jave.EncoderException;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.encode.VideoAttributes;
+import ws.schild.jave.info.MultimediaInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the video encoder for a container by measuring the candidates on the host.
+ * <p>
+ * Encoder speed depends on the CPU and on how ffmpeg was built, and quality per bit on the
+ * footage, so neither can be tabulated in advance. Calibration encodes the first seconds of a
+ * sample clip, video only, with every encoder the host's ffmpeg provides for the container,
+ * using the same settings a conversion would, and measures encode speed, bitrate and SSIM
+ * against the source. {@link #selectFastest} then picks the fastest encoder meeting a quality
+ * or size target.
+ */
+public final class VideoCodecCalibration {
+    private static final Logger LOGGER = Logger.getLogger(VideoCodecCalibration.class.getName());
+
+    private static final float SAMPLE_SECONDS = 5f;
+    // Summary line of ffmpeg's ssim filter, e.g. "SSIM Y:0.98 (17.1) U:0.99 (19.3) V:0.99 (19.4) All:0.98 (18.2)"
+    private static final Pattern SSIM_SUMMARY = Pattern.compile("SSIM .*All:([0-9.]+)");
+
+    // Prevent instantiation
+    private VideoCodecCalibration() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Lists the codecs a container can carry whose encoder the host's ffmpeg provides.
+     *
+     * @param targetFormat container format (case-insensitive)
+     * @return available codecs in declaration order
+     * @throws EncoderException if ffmpeg cannot list its encoders
+     */
+    public static List<VideoCodec> availableCodecs(String targetFormat) throws EncoderException {
+        Set<String> encoders = Set.of(new Encoder().getVideoEncoders());
+        return Arrays.stream(VideoCodec.values())
+                .filter(codec -> codec.supports(targetFormat) && encoders.contains(codec.encoderName()))
+                .toList();
+    }
+
+    /**
+     * Measures every available encoder of a container on the first seconds of a clip.
+     * Encoders that reject the options, such as a CRF above their range, or fail are
+     * logged and left out.
+     *
+     * @param sampleClip   clip with a video stream, representative of the files to convert
+     * @param targetFormat container format (case-insensitive)
+     * @param options      preset, CRF and threads to measure with; the codec is ignored
+     * @param cancellation token stopping the calibration (may be null)
+     * @return one measurement per encoder that succeeded
+     * @throws EncoderException if the clip cannot be probed or ffmpeg cannot list its encoders
+     * @throws CancellationException if the token was cancelled
+     * @throws IllegalArgumentException if any argument but the token is null, or the clip has no video
+     */
+    public static List<VideoCodecMeasurement> calibrate(File sampleClip, String targetFormat,
+                                                        VideoEncodingOptions options, CancellationToken cancellation)
+            throws EncoderException {
+        if (sampleClip == null || targetFormat == null || options == null) {
+            throw new IllegalArgumentException("Sample clip, target format, and options cannot be null");
+        }
+        String normalizedFormat = targetFormat.toUpperCase(Locale.ROOT).trim();
+        MultimediaInfo sampleInfo = MediaProbeCache.getInfo(sampleClip);
+        if (sampleInfo.getVideo() == null) {
+            throw new IllegalArgumentException("Sample clip has no video stream: " + sampleClip);
+        }
+        float sampleSeconds = Math.min(SAMPLE_SECONDS, sampleInfo.getDuration() / 1000f);
+
+        List<VideoCodecMeasurement> measurements = new ArrayList<>();
+        for (VideoCodec codec : availableCodecs(normalizedFormat)) {
+            try {
+                measurements.add(measure(sampleClip, sampleInfo, normalizedFormat, options.withCodec(codec),
+                        sampleSeconds, cancellation));
+            } catch (IllegalArgumentException | EncoderException | IOException e) {
+                LOGGER.warning("Leaving " + codec + " out of the calibration: " + e.getMessage());
+            }
+        }
+        return measurements;
+    }
+
+    /**
+     * Picks the fastest encoder that meets both targets.
+     *
+     * @param measurements     results of {@link #calibrate}
+     * @param minSsim          lowest acceptable SSIM, or 0 for no quality target
+     * @param maxBitsPerSecond highest acceptable bitrate, or 0 for no size target
+     * @return the fastest qualifying measurement, or empty if none qualifies
+     */
+    public static Optional<VideoCodecMeasurement> selectFastest(List<VideoCodecMeasurement> measurements,
+                                                               double minSsim, long maxBitsPerSecond) {
+        return measurements.stream()
+                // An unmeasured SSIM never meets a quality target
+                .filter(measurement -> minSsim <= 0 || measurement.ssim() >= minSsim)
+                .filter(measurement -> maxBitsPerSecond <= 0 || measurement.bitsPerSecond() <= maxBitsPerSecond)
+                .max(Comparator.comparingDouble(VideoCodecMeasurement::framesPerSecond));
+    }
+
+    /**
+     * Encodes the sample with one codec and measures the result.
+     *
+     * @param sampleClip    source clip
+     * @param sampleInfo    probed info of the clip
+     * @param targetFormat  normalized container format
+     * @param options       options naming the codec to measure
+     * @param sampleSeconds length of the sample
+     * @param cancellation  token stopping the encode (may be null)
+     * @return the measurement
+     * @throws EncoderException if the encode fails
+     * @throws IOException      if the temporary output cannot be created or the SSIM pass fails
+     */
+    private static VideoCodecMeasurement measure(File sampleClip, MultimediaInfo sampleInfo, String targetFormat,
+                                                 VideoEncodingOptions options, float sampleSeconds,
+                                                 CancellationToken cancellation)
+            throws EncoderException, IOException {
+        EncodingAttributes settings = VideoConverter.createTranscodeSettings(sampleInfo, targetFormat, options);
+        // Only the video encoders are compared
+        settings.setAudioAttributes(null);
+        settings.setDuration(sampleSeconds);
+        int frameRate = settings.getVideoAttributes().flatMap(VideoAttributes::getFrameRate).orElseThrow();
+
+        Path encoded = Files.createTempFile("truinconv-calibration", "." + targetFormat.toLowerCase(Locale.ROOT));
+        try {
+            long startTime = System.nanoTime();
+            CancellableEncode.encode(new Encoder(), MediaProbeCache.mediaObject(sampleClip), encoded.toFile(),
+                    settings, null, cancellation);
+            double encodeSeconds = (System.nanoTime() - startTime) / 1e9;
+
+            return new VideoCodecMeasurement(options.codec(), sampleSeconds * frameRate / encodeSeconds,
+                    Math.round(Files.size(encoded) * 8 / sampleSeconds),
+                    measureSsim(encoded, sampleClip, sampleSeconds));
+        } finally {
+            Files.deleteIfExists(encoded);
+        }
+    }
+
+    /**
+     * Compares an encoded sample with the same span of its source using ffmpeg's ssim filter.
+     *
+     * @param encoded       encoded sample
+     * @param sampleClip    source clip
+     * @param sampleSeconds length of the sample
+     * @return average SSIM over all planes, or NaN if ffmpeg did not report it
+     * @throws IOException if ffmpeg fails
+     */
+    private static double measureSsim(Path encoded, File sampleClip, float sampleSeconds) throws IOException {
+        List<String> log = FfmpegCommand.run(List.of(
+                "-i", encoded.toString(),
+                "-t", Float.toString(sampleSeconds), "-i", sampleClip.getAbsolutePath(),
+                "-lavfi", "[0:v][1:v]ssim", "-f", "null", "-"), null);
+        for (int i = log.size() - 1; i >= 0; i--) {
+            Matcher matcher = SSIM_SUMMARY.matcher(log.get(i));
+            if (matcher.find()) {
+                return Double.parseDouble(matcher.group(1));
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+/**
+ * Speed, size and quality of one encoder on a calibration sample.
+ *
+ * @param codec           the codec measured
+ * @param framesPerSecond frames encoded per wall-clock second
+ * @param bitsPerSecond   bitrate of the encoded sample
+ * @param ssim            structural similarity of the encoded sample to the source, from 0 to 1
+ *                        where 1 is identical; NaN if ffmpeg did not report it
+ */
+public record VideoCodecMeasurement(VideoCodec codec, double framesPerSecond, long bitsPerSecond, double ssim) {
+}
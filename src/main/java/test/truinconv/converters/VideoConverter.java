@@ -17,16 +17,34 @@ import ws.schild.jave.info.AudioInfo;
 import ws.schild.jave.info.MultimediaInfo;
 import ws.schild.jave.info.VideoInfo;
 import ws.schild.jave.info.VideoSize;
+import ws.schild.jave.progress.EncoderProgressListener;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * High-quality video converter that preserves original quality.
  * <p>
+ * When the source's video and audio codecs are legal in the target container, the
+ * streams are remuxed without re-encoding; otherwise they are transcoded, by default
+ * with H.264 (VP8 for WEBM), or with the {@link VideoCodec} the options request.
+ * Options with several segments split long transcodes into time segments encoded in
+ * parallel (see {@link SegmentedVideoEncoder}).
+ * <p>
  * Supported video formats: MP4, AVI, MKV, MOV, WEBM
  */
 public final class VideoConverter {
+    private static final Logger LOGGER = Logger.getLogger(VideoConverter.class.getName());
+
     private static final int FALLBACK_AUDIO_BITRATE      = 192000;
     private static final int FALLBACK_AUDIO_SAMPLE_RATE  = 48000;
     private static final int FALLBACK_AUDIO_CHANNELS     = 2;
@@ -37,7 +55,29 @@ public final class VideoConverter {
     private static final int MIN_AUDIO_BITRATE           = 128000;
     private static final int WEBM_MIN_BITRATE            = 1000000;
     private static final int WEBM_MAX_BITRATE            = 8000000;
+    private static final long MIN_SEGMENT_MILLIS         = 30000;  // shorter segments cost more to start than they save
+    private static final long DURATION_ROUNDING_MILLIS   = 10;     // probe reports durations in centiseconds
     private static final Set<String> VIDEO_FORMATS = Set.of("MP4", "AVI", "MKV", "MOV", "WEBM");
+    private static final String OPUS_CODEC               = "libopus";
+    private static final int OPUS_SAMPLE_RATE            = 48000;  // highest rate libopus accepts
+    private static final int OPUS_MAX_CHANNEL_BITRATE    = 256000; // libopus refuses more per channel
+    private static final String HEVC_APPLE_TAG           = "hvc1";
+
+    // ffmpeg decoder names each container can carry as-is
+    private static final Map<String, Set<String>> COPYABLE_VIDEO_CODECS = Map.of(
+            "MP4", Set.of("h264", "hevc", "mpeg4", "av1", "vp9"),
+            "MOV", Set.of("h264", "hevc", "mpeg4", "prores", "mjpeg"),
+            "MKV", Set.of("h264", "hevc", "mpeg4", "mpeg2video", "vp8", "vp9", "av1", "theora"),
+            "AVI", Set.of("h264", "mpeg4", "mjpeg", "msmpeg4v3"),
+            "WEBM", Set.of("vp8", "vp9", "av1")
+    );
+    private static final Map<String, Set<String>> COPYABLE_AUDIO_CODECS = Map.of(
+            "MP4", Set.of("aac", "mp3", "ac3", "eac3", "alac", "opus"),
+            "MOV", Set.of("aac", "mp3", "ac3", "alac", "pcm_s16le", "pcm_s24le"),
+            "MKV", Set.of("aac", "mp3", "ac3", "eac3", "dts", "flac", "opus", "vorbis", "pcm_s16le"),
+            "AVI", Set.of("mp3", "ac3", "pcm_s16le"),
+            "WEBM", Set.of("opus", "vorbis")
+    );
 
     // Prevent instantiation
     private VideoConverter() {
@@ -53,57 +93,464 @@ public final class VideoConverter {
      * @throws EncoderException if conversion fails
      */
     public static void convert(File inputFile, File outputFile, String targetFormat) throws EncoderException {
-        if (inputFile == null || outputFile == null || targetFormat == null) {
-            throw new IllegalArgumentException("Input file, output file, and target format cannot be null");
+        convert(inputFile, outputFile, targetFormat, VideoEncodingOptions.DEFAULT, null, null);
+    }
+
+    /**
+     * Converts a video file to the specified format while preserving original quality,
+     * encoding with the given options, reporting the progress of the encode as it runs and
+     * stopping it if the token is cancelled.
+     *
+     * @param inputFile        source video file
+     * @param outputFile       destination file for converted video
+     * @param targetFormat     desired output format (case-insensitive)
+     * @param options          encoder codec, preset, CRF, threads and segment count, applied when the
+     *                         video is transcoded
+     * @param progressListener receives the source info and per-mille progress of the encode (may be null)
+     * @param cancellation     token stopping the encode (may be null); the output is partial once cancelled
+     * @throws EncoderException if conversion fails
+     * @throws CancellationException if the token was cancelled
+     */
+    public static void convert(File inputFile, File outputFile, String targetFormat, VideoEncodingOptions options,
+                               EncoderProgressListener progressListener, CancellationToken cancellation)
+            throws EncoderException {
+        if (inputFile == null || outputFile == null || targetFormat == null || options == null) {
+            throw new IllegalArgumentException("Input file, output file, target format, and options cannot be null");
         }
         String normalizedFormat = targetFormat.toUpperCase().trim();
         if (!VIDEO_FORMATS.contains(normalizedFormat)) {
             throw new IllegalArgumentException("Unsupported video format: " + targetFormat);
         }
 
-        MultimediaObject sourceMedia = new MultimediaObject(inputFile);
-        EncodingAttributes encodingSettings = createQualityPreservingSettings(sourceMedia, normalizedFormat);
+        MultimediaObject sourceMedia = MediaProbeCache.mediaObject(inputFile);
+        EncodingAttributes encodingSettings = createQualityPreservingSettings(sourceMedia, normalizedFormat, options);
+        if (options.segments() > 1 && !isStreamCopy(encodingSettings)) {
+            convertSegmented(inputFile, sourceMedia, outputFile, normalizedFormat, encodingSettings, options,
+                    progressListener, cancellation);
+            return;
+        }
 
         Encoder encoder = new Encoder();
-        encoder.encode(sourceMedia, outputFile, encodingSettings);
+        try {
+            CancellableEncode.encode(encoder, sourceMedia, outputFile, encodingSettings,
+                    progressListener, cancellation);
+        } catch (EncoderException e) {
+            if (!isStreamCopy(encodingSettings)) {
+                throw e;
+            }
+            // Legal codecs can still fail to remux, e.g. on broken timestamps
+            LOGGER.log(Level.INFO, "Stream copy failed, transcoding " + inputFile, e);
+            CancellableEncode.encode(new Encoder(), sourceMedia, outputFile,
+                    createTranscodeSettings(sourceMedia.getInfo(), normalizedFormat, options),
+                    progressListener, cancellation);
+        }
+    }
+
+    /**
+     * Encodes a video by cutting it into time segments, encoding them in parallel ffmpeg
+     * processes and joining them losslessly. The joined output must match the source's
+     * duration to within two frames; otherwise, or if any segment fails, the file is encoded
+     * in a single pass. Sources without video, or too short to split, are encoded in a single
+     * pass directly.
+     *
+     * @param inputFile        source video file
+     * @param sourceMedia      probed source
+     * @param outputFile       destination file for converted video
+     * @param targetFormat     normalized target format
+     * @param encodingSettings transcoding settings for the whole file
+     * @param options          encoder options; the segment count and thread budget apply here
+     * @param progressListener receives the source info and per-mille progress of the encode (may be null)
+     * @param cancellation     token stopping the encode (may be null); the output is partial once cancelled
+     * @throws EncoderException      if conversion fails
+     * @throws CancellationException if the token was cancelled or the thread interrupted
+     */
+    private static void convertSegmented(File inputFile, MultimediaObject sourceMedia, File outputFile,
+                                         String targetFormat, EncodingAttributes encodingSettings,
+                                         VideoEncodingOptions options, EncoderProgressListener progressListener,
+                                         CancellationToken cancellation) throws EncoderException {
+        MultimediaInfo originalInfo = sourceMedia.getInfo();
+        long durationMillis = originalInfo.getDuration();
+        int segmentCount = (int) Math.min(options.segments(), durationMillis / MIN_SEGMENT_MILLIS);
+        if (segmentCount >= 2 && originalInfo.getVideo() != null) {
+            if (cancellation != null) {
+                cancellation.throwIfCancelled();
+            }
+            if (progressListener != null) {
+                progressListener.sourceInfo(originalInfo);
+            }
+            // The segments' processes share the thread budget a single-pass encode would have had
+            int threadBudget = options.threads() > 0 ? options.threads() : Runtime.getRuntime().availableProcessors();
+            SegmentedVideoEncoder segmentedEncoder = new SegmentedVideoEncoder(inputFile, encodingSettings,
+                    Math.max(1, threadBudget / segmentCount), progressListener);
+            CancellationToken.Registration stopOnCancel =
+                    cancellation == null ? null : cancellation.onCancel(segmentedEncoder::stop);
+            try {
+                segmentedEncoder.encode(outputFile, FfmpegCommand.getMuxerName(targetFormat),
+                        durationMillis, segmentCount);
+
+                long outputMillis = new MultimediaObject(outputFile).getInfo().getDuration();
+                if (Math.abs(outputMillis - durationMillis) <= getDurationTolerance(encodingSettings)) {
+                    return;
+                }
+                LOGGER.warning("Segmented output of " + inputFile + " lasts " + outputMillis
+                        + " ms instead of " + durationMillis + " ms, encoding in one pass");
+            } catch (IOException | EncoderException e) {
+                // A cancel destroys the processes, which surfaces as a failed segment
+                if (cancellation != null) {
+                    cancellation.throwIfCancelled();
+                }
+                LOGGER.log(Level.WARNING, "Segmented encoding failed, encoding in one pass: " + inputFile, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while encoding segments of " + inputFile);
+            } finally {
+                if (stopOnCancel != null) {
+                    stopOnCancel.close();
+                }
+            }
+        }
+        // Same path as a regular transcode, so the encoder options JAVE has no attribute for are kept
+        CancellableEncode.encode(new Encoder(), sourceMedia, outputFile, encodingSettings,
+                progressListener, cancellation);
+    }
+
+    /**
+     * Converts a video file to several formats with a single ffmpeg invocation that decodes
+     * the source once and writes every output. If that invocation fails, each target is
+     * converted separately.
+     *
+     * @param inputFile           source video file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @throws EncoderException if conversion fails
+     * @throws IllegalArgumentException if any argument is null or a format unsupported
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat) throws EncoderException {
+        convert(inputFile, outputFilesByFormat, VideoEncodingOptions.DEFAULT, null, null);
+    }
+
+    /**
+     * Converts a video file to several formats with a single ffmpeg invocation that decodes
+     * the source once and writes every output, encoding with the given options, reporting its
+     * progress and stopping it if the token is cancelled. If that invocation fails, each
+     * target is converted separately. The segment count of the options only applies to a
+     * single target, since one process already encodes several outputs in parallel.
+     *
+     * @param inputFile           source video file
+     * @param outputFilesByFormat destination file for each desired output format
+     * @param options             encoder codec, preset, CRF and threads, applied where the video is transcoded
+     * @param progressListener    receives the source info and per-mille progress of the encode (may be null)
+     * @param cancellation        token stopping the encode (may be null); the outputs are partial once cancelled
+     * @throws EncoderException if conversion fails
+     * @throws CancellationException if the token was cancelled
+     * @throws IllegalArgumentException if any argument is null or a format unsupported
+     */
+    public static void convert(File inputFile, Map<String, File> outputFilesByFormat, VideoEncodingOptions options,
+                               EncoderProgressListener progressListener, CancellationToken cancellation)
+            throws EncoderException {
+        if (inputFile == null || outputFilesByFormat == null || outputFilesByFormat.isEmpty() || options == null) {
+            throw new IllegalArgumentException("Input file, options and at least one target format are required");
+        }
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            if (target.getKey() == null || target.getValue() == null) {
+                throw new IllegalArgumentException("Output file and target format cannot be null");
+            }
+            if (!VIDEO_FORMATS.contains(target.getKey().toUpperCase().trim())) {
+                throw new IllegalArgumentException("Unsupported video format: " + target.getKey());
+            }
+        }
+        if (outputFilesByFormat.size() == 1) {
+            Map.Entry<String, File> target = outputFilesByFormat.entrySet().iterator().next();
+            convert(inputFile, target.getValue(), target.getKey(), options, progressListener, cancellation);
+            return;
+        }
+
+        MultimediaObject sourceMedia = MediaProbeCache.mediaObject(inputFile);
+        List<String> arguments = new ArrayList<>(List.of("-i", inputFile.getAbsolutePath()));
+        for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+            EncodingAttributes encodingSettings = createQualityPreservingSettings(
+                    sourceMedia, target.getKey().toUpperCase().trim(), options);
+            FfmpegCommand.appendOutput(arguments, encodingSettings, target.getValue());
+        }
+
+        try {
+            CancellableEncode.run(arguments, sourceMedia.getInfo(), progressListener, cancellation);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Multi-output encoding failed, converting each target separately: "
+                    + inputFile, e);
+            for (Map.Entry<String, File> target : outputFilesByFormat.entrySet()) {
+                convert(inputFile, target.getValue(), target.getKey(), options, progressListener, cancellation);
+            }
+        }
+    }
+
+    /**
+     * Describes the effective encoding settings {@link #convert} would use for a file.
+     *
+     * @param inputFile    source video file
+     * @param targetFormat desired output format (case-insensitive)
+     * @return deterministic description of the encoding settings
+     * @throws EncoderException if retrieving media info fails
+     * @throws IllegalArgumentException if any argument is null or format unsupported
+     */
+    public static String describeSettings(File inputFile, String targetFormat) throws EncoderException {
+        return describeSettings(inputFile, targetFormat, VideoEncodingOptions.DEFAULT);
     }
 
     /**
-     * Builds encoding settings that preserve the original file's quality.
+     * Describes the effective encoding settings {@link #convert} would use for a file
+     * with the given encoder options.
+     *
+     * @param inputFile    source video file
+     * @param targetFormat desired output format (case-insensitive)
+     * @param options      encoder codec, preset, CRF and threads
+     * @return deterministic description of the encoding settings
+     * @throws EncoderException if retrieving media info fails
+     * @throws IllegalArgumentException if any argument is null, format unsupported or CRF out of the codec's range
+     */
+    public static String describeSettings(File inputFile, String targetFormat, VideoEncodingOptions options)
+            throws EncoderException {
+        if (inputFile == null || targetFormat == null || options == null) {
+            throw new IllegalArgumentException("Input file, target format, and options cannot be null");
+        }
+        String normalizedFormat = targetFormat.toUpperCase().trim();
+        if (!VIDEO_FORMATS.contains(normalizedFormat)) {
+            throw new IllegalArgumentException("Unsupported video format: " + targetFormat);
+        }
+
+        MultimediaObject sourceMedia = MediaProbeCache.mediaObject(inputFile);
+        return EncodingFingerprint.describe(createQualityPreservingSettings(sourceMedia, normalizedFormat, options));
+    }
+
+    /**
+     * Checks whether {@link #convert} would remux a file into the target format without
+     * re-encoding, in which case encoder options have no effect.
+     *
+     * @param inputFile    source video file
+     * @param targetFormat desired output format (case-insensitive)
+     * @return true if every stream of the file can be copied into the target container
+     * @throws EncoderException if retrieving media info fails
+     * @throws IllegalArgumentException if any argument is null or format unsupported
+     */
+    public static boolean canRemux(File inputFile, String targetFormat) throws EncoderException {
+        if (inputFile == null || targetFormat == null) {
+            throw new IllegalArgumentException("Input file and target format cannot be null");
+        }
+        String normalizedFormat = targetFormat.toUpperCase().trim();
+        if (!VIDEO_FORMATS.contains(normalizedFormat)) {
+            throw new IllegalArgumentException("Unsupported video format: " + targetFormat);
+        }
+        return canStreamCopy(MediaProbeCache.getInfo(inputFile), normalizedFormat, VideoEncodingOptions.DEFAULT);
+    }
+
+    /**
+     * Builds encoding settings that preserve the original file's quality, copying the
+     * streams when the target container allows it.
      *
      * @param sourceMedia   multimedia object of the source file
      * @param targetFormat  normalized format string
+     * @param options       encoder options, used if the streams must be transcoded
      * @return configured encoding attributes
      * @throws EncoderException if media info retrieval fails
      */
     private static EncodingAttributes createQualityPreservingSettings(
-            MultimediaObject sourceMedia, String targetFormat) throws EncoderException {
+            MultimediaObject sourceMedia, String targetFormat, VideoEncodingOptions options) throws EncoderException {
+        return createQualityPreservingSettings(sourceMedia.getInfo(), targetFormat, options);
+    }
+
+    /**
+     * Builds encoding settings that preserve the quality of a probed source, copying the
+     * streams when the target container allows it.
+     *
+     * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized format string
+     * @param options      encoder options, used if the streams must be transcoded
+     * @return configured encoding attributes
+     */
+    static EncodingAttributes createQualityPreservingSettings(MultimediaInfo originalInfo, String targetFormat,
+                                                              VideoEncodingOptions options) {
+        if (canStreamCopy(originalInfo, targetFormat, options)) {
+            return createStreamCopySettings(originalInfo, targetFormat);
+        }
+        return createTranscodeSettings(originalInfo, targetFormat, options);
+    }
+
+    /**
+     * Checks whether every stream of the source can be carried into the target container unchanged,
+     * and the video is already in the codec the options request, if they request one.
+     *
+     * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized format string
+     * @param options      encoder options naming the requested codec, if any
+     * @return true if the file can be remuxed without re-encoding
+     */
+    static boolean canStreamCopy(MultimediaInfo originalInfo, String targetFormat, VideoEncodingOptions options) {
+        VideoInfo originalVideo = originalInfo.getVideo();
+        if (originalVideo == null) {
+            return false;
+        }
+        String videoCodec = codecName(originalVideo.getDecoder());
+        if (!COPYABLE_VIDEO_CODECS.get(targetFormat).contains(videoCodec)
+                || (options.codec() != null && !options.codec().decoderName().equals(videoCodec))) {
+            return false;
+        }
+        AudioInfo originalAudio = originalInfo.getAudio();
+        return originalAudio == null
+                || COPYABLE_AUDIO_CODECS.get(targetFormat).contains(codecName(originalAudio.getDecoder()));
+    }
+
+    /**
+     * Extracts the codec name from an ffmpeg decoder description such as
+     * {@code "h264 (High) (avc1 / 0x31637661)"}.
+     *
+     * @param decoder decoder description reported by the probe (may be null)
+     * @return lower-case codec name, or an empty string if unknown
+     */
+    static String codecName(String decoder) {
+        if (decoder == null) {
+            return "";
+        }
+        String trimmed = decoder.trim();
+        int spaceIndex = trimmed.indexOf(' ');
+        return (spaceIndex < 0 ? trimmed : trimmed.substring(0, spaceIndex)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builds settings that remux the source streams without re-encoding.
+     *
+     * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized format string
+     * @return encoding attributes copying every stream
+     */
+    private static EncodingAttributes createStreamCopySettings(MultimediaInfo originalInfo, String targetFormat) {
+        EncodingAttributes encodingSettings = new EncodingAttributes();
+
+        VideoAttributes videoSettings = new VideoAttributes();
+        videoSettings.setCodec(VideoAttributes.DIRECT_STREAM_COPY);
+        encodingSettings.setVideoAttributes(videoSettings);
+
+        if (originalInfo.getAudio() != null) {
+            AudioAttributes audioSettings = new AudioAttributes();
+            audioSettings.setCodec(AudioAttributes.DIRECT_STREAM_COPY);
+            encodingSettings.setAudioAttributes(audioSettings);
+        }
+
+        encodingSettings.setOutputFormat(FfmpegCommand.getMuxerName(targetFormat));
+        return encodingSettings;
+    }
+
+    /**
+     * Checks whether settings remux the video stream rather than encode it.
+     *
+     * @param encodingSettings settings to inspect
+     * @return true for stream-copy settings
+     */
+    private static boolean isStreamCopy(EncodingAttributes encodingSettings) {
+        return encodingSettings.getVideoAttributes()
+                .flatMap(VideoAttributes::getCodec)
+                .filter(VideoAttributes.DIRECT_STREAM_COPY::equals)
+                .isPresent();
+    }
+
+    /**
+     * Builds settings that re-encode the source with quality-preserving parameters.
+     *
+     * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized format string
+     * @param options      encoder codec, preset, CRF and threads
+     * @return configured encoding attributes
+     * @throws IllegalArgumentException if the container cannot carry the requested codec or the CRF
+     *                                  is outside the codec's range
+     */
+    static EncodingAttributes createTranscodeSettings(MultimediaInfo originalInfo, String targetFormat,
+                                                      VideoEncodingOptions options) {
         EncodingAttributes encodingSettings = new EncodingAttributes();
-        MultimediaInfo originalInfo = sourceMedia.getInfo();
 
-        VideoAttributes videoSettings = createQualityPreservingVideoSettings(originalInfo, targetFormat);
+        VideoCodec codec = options.codecFor(targetFormat);
+        VideoAttributes videoSettings = createQualityPreservingVideoSettings(originalInfo, targetFormat, codec);
         encodingSettings.setVideoAttributes(videoSettings);
+        applyEncoderOptions(encodingSettings, videoSettings, codec, targetFormat, options);
 
         if (originalInfo.getAudio() != null) {
-            AudioAttributes audioSettings = createQualityPreservingAudioSettings(originalInfo);
+            AudioAttributes audioSettings = createQualityPreservingAudioSettings(originalInfo, targetFormat);
             encodingSettings.setAudioAttributes(audioSettings);
         }
 
-        encodingSettings.setOutputFormat(targetFormat.toLowerCase());
+        encodingSettings.setOutputFormat(FfmpegCommand.getMuxerName(targetFormat));
         return encodingSettings;
     }
 
+    /**
+     * Applies the preset, CRF and thread count to transcoding settings, in the terms of
+     * the selected encoder.
+     *
+     * @param encodingSettings settings receiving the thread count and extra encoder options
+     * @param videoSettings    video settings of the codec
+     * @param codec            codec the video is encoded with
+     * @param targetFormat     normalized format string
+     * @param options          encoder options to apply
+     * @throws IllegalArgumentException if the CRF is outside the encoder's range
+     */
+    private static void applyEncoderOptions(EncodingAttributes encodingSettings, VideoAttributes videoSettings,
+                                            VideoCodec codec, String targetFormat, VideoEncodingOptions options) {
+        VideoEncoderPreset preset = options.preset();
+        Map<String, String> extraOptions = new HashMap<>();
+        // The default preset passes nothing, leaving every encoder at its own default speed
+        if (!preset.usesEncoderDefaults()) {
+            switch (codec) {
+                case H264, HEVC -> videoSettings.setPreset(preset.x264Name());
+                case AV1_SVT -> videoSettings.setPreset(Integer.toString(preset.svtAv1Preset()));
+                case VP8, VP9 -> {
+                    extraOptions.put(FfmpegCommand.DEADLINE_OPTION, preset.vpxDeadline());
+                    extraOptions.put(FfmpegCommand.CPU_USED_OPTION, Integer.toString(preset.vpxCpuUsed()));
+                }
+                case AV1_AOM -> {
+                    extraOptions.put(FfmpegCommand.USAGE_OPTION, preset.aomUsage());
+                    extraOptions.put(FfmpegCommand.CPU_USED_OPTION, Integer.toString(preset.vpxCpuUsed()));
+                }
+            }
+        }
+        if (codec == VideoCodec.VP9 || codec == VideoCodec.AV1_AOM) {
+            // Both encoders only spread a frame across threads row by row when asked to
+            extraOptions.put(FfmpegCommand.ROW_MT_OPTION, "1");
+        }
+        if (codec == VideoCodec.HEVC && !"MKV".equals(targetFormat)) {
+            // Apple players only accept HEVC in MP4 and MOV under this sample entry
+            videoSettings.setTag(HEVC_APPLE_TAG);
+        }
+        if (!extraOptions.isEmpty()) {
+            encodingSettings.setExtraContext(extraOptions);
+        }
+
+        Integer crf = options.crf();
+        if (crf != null) {
+            if (crf > codec.maxCrf()) {
+                throw new IllegalArgumentException(
+                        "CRF must be between 0 and " + codec.maxCrf() + " for " + codec.encoderName() + ": " + crf);
+            }
+            videoSettings.setCrf(crf);
+            if (codec != VideoCodec.VP8 && codec != VideoCodec.VP9 && codec != VideoCodec.AV1_AOM) {
+                // Constant quality; a bitrate would switch these encoders back to average-bitrate mode.
+                // libvpx and libaom keep it as the ceiling of their constrained-quality mode.
+                videoSettings.setBitRate(null);
+            }
+        }
+        if (options.threads() > 0) {
+            encodingSettings.setEncodingThreads(options.threads());
+        }
+    }
+
     /**
      * Configures video encoding settings based on the original video info.
      *
      * @param originalInfo multimedia info of the source file
      * @param videoFormat  target video format
+     * @param codec        codec the video is encoded with
      * @return video attributes configured for quality preservation
      */
     private static VideoAttributes createQualityPreservingVideoSettings(
-            MultimediaInfo originalInfo, String videoFormat) {
+            MultimediaInfo originalInfo, String videoFormat, VideoCodec codec) {
         VideoAttributes videoSettings = new VideoAttributes();
-        videoSettings.setCodec(getVideoCodec(videoFormat));
+        videoSettings.setCodec(codec.encoderName());
 
         VideoInfo originalVideo = originalInfo.getVideo();
         if (originalVideo != null) {
@@ -111,7 +558,7 @@ public final class VideoConverter {
             if (originalSize != null) {
                 videoSettings.setSize(originalSize);
             }
-            int safeBitrate = calculateSafeBitrate(originalVideo, videoFormat);
+            int safeBitrate = calculateSafeBitrate(originalVideo, videoFormat, codec);
             videoSettings.setBitRate(safeBitrate);
 
             Float originalFrameRate = originalVideo.getFrameRate();
@@ -129,22 +576,29 @@ public final class VideoConverter {
     }
 
     /**
-     * Configures audio encoding settings based on the original audio info.
+     * Configures audio encoding settings based on the original audio info. WEBM only carries
+     * Opus or Vorbis, so it gets Opus at 48 kHz; other containers get AAC at the source's rate.
      *
      * @param originalInfo multimedia info of the source file
+     * @param targetFormat normalized format string
      * @return audio attributes configured for quality preservation
      */
-    private static AudioAttributes createQualityPreservingAudioSettings(MultimediaInfo originalInfo) {
+    private static AudioAttributes createQualityPreservingAudioSettings(MultimediaInfo originalInfo,
+                                                                        String targetFormat) {
+        boolean opus = "WEBM".equals(targetFormat);
         AudioAttributes audioSettings = new AudioAttributes();
-        audioSettings.setCodec("aac");
+        audioSettings.setCodec(opus ? OPUS_CODEC : "aac");
 
         AudioInfo originalAudio = originalInfo.getAudio();
         if (originalAudio != null) {
             Integer originalBitrate = originalAudio.getBitRate();
-            audioSettings.setBitRate(
-                    originalBitrate >= MIN_AUDIO_BITRATE ? originalBitrate : FALLBACK_AUDIO_BITRATE
-            );
-            audioSettings.setSamplingRate(originalAudio.getSamplingRate());
+            int bitrate = originalBitrate >= MIN_AUDIO_BITRATE ? originalBitrate : FALLBACK_AUDIO_BITRATE;
+            if (opus) {
+                // Uncompressed sources exceed what libopus can encode, e.g. 768 kbit/s for 48 kHz mono PCM
+                bitrate = Math.min(bitrate, OPUS_MAX_CHANNEL_BITRATE * Math.max(1, originalAudio.getChannels()));
+            }
+            audioSettings.setBitRate(bitrate);
+            audioSettings.setSamplingRate(opus ? OPUS_SAMPLE_RATE : originalAudio.getSamplingRate());
             audioSettings.setChannels(originalAudio.getChannels());
         } else {
             audioSettings.setBitRate(FALLBACK_AUDIO_BITRATE);
@@ -156,16 +610,32 @@ public final class VideoConverter {
     }
 
     /**
-     * Determines a safe video bitrate within defined thresholds.
+     * Returns the accepted difference between source and output duration: two frame
+     * intervals plus the probe's rounding.
+     *
+     * @param encodingSettings settings the output was encoded with
+     * @return tolerance in milliseconds
+     */
+    private static long getDurationTolerance(EncodingAttributes encodingSettings) {
+        int frameRate = encodingSettings.getVideoAttributes()
+                .flatMap(VideoAttributes::getFrameRate)
+                .orElse(FALLBACK_VIDEO_FRAME_RATE);
+        return 2000L / frameRate + DURATION_ROUNDING_MILLIS;
+    }
+
+    /**
+     * Determines a safe video bitrate within defined thresholds, scaled down for codecs
+     * that reach the same quality with fewer bits.
      *
      * @param originalVideo info about the original video track
      * @param videoFormat   target format (e.g., WEBM applies special limits)
+     * @param codec         codec the video is encoded with
      * @return clamped bitrate value
      */
-    private static int calculateSafeBitrate(VideoInfo originalVideo, String videoFormat) {
+    private static int calculateSafeBitrate(VideoInfo originalVideo, String videoFormat, VideoCodec codec) {
         int originalBitrate = originalVideo.getBitRate();
         if (originalBitrate <= 0) {
-            return FALLBACK_VIDEO_BITRATE;
+            return (int) (FALLBACK_VIDEO_BITRATE * codec.bitrateFactor());
         }
 
         int minBitrate = MIN_VIDEO_BITRATE;
@@ -174,20 +644,6 @@ public final class VideoConverter {
             minBitrate = WEBM_MIN_BITRATE;
             maxBitrate = WEBM_MAX_BITRATE;
         }
-        return Math.max(minBitrate, Math.min(maxBitrate, originalBitrate));
-    }
-
-    /**
-     * Selects an appropriate codec for the given format.
-     *
-     * @param videoFormat target format identifier
-     * @return codec name for encoding
-     */
-    private static String getVideoCodec(String videoFormat) {
-        return switch (videoFormat.toUpperCase()) {
-            case "MP4", "AVI", "MKV", "MOV" -> "libx264";
-            case "WEBM" -> "libvpx";
-            default -> throw new IllegalArgumentException("Unsupported video format: " + videoFormat);
-        };
+        return (int) (Math.max(minBitrate, Math.min(maxBitrate, originalBitrate)) * codec.bitrateFactor());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import java.util.Locale;
+
+/**
+ * Named trade-offs between video encode speed and output size, using the x264 preset names.
+ * <p>
+ * Slower presets search harder for good predictions, so at the same quality target they
+ * produce smaller files. For libx264 and libx265 the preset is passed through as
+ * {@code -preset}. libvpx has no presets, so each one maps to a {@code -deadline} mode and a
+ * {@code -cpu-used} speed step of comparable effort; libaom takes the same speed step with
+ * its {@code -usage} mode. SVT-AV1 numbers its presets from 0 (slowest) to 13, and the
+ * names map onto 12 down to 4, the range where each step still pays for itself.
+ * {@link #MEDIUM}, the default, passes no speed options at all, so every encoder runs at its
+ * own default: x264 medium, and libvpx good mode at the speed step of the ffmpeg build.
+ * <p>
+ * {@code VideoPresetBenchmark} in the CLI package measures the frames per second and
+ * output size of every preset on a clip.
+ */
+public enum VideoEncoderPreset {
+    /** Fastest x264 preset; libvpx realtime mode at its top speed step; SVT-AV1 preset 12. */
+    ULTRAFAST("realtime", 8, 12),
+    /** x264 superfast; libvpx good mode, speed step 5; SVT-AV1 preset 11. */
+    SUPERFAST("good", 5, 11),
+    /** x264 veryfast; libvpx good mode, speed step 4; SVT-AV1 preset 10. */
+    VERYFAST("good", 4, 10),
+    /** x264 faster; libvpx good mode, speed step 3; SVT-AV1 preset 9. */
+    FASTER("good", 3, 9),
+    /** x264 fast; libvpx good mode, speed step 2; SVT-AV1 preset 8. */
+    FAST("good", 2, 8),
+    /** Each encoder's own default speed; no speed options are passed. */
+    MEDIUM(null, -1, -1),
+    /** x264 slow; libvpx good mode, speed step 0; SVT-AV1 preset 6. */
+    SLOW("good", 0, 6),
+    /** x264 slower; libvpx best mode, speed step 1; SVT-AV1 preset 5. */
+    SLOWER("best", 1, 5),
+    /** Slowest x264 preset in common use; libvpx best mode, speed step 0; SVT-AV1 preset 4. */
+    VERYSLOW("best", 0, 4);
+
+    private final String vpxDeadline;
+    private final int vpxCpuUsed;
+    private final int svtAv1Preset;
+
+    /**
+     * Defines the libvpx and SVT-AV1 equivalents of a preset.
+     *
+     * @param vpxDeadline  libvpx deadline mode: realtime, good or best (null for encoder defaults)
+     * @param vpxCpuUsed   libvpx speed step; higher is faster (-1 for encoder defaults)
+     * @param svtAv1Preset SVT-AV1 preset number; higher is faster (-1 for encoder defaults)
+     */
+    VideoEncoderPreset(String vpxDeadline, int vpxCpuUsed, int svtAv1Preset) {
+        this.vpxDeadline = vpxDeadline;
+        this.vpxCpuUsed = vpxCpuUsed;
+        this.svtAv1Preset = svtAv1Preset;
+    }
+
+    /**
+     * Parses a preset name, ignoring case.
+     *
+     * @param name preset name, e.g. "veryfast"
+     * @return matching preset
+     * @throws IllegalArgumentException if no preset has that name
+     */
+    public static VideoEncoderPreset fromString(String name) {
+        for (VideoEncoderPreset preset : values()) {
+            if (preset.name().equalsIgnoreCase(name == null ? "" : name.trim())) {
+                return preset;
+            }
+        }
+        throw new IllegalArgumentException("Unknown video encoder preset: " + name);
+    }
+
+    /**
+     * Checks whether this preset leaves every encoder at its default speed, in which case the
+     * encoder-specific values below are not used.
+     *
+     * @return true for {@link #MEDIUM}
+     */
+    boolean usesEncoderDefaults() {
+        return this == MEDIUM;
+    }
+
+    /**
+     * Returns the preset name libx264 and libx265 accept.
+     *
+     * @return lower-case preset name, e.g. "veryfast"
+     */
+    String x264Name() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the libvpx deadline mode of this preset.
+     *
+     * @return "realtime", "good" or "best"
+     */
+    String vpxDeadline() {
+        return vpxDeadline;
+    }
+
+    /**
+     * Returns the libvpx speed step of this preset.
+     *
+     * @return value for {@code -cpu-used}
+     */
+    int vpxCpuUsed() {
+        return vpxCpuUsed;
+    }
+
+    /**
+     * Returns the libaom usage mode of this preset; libaom has no counterpart of libvpx's best mode.
+     *
+     * @return "realtime" or "good"
+     */
+    String aomUsage() {
+        return "realtime".equals(vpxDeadline) ? "realtime" : "good";
+    }
+
+    /**
+     * Returns the SVT-AV1 preset number of this preset.
+     *
+     * @return value for {@code -preset}, from 4 to 12
+     */
+    int svtAv1Preset() {
+        return svtAv1Preset;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+/**
+ * Encoder settings for videos that are transcoded rather than remuxed.
+ * <p>
+ * Without a CRF, rate control stays bitrate-based, with the bitrate derived from the
+ * source. With a CRF, libx264, libx265 and SVT-AV1 encode at constant quality and ignore
+ * the bitrate. libvpx and libaom keep the bitrate as a ceiling, which is their
+ * constrained-quality mode.
+ * <p>
+ * With more than one segment, a transcoded video of at least a minute is cut into that many
+ * time segments, encoded by parallel ffmpeg processes and joined without re-encoding.
+ *
+ * @param preset   speed versus size trade-off of the encoder
+ * @param crf      constant rate factor, lower is better quality (0-51 for libx264 and libx265,
+ *                 0-63 otherwise), or null for bitrate-based rate control
+ * @param threads  encoder threads, or 0 to let ffmpeg choose; shared by the segments' processes
+ * @param codec    video codec, or null for the container's default
+ * @param segments number of segments encoded in parallel, or 1 to encode in a single pass
+ */
+public record VideoEncodingOptions(VideoEncoderPreset preset, Integer crf, int threads, VideoCodec codec,
+                                   int segments) {
+
+    /** Options leaving the encoders at ffmpeg's defaults: medium preset, bitrate-based, automatic threads. */
+    public static final VideoEncodingOptions DEFAULT = new VideoEncodingOptions(VideoEncoderPreset.MEDIUM, null, 0);
+
+    private static final int MAX_CRF = 63;
+
+    /**
+     * Validates the options.
+     *
+     * @throws IllegalArgumentException if preset is null, crf is outside 0-63, threads is negative
+     *                                  or segments is not positive
+     */
+    public VideoEncodingOptions {
+        if (preset == null) {
+            throw new IllegalArgumentException("Video encoder preset cannot be null");
+        }
+        if (crf != null && (crf < 0 || crf > MAX_CRF)) {
+            throw new IllegalArgumentException("CRF must be between 0 and " + MAX_CRF + ": " + crf);
+        }
+        if (threads < 0) {
+            throw new IllegalArgumentException("Thread count cannot be negative: " + threads);
+        }
+        if (segments < 1) {
+            throw new IllegalArgumentException("Segment count must be positive: " + segments);
+        }
+    }
+
+    /**
+     * Creates options that encode with the container's default codec.
+     *
+     * @param preset  speed versus size trade-off of the encoder
+     * @param crf     constant rate factor, or null for bitrate-based rate control
+     * @param threads encoder threads, or 0 to let ffmpeg choose
+     * @throws IllegalArgumentException if preset is null, crf is outside 0-63 or threads is negative
+     */
+    public VideoEncodingOptions(VideoEncoderPreset preset, Integer crf, int threads) {
+        this(preset, crf, threads, null);
+    }
+
+    /**
+     * Creates options that encode in a single pass.
+     *
+     * @param preset  speed versus size trade-off of the encoder
+     * @param crf     constant rate factor, or null for bitrate-based rate control
+     * @param threads encoder threads, or 0 to let ffmpeg choose
+     * @param codec   video codec, or null for the container's default
+     * @throws IllegalArgumentException if preset is null, crf is outside 0-63 or threads is negative
+     */
+    public VideoEncodingOptions(VideoEncoderPreset preset, Integer crf, int threads, VideoCodec codec) {
+        this(preset, crf, threads, codec, 1);
+    }
+
+    /**
+     * Returns these options with another codec.
+     *
+     * @param newCodec video codec, or null for the container's default
+     * @return options differing only in the codec
+     */
+    public VideoEncodingOptions withCodec(VideoCodec newCodec) {
+        return new VideoEncodingOptions(preset, crf, threads, newCodec, segments);
+    }
+
+    /**
+     * Returns these options with another segment count.
+     *
+     * @param newSegments number of segments encoded in parallel, or 1 for a single pass
+     * @return options differing only in the segment count
+     * @throws IllegalArgumentException if newSegments is not positive
+     */
+    public VideoEncodingOptions withSegments(int newSegments) {
+        return new VideoEncodingOptions(preset, crf, threads, codec, newSegments);
+    }
+
+    /**
+     * Returns the codec to encode a container with.
+     *
+     * @param container upper-case container format
+     * @return the requested codec, or the container's default
+     * @throws IllegalArgumentException if the container cannot carry the requested codec
+     */
+    public VideoCodec codecFor(String container) {
+        if (codec == null) {
+            return VideoCodec.defaultFor(container);
+        }
+        if (!codec.supports(container)) {
+            throw new IllegalArgumentException(codec + " video cannot be written to " + container);
+        }
+        return codec;
+    }
+
+    /**
+     * Describes the options deterministically, for keying caches and manifests. The codec and
+     * the segment count are only named when they differ from the defaults, so keys of
+     * single-pass, default-codec outputs stay as they were.
+     *
+     * @return e.g. "preset=MEDIUM,crf=auto,threads=auto" or "preset=FAST,crf=30,threads=auto,codec=VP9,segments=4"
+     */
+    public String describe() {
+        return "preset=" + preset
+                + ",crf=" + (crf == null ? "auto" : crf)
+                + ",threads=" + (threads == 0 ? "auto" : threads)
+                + (codec == null ? "" : ",codec=" + codec)
+                + (segments == 1 ? "" : ",segments=" + segments);
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.watch;
+
+import test.truinconv.batch.BatchConversionEngine;
+import test.truinconv.batch.BatchProgressListener;
+import test.truinconv.batch.ConversionJob;
+import test.truinconv.batch.ConversionOutcome;
+import test.truinconv.constants.ConversionMappings;
+import test.truinconv.model.ConversionCategory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Long-running service that converts files as they arrive in watched directories.
+ * <p>
+ * Directories are watched (non-recursively) with a {@link WatchService}; only the
+ * files named in events are examined, never the whole directory. A file is treated as
+ * fully written once its size and modification time stay unchanged for the settle
+ * delay. Every poll tick gathers all files that settled since the previous tick into
+ * one batch for the {@link BatchConversionEngine}, so bursts of arrivals share the
+ * engine's concurrency budget. Files already present at startup are not converted.
+ */
+public final class WatchFolderService implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(WatchFolderService.class.getName());
+
+    /** Default time a file must stay unchanged before it is converted. */
+    public static final Duration DEFAULT_SETTLE_DELAY = Duration.ofSeconds(1);
+
+    // How often pending files are checked for completion
+    private static final long POLL_INTERVAL_MILLIS = 250;
+    // Number of converted files remembered to ignore duplicate events
+    private static final int RECENTLY_CONVERTED_CAPACITY = 10_000;
+    // Time allowed for in-flight batches to finish on shutdown
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    /**
+     * Last observed state of a file that has not settled yet.
+     */
+    private static final class PendingFile {
+        long size;
+        long lastModified;
+        long lastChangeNanos;
+
+        PendingFile(long size, long lastModified, long lastChangeNanos) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.lastChangeNanos = lastChangeNanos;
+        }
+    }
+
+    /**
+     * Size and modification time of a converted file, used to detect rewrites.
+     */
+    private record FileVersion(long size, long lastModified) {
+    }
+
+    private final String targetFormat;
+    private final File outputDirectory;
+    private final BatchConversionEngine engine;
+    private final BatchProgressListener listener;
+    private final long settleNanos;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final ExecutorService batchDispatcher;
+
+    // Owned by the watch loop thread
+    private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+    private long overflowWatermarkMillis;
+
+    // Updated by dispatcher threads as batches finish
+    private final Map<Path, FileVersion> recentlyConverted = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, FileVersion> eldest) {
+                    return size() > RECENTLY_CONVERTED_CAPACITY;
+                }
+            });
+
+    /**
+     * Creates a service watching the given directories.
+     *
+     * @param inputDirectories directories to watch for new files
+     * @param targetFormat     format new files are converted to
+     * @param outputDirectory  directory receiving converted files
+     * @param engine           engine running the conversions (not closed by this service)
+     * @param listener         receives each finished job (may be null)
+     * @param settleDelay      time a file must stay unchanged before it is converted
+     * @throws IOException              if a directory cannot be watched
+     * @throws IllegalArgumentException if any argument is invalid
+     */
+    public WatchFolderService(List<Path> inputDirectories,
+                              String targetFormat,
+                              File outputDirectory,
+                              BatchConversionEngine engine,
+                              BatchProgressListener listener,
+                              Duration settleDelay) throws IOException {
+        if (inputDirectories == null || inputDirectories.isEmpty()) {
+            throw new IllegalArgumentException("At least one input directory is required");
+        }
+        if (targetFormat == null || targetFormat.trim().isEmpty()) {
+            throw new IllegalArgumentException("Target format cannot be null or empty");
+        }
+        if (outputDirectory == null || engine == null || settleDelay == null) {
+            throw new IllegalArgumentException("Output directory, engine, and settle delay cannot be null");
+        }
+
+        this.targetFormat = targetFormat.toUpperCase(Locale.ROOT).trim();
+        this.outputDirectory = outputDirectory;
+        this.engine = engine;
+        this.listener = listener;
+        this.settleNanos = settleDelay.toNanos();
+        this.overflowWatermarkMillis = System.currentTimeMillis();
+        this.batchDispatcher = Executors.newCachedThreadPool(runnable -> {
+            Thread dispatcher = new Thread(runnable, "watch-batch-dispatcher");
+            dispatcher.setDaemon(true);
+            return dispatcher;
+        });
+
+        this.watchService = inputDirectories.get(0).getFileSystem().newWatchService();
+        try {
+            for (Path directory : inputDirectories) {
+                registerDirectory(directory);
+            }
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Registers a directory for create and modify events.
+     */
+    private void registerDirectory(Path directory) throws IOException {
+        Path absoluteDirectory = directory.toAbsolutePath().normalize();
+        if (!Files.isDirectory(absoluteDirectory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        WatchKey key = absoluteDirectory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirectories.put(key, absoluteDirectory);
+    }
+
+    /**
+     * Watches the directories until {@link #close()} is called or the thread is interrupted.
+     */
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    processEvents(key);
+                    key = watchService.poll();
+                }
+                dispatchSettledFiles();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called; fall through to exit
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records every file named in a key's events as pending.
+     */
+    private void processEvents(WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+        if (directory == null) {
+            key.cancel();
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                recoverFromOverflow(directory, now);
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (findCategory(file).isPresent()) {
+                notePendingChange(file, now);
+            }
+        }
+
+        if (!key.reset()) {
+            LOGGER.warning("Watched directory is no longer accessible: " + directory);
+            watchedDirectories.remove(key);
+        }
+    }
+
+    /**
+     * Updates the pending state of a file after an event.
+     */
+    private void notePendingChange(Path file, long now) {
+        BasicFileAttributes attributes = readAttributes(file);
+        if (attributes == null || !attributes.isRegularFile()) {
+            pendingFiles.remove(file);
+            return;
+        }
+
+        PendingFile pending = pendingFiles.get(file);
+        if (pending == null) {
+            pendingFiles.put(file, new PendingFile(attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), now));
+        } else {
+            pending.size = attributes.size();
+            pending.lastModified = attributes.lastModifiedTime().toMillis();
+            pending.lastChangeNanos = now;
+        }
+    }
+
+    /**
+     * Re-queues files modified since the last overflow, since their events were dropped.
+     * This is the only time a directory listing is read.
+     */
+    private void recoverFromOverflow(Path directory, long now) {
+        LOGGER.warning("Watch events overflowed for " + directory + "; rescanning recent files");
+        long watermark = overflowWatermarkMillis;
+        overflowWatermarkMillis = System.currentTimeMillis();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path file : entries) {
+                BasicFileAttributes attributes = readAttributes(file);
+                if (attributes != null && attributes.isRegularFile()
+                        && attributes.lastModifiedTime().toMillis() >= watermark
+                        && findCategory(file).isPresent()) {
+                    notePendingChange(file, now);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to rescan " + directory, e);
+        }
+    }
+
+    /**
+     * Moves every file that stopped changing into a batch and hands it to the engine.
+     */
+    private void dispatchSettledFiles() {
+        if (pendingFiles.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<ConversionJob> batch = new ArrayList<>();
+        Map<Path, FileVersion> batchVersions = new HashMap<>();
+
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path file = entry.getKey();
+            PendingFile pending = entry.getValue();
+            if (now - pending.lastChangeNanos < settleNanos) {
+                continue;
+            }
+
+            BasicFileAttributes attributes = readAttributes(file);
+            if (attributes == null) {
+                iterator.remove();
+                continue;
+            }
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (size != pending.size || lastModified != pending.lastModified) {
+                // Still being written without emitting events; wait another settle period
+                pending.size = size;
+                pending.lastModified = lastModified;
+                pending.lastChangeNanos = now;
+                continue;
+            }
+
+            iterator.remove();
+            FileVersion version = new FileVersion(size, lastModified);
+            if (version.equals(recentlyConverted.get(file))) {
+                continue;
+            }
+            ConversionCategory category = findCategory(file).orElseThrow();
+            File inputFile = file.toFile();
+            File outputFile = BatchConversionEngine.resolveOutputFile(inputFile, outputDirectory, targetFormat);
+            batch.add(new ConversionJob(inputFile, outputFile, targetFormat, category));
+            batchVersions.put(file, version);
+        }
+
+        if (!batch.isEmpty()) {
+            batchDispatcher.execute(() -> convertBatch(batch, batchVersions));
+        }
+    }
+
+    /**
+     * Runs one batch on the engine and remembers which files were converted.
+     */
+    private void convertBatch(List<ConversionJob> batch, Map<Path, FileVersion> batchVersions) {
+        try {
+            for (ConversionOutcome outcome : engine.convertAll(batch, listener)) {
+                if (!outcome.isFailed()) {
+                    Path file = outcome.job().inputFile().toPath();
+                    recentlyConverted.put(file, batchVersions.get(file));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Watch batch failed", e);
+        }
+    }
+
+    /**
+     * Determines the conversion category for a file, if its extension can reach the target.
+     */
+    private Optional<ConversionCategory> findCategory(Path file) {
+        String fileName = file.getFileName().toString();
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex <= 0 || lastDotIndex == fileName.length() - 1) {
+            return Optional.empty();
+        }
+        return ConversionMappings.findCategory(fileName.substring(lastDotIndex + 1), targetFormat);
+    }
+
+    /**
+     * Reads file attributes, returning null if the file vanished or is unreadable.
+     */
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Cannot stat " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stops watching and waits briefly for in-flight batches to finish.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close watch service", e);
+        }
+
+        batchDispatcher.shutdown();
+        try {
+            if (!batchDispatcher.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                batchDispatcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            batchDispatcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
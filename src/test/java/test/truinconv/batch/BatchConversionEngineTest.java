@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import test.truinconv.converters.CancellationToken;
+import test.truinconv.converters.ImageCompressionPreset;
+import test.truinconv.converters.ImageConverter;
+import test.truinconv.converters.TestMedia;
+import test.truinconv.converters.VideoEncoderPreset;
+import test.truinconv.converters.VideoEncodingOptions;
+import test.truinconv.model.ConversionCategory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks how {@link BatchConversionEngine} runs jobs: jobs converting one source to several
+ * formats are converted together and still report one outcome each, and a cancel or interrupt
+ * stops running encodes, removes their partial output and reports every job as cancelled.
+ */
+class BatchConversionEngineTest {
+
+    private static final long CLIP_MILLIS = 65_000;
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Every job of a source converted to several formats gets its own outcome, in job order,
+     * and an output identical to a conversion of that job alone.
+     */
+    @Test
+    void convertsJobsOfOneSourceTogether() throws Exception {
+        File first = writeImage("first.png");
+        File second = writeImage("second.png");
+        List<ConversionJob> jobs = List.of(
+                job(first, "JPG"), job(second, "JPG"), job(first, "GIF"), job(first, "TIFF"));
+
+        List<ConversionOutcome> outcomes;
+        try (BatchConversionEngine engine = new BatchConversionEngine(2)) {
+            outcomes = engine.convertAll(jobs, null);
+        }
+
+        assertEquals(jobs.size(), outcomes.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            ConversionJob job = jobs.get(i);
+            assertEquals(job, outcomes.get(i).job());
+            assertEquals(ConversionOutcome.Status.CONVERTED, outcomes.get(i).status());
+            File alone = directory.resolve("alone-" + job.outputFile().getName()).toFile();
+            ImageConverter.convert(job.inputFile(), alone, job.targetFormat());
+            assertEquals(-1, Files.mismatch(alone.toPath(), job.outputFile().toPath()), job + " differs");
+        }
+    }
+
+    /**
+     * Cancelling while a video encodes destroys ffmpeg, deletes the partial output and reports
+     * the running and the queued job as cancelled.
+     */
+    @Test
+    void cancelDuringEncodeStopsFfmpegAndDeletesOutput() throws Exception {
+        File clip = TestMedia.writeClip(directory.resolve("clip.avi").toFile(), CLIP_MILLIS);
+        File copy = Files.copy(clip.toPath(), directory.resolve("copy.avi")).toFile();
+        List<ConversionJob> jobs = List.of(job(clip, "MP4", ConversionCategory.VIDEO),
+                job(copy, "MKV", ConversionCategory.VIDEO));
+        CancellationToken cancellation = new CancellationToken();
+        Thread canceller = new Thread(() -> {
+            try {
+                awaitAnyOutput(jobs);
+                cancellation.cancel();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.setDaemon(true);
+        canceller.start();
+
+        List<ConversionOutcome> outcomes;
+        try (BatchConversionEngine engine = new BatchConversionEngine(CategoryConcurrencyLimits.forParallelism(1),
+                null, false, ImageCompressionPreset.BALANCED,
+                new VideoEncodingOptions(VideoEncoderPreset.VERYSLOW, null, 1))) {
+            outcomes = engine.convertAll(jobs, null, cancellation);
+        }
+
+        assertEquals(List.of(ConversionOutcome.Status.CANCELLED, ConversionOutcome.Status.CANCELLED),
+                outcomes.stream().map(ConversionOutcome::status).toList());
+        TestMedia.awaitFfmpegExited(TIMEOUT_MILLIS);
+        for (ConversionJob job : jobs) {
+            assertFalse(job.outputFile().exists(), job.outputFile() + " left behind");
+        }
+    }
+
+    /**
+     * Interrupting the caller while the sources are still being inspected cancels the batch:
+     * the listener hears of every job as cancelled before the interrupt is rethrown.
+     */
+    @Test
+    void interruptDuringInspectionReportsEveryJobCancelled() throws Exception {
+        File clip = TestMedia.writeClip(directory.resolve("clip.avi").toFile(), 1_000);
+        List<ConversionJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            File copy = Files.copy(clip.toPath(), directory.resolve("clip" + i + ".avi")).toFile();
+            jobs.add(job(copy, "MP4", ConversionCategory.VIDEO));
+        }
+        List<ConversionOutcome> reported = new CopyOnWriteArrayList<>();
+        Thread caller = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                awaitInspection();
+                caller.interrupt();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        interrupter.setDaemon(true);
+        interrupter.start();
+
+        try (BatchConversionEngine engine = new BatchConversionEngine(1)) {
+            assertThrows(InterruptedException.class, () -> engine.convertAll(jobs,
+                    (completedJobs, totalJobs, outcome) -> reported.add(outcome), new CancellationToken()));
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertEquals(jobs.size(), reported.size());
+        for (ConversionOutcome outcome : reported) {
+            assertEquals(ConversionOutcome.Status.CANCELLED, outcome.status(), outcome.job().toString());
+            assertFalse(outcome.job().outputFile().exists());
+        }
+        TestMedia.awaitFfmpegExited(TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Returns an image job writing a source's output in a format to the output directory.
+     */
+    private ConversionJob job(File inputFile, String targetFormat) throws IOException {
+        return job(inputFile, targetFormat, ConversionCategory.IMAGE);
+    }
+
+    /**
+     * Returns a job writing a source's output in a format to the output directory.
+     */
+    private ConversionJob job(File inputFile, String targetFormat, ConversionCategory category) throws IOException {
+        File outputDirectory = Files.createDirectories(directory.resolve("out")).toFile();
+        return new ConversionJob(inputFile,
+                BatchConversionEngine.resolveOutputFile(inputFile, outputDirectory, targetFormat),
+                targetFormat, category);
+    }
+
+    /**
+     * Waits until ffmpeg has created the output of one of the jobs.
+     */
+    private static void awaitAnyOutput(List<ConversionJob> jobs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (jobs.stream().noneMatch(job -> job.outputFile().exists()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Waits until a source inspector thread of the engine runs.
+     */
+    private static void awaitInspection() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().startsWith(BatchConversionEngine.INSPECTOR_THREAD_PREFIX))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Writes a small translucent PNG, differing per file name.
+     */
+    private File writeImage(String fileName) throws IOException {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        int seed = fileName.hashCode();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 6) << 24 | (seed + x * 5) << 16 & 0xFF0000 | (y * 8) << 8 | 0x30);
+            }
+        }
+        File file = directory.resolve(fileName).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+}
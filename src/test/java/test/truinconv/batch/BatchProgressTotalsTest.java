@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import org.junit.jupiter.api.Test;
+import test.truinconv.model.ConversionCategory;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link BatchProgressTotals} adds finished jobs and running encodes into a total
+ * that never decreases, whatever order reports arrive in.
+ */
+class BatchProgressTotalsTest {
+
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Finished jobs count as one each and running encodes as their fraction; a job finishing
+     * replaces its fraction with one.
+     */
+    @Test
+    void addsFinishedJobsAndRunningEncodes() {
+        ConversionJob first = job("a");
+        ConversionJob second = job("b");
+        BatchProgressTotals totals = new BatchProgressTotals(3);
+
+        totals.encodeProgressed(progress(first, 250, 9_000));
+        totals.encodeProgressed(progress(second, 500, 1_000));
+        assertEquals(0.75, totals.finishedWork(), DELTA);
+        assertEquals(first, totals.longestEncode().job());
+
+        totals.jobFinished(first);
+        assertEquals(1.5, totals.finishedWork(), DELTA);
+        assertEquals(1, totals.finishedJobs());
+        assertEquals(second, totals.longestEncode().job());
+
+        totals.jobFinished(second);
+        totals.jobFinished(job("c"));
+        assertEquals(3, totals.finishedWork(), DELTA);
+        assertEquals(3, totals.finishedJobs());
+        assertNull(totals.longestEncode());
+    }
+
+    /**
+     * An encode that starts over keeps counting its furthest fraction, while the encode shown
+     * is its latest report.
+     */
+    @Test
+    void keepsTheFurthestFractionOfARestartedEncode() {
+        ConversionJob job = job("a");
+        BatchProgressTotals totals = new BatchProgressTotals(2);
+
+        double[] totalsSeen = {
+                report(totals, progress(job, 600, 4_000)),
+                report(totals, progress(job, 0, -1)),
+                report(totals, progress(job, 300, 20_000)),
+                report(totals, progress(job, 700, 5_000))};
+
+        assertEquals(0.6, totalsSeen[0], DELTA);
+        assertEquals(0.6, totalsSeen[1], DELTA);
+        assertEquals(0.6, totalsSeen[2], DELTA);
+        assertEquals(0.7, totalsSeen[3], DELTA);
+        totals.encodeProgressed(progress(job, 100, 30_000));
+        assertEquals(100, totals.longestEncode().permille());
+    }
+
+    /**
+     * A report arriving after its job finished neither counts twice nor shows as running.
+     */
+    @Test
+    void ignoresReportsAfterAJobFinished() {
+        ConversionJob job = job("a");
+        BatchProgressTotals totals = new BatchProgressTotals(2);
+        totals.encodeProgressed(progress(job, 900, 100));
+        totals.jobFinished(job);
+
+        totals.encodeProgressed(progress(job, 1000, 0));
+        totals.jobFinished(job);
+
+        assertEquals(1, totals.finishedWork(), DELTA);
+        assertEquals(1, totals.finishedJobs());
+        assertNull(totals.longestEncode());
+    }
+
+    /**
+     * Two equal jobs, the same file converted to the same format twice, count separately.
+     */
+    @Test
+    void countsEqualJobsSeparately() {
+        ConversionJob first = job("a");
+        ConversionJob repeated = job("a");
+        BatchProgressTotals totals = new BatchProgressTotals(2);
+
+        totals.encodeProgressed(progress(first, 500, 1_000));
+        totals.encodeProgressed(progress(repeated, 250, 3_000));
+        assertEquals(0.75, totals.finishedWork(), DELTA);
+        assertSame(repeated, totals.longestEncode().job());
+
+        totals.jobFinished(first);
+        assertEquals(1.25, totals.finishedWork(), DELTA);
+    }
+
+    /**
+     * Real trackers feeding the totals, one falling back to a second encode and another
+     * finishing meanwhile, give a total that never decreases and ends at the job count.
+     */
+    @Test
+    void staysMonotonicForTrackedEncodes() {
+        ConversionJob remuxed = job("remuxed");
+        ConversionJob transcoded = job("transcoded");
+        BatchProgressTotals totals = new BatchProgressTotals(2);
+        long[] now = {0};
+        double[] lastTotal = {0};
+        BatchProgressListener listener = new BatchProgressListener() {
+            @Override
+            public void onJobCompleted(int completedJobs, int totalJobs, ConversionOutcome outcome) {
+                totals.jobFinished(outcome.job());
+                lastTotal[0] = assertNotBelow(lastTotal[0], totals.finishedWork());
+            }
+
+            @Override
+            public void onJobProgress(EncodeProgress progress) {
+                totals.encodeProgressed(progress);
+                lastTotal[0] = assertNotBelow(lastTotal[0], totals.finishedWork());
+            }
+        };
+        EncodeProgressTracker remux = new EncodeProgressTracker(remuxed, listener, () -> now[0]);
+        EncodeProgressTracker transcode = new EncodeProgressTracker(transcoded, listener, () -> now[0]);
+
+        int[] remuxPermilles = {100, 400, 700, 0, 200, 500, 800, 1000};
+        for (int step = 0; step < remuxPermilles.length; step++) {
+            now[0] += 300_000_000L;
+            remux.progress(remuxPermilles[step]);
+            transcode.progress(Math.min(1000, step * 200));
+            if (step == 5) {
+                listener.onJobCompleted(1, 2, outcome(transcoded));
+            }
+        }
+        listener.onJobCompleted(2, 2, outcome(remuxed));
+
+        assertEquals(2, lastTotal[0], DELTA);
+    }
+
+    /**
+     * Rejects a negative job count.
+     */
+    @Test
+    void rejectsNegativeTotal() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchProgressTotals(-1));
+    }
+
+    /**
+     * Records a report and returns the total after it.
+     */
+    private static double report(BatchProgressTotals totals, EncodeProgress progress) {
+        totals.encodeProgressed(progress);
+        return totals.finishedWork();
+    }
+
+    /**
+     * Asserts that a total did not fall below the previous one and returns it.
+     */
+    private static double assertNotBelow(double previous, double current) {
+        assertTrue(current >= previous, current + " after " + previous);
+        return current;
+    }
+
+    /**
+     * Returns a video job converting a named file to MP4.
+     */
+    private static ConversionJob job(String name) {
+        return new ConversionJob(new File(name + ".avi"), new File(name + ".mp4"), "MP4", ConversionCategory.VIDEO);
+    }
+
+    /**
+     * Returns a report without a known speed.
+     */
+    private static EncodeProgress progress(ConversionJob job, int permille, long remainingMillis) {
+        return new EncodeProgress(job, permille, 0, remainingMillis);
+    }
+
+    /**
+     * Returns the outcome of a converted job.
+     */
+    private static ConversionOutcome outcome(ConversionJob job) {
+        return new ConversionOutcome(job, ConversionOutcome.Status.CONVERTED, 0, null);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import org.junit.jupiter.api.Test;
+import test.truinconv.model.ConversionCategory;
+import ws.schild.jave.info.MultimediaInfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives {@link EncodeProgressTracker} with a clock the test advances, checking which
+ * callbacks become reports and the speed and time remaining they carry.
+ */
+class EncodeProgressTrackerTest {
+
+    private static final long MILLIS = 1_000_000L;
+    private static final long DURATION_MILLIS = 60_000;
+
+    private final ConversionJob job = new ConversionJob(new File("clip.avi"), new File("clip.mp4"), "MP4",
+            ConversionCategory.VIDEO);
+    private final List<EncodeProgress> reports = new ArrayList<>();
+    // Starts away from zero, as System.nanoTime may
+    private long now = 5_000 * MILLIS;
+    private final EncodeProgressTracker tracker = new EncodeProgressTracker(job, new BatchProgressListener() {
+        @Override
+        public void onJobCompleted(int completedJobs, int totalJobs, ConversionOutcome outcome) {
+            throw new AssertionError("The tracker reports no completions");
+        }
+
+        @Override
+        public void onJobProgress(EncodeProgress progress) {
+            reports.add(progress);
+        }
+    }, () -> now);
+
+    /**
+     * The first callback reports at once; later ones within 250 ms of the last report are
+     * dropped, and the first one 250 ms after it reports.
+     */
+    @Test
+    void coalescesReportsTo250Milliseconds() {
+        tracker.progress(10);
+        advance(100);
+        tracker.progress(20);
+        advance(149);
+        tracker.progress(30);
+        advance(1);
+        tracker.progress(40);
+        advance(249);
+        tracker.progress(50);
+        advance(300);
+        tracker.progress(60);
+
+        assertEquals(List.of(10, 40, 60), permilles());
+    }
+
+    /**
+     * A repeated per-mille never reports, even once due, and the completed encode always
+     * reports, even when not due.
+     */
+    @Test
+    void reportsChangesAndCompletion() {
+        tracker.progress(500);
+        advance(1000);
+        tracker.progress(500);
+        advance(10);
+        tracker.progress(1000);
+        advance(10);
+        tracker.progress(1000);
+
+        assertEquals(List.of(500, 1000), permilles());
+    }
+
+    /**
+     * Per-mille values outside 0 to 1000 are clamped.
+     */
+    @Test
+    void clampsPermille() {
+        tracker.progress(-5);
+        advance(250);
+        tracker.progress(1200);
+
+        assertEquals(List.of(0, 1000), permilles());
+    }
+
+    /**
+     * Speed is media time encoded per wall-clock time, and the time remaining extrapolates the
+     * rate so far.
+     */
+    @Test
+    void computesSpeedAndTimeRemaining() {
+        tracker.sourceInfo(info(DURATION_MILLIS));
+        advance(10_000);
+        // 15 s of the 60 s clip in 10 s
+        tracker.progress(250);
+        advance(10_000);
+        tracker.progress(400);
+
+        assertEquals(1.5, reports.get(0).speed(), 1e-9);
+        assertEquals(30_000, reports.get(0).remainingMillis());
+        assertEquals(1.2, reports.get(1).speed(), 1e-9);
+        assertEquals(30_000, reports.get(1).remainingMillis());
+        assertEquals(0.4, reports.get(1).fraction(), 1e-9);
+    }
+
+    /**
+     * Without progress the time remaining is unknown, and without a source duration so is the
+     * speed.
+     */
+    @Test
+    void reportsUnknownSpeedAndTimeRemaining() {
+        advance(1_000);
+        tracker.progress(0);
+        advance(1_000);
+        tracker.progress(100);
+
+        assertEquals(0, reports.get(0).speed());
+        assertEquals(-1, reports.get(0).remainingMillis());
+        assertEquals(0, reports.get(1).speed());
+        assertEquals(18_000, reports.get(1).remainingMillis());
+    }
+
+    /**
+     * An encode falling back to a second attempt starts over: the lower per-mille reports at
+     * once and timing restarts from it.
+     */
+    @Test
+    void restartsWhenAFallbackEncodeStarts() {
+        tracker.sourceInfo(info(DURATION_MILLIS));
+        advance(4_000);
+        tracker.progress(800);
+        advance(10);
+        tracker.progress(0);
+        advance(2_000);
+        tracker.progress(100);
+
+        assertEquals(List.of(800, 0, 100), permilles());
+        assertEquals(3.0, reports.get(2).speed(), 1e-9);
+        assertEquals(18_000, reports.get(2).remainingMillis());
+    }
+
+    /**
+     * Advances the test clock.
+     */
+    private void advance(long millis) {
+        now += millis * MILLIS;
+    }
+
+    /**
+     * Returns the per-mille of each report so far.
+     */
+    private List<Integer> permilles() {
+        return reports.stream().map(EncodeProgress::permille).toList();
+    }
+
+    /**
+     * Returns probe results with a duration.
+     */
+    private static MultimediaInfo info(long durationMillis) {
+        MultimediaInfo info = new MultimediaInfo();
+        info.setDuration(durationMillis);
+        return info;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import test.truinconv.model.ConversionCategory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that {@link MixedWorkloadScheduler} admits jobs only within the category limits, the CPU
+ * token budget and the memory budget, and that memory bypasses are capped.
+ */
+class MixedWorkloadSchedulerTest {
+
+    private static final long TIMEOUT_MILLIS = 5_000;
+    // How long a job that must stay queued is given to (wrongly) start
+    private static final long QUIET_MILLIS = 100;
+    // Mirrors the scheduler's private limit
+    private static final int MAX_BYPASSES = 16;
+
+    private MixedWorkloadScheduler scheduler;
+
+    /**
+     * Releases the worker threads of the test's scheduler.
+     */
+    @AfterEach
+    void closeScheduler() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * No more jobs of a category run at once than its limit, even with tokens to spare.
+     */
+    @Test
+    void neverRunsMoreJobsOfACategoryThanItsLimit() throws Exception {
+        scheduler = new MixedWorkloadScheduler(CategoryConcurrencyLimits.forParallelism(8)
+                .withLimit(ConversionCategory.VIDEO, 2)
+                .withWeight(ConversionCategory.VIDEO, 1));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(scheduler.submit(ConversionCategory.VIDEO, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        awaitTrue(() -> running.get() == 2, "two video jobs running");
+        Thread.sleep(QUIET_MILLIS);
+        assertEquals(2, running.get());
+
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(2, maxRunning.get());
+    }
+
+    /**
+     * Two heavy video encodes hold every CPU token, so an image job waits for one of them.
+     */
+    @Test
+    void holdsLightJobsBackWhileHeavyJobsUseEveryToken() throws Exception {
+        // Four tokens: each video weighs two
+        scheduler = new MixedWorkloadScheduler(CategoryConcurrencyLimits.forParallelism(4));
+        BlockingJob firstVideo = new BlockingJob(ConversionCategory.VIDEO, 0);
+        BlockingJob secondVideo = new BlockingJob(ConversionCategory.VIDEO, 0);
+        firstVideo.awaitStarted();
+        secondVideo.awaitStarted();
+
+        BlockingJob image = new BlockingJob(ConversionCategory.IMAGE, 0);
+        image.assertNotStarted();
+
+        firstVideo.finish();
+        image.awaitStarted();
+        secondVideo.finish();
+        image.finish();
+    }
+
+    /**
+     * A job that does not fit the memory budget is overtaken by a smaller one queued behind it,
+     * and starts once enough memory is released.
+     */
+    @Test
+    void letsSmallerJobsBypassOneThatDoesNotFitInMemory() throws Exception {
+        scheduler = new MixedWorkloadScheduler(CategoryConcurrencyLimits.forParallelism(8).withMemoryBudget(100));
+        BlockingJob running = new BlockingJob(ConversionCategory.IMAGE, 60);
+        running.awaitStarted();
+
+        BlockingJob large = new BlockingJob(ConversionCategory.IMAGE, 60);
+        BlockingJob small = new BlockingJob(ConversionCategory.IMAGE, 30);
+        small.awaitStarted();
+        large.assertNotStarted();
+
+        running.finish();
+        large.awaitStarted();
+        small.finish();
+        large.finish();
+    }
+
+    /**
+     * Once a waiting job has been overtaken {@value #MAX_BYPASSES} times, later small jobs queue
+     * behind it instead of starving it.
+     */
+    @Test
+    void stopsBypassingAJobAfterTheBypassLimit() throws Exception {
+        scheduler = new MixedWorkloadScheduler(CategoryConcurrencyLimits.forParallelism(8).withMemoryBudget(100));
+        BlockingJob running = new BlockingJob(ConversionCategory.IMAGE, 60);
+        running.awaitStarted();
+        BlockingJob large = new BlockingJob(ConversionCategory.IMAGE, 60);
+
+        for (int i = 0; i < MAX_BYPASSES; i++) {
+            scheduler.submit(ConversionCategory.IMAGE, 10, () -> null).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        BlockingJob late = new BlockingJob(ConversionCategory.IMAGE, 10);
+        late.assertNotStarted();
+        large.assertNotStarted();
+
+        running.finish();
+        large.awaitStarted();
+        late.awaitStarted();
+        large.finish();
+        late.finish();
+    }
+
+    /**
+     * Closing the scheduler cancels queued jobs and rejects new ones.
+     */
+    @Test
+    void cancelsQueuedJobsOnClose() throws Exception {
+        scheduler = new MixedWorkloadScheduler(CategoryConcurrencyLimits.forParallelism(1));
+        BlockingJob running = new BlockingJob(ConversionCategory.IMAGE, 0);
+        running.awaitStarted();
+        Future<?> queued = scheduler.submit(ConversionCategory.IMAGE, () -> null);
+
+        scheduler.close();
+
+        assertTrue(queued.isCancelled());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.submit(ConversionCategory.IMAGE, () -> null));
+    }
+
+    /**
+     * A submitted job that blocks until the test finishes it.
+     */
+    private final class BlockingJob {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Future<Boolean> future;
+
+        /**
+         * Submits the job to the test's scheduler.
+         */
+        BlockingJob(ConversionCategory category, long memoryBytes) {
+            future = scheduler.submit(category, memoryBytes, () -> {
+                started.countDown();
+                return release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            });
+        }
+
+        /**
+         * Waits until the scheduler has started the job.
+         */
+        void awaitStarted() throws InterruptedException {
+            assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "job did not start");
+        }
+
+        /**
+         * Asserts that the job is still queued after giving the scheduler time to start it.
+         */
+        void assertNotStarted() throws InterruptedException {
+            assertFalse(started.await(QUIET_MILLIS, TimeUnit.MILLISECONDS), "job started too early");
+        }
+
+        /**
+         * Lets the job return and waits until it has.
+         */
+        void finish() throws Exception {
+            release.countDown();
+            assertTrue(future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Polls a condition until it holds.
+     */
+    private static void awaitTrue(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("timed out waiting for " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
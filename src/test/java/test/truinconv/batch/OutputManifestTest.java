@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.batch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks when {@link OutputManifest} considers an output up to date, and that its records
+ * survive a save and reload.
+ */
+class OutputManifestTest {
+
+    private static final String SETTINGS = "JPG quality=0.9";
+    private static final long SOURCE_MODIFIED = 1_700_000_000_000L;
+    private static final long OUTPUT_MODIFIED = SOURCE_MODIFIED + 60_000;
+
+    @TempDir
+    Path directory;
+
+    private File inputFile;
+    private File outputFile;
+
+    /**
+     * Creates a source and an output converted a minute after the source was written.
+     */
+    @BeforeEach
+    void createFiles() throws IOException {
+        inputFile = writeFile(directory.resolve("in").resolve("photo.png"), "source pixels", SOURCE_MODIFIED);
+        outputFile = writeFile(directory.resolve("out").resolve("photo.jpg"), "converted", OUTPUT_MODIFIED);
+    }
+
+    /**
+     * A recorded conversion of an unchanged source with the same settings is up to date.
+     */
+    @Test
+    void recordedOutputIsUpToDate() {
+        OutputManifest manifest = recordedManifest();
+
+        assertTrue(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * Records survive saving the manifest and loading it again.
+     */
+    @Test
+    void savedRecordsAreLoadedAgain() throws IOException {
+        recordedManifest().save();
+
+        OutputManifest reloaded = OutputManifest.load(outputFile.getParentFile().toPath());
+
+        assertTrue(Files.exists(outputFile.getParentFile().toPath().resolve(OutputManifest.FILE_NAME)));
+        assertTrue(reloaded.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * Outputs the manifest knows nothing about are converted.
+     */
+    @Test
+    void unrecordedOutputIsNotUpToDate() {
+        OutputManifest manifest = OutputManifest.load(outputFile.getParentFile().toPath());
+
+        assertFalse(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * Different settings would produce a different output.
+     */
+    @Test
+    void changedSettingsAreNotUpToDate() {
+        assertFalse(recordedManifest().isUpToDate(inputFile, outputFile, "JPG quality=0.5"));
+    }
+
+    /**
+     * A source rewritten with a different size is converted again, even with its old timestamp.
+     */
+    @Test
+    void resizedSourceIsNotUpToDate() throws IOException {
+        OutputManifest manifest = recordedManifest();
+        writeFile(inputFile.toPath(), "edited source pixels", SOURCE_MODIFIED);
+
+        assertFalse(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * A source touched since the conversion is converted again, even if its size is unchanged.
+     */
+    @Test
+    void touchedSourceIsNotUpToDate() throws IOException {
+        OutputManifest manifest = recordedManifest();
+        Files.setLastModifiedTime(inputFile.toPath(), FileTime.fromMillis(SOURCE_MODIFIED + 1_000));
+
+        assertFalse(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * A deleted output is converted again.
+     */
+    @Test
+    void missingOutputIsNotUpToDate() throws IOException {
+        OutputManifest manifest = recordedManifest();
+        Files.delete(outputFile.toPath());
+
+        assertFalse(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * An output older than its source, e.g. restored from a backup, is converted again.
+     */
+    @Test
+    void outputOlderThanSourceIsNotUpToDate() throws IOException {
+        OutputManifest manifest = recordedManifest();
+        Files.setLastModifiedTime(outputFile.toPath(), FileTime.fromMillis(SOURCE_MODIFIED - 1_000));
+
+        assertFalse(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * An output recorded for one source is not up to date for an identical file elsewhere.
+     */
+    @Test
+    void differentSourcePathIsNotUpToDate() throws IOException {
+        OutputManifest manifest = recordedManifest();
+        File otherInput = writeFile(directory.resolve("other").resolve("photo.png"), "source pixels",
+                SOURCE_MODIFIED);
+
+        assertFalse(manifest.isUpToDate(otherInput, outputFile, SETTINGS));
+    }
+
+    /**
+     * A corrupt manifest is ignored rather than failing the batch, so everything is converted.
+     */
+    @Test
+    void unreadableManifestIsTreatedAsEmpty() throws IOException {
+        Path outputDirectory = outputFile.getParentFile().toPath();
+        Files.writeString(outputDirectory.resolve(OutputManifest.FILE_NAME), "{ not json", StandardCharsets.UTF_8);
+
+        OutputManifest manifest = OutputManifest.load(outputDirectory);
+
+        assertFalse(manifest.isUpToDate(inputFile, outputFile, SETTINGS));
+    }
+
+    /**
+     * Returns a manifest recording the conversion of the test source to the test output.
+     */
+    private OutputManifest recordedManifest() {
+        OutputManifest manifest = OutputManifest.load(outputFile.getParentFile().toPath());
+        manifest.record(outputFile, inputFile, inputFile.length(), inputFile.lastModified(), SETTINGS);
+        return manifest;
+    }
+
+    /**
+     * Writes a file with the given content and modification time, creating its directory.
+     */
+    private static File writeFile(Path path, String content, long modifiedMillis) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modifiedMillis));
+        return path.toFile();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ConversionCache} hands out private copies of cached results, keys them by
+ * content and settings, and evicts the least recently used entries first.
+ */
+class ConversionCacheTest {
+
+    private static final long MAX_BYTES = 1024 * 1024;
+    private static final String SETTINGS = "JPG quality=0.9";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Nothing is materialized for a key that was never stored.
+     */
+    @Test
+    void missLeavesOutputAlone() throws IOException {
+        ConversionCache cache = openCache(MAX_BYTES);
+        File output = directory.resolve("out.jpg").toFile();
+
+        assertFalse(cache.materialize("ab" + "0".repeat(62), output));
+        assertFalse(output.exists());
+    }
+
+    /**
+     * A hit copies the stored result into a writable output that is independent of the cache,
+     * so writing over it, as a later re-encode does, leaves the cached copy intact.
+     */
+    @Test
+    void materializesAnIndependentWritableCopy() throws IOException {
+        ConversionCache cache = openCache(MAX_BYTES);
+        String key = storeResult(cache, "first.jpg", "converted bytes");
+        Path output = directory.resolve("second.jpg");
+
+        assertTrue(cache.materialize(key, output.toFile()));
+        assertEquals("converted bytes", Files.readString(output, StandardCharsets.UTF_8));
+        assertTrue(Files.isWritable(output));
+
+        Files.writeString(output, "overwritten", StandardCharsets.UTF_8);
+        Path again = directory.resolve("third.jpg");
+        assertTrue(cache.materialize(key, again.toFile()));
+        assertEquals("converted bytes", Files.readString(again, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A hit replaces an existing output, including a read-only one.
+     */
+    @Test
+    void replacesAnExistingOutput() throws IOException {
+        ConversionCache cache = openCache(MAX_BYTES);
+        String key = storeResult(cache, "first.jpg", "converted bytes");
+        Path output = write("stale.jpg", "stale");
+        output.toFile().setReadOnly();
+
+        assertTrue(cache.materialize(key, output.toFile()));
+        assertEquals("converted bytes", Files.readString(output, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Entries stay available to a cache opened later on the same directory.
+     */
+    @Test
+    void reopenedCacheStillHits() throws IOException {
+        String key = storeResult(openCache(MAX_BYTES), "first.jpg", "converted bytes");
+
+        ConversionCache reopened = openCache(MAX_BYTES);
+        Path output = directory.resolve("second.jpg");
+
+        assertTrue(reopened.materialize(key, output.toFile()));
+        assertEquals("converted bytes", Files.readString(output, StandardCharsets.UTF_8));
+        assertEquals(Files.size(output), reopened.getTotalBytes());
+    }
+
+    /**
+     * When the size bound is exceeded, the least recently used entry goes first; a hit counts
+     * as a use.
+     */
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws IOException {
+        // Room for two 10-byte results
+        ConversionCache cache = openCache(25);
+        String first = storeResult(cache, "a.jpg", "0123456789");
+        String second = storeResult(cache, "b.jpg", "abcdefghij");
+        assertTrue(cache.materialize(first, directory.resolve("a-copy.jpg").toFile()));
+
+        String third = storeResult(cache, "c.jpg", "ABCDEFGHIJ");
+
+        assertEquals(20, cache.getTotalBytes());
+        assertTrue(cache.materialize(first, directory.resolve("a-again.jpg").toFile()));
+        assertFalse(cache.materialize(second, directory.resolve("b-again.jpg").toFile()));
+        assertTrue(cache.materialize(third, directory.resolve("c-again.jpg").toFile()));
+    }
+
+    /**
+     * A result larger than the whole cache is not stored, so it cannot evict everything else.
+     */
+    @Test
+    void skipsResultsLargerThanTheCache() throws IOException {
+        ConversionCache cache = openCache(8);
+        String small = storeResult(cache, "small.jpg", "tiny");
+        String large = storeResult(cache, "large.jpg", "far too large");
+
+        assertFalse(cache.materialize(large, directory.resolve("large-copy.jpg").toFile()));
+        assertTrue(cache.materialize(small, directory.resolve("small-copy.jpg").toFile()));
+        assertEquals(4, cache.getTotalBytes());
+    }
+
+    /**
+     * Keys depend on the input's content, the target format and the settings, not on its name.
+     */
+    @Test
+    void keysFollowContentFormatAndSettings() throws IOException {
+        ConversionCache cache = openCache(MAX_BYTES);
+        File input = write("photo.png", "pixels").toFile();
+        File renamedCopy = write("renamed.png", "pixels").toFile();
+        File edited = write("edited.png", "other pixels").toFile();
+        String key = cache.computeKey(input, "JPG", SETTINGS);
+
+        assertEquals(key, cache.computeKey(renamedCopy, "jpg", SETTINGS));
+        assertNotEquals(key, cache.computeKey(edited, "JPG", SETTINGS));
+        assertNotEquals(key, cache.computeKey(input, "PNG", SETTINGS));
+        assertNotEquals(key, cache.computeKey(input, "JPG", "JPG quality=0.5"));
+    }
+
+    /**
+     * Opening a cache with a non-positive bound is a usage error.
+     */
+    @Test
+    void rejectsNonPositiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> ConversionCache.open(directory.resolve("cache"), 0));
+    }
+
+    /**
+     * Opens a cache in the test's cache directory.
+     */
+    private ConversionCache openCache(long maxBytes) throws IOException {
+        return ConversionCache.open(directory.resolve("cache"), maxBytes);
+    }
+
+    /**
+     * Writes a converted output with the given content, stores it and returns its key.
+     */
+    private String storeResult(ConversionCache cache, String fileName, String content) throws IOException {
+        File source = write("source-" + fileName, "source of " + content).toFile();
+        File output = write(fileName, content).toFile();
+        String key = cache.computeKey(source, "JPG", SETTINGS);
+        cache.store(key, output);
+        return key;
+    }
+
+    /**
+     * Writes a file in the test directory.
+     */
+    private Path write(String fileName, String content) throws IOException {
+        Path path = directory.resolve(fileName);
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        return path;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.cli;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how {@link HeadlessConverter} expands input patterns, and that outputs mirror the
+ * input directories instead of colliding.
+ */
+class HeadlessConverterTest {
+
+    private static final Path TOP_LEVEL = Path.of("");
+
+    @TempDir
+    Path directory;
+
+    private Path root;
+
+    /**
+     * Creates {@code photos/top.png}, {@code photos/a/x.png}, {@code photos/a/deep/y.png},
+     * {@code photos/a/notes.txt} and {@code photos/b/x.png}.
+     */
+    @BeforeEach
+    void createTree() throws IOException {
+        root = directory.resolve("photos");
+        for (String image : List.of("top.png", "a/x.png", "a/deep/y.png", "b/x.png")) {
+            writeImage(root.resolve(image));
+        }
+        Files.writeString(root.resolve("a/notes.txt"), "not an image", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A recursive pattern matches files at every depth, including directly in its root, and
+     * keeps each file's directory relative to that root.
+     */
+    @Test
+    void recursivePatternKeepsRelativeDirectories() throws IOException {
+        Map<File, Path> expected = new LinkedHashMap<>();
+        expected.put(file("a/deep/y.png"), Path.of("a", "deep"));
+        expected.put(file("a/x.png"), Path.of("a"));
+        expected.put(file("b/x.png"), Path.of("b"));
+        expected.put(file("top.png"), TOP_LEVEL);
+
+        assertEquals(expected, HeadlessConverter.expandGlobs(List.of(root + "/**/*.png")));
+    }
+
+    /**
+     * A single-level pattern matches only its own directory.
+     */
+    @Test
+    void flatPatternMatchesOneDirectory() throws IOException {
+        assertEquals(Map.of(file("top.png"), TOP_LEVEL), HeadlessConverter.expandGlobs(List.of(root + "/*.png")));
+    }
+
+    /**
+     * Directories matched by a wildcard become part of the relative directory.
+     */
+    @Test
+    void wildcardDirectoriesArePartOfTheRelativeDirectory() throws IOException {
+        assertEquals(Map.of(file("a/deep/y.png"), Path.of("a", "deep")),
+                HeadlessConverter.expandGlobs(List.of(root + "/*/deep/*.png")));
+    }
+
+    /**
+     * Plain paths match themselves at the top level; missing paths match nothing.
+     */
+    @Test
+    void plainPathsMatchThemselves() throws IOException {
+        Map<File, Path> matched = HeadlessConverter.expandGlobs(List.of(
+                root.resolve("a/x.png").toString(),
+                root.resolve("missing.png").toString(),
+                directory.resolve("missing") + "/**/*.png"));
+
+        assertEquals(Map.of(file("a/x.png"), TOP_LEVEL), matched);
+    }
+
+    /**
+     * A file matched by several patterns is converted once, placed by the first pattern.
+     */
+    @Test
+    void overlappingPatternsMatchEachFileOnce() throws IOException {
+        Map<File, Path> matched = HeadlessConverter.expandGlobs(List.of(
+                root.resolve("a") + "/*.png", root + "/**/*.png"));
+
+        assertEquals(List.of(file("a/x.png"), file("a/deep/y.png"), file("b/x.png"), file("top.png")),
+                List.copyOf(matched.keySet()));
+        assertEquals(TOP_LEVEL, matched.get(file("a/x.png")));
+    }
+
+    /**
+     * Same-named files in different directories are converted into matching subdirectories.
+     */
+    @Test
+    void sameNamedInputsAreConvertedSideBySide() {
+        Path out = directory.resolve("out");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int exitCode = HeadlessConverter.run(
+                new String[]{"--input", root + "/**/x.png", "--to", "BMP", "--out", out.toString()},
+                new PrintStream(new ByteArrayOutputStream()), new PrintStream(err));
+
+        assertEquals(0, exitCode, err.toString());
+        assertTrue(Files.isRegularFile(out.resolve("a/x.bmp")));
+        assertTrue(Files.isRegularFile(out.resolve("b/x.bmp")));
+    }
+
+    /**
+     * Inputs that would still share an output are rejected before anything is converted.
+     */
+    @Test
+    void rejectsInputsSharingAnOutput() throws IOException {
+        writeImage(root.resolve("top.gif"));
+        Path out = directory.resolve("out");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int exitCode = HeadlessConverter.run(
+                new String[]{"--input", root + "/top.*", "--to", "BMP", "--out", out.toString()},
+                new PrintStream(new ByteArrayOutputStream()), new PrintStream(err));
+
+        assertEquals(2, exitCode);
+        assertTrue(err.toString().contains("would both be converted"), err.toString());
+        assertFalse(Files.exists(out.resolve("top.bmp")));
+    }
+
+    /**
+     * Returns a file of the test tree as the expansion reports it.
+     */
+    private File file(String relativePath) {
+        return root.resolve(relativePath).toFile();
+    }
+
+    /**
+     * Writes a small image in the format named by the file's extension.
+     */
+    private static void writeImage(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        String fileName = path.getFileName().toString();
+        String format = fileName.substring(fileName.lastIndexOf('.') + 1);
+        if (!ImageIO.write(new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB), format, path.toFile())) {
+            throw new IOException("No writer for " + format);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that {@link AlphaFlattener} produces exactly the pixels of drawing the image onto white
+ * with Java2D. Widths are odd so that the vector loops, when enabled, leave a scalar tail.
+ */
+class AlphaFlattenerTest {
+
+    private static final int[] WIDTHS = {1, 3, 7, 17, 33, 101};
+    private static final int HEIGHT = 5;
+    private static final long SEED = 7;
+
+    /**
+     * Packed ARGB pixels are blended in place.
+     */
+    @Test
+    void flattensIntArgbLikeDrawImage() {
+        assertFlattensLikeDrawImage(BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Premultiplied packed ARGB pixels are blended in place.
+     */
+    @Test
+    void flattensIntArgbPreLikeDrawImage() {
+        assertFlattensLikeDrawImage(BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Interleaved ABGR bytes are blended and packed into BGR triples in place.
+     */
+    @Test
+    void flattensFourByteAbgrLikeDrawImage() {
+        assertFlattensLikeDrawImage(BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    /**
+     * Premultiplied interleaved ABGR bytes are blended and packed into BGR triples in place.
+     */
+    @Test
+    void flattensFourByteAbgrPreLikeDrawImage() {
+        assertFlattensLikeDrawImage(BufferedImage.TYPE_4BYTE_ABGR_PRE);
+    }
+
+    /**
+     * The extreme alpha values and colors take the shortcut paths of the blend.
+     */
+    @Test
+    void flattensOpaqueAndTransparentExtremes() {
+        int[] pixels = {0xFF000000, 0xFFFFFFFF, 0x00000000, 0x00FFFFFF, 0x01000000, 0xFE123456, 0x80FF00FF};
+        for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR}) {
+            BufferedImage image = new BufferedImage(pixels.length, 1, imageType);
+            image.setRGB(0, 0, pixels.length, 1, pixels, 0, pixels.length);
+            assertSamePixels(drawOntoWhite(image), AlphaFlattener.flatten(copyOf(image)), "type " + imageType);
+        }
+    }
+
+    /**
+     * Flattened images carry no alpha, so image writers without alpha support accept them.
+     */
+    @Test
+    void flattenedImagesAreOpaque() {
+        for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR_PRE}) {
+            BufferedImage flattened = AlphaFlattener.flatten(createSample(9, 3, imageType, new Random(SEED)));
+            assertFalse(flattened.getColorModel().hasAlpha(), "type " + imageType);
+        }
+    }
+
+    /**
+     * Flattens random images of every test width and compares them with Java2D's result.
+     */
+    private static void assertFlattensLikeDrawImage(int imageType) {
+        Random random = new Random(SEED);
+        for (int width : WIDTHS) {
+            BufferedImage image = createSample(width, HEIGHT, imageType, random);
+            BufferedImage expected = drawOntoWhite(image);
+            assertSamePixels(expected, AlphaFlattener.flatten(copyOf(image)), "width " + width);
+        }
+    }
+
+    /**
+     * Creates an image with random colors and a mix of opaque, transparent and translucent pixels.
+     */
+    static BufferedImage createSample(int width, int height, int imageType, Random random) {
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = switch (random.nextInt(4)) {
+                    case 0 -> 0xFF;
+                    case 1 -> 0;
+                    default -> random.nextInt(256);
+                };
+                image.setRGB(x, y, (alpha << 24) | (random.nextInt() & 0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns an independent copy of an image, since flattening consumes its input.
+     */
+    static BufferedImage copyOf(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        copy.setData(image.getRaster());
+        return copy;
+    }
+
+    /**
+     * Draws an image onto white the way conversions did before {@link AlphaFlattener} existed.
+     */
+    static BufferedImage drawOntoWhite(BufferedImage image) {
+        BufferedImage canvas = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return canvas;
+    }
+
+    /**
+     * Asserts that two images have the same size and RGB value at every pixel.
+     */
+    static void assertSamePixels(BufferedImage expected, BufferedImage actual, String description) {
+        assertEquals(expected.getWidth(), actual.getWidth(), description);
+        assertEquals(expected.getHeight(), actual.getHeight(), description);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int expectedRgb = expected.getRGB(x, y);
+                int actualRgb = actual.getRGB(x, y);
+                if (expectedRgb != actualRgb) {
+                    assertEquals(Integer.toHexString(expectedRgb), Integer.toHexString(actualRgb),
+                            description + ", pixel (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ws.schild.jave.Encoder;
+import ws.schild.jave.encode.AudioAttributes;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.encode.VideoAttributes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cancels real ffmpeg encodes run through {@link CancellableEncode} and checks that the
+ * process is gone and the cancel is reported as such rather than as a failed encode.
+ */
+class CancellableEncodeTest {
+
+    private static final long CLIP_MILLIS = 65_000;
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @TempDir
+    static Path clipDirectory;
+
+    @TempDir
+    Path directory;
+
+    private static File clip;
+
+    /**
+     * Generates the source clip shared by the tests and probes it, so the only ffmpeg process
+     * a test starts is its encode.
+     */
+    @BeforeAll
+    static void writeClip() throws IOException {
+        clip = TestMedia.writeClip(clipDirectory.resolve("clip.avi").toFile(), CLIP_MILLIS);
+        MediaProbeCache.prefetch(clip);
+    }
+
+    /**
+     * Cancelling while JAVE runs ffmpeg destroys the process and throws a cancellation.
+     */
+    @Test
+    void cancelStopsAJaveEncode() throws Exception {
+        CancellationToken cancellation = cancelOnceFfmpegRuns();
+        File output = directory.resolve("encoded.mp4").toFile();
+
+        assertThrows(CancellationException.class, () -> CancellableEncode.encode(new Encoder(),
+                MediaProbeCache.mediaObject(clip), output, slowEncode(), null, cancellation));
+
+        assertTrue(cancellation.isCancelled());
+        TestMedia.awaitFfmpegExited(TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Cancelling while a command line built here runs destroys the process and throws a
+     * cancellation.
+     */
+    @Test
+    void cancelStopsACommandLine() throws Exception {
+        CancellationToken cancellation = cancelOnceFfmpegRuns();
+        File output = directory.resolve("encoded.mp4").toFile();
+        List<String> arguments = List.of("-i", clip.getAbsolutePath(), "-c:v", "libx264", "-preset", "veryslow",
+                "-threads", "1", "-c:a", "aac", "-f", "mp4", output.getAbsolutePath());
+
+        assertThrows(CancellationException.class, () -> CancellableEncode.run(arguments,
+                MediaProbeCache.getInfo(clip), null, cancellation));
+
+        assertTrue(cancellation.isCancelled());
+        TestMedia.awaitFfmpegExited(TIMEOUT_MILLIS);
+    }
+
+    /**
+     * An encode whose token is already cancelled does not start ffmpeg at all.
+     */
+    @Test
+    void cancelledTokenStartsNothing() {
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        File output = directory.resolve("encoded.mp4").toFile();
+
+        assertThrows(CancellationException.class, () -> CancellableEncode.encode(new Encoder(),
+                MediaProbeCache.mediaObject(clip), output, slowEncode(), null, cancellation));
+        assertThrows(CancellationException.class, () -> CancellableEncode.run(
+                List.of("-i", clip.getAbsolutePath(), output.getAbsolutePath()),
+                MediaProbeCache.getInfo(clip), null, cancellation));
+
+        assertFalse(output.exists());
+        assertEquals(List.of(), TestMedia.ffmpegChildren());
+    }
+
+    /**
+     * Returns a token that a background thread cancels as soon as an ffmpeg process runs.
+     */
+    private static CancellationToken cancelOnceFfmpegRuns() {
+        CancellationToken cancellation = new CancellationToken();
+        Thread canceller = new Thread(() -> {
+            try {
+                TestMedia.awaitFfmpegRunning(TIMEOUT_MILLIS);
+                cancellation.cancel();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.setDaemon(true);
+        canceller.start();
+        return cancellation;
+    }
+
+    /**
+     * Returns H.264 settings slow enough that the encode is still running when it is cancelled.
+     */
+    private static EncodingAttributes slowEncode() {
+        VideoAttributes video = new VideoAttributes();
+        video.setCodec("libx264");
+        video.setPreset("veryslow");
+        AudioAttributes audio = new AudioAttributes();
+        audio.setCodec("aac");
+        EncodingAttributes settings = new EncodingAttributes();
+        settings.setOutputFormat("mp4");
+        settings.setVideoAttributes(video);
+        settings.setAudioAttributes(audio);
+        settings.setEncodingThreads(1);
+        return settings;
+    }
+}
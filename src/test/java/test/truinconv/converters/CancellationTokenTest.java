@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks when {@link CancellationToken} runs its cancel actions: once, at once if registered
+ * after the cancel, never once their registration is closed, and each despite others failing.
+ */
+class CancellationTokenTest {
+
+    /**
+     * Cancelling runs every registered action once, however often it is called.
+     */
+    @Test
+    void runsEachActionOnce() {
+        CancellationToken cancellation = new CancellationToken();
+        List<String> ran = new ArrayList<>();
+        cancellation.onCancel(() -> ran.add("first"));
+        cancellation.onCancel(() -> ran.add("second"));
+
+        assertFalse(cancellation.isCancelled());
+        cancellation.cancel();
+        cancellation.cancel();
+
+        assertTrue(cancellation.isCancelled());
+        assertEquals(List.of("first", "second"), ran);
+    }
+
+    /**
+     * An action registered after the cancel runs on the registering thread before onCancel
+     * returns.
+     */
+    @Test
+    void runsLateActionAtOnce() {
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        List<Thread> ranOn = new ArrayList<>();
+
+        cancellation.onCancel(() -> ranOn.add(Thread.currentThread())).close();
+
+        assertEquals(List.of(Thread.currentThread()), ranOn);
+    }
+
+    /**
+     * An action whose registration was closed, as when its work finished, does not run.
+     */
+    @Test
+    void skipsClosedRegistrations() {
+        CancellationToken cancellation = new CancellationToken();
+        List<String> ran = new ArrayList<>();
+        cancellation.onCancel(() -> ran.add("finished")).close();
+        cancellation.onCancel(() -> ran.add("running"));
+
+        cancellation.cancel();
+
+        assertEquals(List.of("running"), ran);
+    }
+
+    /**
+     * A failing action is logged and the following actions still run.
+     */
+    @Test
+    void runsActionsAfterAFailingOne() {
+        CancellationToken cancellation = new CancellationToken();
+        List<String> ran = new ArrayList<>();
+        cancellation.onCancel(() -> {
+            throw new IllegalStateException("process already gone");
+        });
+        cancellation.onCancel(() -> ran.add("after"));
+
+        assertDoesNotThrow(cancellation::cancel);
+
+        assertEquals(List.of("after"), ran);
+    }
+
+    /**
+     * throwIfCancelled passes until the cancel and throws after it.
+     */
+    @Test
+    void throwsOnceCancelled() {
+        CancellationToken cancellation = new CancellationToken();
+        assertDoesNotThrow(cancellation::throwIfCancelled);
+
+        cancellation.cancel();
+
+        assertThrows(CancellationException.class, cancellation::throwIfCancelled);
+        assertThrows(IllegalArgumentException.class, () -> cancellation.onCancel(null));
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link ChannelImageInputStream} and {@link ChannelImageOutputStream} behave like
+ * the file-backed ImageIO streams across their 64 KiB buffer windows: seeks in both directions,
+ * lengths, the end of the file, flushed positions and writes that patch earlier bytes.
+ */
+class ChannelImageStreamsTest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FILE_SIZE = 3 * BUFFER_SIZE + 123;
+    private static final long SEED = 11;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Reads at positions before, on and after buffer boundaries, seeking forward and back,
+     * return the file's bytes, for single bytes, small reads and reads larger than the buffer.
+     */
+    @Test
+    void inputSeeksAcrossTheBufferBoundary() throws IOException {
+        byte[] content = randomBytes(FILE_SIZE);
+        Path file = write("input.bin", content);
+        long[] positions = {0, BUFFER_SIZE - 1, BUFFER_SIZE, BUFFER_SIZE + 1, 10, 2L * BUFFER_SIZE - 3,
+                BUFFER_SIZE - 5, 3L * BUFFER_SIZE, 7, FILE_SIZE - 1};
+        int[] lengths = {1, 20, BUFFER_SIZE + 17};
+
+        try (ImageInputStream input = new ChannelImageInputStream(file)) {
+            assertEquals(FILE_SIZE, input.length());
+            for (long position : positions) {
+                input.seek(position);
+                assertEquals(content[(int) position] & 0xFF, input.read(), "byte at " + position);
+                for (int length : lengths) {
+                    input.seek(position);
+                    int expectedLength = (int) Math.min(length, FILE_SIZE - position);
+                    byte[] bytes = new byte[length];
+                    int count = readAvailable(input, bytes);
+                    assertEquals(expectedLength, count, length + " bytes at " + position);
+                    assertArrayEquals(Arrays.copyOfRange(content, (int) position, (int) position + count),
+                            Arrays.copyOf(bytes, count), length + " bytes at " + position);
+                    assertEquals(position + count, input.getStreamPosition());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads at the end of the file return -1, reads crossing it return the bytes left, and
+     * readFully past it fails.
+     */
+    @Test
+    void inputStopsAtTheEndOfTheFile() throws IOException {
+        byte[] content = randomBytes(FILE_SIZE);
+        Path file = write("input.bin", content);
+
+        try (ImageInputStream input = new ChannelImageInputStream(file)) {
+            input.seek(FILE_SIZE);
+            assertEquals(-1, input.read());
+            assertEquals(-1, input.read(new byte[10]));
+            assertEquals(-1, input.read(new byte[2 * BUFFER_SIZE]));
+
+            input.seek(FILE_SIZE - 3);
+            byte[] tail = new byte[10];
+            assertEquals(3, input.read(tail));
+            assertArrayEquals(Arrays.copyOfRange(content, FILE_SIZE - 3, FILE_SIZE), Arrays.copyOf(tail, 3));
+
+            input.seek(FILE_SIZE - 3);
+            assertThrows(EOFException.class, () -> input.readFully(new byte[10]));
+        }
+    }
+
+    /**
+     * Once positions are flushed, seeking before them fails and seeking at or after them still
+     * reads the file's bytes.
+     */
+    @Test
+    void inputSeeksAfterFlushBefore() throws IOException {
+        byte[] content = randomBytes(FILE_SIZE);
+        Path file = write("input.bin", content);
+
+        try (ImageInputStream input = new ChannelImageInputStream(file)) {
+            input.seek(2L * BUFFER_SIZE);
+            input.flushBefore(BUFFER_SIZE + 10);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> input.seek(BUFFER_SIZE + 9));
+            input.seek(BUFFER_SIZE + 10);
+            assertEquals(content[BUFFER_SIZE + 10] & 0xFF, input.read());
+            input.seek(FILE_SIZE - 1);
+            assertEquals(content[FILE_SIZE - 1] & 0xFF, input.read());
+        }
+    }
+
+    /**
+     * Writing, seeking back to patch bytes written windows earlier, and seeking past the end
+     * before writing produce the same file as the ImageIO file stream.
+     */
+    @Test
+    void outputPatchesEarlierBytes() throws IOException {
+        Path channelFile = directory.resolve("channel.bin");
+        Path referenceFile = directory.resolve("reference.bin");
+        try (ImageOutputStream channel = new ChannelImageOutputStream(channelFile);
+             ImageOutputStream reference = new FileImageOutputStream(referenceFile.toFile())) {
+            for (ImageOutputStream output : new ImageOutputStream[]{channel, reference}) {
+                output.write(randomBytes(2 * BUFFER_SIZE + 7));
+                output.seek(4);
+                output.writeInt(0x01020304);
+                output.seek(BUFFER_SIZE - 2);
+                output.writeInt(0x05060708);
+                output.seek(output.length() + 100);
+                output.writeShort(0x090A);
+                assertEquals(2L * BUFFER_SIZE + 109, output.length());
+                output.seek(BUFFER_SIZE + 1);
+                output.write(0x0B);
+                output.seek(output.length());
+                output.write(randomBytes(BUFFER_SIZE + 3));
+            }
+        }
+
+        assertEquals(-1, Files.mismatch(referenceFile, channelFile));
+    }
+
+    /**
+     * A random mix of small and large writes, seeks and flushBefore calls, read back before
+     * closing, produces the same bytes as the ImageIO file stream.
+     */
+    @Test
+    void outputMatchesTheFileStreamForRandomWrites() throws IOException {
+        Path channelFile = directory.resolve("channel.bin");
+        Path referenceFile = directory.resolve("reference.bin");
+        try (ImageOutputStream channel = new ChannelImageOutputStream(channelFile);
+             ImageOutputStream reference = new FileImageOutputStream(referenceFile.toFile())) {
+            Random random = new Random(SEED);
+            for (int step = 0; step < 500; step++) {
+                int operation = random.nextInt(10);
+                long length = reference.length();
+                long flushed = reference.getFlushedPosition();
+                if (operation < 5) {
+                    byte[] bytes = randomBytes(random.nextInt(10) == 0 ? BUFFER_SIZE + random.nextInt(100)
+                            : 1 + random.nextInt(300), random.nextLong());
+                    channel.write(bytes);
+                    reference.write(bytes);
+                } else if (operation < 9) {
+                    long position = flushed + (long) (random.nextDouble() * (length + 200 - flushed));
+                    channel.seek(position);
+                    reference.seek(position);
+                } else {
+                    long position = Math.min(reference.getStreamPosition(), flushed + random.nextInt(1000));
+                    channel.flushBefore(position);
+                    reference.flushBefore(position);
+                }
+                assertEquals(reference.getStreamPosition(), channel.getStreamPosition());
+            }
+            assertEquals(reference.length(), channel.length());
+
+            long start = channel.getFlushedPosition();
+            byte[] expected = new byte[(int) (reference.length() - start)];
+            byte[] actual = new byte[expected.length];
+            reference.seek(start);
+            reference.readFully(expected);
+            channel.seek(start);
+            channel.readFully(actual);
+            assertArrayEquals(expected, actual);
+        }
+
+        assertEquals(-1, Files.mismatch(referenceFile, channelFile));
+    }
+
+    /**
+     * Once positions are flushed, seeking before them fails and writing at or after them still
+     * lands in the file.
+     */
+    @Test
+    void outputSeeksAfterFlushBefore() throws IOException {
+        Path file = directory.resolve("output.bin");
+        byte[] content = randomBytes(2 * BUFFER_SIZE);
+        try (ImageOutputStream output = new ChannelImageOutputStream(file)) {
+            output.write(content);
+            output.flushBefore(BUFFER_SIZE);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> output.seek(BUFFER_SIZE - 1));
+            output.seek(BUFFER_SIZE);
+            output.write(0x7F);
+            content[BUFFER_SIZE] = 0x7F;
+        }
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    /**
+     * The PNG writer, which patches chunk lengths, writes the same file through the channel
+     * stream as through the ImageIO file stream.
+     */
+    @Test
+    void writesPngLikeTheFileStream() throws IOException {
+        assertWritesLikeTheFileStream("png");
+    }
+
+    /**
+     * The TIFF writer, which patches IFD offsets, writes the same file through the channel
+     * stream as through the ImageIO file stream.
+     */
+    @Test
+    void writesTiffLikeTheFileStream() throws IOException {
+        assertWritesLikeTheFileStream("tiff");
+    }
+
+    /**
+     * Writes a noisy image larger than several buffers to both streams and compares the files.
+     */
+    private void assertWritesLikeTheFileStream(String formatName) throws IOException {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(SEED);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        Path channelFile = directory.resolve("channel." + formatName);
+        Path referenceFile = directory.resolve("reference." + formatName);
+
+        try (ImageOutputStream output = new ChannelImageOutputStream(channelFile)) {
+            writeImage(image, formatName, output);
+        }
+        try (ImageOutputStream output = new FileImageOutputStream(referenceFile.toFile())) {
+            writeImage(image, formatName, output);
+        }
+
+        assertEquals(-1, Files.mismatch(referenceFile, channelFile));
+        // ImageIO.read closes the stream
+        BufferedImage decoded = ImageIO.read(new ChannelImageInputStream(channelFile));
+        assertArrayEquals(image.getRGB(0, 0, 300, 200, null, 0, 300), decoded.getRGB(0, 0, 300, 200, null, 0, 300));
+    }
+
+    /**
+     * Writes an image with a fresh writer of the format.
+     */
+    private static void writeImage(BufferedImage image, String formatName, ImageOutputStream output)
+            throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(formatName).next();
+        try {
+            writer.setOutput(output);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Reads until the array is full or the file ends, returning the number of bytes read.
+     */
+    private static int readAvailable(ImageInputStream input, byte[] bytes) throws IOException {
+        int total = 0;
+        while (total < bytes.length) {
+            int count = input.read(bytes, total, bytes.length - total);
+            if (count < 0) {
+                break;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Writes bytes to a file in the test directory.
+     */
+    private Path write(String fileName, byte[] content) throws IOException {
+        return Files.write(directory.resolve(fileName), content);
+    }
+
+    /**
+     * Returns reproducible random bytes.
+     */
+    private static byte[] randomBytes(int length) {
+        return randomBytes(length, SEED);
+    }
+
+    /**
+     * Returns random bytes from a seed.
+     */
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
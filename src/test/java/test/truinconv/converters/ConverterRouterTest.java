@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import test.truinconv.model.ConversionCategory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that converting one source to several formats at once writes, for each format,
+ * the file a conversion to that format alone writes: the same bytes for images, the same
+ * decoded content for audio and video. Also checks which conversions are plain copies.
+ */
+class ConverterRouterTest {
+
+    private static final long MEDIA_MILLIS = 3_000;
+    private static final VideoEncodingOptions VIDEO_OPTIONS =
+            new VideoEncodingOptions(VideoEncoderPreset.ULTRAFAST, 30, 1);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A translucent PNG written as JPG (flattened), GIF, TIFF and PNG (a passthrough copy).
+     */
+    @Test
+    void multiTargetImagesMatchSingleTargetImages() throws Exception {
+        File source = directory.resolve("source.png").toFile();
+        ImageIO.write(translucentImage(), "png", source);
+
+        assertMatchesSingleTargets(source, ConversionCategory.IMAGE, List.of("JPG", "GIF", "TIFF", "PNG"));
+    }
+
+    /**
+     * An MP3 tone written as WAV, FLAC, OGG, AAC and MP3 (a passthrough copy).
+     */
+    @Test
+    void multiTargetAudioMatchesSingleTargetAudio() throws Exception {
+        File source = TestMedia.writeTone(directory.resolve("source.mp3").toFile(), MEDIA_MILLIS);
+
+        assertMatchesSingleTargets(source, ConversionCategory.AUDIO, List.of("WAV", "FLAC", "OGG", "AAC", "MP3"));
+    }
+
+    /**
+     * An MJPEG/PCM clip transcoded to MP4, MKV and WEBM.
+     */
+    @Test
+    void multiTargetVideosMatchSingleTargetVideos() throws Exception {
+        File source = TestMedia.writeClip(directory.resolve("source.avi").toFile(), MEDIA_MILLIS);
+
+        assertMatchesSingleTargets(source, ConversionCategory.VIDEO, List.of("MP4", "MKV", "WEBM"));
+    }
+
+    /**
+     * A JPEG named .jpg converted to JPEG, and named .jpeg converted to JPG, is copied byte for
+     * byte.
+     */
+    @Test
+    void copiesJpegsBetweenJpgAndJpeg() throws Exception {
+        for (String[] names : new String[][]{{"photo.jpg", "JPEG"}, {"photo.jpeg", "JPG"}}) {
+            File source = directory.resolve(names[0]).toFile();
+            ImageIO.write(opaqueImage(), "jpeg", source);
+            File output = outputFile("copy-" + names[1], names[1]);
+
+            assertTrue(ConverterRouter.isPassthrough(source, names[1]), names[0]);
+            assertEquals("passthrough", ConverterRouter.describeSettings(source, names[1], ConversionCategory.IMAGE));
+            ConverterRouter.convert(source, output, names[1], ConversionCategory.IMAGE);
+
+            assertEquals(-1, Files.mismatch(source.toPath(), output.toPath()), names[0]);
+        }
+    }
+
+    /**
+     * A PNG misnamed .jpg is converted to a real JPEG rather than copied, and a .jpg that is
+     * not an image, or does not exist, is not taken for a copy either.
+     */
+    @Test
+    void convertsSourcesThatAreNotJpegs() throws Exception {
+        File misnamed = directory.resolve("misnamed.jpg").toFile();
+        ImageIO.write(opaqueImage(), "png", misnamed);
+        File output = outputFile("misnamed", "JPEG");
+
+        assertFalse(ConverterRouter.isPassthrough(misnamed, "JPEG"));
+        assertNotEquals("passthrough", ConverterRouter.describeSettings(misnamed, "JPEG", ConversionCategory.IMAGE));
+        ConverterRouter.convert(misnamed, output, "JPEG", ConversionCategory.IMAGE);
+
+        assertEquals("jpeg", formatNameOf(output).toLowerCase());
+        assertTrue(ImageIO.read(output).getWidth() > 0);
+
+        File notAnImage = Files.writeString(directory.resolve("notes.jpg"), "not an image").toFile();
+        assertFalse(ConverterRouter.isPassthrough(notAnImage, "JPEG"));
+        assertFalse(ConverterRouter.isPassthrough(directory.resolve("missing.jpg").toFile(), "JPEG"));
+    }
+
+    /**
+     * Different formats are never copied, whatever the content.
+     */
+    @Test
+    void convertsOtherFormats() throws Exception {
+        File jpeg = directory.resolve("photo.jpg").toFile();
+        ImageIO.write(opaqueImage(), "jpeg", jpeg);
+        File png = directory.resolve("image.png").toFile();
+        ImageIO.write(opaqueImage(), "png", png);
+
+        assertFalse(ConverterRouter.isPassthrough(jpeg, "PNG"));
+        assertFalse(ConverterRouter.isPassthrough(png, "JPG"));
+        assertTrue(ConverterRouter.isPassthrough(png, "PNG"));
+    }
+
+    /**
+     * Converts a source to every format at once and to each format alone, and compares the
+     * outputs.
+     */
+    private void assertMatchesSingleTargets(File source, ConversionCategory category, List<String> formats)
+            throws Exception {
+        Map<String, File> together = new LinkedHashMap<>();
+        for (String format : formats) {
+            together.put(format, outputFile("together", format));
+        }
+        ConverterRouter.convert(source, together, category, ImageCompressionPreset.BALANCED, VIDEO_OPTIONS,
+                null, null);
+
+        for (String format : formats) {
+            File alone = outputFile("alone", format);
+            ConverterRouter.convert(source, alone, format, category, ImageCompressionPreset.BALANCED,
+                    VIDEO_OPTIONS, null, null);
+            assertTrue(alone.length() > 0, format + " output is empty");
+            if (category == ConversionCategory.IMAGE) {
+                assertEquals(-1, Files.mismatch(together.get(format).toPath(), alone.toPath()),
+                        format + " output differs");
+            } else {
+                assertEquals(TestMedia.decodedMd5(alone), TestMedia.decodedMd5(together.get(format)),
+                        format + " output differs");
+            }
+        }
+    }
+
+    /**
+     * Returns the output file for a format in a subdirectory of the test directory.
+     */
+    private File outputFile(String subdirectory, String format) throws IOException {
+        Path parent = Files.createDirectories(directory.resolve(subdirectory));
+        return parent.resolve("output." + format.toLowerCase()).toFile();
+    }
+
+    /**
+     * Returns the format name of the reader that recognizes a file's content.
+     */
+    private static String formatNameOf(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = ImageIO.getImageReaders(input).next();
+            try {
+                return reader.getFormatName();
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns an opaque gradient.
+     */
+    private static BufferedImage opaqueImage() {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 4) << 16 | (y * 5) << 8 | 0x40);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns a gradient whose alpha varies across the image.
+     */
+    private static BufferedImage translucentImage() {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 4) << 24 | (x * 4) << 16 | (y * 5) << 8 | 0x40);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ws.schild.jave.process.ProcessWrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link FfmpegProcessGroup} destroys its running processes and that no process
+ * starts once the group is stopped, even when starts race with the stop. Processes are
+ * {@code sleep} commands standing in for ffmpeg.
+ */
+class FfmpegProcessGroupTest {
+
+    private static final String SLEEP_SECONDS = "30";
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    private final Set<Long> childrenBefore = childPids();
+
+    /**
+     * Kills anything a failing test left running.
+     */
+    @AfterEach
+    void killStrayProcesses() {
+        newChildren().forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Destroying the group kills a process started in it.
+     */
+    @Test
+    void destroysRunningProcesses() throws Exception {
+        FfmpegProcessGroup group = new FfmpegProcessGroup();
+        group.start(sleeper());
+        assertEquals(1, newChildren().size());
+
+        group.destroyAll();
+
+        assertAllExited();
+    }
+
+    /**
+     * A stopped group refuses to start a process instead of leaving it running.
+     */
+    @Test
+    void refusesToStartOnceStopped() {
+        FfmpegProcessGroup group = new FfmpegProcessGroup();
+        group.destroyAll();
+
+        assertThrows(IOException.class, () -> group.start(sleeper()));
+        assertEquals(List.of(), newChildren());
+    }
+
+    /**
+     * Whatever the interleaving of starts and the stop, every process is either refused or
+     * destroyed.
+     */
+    @Test
+    void leavesNoProcessBehindWhenStartsRaceTheStop() throws Exception {
+        FfmpegProcessGroup group = new FfmpegProcessGroup();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> starters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread starter = new Thread(() -> {
+                try {
+                    go.await();
+                    group.start(sleeper());
+                } catch (IOException e) {
+                    // Refused after the stop, as expected
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            starter.start();
+            starters.add(starter);
+        }
+
+        go.countDown();
+        group.destroyAll();
+        for (Thread starter : starters) {
+            starter.join(TIMEOUT_MILLIS);
+        }
+
+        assertAllExited();
+    }
+
+    /**
+     * Returns a process wrapper that sleeps until it is destroyed.
+     */
+    private static ProcessWrapper sleeper() {
+        ProcessWrapper process = new ProcessWrapper("sleep");
+        process.addArgument(SLEEP_SECONDS);
+        return process;
+    }
+
+    /**
+     * Waits for every process started by the test to exit.
+     */
+    private void assertAllExited() throws Exception {
+        for (ProcessHandle child : newChildren()) {
+            child.onExit().get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertFalse(child.isAlive());
+        }
+    }
+
+    /**
+     * Returns the live child processes started since the test began.
+     */
+    private List<ProcessHandle> newChildren() {
+        return ProcessHandle.current().children()
+                .filter(child -> !childrenBefore.contains(child.pid()))
+                .toList();
+    }
+
+    /**
+     * Returns the process ids of the live child processes.
+     */
+    private static Set<Long> childPids() {
+        return ProcessHandle.current().children().map(ProcessHandle::pid).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link GifFrameCompositor} replays GIF frame patches and disposal methods like a
+ * viewer, and that converting an animated GIF to GIF keeps its frames' delays and loop count.
+ */
+class GifFrameCompositorTest {
+
+    private static final String IMAGE_METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final int SIZE = 20;
+    private static final int RED = 0xFFFF0000;
+    private static final int GREEN = 0xFF00FF00;
+    private static final int BLUE = 0xFF0000FF;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A frame smaller than the screen is drawn at its position over the previous picture.
+     */
+    @Test
+    void drawsPatchesOverThePreviousPicture() throws IOException {
+        File gif = writeGif("patch.gif", 0, List.of(
+                new Frame(fill(SIZE, RED), 0, 0, "none", 10),
+                new Frame(fill(10, BLUE), 5, 5, "none", 10)));
+
+        List<BufferedImage> pictures = compose(gif);
+
+        assertEquals(RED, pictures.get(1).getRGB(0, 0));
+        assertEquals(BLUE, pictures.get(1).getRGB(7, 7));
+        assertEquals(RED, pictures.get(1).getRGB(15, 15));
+    }
+
+    /**
+     * The area of a frame disposed of to the background is cleared to transparent before the
+     * next frame is drawn.
+     */
+    @Test
+    void clearsAreaDisposedToBackground() throws IOException {
+        File gif = writeGif("background.gif", 0, List.of(
+                new Frame(fill(SIZE, RED), 0, 0, "restoreToBackgroundColor", 10),
+                new Frame(fill(10, BLUE), 5, 5, "none", 10)));
+
+        List<BufferedImage> pictures = compose(gif);
+
+        assertEquals(0, pictures.get(1).getRGB(0, 0) >>> 24);
+        assertEquals(BLUE, pictures.get(1).getRGB(7, 7));
+    }
+
+    /**
+     * The area of a frame disposed of to the previous picture gets that picture back before the
+     * next frame is drawn.
+     */
+    @Test
+    void restoresAreaDisposedToPrevious() throws IOException {
+        File gif = writeGif("previous.gif", 0, List.of(
+                new Frame(fill(SIZE, RED), 0, 0, "none", 10),
+                new Frame(fill(10, BLUE), 5, 5, "restoreToPrevious", 10),
+                new Frame(fill(2, GREEN), 0, 0, "none", 10)));
+
+        List<BufferedImage> pictures = compose(gif);
+
+        assertEquals(BLUE, pictures.get(1).getRGB(7, 7));
+        assertEquals(RED, pictures.get(2).getRGB(7, 7));
+        assertEquals(GREEN, pictures.get(2).getRGB(0, 0));
+    }
+
+    /**
+     * Converting an animated GIF to GIF writes the composited pictures with the source's delays
+     * and NETSCAPE loop count.
+     */
+    @Test
+    void gifToGifKeepsDelaysAndLoopCount() throws IOException {
+        File source = writeGif("source.gif", 3, List.of(
+                new Frame(fill(SIZE, RED), 0, 0, "none", 37),
+                new Frame(fill(10, BLUE), 5, 5, "none", 12)));
+        File output = directory.resolve("output.gif").toFile();
+
+        ImageConverter.convert(source, output, "GIF");
+
+        assertEquals(List.of(37, 12), delays(output));
+        assertEquals(3, loopCount(output));
+        List<BufferedImage> expected = compose(source);
+        List<BufferedImage> actual = compose(output);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(pixels(expected.get(i)), pixels(actual.get(i)), "frame " + i);
+        }
+    }
+
+    /**
+     * One frame of a GIF to write: an image, where it goes and how it is timed and disposed of.
+     */
+    private record Frame(BufferedImage image, int left, int top, String disposal, int delay) {
+    }
+
+    /**
+     * Writes frames as an animated GIF, with a NETSCAPE loop extension unless loopCount is 0.
+     */
+    private File writeGif(String fileName, int loopCount, List<Frame> frames) throws IOException {
+        File file = directory.resolve(fileName).toFile();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            writer.prepareWriteSequence(null);
+            for (int i = 0; i < frames.size(); i++) {
+                Frame frame = frames.get(i);
+                IIOMetadata metadata = writer.getDefaultImageMetadata(
+                        ImageTypeSpecifier.createFromRenderedImage(frame.image()), null);
+                metadata.mergeTree(IMAGE_METADATA_FORMAT, frameTree(frame, i == 0 ? loopCount : 0));
+                writer.writeToSequence(new IIOImage(frame.image(), null, metadata), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    /**
+     * Returns the native metadata placing and timing a frame.
+     */
+    private static IIOMetadataNode frameTree(Frame frame, int loopCount) {
+        IIOMetadataNode root = new IIOMetadataNode(IMAGE_METADATA_FORMAT);
+        IIOMetadataNode descriptor = new IIOMetadataNode("ImageDescriptor");
+        descriptor.setAttribute("imageLeftPosition", String.valueOf(frame.left()));
+        descriptor.setAttribute("imageTopPosition", String.valueOf(frame.top()));
+        descriptor.setAttribute("imageWidth", String.valueOf(frame.image().getWidth()));
+        descriptor.setAttribute("imageHeight", String.valueOf(frame.image().getHeight()));
+        descriptor.setAttribute("interlaceFlag", "FALSE");
+        root.appendChild(descriptor);
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", frame.disposal());
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", String.valueOf(frame.delay()));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        if (loopCount > 0) {
+            IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+            extension.setAttribute("applicationID", "NETSCAPE");
+            extension.setAttribute("authenticationCode", "2.0");
+            extension.setUserObject(new byte[]{1, (byte) loopCount, (byte) (loopCount >> 8)});
+            IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+            extensions.appendChild(extension);
+            root.appendChild(extensions);
+        }
+        return root;
+    }
+
+    /**
+     * Reads a GIF and composites every frame into the picture a viewer shows.
+     */
+    private static List<BufferedImage> compose(File gif) throws IOException {
+        List<BufferedImage> pictures = new ArrayList<>();
+        try (ImageInputStream input = ImageIO.createImageInputStream(gif)) {
+            ImageReader reader = ImageIO.getImageReaders(input).next();
+            try {
+                reader.setInput(input, false, true);
+                GifFrameCompositor compositor = new GifFrameCompositor(reader);
+                int frameCount = reader.getNumImages(true);
+                for (int i = 0; i < frameCount; i++) {
+                    pictures.add(compositor.compose(i, reader.read(i)));
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+        return pictures;
+    }
+
+    /**
+     * Returns the delay of every frame of a GIF, in hundredths of a second.
+     */
+    private static List<Integer> delays(File gif) throws IOException {
+        List<Integer> delays = new ArrayList<>();
+        for (IIOMetadataNode frame : frameTrees(gif)) {
+            IIOMetadataNode control = (IIOMetadataNode) frame.getElementsByTagName("GraphicControlExtension").item(0);
+            delays.add(Integer.parseInt(control.getAttribute("delayTime")));
+        }
+        return delays;
+    }
+
+    /**
+     * Returns the loop count of a GIF's NETSCAPE extension, or -1 if it has none.
+     */
+    private static int loopCount(File gif) throws IOException {
+        for (IIOMetadataNode frame : frameTrees(gif)) {
+            for (Node node = frame.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (!"ApplicationExtensions".equals(node.getNodeName())) {
+                    continue;
+                }
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    IIOMetadataNode extension = (IIOMetadataNode) child;
+                    if ("NETSCAPE".equals(extension.getAttribute("applicationID"))) {
+                        byte[] data = (byte[]) extension.getUserObject();
+                        return (data[1] & 0xFF) | (data[2] & 0xFF) << 8;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the native metadata of every frame of a GIF.
+     */
+    private static List<IIOMetadataNode> frameTrees(File gif) throws IOException {
+        List<IIOMetadataNode> trees = new ArrayList<>();
+        try (ImageInputStream input = ImageIO.createImageInputStream(gif)) {
+            ImageReader reader = ImageIO.getImageReaders(input).next();
+            try {
+                reader.setInput(input, false, false);
+                int frameCount = reader.getNumImages(true);
+                for (int i = 0; i < frameCount; i++) {
+                    trees.add((IIOMetadataNode) reader.getImageMetadata(i).getAsTree(IMAGE_METADATA_FORMAT));
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+        return trees;
+    }
+
+    /**
+     * Returns a square image of one opaque color.
+     */
+    private static BufferedImage fill(int size, int argb) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(argb, true));
+            graphics.fillRect(0, 0, size, size);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Returns the ARGB pixels of an image.
+     */
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads PNGs through {@link RegionDecodedImage} with strips of a few rows, so the strip logic
+ * runs on small images, and compares every way writers read pixels with a full decode: regions
+ * within one strip and across several, the shorter last strip, the whole lazily decoded raster,
+ * and the alpha flattening done for JPEG. The last strip holds 4 of the 200 rows.
+ */
+class RegionDecodedImageTest {
+
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+    private static final int STRIP_ROWS = 7;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Regions inside one strip, spanning strips, reaching into the short last strip and
+     * overhanging the image hold the decoded pixels.
+     */
+    @Test
+    void servesRegionsAcrossStrips() throws IOException {
+        File png = writePng("opaque.png", BufferedImage.TYPE_INT_RGB);
+        BufferedImage full = ImageIO.read(png);
+
+        withRegionImage(png, false, image -> {
+            assertEquals((HEIGHT + STRIP_ROWS - 1) / STRIP_ROWS, image.getNumYTiles());
+            Rectangle[] regions = {new Rectangle(0, 0, WIDTH, STRIP_ROWS), new Rectangle(10, 8, 50, 3),
+                    new Rectangle(0, 5, WIDTH, 20), new Rectangle(20, 3, 100, 150),
+                    new Rectangle(0, HEIGHT - 10, WIDTH, 10), new Rectangle(0, HEIGHT - 1, WIDTH, 1),
+                    new Rectangle(250, 190, 100, 100)};
+            for (Rectangle region : regions) {
+                Rectangle bounds = region.intersection(new Rectangle(WIDTH, HEIGHT));
+                assertRegionEquals(full.getData(bounds), image.getData(region), region.toString());
+            }
+            for (int tileY = image.getNumYTiles() - 1; tileY >= 0; tileY--) {
+                Raster tile = image.getTile(0, tileY);
+                assertRegionEquals(full.getData(tile.getBounds()), tile, "strip " + tileY);
+            }
+        });
+    }
+
+    /**
+     * The whole raster decodes the strip of any element read from it, in any order.
+     */
+    @Test
+    void servesTheWholeRasterLazily() throws IOException {
+        File png = writePng("translucent.png", BufferedImage.TYPE_INT_ARGB);
+        BufferedImage full = ImageIO.read(png);
+
+        withRegionImage(png, false, image -> {
+            Raster lazy = image.getData();
+            int[] rows = {HEIGHT - 1, 0, STRIP_ROWS, STRIP_ROWS - 1, 100, HEIGHT - 2, 3};
+            for (int y : rows) {
+                assertArrayEquals(full.getRaster().getPixels(0, y, WIDTH, 1, (int[]) null),
+                        lazy.getPixels(0, y, WIDTH, 1, (int[]) null), "row " + y);
+            }
+            assertRegionEquals(full.getRaster(), image.copyData(null), "copy");
+        });
+    }
+
+    /**
+     * A translucent PNG written as JPEG strip by strip decodes to the same pixels as the
+     * flattened full image written as JPEG.
+     */
+    @Test
+    void writesJpegLikeTheFullImage() throws IOException {
+        File png = writePng("translucent.png", BufferedImage.TYPE_INT_ARGB);
+        BufferedImage full = AlphaFlattener.flatten(ImageIO.read(png));
+
+        assertWritesLikeFullImage(png, true, full, "jpeg");
+    }
+
+    /**
+     * An opaque PNG written as BMP strip by strip decodes to the same pixels as the full
+     * image written as BMP. BMP takes no alpha, which the converter only removes for JPEG.
+     */
+    @Test
+    void writesBmpLikeTheFullImage() throws IOException {
+        File png = writePng("opaque.png", BufferedImage.TYPE_INT_RGB);
+        BufferedImage full = ImageIO.read(png);
+
+        assertWritesLikeFullImage(png, false, full, "bmp");
+    }
+
+    /**
+     * Writes a PNG through a region-decoded image and the full image through the same writer,
+     * and compares the decoded outputs.
+     */
+    private void assertWritesLikeFullImage(File png, boolean flatten, BufferedImage full, String formatName)
+            throws IOException {
+        File fromStrips = directory.resolve("strips." + formatName).toFile();
+        File fromFull = directory.resolve("full." + formatName).toFile();
+        withRegionImage(png, flatten, image -> assertTrue(ImageIO.write(image, formatName, fromStrips)));
+        assertTrue(ImageIO.write(full, formatName, fromFull));
+
+        BufferedImage expected = ImageIO.read(fromFull);
+        BufferedImage actual = ImageIO.read(fromStrips);
+        assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    /**
+     * Work done on a region-decoded image while its reader is open.
+     */
+    @FunctionalInterface
+    private interface ImageCheck {
+        /**
+         * Checks the image.
+         *
+         * @param image region-decoded image of {@value #STRIP_ROWS}-row strips
+         * @throws IOException if writing the image fails
+         */
+        void check(RenderedImage image) throws IOException;
+    }
+
+    /**
+     * Opens a PNG as a region-decoded image with strips of {@value #STRIP_ROWS} rows.
+     */
+    private static void withRegionImage(File png, boolean flatten, ImageCheck check) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(png)) {
+            ImageReader reader = ImageIO.getImageReaders(input).next();
+            try {
+                reader.setInput(input, false, true);
+                // Strips are sized in bytes of the decoded, possibly flattened, layout
+                int bytesPerPixel = flatten ? 3 : reader.getRawImageType(0).getColorModel().getPixelSize() / 8;
+                check.check(new RegionDecodedImage(reader, flatten, (long) WIDTH * bytesPerPixel * STRIP_ROWS));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Compares the bounds and samples of two rasters.
+     */
+    private static void assertRegionEquals(Raster expected, Raster actual, String message) {
+        assertEquals(expected.getBounds(), actual.getBounds(), message);
+        Rectangle bounds = expected.getBounds();
+        assertArrayEquals(expected.getPixels(bounds.x, bounds.y, bounds.width, bounds.height, (int[]) null),
+                actual.getPixels(bounds.x, bounds.y, bounds.width, bounds.height, (int[]) null), message);
+    }
+
+    /**
+     * Writes a PNG of gradients, translucent at the edges for images with alpha.
+     */
+    private File writePng(String fileName, int imageType) throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, imageType);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int alpha = Math.min(255, Math.min(x, y) * 8);
+                image.setRGB(x, y, alpha << 24 | (x * 255 / WIDTH) << 16 | (y * 255 / HEIGHT) << 8 | (x ^ y) & 0xFF);
+            }
+        }
+        File file = directory.resolve(fileName).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+}
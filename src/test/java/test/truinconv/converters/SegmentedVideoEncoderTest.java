@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.progress.EncoderProgressListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Encodes a generated clip in segments through {@link VideoConverter} and compares the result
+ * with a single-pass encode of the same clip: the joined video must have the same frames and
+ * duration, and its audio must stay in sync with it.
+ */
+class SegmentedVideoEncoderTest {
+
+    // Two segments of at least 30 s each
+    private static final long CLIP_MILLIS = 65_000;
+    private static final long SEGMENT_BOUNDARY_MILLIS = CLIP_MILLIS / 2;
+    private static final long TIMEOUT_MILLIS = 30_000;
+    private static final VideoEncodingOptions SINGLE_PASS =
+            new VideoEncodingOptions(VideoEncoderPreset.ULTRAFAST, null, 2);
+    private static final Pattern KEYFRAME_TIME = Pattern.compile("pts_time:(\\d+(?:\\.\\d+)?)");
+
+    @TempDir
+    static Path clipDirectory;
+
+    @TempDir
+    Path directory;
+
+    private static File clip;
+
+    /**
+     * Generates the source clip shared by the tests.
+     */
+    @BeforeAll
+    static void writeClip() throws IOException {
+        clip = TestMedia.writeClip(clipDirectory.resolve("clip.avi").toFile(), CLIP_MILLIS);
+    }
+
+    /**
+     * The segmented output has a keyframe at the segment boundary, the same frames and
+     * duration as the single-pass output, and audio ending with its video as closely.
+     */
+    @Test
+    void matchesTheSinglePassOutput() throws Exception {
+        File singlePass = directory.resolve("single.mp4").toFile();
+        File segmented = directory.resolve("segmented.mp4").toFile();
+
+        VideoConverter.convert(clip, singlePass, "MP4", SINGLE_PASS, null, null);
+        VideoConverter.convert(clip, segmented, "MP4", SINGLE_PASS.withSegments(2), null, null);
+
+        assertTrue(keyframeMillis(segmented).contains(SEGMENT_BOUNDARY_MILLIS), "segment boundary keyframe");
+        assertFalse(keyframeMillis(singlePass).contains(SEGMENT_BOUNDARY_MILLIS));
+
+        TestMedia.StreamMeasurement singleVideo = TestMedia.measure(singlePass, "0:v:0");
+        TestMedia.StreamMeasurement segmentedVideo = TestMedia.measure(segmented, "0:v:0");
+        assertEquals(singleVideo.frames(), segmentedVideo.frames());
+        assertEquals(singleVideo.durationMillis(), segmentedVideo.durationMillis(), TestMedia.FRAME_MILLIS);
+
+        TestMedia.StreamMeasurement singleAudio = TestMedia.measure(singlePass, "0:a:0");
+        TestMedia.StreamMeasurement segmentedAudio = TestMedia.measure(segmented, "0:a:0");
+        assertEquals(singleAudio.durationMillis(), segmentedAudio.durationMillis(), TestMedia.FRAME_MILLIS);
+        long singleDrift = Math.abs(singleAudio.durationMillis() - singleVideo.durationMillis());
+        long segmentedDrift = Math.abs(segmentedAudio.durationMillis() - segmentedVideo.durationMillis());
+        assertTrue(segmentedDrift <= singleDrift + TestMedia.FRAME_MILLIS,
+                "audio ends " + segmentedDrift + " ms from the video, single pass " + singleDrift + " ms");
+    }
+
+    /**
+     * The listener receives the source info and a progress that never goes back and ends
+     * complete.
+     */
+    @Test
+    void reportsMonotonicProgress() throws Exception {
+        List<Integer> reported = new CopyOnWriteArrayList<>();
+        List<MultimediaInfo> sourceInfos = new CopyOnWriteArrayList<>();
+        EncoderProgressListener listener = new EncoderProgressListener() {
+            @Override
+            public void sourceInfo(MultimediaInfo info) {
+                sourceInfos.add(info);
+            }
+
+            @Override
+            public void progress(int permille) {
+                reported.add(permille);
+            }
+
+            @Override
+            public void message(String message) {
+                // Not reported by segmented encodes
+            }
+        };
+
+        VideoConverter.convert(clip, directory.resolve("segmented.mp4").toFile(), "MP4",
+                SINGLE_PASS.withSegments(2), listener, null);
+
+        assertEquals(1, sourceInfos.size());
+        assertEquals(1000, reported.get(reported.size() - 1));
+        for (int i = 1; i < reported.size(); i++) {
+            assertTrue(reported.get(i) > reported.get(i - 1), "progress went back: " + reported);
+        }
+    }
+
+    /**
+     * Cancelling while the segments are being encoded destroys their processes, removes the
+     * working directory and fails with a cancellation instead of falling back to one pass.
+     */
+    @Test
+    void cancelStopsEverySegment() throws Exception {
+        CancellationToken cancellation = new CancellationToken();
+        Thread canceller = new Thread(() -> {
+            try {
+                TestMedia.awaitFfmpegRunning(TIMEOUT_MILLIS);
+                cancellation.cancel();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.start();
+
+        VideoEncodingOptions slow = new VideoEncodingOptions(VideoEncoderPreset.VERYSLOW, null, 1).withSegments(2);
+        assertThrows(CancellationException.class, () -> VideoConverter.convert(
+                clip, directory.resolve("segmented.mp4").toFile(), "MP4", slow, null, cancellation));
+        canceller.join(TIMEOUT_MILLIS);
+
+        assertTrue(cancellation.isCancelled());
+        TestMedia.awaitFfmpegExited(TIMEOUT_MILLIS);
+        String[] leftovers = directory.toFile().list((dir, name) -> name.startsWith(".segments-"));
+        assertEquals(0, leftovers == null ? 0 : leftovers.length);
+    }
+
+    /**
+     * Returns the timestamps of a file's video keyframes, rounded to milliseconds.
+     */
+    private static List<Long> keyframeMillis(File file) throws IOException {
+        List<String> log = new ArrayList<>();
+        FfmpegCommand.run(List.of("-skip_frame", "nokey", "-i", file.getAbsolutePath(),
+                "-map", "0:v:0", "-vf", "showinfo", "-f", "null", "-"), null, log::add);
+        List<Long> keyframes = new ArrayList<>();
+        for (String line : log) {
+            Matcher time = KEYFRAME_TIME.matcher(line);
+            if (line.contains("Parsed_showinfo") && time.find()) {
+                keyframes.add(Math.round(Double.parseDouble(time.group(1)) * 1000));
+            }
+        }
+        return keyframes;
+    }
+}
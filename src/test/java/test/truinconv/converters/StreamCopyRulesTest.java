@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+import ws.schild.jave.encode.AudioAttributes;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.encode.VideoAttributes;
+import ws.schild.jave.info.AudioInfo;
+import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.info.VideoInfo;
+import ws.schild.jave.info.VideoSize;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks, on probe results built in the test, which sources are copied into a container or
+ * audio format unchanged and which are transcoded, and the encoders, Apple HEVC tag and Opus
+ * settings a transcode gets. Each table row is one source and target.
+ */
+class StreamCopyRulesTest {
+
+    private static final String H264 = "h264 (High) (avc1 / 0x31637661)";
+    private static final String HEVC = "hevc (Main) (hev1 / 0x31766568)";
+    private static final String VP9 = "vp9 (Profile 0)";
+    private static final String AV1 = "av1 (libdav1d) (Main)";
+    private static final String MJPEG = "mjpeg (Baseline) (MJPG / 0x47504A4D)";
+    private static final String AAC = "aac (LC) (mp4a / 0x6134706D)";
+    private static final String OPUS = "opus";
+    private static final String VORBIS = "vorbis";
+    private static final String MP3 = "mp3 (mp3float)";
+    private static final String PCM = "pcm_s16le ([1][0][0][0] / 0x0001)";
+    private static final String PCM_24 = "pcm_s24le ([1][0][0][0] / 0x0001)";
+    private static final String COPY = "copy";
+
+    /**
+     * A video conversion: the source streams, the target and requested codec, and the video
+     * encoder, tag and audio encoder expected, or {@link #COPY} for both when remuxed.
+     */
+    private record VideoCase(String video, String audio, String target, VideoCodec codec,
+                             String videoEncoder, String tag, String audioEncoder) {
+    }
+
+    /**
+     * An audio conversion: the source streams, the target and the audio encoder expected.
+     */
+    private record AudioCase(String video, String audio, String target, String audioEncoder) {
+    }
+
+    private static final List<VideoCase> VIDEO_CASES = List.of(
+            // Streams the container carries as-is are copied, the rest transcoded to its default codecs
+            new VideoCase(H264, AAC, "MP4", null, COPY, null, COPY),
+            new VideoCase(H264, AAC, "MOV", null, COPY, null, COPY),
+            new VideoCase(H264, AAC, "MKV", null, COPY, null, COPY),
+            new VideoCase(H264, AAC, "AVI", null, "libx264", null, "aac"),
+            new VideoCase(H264, AAC, "WEBM", null, "libvpx", null, "libopus"),
+            new VideoCase(H264, null, "AVI", null, COPY, null, null),
+            new VideoCase(H264, PCM, "MP4", null, "libx264", null, "aac"),
+            new VideoCase(VP9, OPUS, "MP4", null, COPY, null, COPY),
+            new VideoCase(VP9, OPUS, "MOV", null, "libx264", null, "aac"),
+            new VideoCase(VP9, VORBIS, "WEBM", null, COPY, null, COPY),
+            new VideoCase(VP9, VORBIS, "MP4", null, "libx264", null, "aac"),
+            new VideoCase(AV1, OPUS, "MKV", null, COPY, null, COPY),
+            new VideoCase(HEVC, AAC, "MP4", null, COPY, null, COPY),
+            new VideoCase(HEVC, AAC, "AVI", null, "libx264", null, "aac"),
+            new VideoCase(MJPEG, PCM, "MOV", null, COPY, null, COPY),
+            new VideoCase(MJPEG, PCM, "AVI", null, COPY, null, COPY),
+            // A requested codec is copied only from a source already in it; HEVC outside MKV is tagged
+            new VideoCase(H264, AAC, "MP4", VideoCodec.H264, COPY, null, COPY),
+            new VideoCase(VP9, OPUS, "MP4", VideoCodec.VP9, COPY, null, COPY),
+            new VideoCase(VP9, OPUS, "MP4", VideoCodec.HEVC, "libx265", "hvc1", "aac"),
+            new VideoCase(VP9, OPUS, "MKV", VideoCodec.HEVC, "libx265", null, "aac"),
+            new VideoCase(VP9, OPUS, "MP4", VideoCodec.AV1_SVT, "libsvtav1", null, "aac"),
+            new VideoCase(MJPEG, PCM, "MP4", VideoCodec.HEVC, "libx265", "hvc1", "aac"),
+            new VideoCase(MJPEG, PCM, "MOV", VideoCodec.HEVC, "libx265", "hvc1", "aac"),
+            new VideoCase(HEVC, AAC, "WEBM", VideoCodec.VP9, "libvpx-vp9", null, "libopus"),
+            // Either AV1 encoder is satisfied by an AV1 source
+            new VideoCase(AV1, OPUS, "MP4", VideoCodec.AV1_AOM, COPY, null, COPY),
+            new VideoCase(AV1, OPUS, "WEBM", VideoCodec.AV1_SVT, COPY, null, COPY)
+    );
+
+    private static final List<AudioCase> AUDIO_CASES = List.of(
+            // Extracting the soundtrack of a video copies it when the target format holds its codec
+            new AudioCase(H264, AAC, "AAC", COPY),
+            new AudioCase(H264, AAC, "MP3", "libmp3lame"),
+            new AudioCase(H264, MP3, "MP3", COPY),
+            new AudioCase(VP9, OPUS, "OGG", COPY),
+            new AudioCase(VP9, VORBIS, "OGG", COPY),
+            new AudioCase(VP9, OPUS, "AAC", "aac"),
+            new AudioCase(MJPEG, PCM, "WAV", COPY),
+            new AudioCase(MJPEG, PCM_24, "WAV", COPY),
+            new AudioCase(MJPEG, PCM, "FLAC", "flac"),
+            new AudioCase(HEVC, AAC, "OGG", "libvorbis"),
+            // Plain audio files follow the same rules
+            new AudioCase(null, "flac", "FLAC", COPY),
+            new AudioCase(null, MP3, "WAV", "pcm_s16le")
+    );
+
+    /**
+     * Every video row copies or transcodes its streams as the table says, and canStreamCopy
+     * agrees with the settings built.
+     */
+    @Test
+    void remuxesOrTranscodesVideo() {
+        for (VideoCase row : VIDEO_CASES) {
+            VideoEncodingOptions options = VideoEncodingOptions.DEFAULT.withCodec(row.codec());
+            MultimediaInfo info = info(row.video(), row.audio(), 2, 128_000);
+            EncodingAttributes settings = VideoConverter.createQualityPreservingSettings(info, row.target(), options);
+
+            VideoAttributes video = settings.getVideoAttributes().orElseThrow();
+            assertEquals(row.videoEncoder(), video.getCodec().orElse(null), row.toString());
+            assertEquals(row.tag(), video.getTag().orElse(null), row.toString());
+            assertEquals(Optional.ofNullable(row.audioEncoder()),
+                    settings.getAudioAttributes().flatMap(AudioAttributes::getCodec), row.toString());
+            assertEquals(FfmpegCommand.getMuxerName(row.target()), settings.getOutputFormat().orElse(null),
+                    row.toString());
+            assertEquals(COPY.equals(row.videoEncoder()), VideoConverter.canStreamCopy(info, row.target(), options),
+                    row.toString());
+        }
+    }
+
+    /**
+     * A source without video is never remuxed as a video.
+     */
+    @Test
+    void doesNotRemuxAudioOnlySources() {
+        assertFalse(VideoConverter.canStreamCopy(info(null, AAC, 2, 128_000), "MP4", VideoEncodingOptions.DEFAULT));
+    }
+
+    /**
+     * Transcoding to WEBM encodes Opus at 48 kHz with the bitrate capped at 256 kbit/s per
+     * channel, which libopus accepts; other containers encode AAC at the source's rate and
+     * bitrate. Low bitrates are raised to the 192 kbit/s fallback either way.
+     */
+    @Test
+    void encodesOpusForWebm() {
+        // channels, source bitrate, source rate, target, expected bitrate, expected rate
+        int[][] rows = {
+                {2, 1_536_000, 48_000, 0, 512_000, 48_000},
+                {1, 705_600, 44_100, 0, 256_000, 48_000},
+                {6, 1_000_000, 44_100, 0, 1_000_000, 48_000},
+                {2, 96_000, 44_100, 0, 192_000, 48_000},
+                {2, 1_411_200, 44_100, 1, 1_411_200, 44_100},
+                {1, 96_000, 22_050, 1, 192_000, 22_050}};
+        for (int[] row : rows) {
+            String target = row[3] == 0 ? "WEBM" : "MKV";
+            MultimediaInfo info = info(MJPEG, PCM, row[0], row[1]);
+            info.getAudio().setSamplingRate(row[2]);
+            EncodingAttributes settings = VideoConverter.createQualityPreservingSettings(info, target,
+                    VideoEncodingOptions.DEFAULT);
+
+            AudioAttributes audio = settings.getAudioAttributes().orElseThrow();
+            String message = target + " from " + row[0] + " channels at " + row[1];
+            assertEquals(row[3] == 0 ? "libopus" : "aac", audio.getCodec().orElse(null), message);
+            assertEquals(row[4], audio.getBitRate().orElse(null), message);
+            assertEquals(row[5], audio.getSamplingRate().orElse(null), message);
+            assertEquals(row[0], audio.getChannels().orElse(null), message);
+        }
+    }
+
+    /**
+     * Every audio row copies or encodes the audio stream as the table says, into the target's
+     * muxer.
+     */
+    @Test
+    void extractsOrTranscodesAudio() {
+        for (AudioCase row : AUDIO_CASES) {
+            EncodingAttributes settings = AudioConverter.createQualityPreservingSettings(
+                    info(row.video(), row.audio(), 2, 128_000), row.target());
+
+            assertEquals(Optional.ofNullable(row.audioEncoder()),
+                    settings.getAudioAttributes().flatMap(AudioAttributes::getCodec), row.toString());
+            assertEquals(Optional.empty(), settings.getVideoAttributes(), row.toString());
+            assertEquals(FfmpegCommand.getMuxerName(row.target()), settings.getOutputFormat().orElse(null),
+                    row.toString());
+        }
+    }
+
+    /**
+     * Extracting audio from a video without a soundtrack fails for every target.
+     */
+    @Test
+    void rejectsVideoWithoutAudio() {
+        for (String target : List.of("MP3", "WAV", "AAC", "FLAC", "OGG")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> AudioConverter.createQualityPreservingSettings(info(H264, null, 2, 0), target), target);
+        }
+    }
+
+    /**
+     * Decoder descriptions reduce to the lower-case codec name the copy tables use.
+     */
+    @Test
+    void extractsCodecNames() {
+        String[][] rows = {
+                {H264, "h264"}, {HEVC, "hevc"}, {AV1, "av1"}, {PCM, "pcm_s16le"}, {MP3, "mp3"},
+                {"opus", "opus"}, {"  VP9 (Profile 2)  ", "vp9"}, {"", ""}, {"   ", ""}, {null, ""}};
+        for (String[] row : rows) {
+            assertEquals(row[1], VideoConverter.codecName(row[0]), String.valueOf(row[0]));
+        }
+    }
+
+    /**
+     * Returns probe results of a source with the given streams; a null decoder leaves the
+     * stream out.
+     */
+    private static MultimediaInfo info(String videoDecoder, String audioDecoder, int channels, int audioBitRate) {
+        MultimediaInfo info = new MultimediaInfo().setFormat("test").setDuration(60_000);
+        if (videoDecoder != null) {
+            info.setVideo(new VideoInfo().setDecoder(videoDecoder).setSize(new VideoSize(1280, 720))
+                    .setFrameRate(30).setBitRate(4_000_000));
+        }
+        if (audioDecoder != null) {
+            info.setAudio(new AudioInfo().setDecoder(audioDecoder).setChannels(channels).setSamplingRate(48_000)
+                    .setBitRate(audioBitRate));
+        }
+        return info;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates short media files with ffmpeg's test sources, measures the streams of encoded
+ * outputs and watches the ffmpeg processes of the test JVM, for tests that run real encodes.
+ */
+public final class TestMedia {
+
+    static final int FRAME_RATE = 10;
+    static final long FRAME_MILLIS = 1000 / FRAME_RATE;
+
+    private static final Pattern FRAME_COUNT = Pattern.compile("frame=\\s*(\\d+)");
+
+    // Prevent instantiation
+    private TestMedia() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Length and frame count of one decoded stream.
+     *
+     * @param frames         decoded video frames, 0 for audio
+     * @param durationMillis timestamp of the end of the stream
+     */
+    record StreamMeasurement(long frames, long durationMillis) {
+    }
+
+    /**
+     * Writes an AVI clip of a moving test pattern with a sine tone: small MJPEG video at
+     * {@value #FRAME_RATE} fps and PCM audio, codecs no target container can take as they are.
+     *
+     * @param file          destination file
+     * @param durationMillis length of the clip
+     * @return the clip
+     * @throws IOException if ffmpeg fails
+     */
+    public static File writeClip(File file, long durationMillis) throws IOException {
+        String seconds = String.valueOf(durationMillis / 1000.0);
+        FfmpegCommand.run(List.of(
+                "-f", "lavfi", "-i", "testsrc2=size=160x120:rate=" + FRAME_RATE,
+                "-f", "lavfi", "-i", "sine=frequency=440:sample_rate=48000",
+                "-t", seconds, "-c:v", "mjpeg", "-q:v", "5", "-c:a", "pcm_s16le",
+                "-f", "avi", file.getAbsolutePath()), null);
+        return file;
+    }
+
+    /**
+     * Writes an MP3 file of a sine tone at 192 kbit/s, a bitrate every audio encoder accepts.
+     *
+     * @param file           destination file
+     * @param durationMillis length of the tone
+     * @return the tone
+     * @throws IOException if ffmpeg fails
+     */
+    static File writeTone(File file, long durationMillis) throws IOException {
+        FfmpegCommand.run(List.of("-f", "lavfi", "-i", "sine=frequency=440:sample_rate=44100",
+                "-t", String.valueOf(durationMillis / 1000.0), "-ac", "2", "-c:a", "libmp3lame", "-b:a", "192k",
+                "-f", "mp3", file.getAbsolutePath()), null);
+        return file;
+    }
+
+    /**
+     * Decodes every stream of a file and hashes the decoded frames and samples, so files
+     * differing only in container details, such as random Ogg stream serials, compare equal.
+     *
+     * @param file file to decode
+     * @return ffmpeg's MD5 line of the decoded content
+     * @throws IOException if ffmpeg fails
+     */
+    static String decodedMd5(File file) throws IOException {
+        File digest = new File(file.getPath() + ".md5");
+        FfmpegCommand.run(List.of("-i", file.getAbsolutePath(), "-map", "0", "-f", "md5",
+                digest.getAbsolutePath()), null);
+        try {
+            return Files.readString(digest.toPath(), StandardCharsets.US_ASCII).trim();
+        } finally {
+            Files.delete(digest.toPath());
+        }
+    }
+
+    /**
+     * Decodes one stream of a file and measures it.
+     *
+     * @param file   file to decode
+     * @param stream stream specifier, e.g. "0:v:0" or "0:a:0"
+     * @return frame count and end timestamp of the stream
+     * @throws IOException if ffmpeg fails
+     */
+    static StreamMeasurement measure(File file, String stream) throws IOException {
+        List<String> log = new ArrayList<>();
+        FfmpegCommand.run(List.of("-i", file.getAbsolutePath(), "-map", stream, "-f", "null", "-"), null, log::add);
+        long frames = 0;
+        long durationMillis = -1;
+        for (String line : log) {
+            Matcher frame = FRAME_COUNT.matcher(line);
+            if (frame.find()) {
+                frames = Long.parseLong(frame.group(1));
+            }
+            long decodedMillis = FfmpegCommand.encodedMillis(line);
+            if (decodedMillis >= 0) {
+                durationMillis = decodedMillis;
+            }
+        }
+        if (durationMillis < 0) {
+            throw new IOException("ffmpeg reported no progress for " + stream + " of " + file);
+        }
+        return new StreamMeasurement(frames, durationMillis);
+    }
+
+    /**
+     * Waits until an ffmpeg child process of the test JVM runs, or the timeout passes.
+     *
+     * @param timeoutMillis longest time to wait
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public static void awaitFfmpegRunning(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (ffmpegChildren().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Waits for every ffmpeg child process of the test JVM to exit.
+     *
+     * @param timeoutMillis longest time to wait for each process
+     * @throws Exception if a process is still running after the timeout
+     */
+    public static void awaitFfmpegExited(long timeoutMillis) throws Exception {
+        for (ProcessHandle child : ffmpegChildren()) {
+            child.onExit().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the running ffmpeg processes started by the test JVM.
+     *
+     * @return live ffmpeg child processes
+     */
+    public static List<ProcessHandle> ffmpegChildren() {
+        return ProcessHandle.current().children()
+                .filter(child -> child.info().command().map(command -> command.contains("ffmpeg")).orElse(false))
+                .toList();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes images above the 16 MP tiling threshold with {@link TiledTiffWriter} and reads them
+ * back with ImageIO's TIFF reader, and checks that an image too large for the file fails before
+ * the tiles that do not fit are written.
+ */
+class TiledTiffWriterTest {
+
+    // Above 16 MP, with partial tiles on the right and bottom edges
+    private static final int WIDTH = 4160;
+    private static final int HEIGHT = 4100;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A PackBits RGB image reads back with identical pixels.
+     */
+    @Test
+    void roundTripsPackBits() throws IOException {
+        assertRoundTrips(pattern(BufferedImage.TYPE_3BYTE_BGR), ImageCompressionPreset.FASTEST);
+    }
+
+    /**
+     * A Deflate RGBA image reads back with identical pixels and alpha.
+     */
+    @Test
+    void roundTripsDeflate() throws IOException {
+        assertRoundTrips(pattern(BufferedImage.TYPE_4BYTE_ABGR), ImageCompressionPreset.BALANCED);
+    }
+
+    /**
+     * An image whose tiles do not fit under the size limit fails at the first row of tiles that
+     * would exceed it, leaving a file within the limit.
+     */
+    @Test
+    void failsBeforeExceedingTheSizeLimit() throws IOException {
+        long maxFileBytes = 1024 * 1024;
+        BufferedImage image = pattern(BufferedImage.TYPE_3BYTE_BGR);
+        Path file = directory.resolve("limited.tiff");
+
+        try (ImageOutputStream output = new ChannelImageOutputStream(file)) {
+            IOException failure = assertThrows(IOException.class, () ->
+                    TiledTiffWriter.write(image, output, ImageCompressionPreset.FASTEST, maxFileBytes));
+            assertTrue(failure.getMessage().contains("too large"), failure.getMessage());
+        }
+
+        long written = Files.size(file);
+        assertTrue(written > 0 && written <= maxFileBytes, written + " bytes written");
+    }
+
+    /**
+     * Writes an image as tiled TIFF and compares what ImageIO reads back with it.
+     */
+    private void assertRoundTrips(BufferedImage image, ImageCompressionPreset preset) throws IOException {
+        assertTrue(TiledTiffWriter.canWrite(image, preset));
+        Path file = directory.resolve("tiled.tiff");
+        try (ImageOutputStream output = new ChannelImageOutputStream(file)) {
+            TiledTiffWriter.write(image, output, preset);
+        }
+
+        BufferedImage decoded = ImageIO.read(file.toFile());
+
+        assertEquals(WIDTH, decoded.getWidth());
+        assertEquals(HEIGHT, decoded.getHeight());
+        assertEquals(image.getColorModel().hasAlpha(), decoded.getColorModel().hasAlpha());
+        int[] expected = new int[WIDTH];
+        int[] actual = new int[WIDTH];
+        for (int y = 0; y < HEIGHT; y++) {
+            image.getRGB(0, y, WIDTH, 1, expected, 0, WIDTH);
+            decoded.getRGB(0, y, WIDTH, 1, actual, 0, WIDTH);
+            assertArrayEquals(expected, actual, "row " + y);
+        }
+    }
+
+    /**
+     * Returns an image of the test size with long runs on the left, which PackBits repeats,
+     * and noise on the right, which it copies literally.
+     */
+    private static BufferedImage pattern(int imageType) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, imageType);
+        byte[] samples = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int samplesPerPixel = image.getRaster().getNumBands();
+        int state = 1;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int offset = (y * WIDTH + x) * samplesPerPixel;
+                for (int sample = 0; sample < samplesPerPixel; sample++) {
+                    if (x < WIDTH / 2) {
+                        samples[offset + sample] = (byte) (x / 64 * 8 + y / 64 + sample * 40);
+                    } else {
+                        // xorshift noise
+                        state ^= state << 13;
+                        state ^= state >>> 17;
+                        state ^= state << 5;
+                        samples[offset + sample] = (byte) state;
+                    }
+                }
+            }
+        }
+        return image;
+    }
+}
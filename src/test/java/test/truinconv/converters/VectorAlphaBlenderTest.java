@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.converters;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the SIMD blend loops directly against Java2D, whether or not {@link AlphaFlattener}
+ * would pick them on this hardware. Needs {@code --add-modules jdk.incubator.vector}, which the
+ * build's {@code vector-api-test} execution passes.
+ */
+class VectorAlphaBlenderTest {
+
+    // Odd, and long enough for several vectors plus a tail on any vector width
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 3;
+    private static final long SEED = 11;
+
+    /**
+     * Skips the tests when the JVM was started without the Vector API.
+     */
+    @BeforeAll
+    static void requireVectorModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "jdk.incubator.vector is not resolved");
+    }
+
+    /**
+     * Straight packed ARGB pixels blend like Java2D.
+     */
+    @Test
+    void blendsPackedArgbLikeDrawImage() {
+        assertPackedArgbBlend(BufferedImage.TYPE_INT_ARGB, false);
+    }
+
+    /**
+     * Premultiplied packed ARGB pixels blend like Java2D.
+     */
+    @Test
+    void blendsPackedArgbPreLikeDrawImage() {
+        assertPackedArgbBlend(BufferedImage.TYPE_INT_ARGB_PRE, true);
+    }
+
+    /**
+     * Straight interleaved ABGR bytes blend and pack like Java2D.
+     */
+    @Test
+    void blendsInterleavedAbgrLikeDrawImage() {
+        assertInterleavedBlend(BufferedImage.TYPE_4BYTE_ABGR, false);
+    }
+
+    /**
+     * Premultiplied interleaved ABGR bytes blend and pack like Java2D.
+     */
+    @Test
+    void blendsInterleavedAbgrPreLikeDrawImage() {
+        assertInterleavedBlend(BufferedImage.TYPE_4BYTE_ABGR_PRE, true);
+    }
+
+    /**
+     * Blends the pixels of a packed image and compares the ones the vector loop handled.
+     */
+    private static void assertPackedArgbBlend(int imageType, boolean premultiplied) {
+        BufferedImage image = AlphaFlattenerTest.createSample(WIDTH, HEIGHT, imageType, new Random(SEED));
+        BufferedImage expected = AlphaFlattenerTest.drawOntoWhite(image);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int pixelCount = WIDTH * HEIGHT;
+
+        int blended = VectorAlphaBlender.blendPackedArgb(pixels, pixelCount, premultiplied);
+
+        assertTrue(blended > 0 && blended <= pixelCount, "blended " + blended + " of " + pixelCount);
+        for (int i = 0; i < blended; i++) {
+            assertEquals(Integer.toHexString(expected.getRGB(i % WIDTH, i / WIDTH) & 0xFFFFFF),
+                    Integer.toHexString(pixels[i]), "pixel " + i);
+        }
+    }
+
+    /**
+     * Blends the samples of an interleaved image and compares the BGR triples the vector loop wrote.
+     */
+    private static void assertInterleavedBlend(int imageType, boolean premultiplied) {
+        BufferedImage image = AlphaFlattenerTest.createSample(WIDTH, HEIGHT, imageType, new Random(SEED));
+        BufferedImage expected = AlphaFlattenerTest.drawOntoWhite(image);
+        byte[] samples = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int[] bandOffsets = ((PixelInterleavedSampleModel) image.getSampleModel()).getBandOffsets();
+        int pixelCount = WIDTH * HEIGHT;
+
+        int blended = VectorAlphaBlender.blendInterleavedRgba(samples, pixelCount, bandOffsets, premultiplied);
+
+        assertTrue(blended > 0 && blended <= pixelCount, "blended " + blended + " of " + pixelCount);
+        for (int i = 0; i < blended; i++) {
+            int target = i * 3;
+            int actualRgb = (samples[target + 2] & 0xFF) << 16 | (samples[target + 1] & 0xFF) << 8
+                    | samples[target] & 0xFF;
+            assertEquals(Integer.toHexString(expected.getRGB(i % WIDTH, i / WIDTH) & 0xFFFFFF),
+                    Integer.toHexString(actualRgb), "pixel " + i);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2025 Aleksey Trust
+ * This file is licensed under the MIT License.
+ * See the LICENSE file in the project root for full license information.
+ */
+
+package test.truinconv.watch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import test.truinconv.batch.BatchConversionEngine;
+import test.truinconv.batch.ConversionOutcome;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that {@link WatchFolderService} converts a new file once it settles, converts it again
+ * after a rewrite, and leaves files that were there before it started alone.
+ */
+class WatchFolderServiceTest {
+
+    private static final Duration SETTLE_DELAY = Duration.ofMillis(200);
+    private static final long TIMEOUT_MILLIS = 10_000;
+    // Several poll ticks past the settle delay, long enough for a wrong extra conversion to happen
+    private static final long QUIET_MILLIS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private Path inputDirectory;
+    private Path outputDirectory;
+    private BatchConversionEngine engine;
+    private WatchFolderService service;
+    private Thread watchThread;
+    private final Map<String, Integer> conversions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the watched and output directories, with one image already present, and starts
+     * watching.
+     */
+    @BeforeEach
+    void startService() throws IOException {
+        inputDirectory = Files.createDirectories(directory.resolve("in"));
+        outputDirectory = Files.createDirectories(directory.resolve("out"));
+        writeImage(inputDirectory.resolve("existing.png"), 4);
+
+        engine = new BatchConversionEngine(2);
+        service = new WatchFolderService(List.of(inputDirectory), "BMP", outputDirectory.toFile(), engine,
+                (completedJobs, totalJobs, outcome) -> record(outcome), SETTLE_DELAY);
+        watchThread = new Thread(service::run, "watch-folder-test");
+        watchThread.start();
+    }
+
+    /**
+     * Stops the service and its engine.
+     */
+    @AfterEach
+    void stopService() throws InterruptedException {
+        service.close();
+        watchThread.join(TIMEOUT_MILLIS);
+        engine.close();
+    }
+
+    /**
+     * A new file is converted once after it settles, and not again while it stays unchanged.
+     */
+    @Test
+    void convertsNewFileOnceAfterItSettles() throws Exception {
+        writeImage(inputDirectory.resolve("photo.png"), 4);
+
+        awaitConversions("photo.png", 1);
+        Thread.sleep(QUIET_MILLIS);
+
+        assertEquals(1, conversions.get("photo.png"));
+        assertEquals(4, ImageIO.read(outputDirectory.resolve("photo.bmp").toFile()).getWidth());
+    }
+
+    /**
+     * Rewriting a converted file with a different size converts it again.
+     */
+    @Test
+    void convertsResizedRewriteAgain() throws Exception {
+        Path photo = inputDirectory.resolve("photo.png");
+        writeImage(photo, 4);
+        awaitConversions("photo.png", 1);
+
+        writeImage(photo, 8);
+
+        awaitConversions("photo.png", 2);
+        assertEquals(8, ImageIO.read(outputDirectory.resolve("photo.bmp").toFile()).getWidth());
+    }
+
+    /**
+     * Touching a converted file without changing its size converts it again.
+     */
+    @Test
+    void convertsTouchedFileAgain() throws Exception {
+        Path photo = inputDirectory.resolve("photo.png");
+        writeImage(photo, 4);
+        awaitConversions("photo.png", 1);
+
+        Files.setLastModifiedTime(photo, FileTime.fromMillis(Files.getLastModifiedTime(photo).toMillis() + 5_000));
+
+        awaitConversions("photo.png", 2);
+    }
+
+    /**
+     * Files present before the service started are not converted, even while new ones are.
+     */
+    @Test
+    void ignoresFilesPresentAtStartup() throws Exception {
+        writeImage(inputDirectory.resolve("photo.png"), 4);
+        awaitConversions("photo.png", 1);
+        Thread.sleep(QUIET_MILLIS);
+
+        assertNull(conversions.get("existing.png"));
+        assertFalse(Files.exists(outputDirectory.resolve("existing.bmp")));
+    }
+
+    /**
+     * Counts a successful conversion of the outcome's input.
+     */
+    private void record(ConversionOutcome outcome) {
+        if (!outcome.isFailed()) {
+            conversions.merge(outcome.job().inputFile().getName(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Waits until a file has been converted the given number of times.
+     */
+    private void awaitConversions(String fileName, int count) throws InterruptedException {
+        awaitTrue(() -> conversions.getOrDefault(fileName, 0) >= count, fileName + " converted " + count + " times");
+    }
+
+    /**
+     * Writes a square PNG of the given size.
+     */
+    private static void writeImage(Path path, int size) throws IOException {
+        ImageIO.write(new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+    }
+
+    /**
+     * Polls a condition until it holds.
+     */
+    private static void awaitTrue(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("timed out waiting for " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+}